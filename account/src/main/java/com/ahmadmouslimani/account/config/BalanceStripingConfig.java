@@ -0,0 +1,11 @@
+package com.ahmadmouslimani.account.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableConfigurationProperties(BalanceStripingProperties.class)
+@EnableScheduling
+public class BalanceStripingConfig {
+}
@@ -0,0 +1,19 @@
+package com.ahmadmouslimani.account.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for splitting the balance of hot accounts across sub-balance rows.
+ * @param enabled When true, balances are read and adjusted across the stripes of striped accounts
+ * @param defaultStripes Number of stripes used when none is given while striping an account
+ * @param rebalanceInterval Delay between two rebalancing runs over the striped accounts
+ */
+@ConfigurationProperties(prefix = "app.balance-striping")
+public record BalanceStripingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("8") int defaultStripes,
+        @DefaultValue("10s") Duration rebalanceInterval
+) {}
@@ -0,0 +1,23 @@
+package com.ahmadmouslimani.account.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for committing concurrent balance adjustments together.
+ * @param enabled When true, concurrent adjustBalance requests are applied in one database transaction
+ * @param maxBatchSize Maximum number of adjustments committed together
+ * @param maxWait How long the first adjustment of a batch waits for others to join it
+ * @param queueCapacity Number of adjustments that may wait for a batch before callers block
+ * @param resultTimeout How long a caller waits to queue its adjustment and for the commit of its batch
+ */
+@ConfigurationProperties(prefix = "app.group-commit")
+public record GroupCommitProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("128") int maxBatchSize,
+        @DefaultValue("1ms") Duration maxWait,
+        @DefaultValue("4096") int queueCapacity,
+        @DefaultValue("10s") Duration resultTimeout
+) {}
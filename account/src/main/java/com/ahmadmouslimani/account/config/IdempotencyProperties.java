@@ -0,0 +1,17 @@
+package com.ahmadmouslimani.account.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the idempotency keys of balance adjustments.
+ * @param retention How long the key of an applied adjustment is kept. Retries arriving later are applied again
+ * @param purgeInterval Delay between two deletions of the expired keys
+ */
+@ConfigurationProperties(prefix = "app.idempotency")
+public record IdempotencyProperties(
+        @DefaultValue("7d") Duration retention,
+        @DefaultValue("1h") Duration purgeInterval
+) {}
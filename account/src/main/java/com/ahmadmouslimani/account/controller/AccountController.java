@@ -2,15 +2,21 @@ package com.ahmadmouslimani.account.controller;
 
 import com.ahmadmouslimani.account.dto.AccountRequestDTO;
 import com.ahmadmouslimani.account.dto.AccountResponseDTO;
+import com.ahmadmouslimani.account.dto.BalanceAdjustmentRequestDTO;
+import com.ahmadmouslimani.account.dto.BalanceAdjustmentResultDTO;
 import com.ahmadmouslimani.account.dto.ErrorResponseDTO;
 import com.ahmadmouslimani.account.service.AccountService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -19,6 +25,7 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -101,6 +108,42 @@ public class AccountController {
     }
 
 
+    @Operation(
+            summary = "Fetch many Accounts Details",
+            description = "Retrieves the accounts matching the provided Ids in one call. Unknown Ids are left out of the response."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Accounts fetched successfully",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = AccountResponseDTO.class))
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid input data",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Internal server error",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDTO.class)
+                    )
+            )
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<List<AccountResponseDTO>> getAccountsByIds(
+            @RequestBody
+            @Size(min = 1, max = 1000, message = "Between 1 and 1000 account ids are allowed")
+            List<UUID> ids) {
+        log.debug("Request Account details for {} ids", ids.size());
+        return ResponseEntity.ok(accountService.getAccountsByIds(ids));
+    }
+
+
     @Operation(
             summary = "Update Account Details",
             description = "Updates the status and balance of an existing account identified by its UUID."
@@ -143,7 +186,8 @@ public class AccountController {
 
     @Operation(
             summary = "Adjust Account Balance",
-            description = "REST API to adjust account balance based on a accountId, amount, and transactionType"
+            description = "REST API to adjust account balance based on a accountId, amount, and transactionType. " +
+                    "With an Idempotency-Key header the adjustment is applied at most once, a retry with the same key returns the current account."
     )
     @ApiResponses({
             @ApiResponse(
@@ -172,13 +216,127 @@ public class AccountController {
     public ResponseEntity<AccountResponseDTO> adjustBalance(
             @PathVariable UUID id,
             @RequestParam BigDecimal amount,
-            @RequestParam String transactionType) {
+            @RequestParam String transactionType,
+            @RequestHeader(name = "Idempotency-Key", required = false) UUID idempotencyKey) {
         log.debug("Request adjustBalance for accountId: {}", id);
-        AccountResponseDTO updatedAccount = accountService.adjustBalance(id, amount, transactionType);
+        AccountResponseDTO updatedAccount = idempotencyKey == null ?
+                accountService.adjustBalance(id, amount, transactionType) :
+                accountService.adjustBalance(id, amount, transactionType, idempotencyKey);
         return ResponseEntity.ok(updatedAccount);
     }
 
 
+    @Operation(
+            summary = "Adjust many Account Balances",
+            description = "REST API to apply many balance adjustments in the given order within one database transaction. Returns one result per adjustment."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Adjustments processed, see each result for its outcome",
+                    content = @Content(
+                            array = @ArraySchema(schema = @Schema(implementation = BalanceAdjustmentResultDTO.class))
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid input data",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Internal server error",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDTO.class)
+                    )
+            )
+    })
+    @PatchMapping("/balance/batch")
+    public ResponseEntity<List<BalanceAdjustmentResultDTO>> adjustBalances(
+            @RequestBody
+            @Size(min = 1, max = 1000, message = "Between 1 and 1000 adjustments are allowed")
+            List<@Valid BalanceAdjustmentRequestDTO> adjustments) {
+        log.debug("Request adjustBalances for {} adjustments", adjustments.size());
+        return ResponseEntity.ok(accountService.adjustBalances(adjustments));
+    }
+
+
+    @Operation(
+            summary = "Stripe an Account Balance",
+            description = "REST API to split the balance of a hot account across sub-balance rows, so concurrent debits lock different rows. " +
+                    "Requires app.balance-striping.enabled. The account keeps reporting its total balance."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Balance striped",
+                    content = @Content(schema = @Schema(implementation = AccountResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Account ID not found in the system",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "Balance striping is disabled",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Internal server error",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDTO.class)
+                    )
+            )
+    })
+    @PutMapping("/{id}/stripes")
+    public ResponseEntity<AccountResponseDTO> stripeBalance(
+            @PathVariable UUID id,
+            @RequestParam(required = false)
+            @Min(value = 2, message = "At least 2 stripes are required")
+            @Max(value = 64, message = "At most 64 stripes are allowed")
+            Integer count) {
+        log.debug("Request stripeBalance for accountId: {}", id);
+        return ResponseEntity.ok(accountService.stripeBalance(id, count));
+    }
+
+
+    @Operation(
+            summary = "Unstripe an Account Balance",
+            description = "REST API to move a striped balance back into the account row."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Balance moved back to the account",
+                    content = @Content(schema = @Schema(implementation = AccountResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Account ID not found in the system",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "Balance striping is disabled",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Internal server error",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDTO.class)
+                    )
+            )
+    })
+    @DeleteMapping("/{id}/stripes")
+    public ResponseEntity<AccountResponseDTO> unstripeBalance(@PathVariable UUID id) {
+        log.debug("Request unstripeBalance for accountId: {}", id);
+        return ResponseEntity.ok(accountService.unstripeBalance(id));
+    }
+
+
     @Operation(
             summary = "Delete an Account",
             description = "Deletes an existing account. Returns no content on success."
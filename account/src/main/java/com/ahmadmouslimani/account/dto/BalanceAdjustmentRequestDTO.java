@@ -0,0 +1,28 @@
+package com.ahmadmouslimani.account.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Schema(name = "BalanceAdjustmentRequest", description = "Schema to hold a single balance adjustment of a batch")
+public record BalanceAdjustmentRequestDTO(
+        @Schema(description = "Unique identifier of the account", example = "295a95ff-9a67-4a4f-bff1-7b8558368673")
+        @NotNull(message = "accountId is required")
+        UUID accountId,
+
+        @Schema(description = "Amount to be added/deducted", example = "100.5")
+        @NotNull(message = "amount is required")
+        @Digits(integer = 17, fraction = 2, message = "Invalid amount format")
+        @Positive
+        BigDecimal amount,
+
+        @Schema(description = "Transaction type must be either 'C' for Credit or 'D' for Debit", example = "D")
+        @NotNull(message = "transactionType is required")
+        @Pattern(regexp = "^(C|D)$", message = "Transaction type must be either 'C' for Credit or 'D' for Debit")
+        String transactionType
+) {}
@@ -0,0 +1,25 @@
+package com.ahmadmouslimani.account.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.UUID;
+
+@Schema(name = "BalanceAdjustmentResult", description = "Schema to hold the outcome of a single balance adjustment of a batch")
+public record BalanceAdjustmentResultDTO(
+        @Schema(description = "Unique identifier of the account")
+        UUID accountId,
+
+        @Schema(description = "Whether the adjustment was applied")
+        boolean applied,
+
+        @Schema(description = "Reason when the adjustment was not applied", example = "Insufficient funds or account not found")
+        String message
+) {
+    public static BalanceAdjustmentResultDTO applied(UUID accountId) {
+        return new BalanceAdjustmentResultDTO(accountId, true, null);
+    }
+
+    public static BalanceAdjustmentResultDTO rejected(UUID accountId, String message) {
+        return new BalanceAdjustmentResultDTO(accountId, false, message);
+    }
+}
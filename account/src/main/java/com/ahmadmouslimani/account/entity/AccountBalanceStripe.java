@@ -0,0 +1,43 @@
+package com.ahmadmouslimani.account.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * One part of the balance of a striped account. The balance of the account is the balance of its
+ * account row plus the balance of all its stripes, debits pick a single stripe so they lock only that row.
+ */
+@Entity
+@Table(
+        name = "account_balance_stripe",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"accountId", "stripeIndex"})
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class AccountBalanceStripe {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(nullable = false, updatable = false)
+    private UUID accountId;
+
+    @Column(nullable = false, updatable = false)
+    private int stripeIndex;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance;
+
+    public AccountBalanceStripe(UUID accountId, int stripeIndex, BigDecimal balance) {
+        this.accountId = accountId;
+        this.stripeIndex = stripeIndex;
+        this.balance = balance;
+    }
+}
@@ -0,0 +1,33 @@
+package com.ahmadmouslimani.account.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Idempotency key of a balance adjustment that was applied. The key is inserted in the transaction of the
+ * adjustment, so a retried request carrying the same key finds it and is not applied a second time.
+ */
+@Entity
+@Table(
+        name = "applied_adjustment",
+        indexes = @Index(columnList = "createdAt")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class AppliedAdjustment {
+    @Id
+    @Column(updatable = false, nullable = false)
+    private UUID idempotencyKey;
+
+    @Column(nullable = false, updatable = false)
+    private UUID accountId;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+}
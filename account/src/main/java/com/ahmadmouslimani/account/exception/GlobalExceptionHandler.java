@@ -19,7 +19,7 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 import java.time.LocalDateTime;
 
 @Slf4j
-@RestControllerAdvice
+@RestControllerAdvice(basePackages = "com.ahmadmouslimani.account")
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
     @Override
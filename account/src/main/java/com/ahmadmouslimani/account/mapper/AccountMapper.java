@@ -3,6 +3,7 @@ package com.ahmadmouslimani.account.mapper;
 import com.ahmadmouslimani.account.dto.AccountRequestDTO;
 import com.ahmadmouslimani.account.dto.AccountResponseDTO;
 import com.ahmadmouslimani.account.entity.Account;
+import com.ahmadmouslimani.account.repository.AccountBalanceView;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -26,4 +27,13 @@ public class AccountMapper {
                 account.getBalance()
         );
     }
+
+    public AccountResponseDTO mapToDto(AccountBalanceView account) {
+        if (account == null) return null;
+        return new AccountResponseDTO(
+                account.getId(),
+                account.getStatus(),
+                account.getBalance()
+        );
+    }
 }
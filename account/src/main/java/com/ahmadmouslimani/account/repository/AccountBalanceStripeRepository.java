@@ -0,0 +1,45 @@
+package com.ahmadmouslimani.account.repository;
+
+import com.ahmadmouslimani.account.entity.AccountBalanceStripe;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface AccountBalanceStripeRepository extends JpaRepository<AccountBalanceStripe, UUID> {
+
+    //Debits one stripe holding enough funds, skipping the stripes other transactions are debiting.
+    //The returned balance is the account total after the debit, read in the same statement.
+    //Empty when every stripe is locked or lacks the funds.
+    @Transactional
+    @Query(value = "WITH picked AS (" +
+            "SELECT id FROM {h-schema}account_balance_stripe WHERE account_id = :accountId AND balance >= :amount " +
+            "ORDER BY random() LIMIT 1 FOR UPDATE SKIP LOCKED), " +
+            "debited AS (" +
+            "UPDATE {h-schema}account_balance_stripe s SET balance = s.balance - :amount FROM picked " +
+            "WHERE s.id = picked.id RETURNING s.account_id) " +
+            "SELECT a.id AS id, a.status AS status, a.balance - :amount + " +
+            "(SELECT COALESCE(SUM(t.balance), 0) FROM {h-schema}account_balance_stripe t WHERE t.account_id = a.id) AS balance " +
+            "FROM debited JOIN {h-schema}account a ON a.id = debited.account_id", nativeQuery = true)
+    Optional<AccountBalanceView> debitAnyStripe(UUID accountId, BigDecimal amount);
+
+    //Always lock the account row before its stripes, and the stripes in index order, to avoid deadlocks
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<AccountBalanceStripe> findAllByAccountIdOrderByStripeIndex(UUID accountId);
+
+    @Query("SELECT DISTINCT s.accountId FROM AccountBalanceStripe s")
+    List<UUID> findStripedAccountIds();
+
+    @Modifying
+    @Query("DELETE FROM AccountBalanceStripe s WHERE s.accountId = :accountId")
+    int deleteAllByAccountId(UUID accountId);
+}
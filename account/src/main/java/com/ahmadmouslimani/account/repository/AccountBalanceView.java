@@ -0,0 +1,15 @@
+package com.ahmadmouslimani.account.repository;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Account columns returned by the balance adjustments, read from the same statement as the update.
+ */
+public interface AccountBalanceView {
+    UUID getId();
+
+    String getStatus();
+
+    BigDecimal getBalance();
+}
@@ -1,12 +1,17 @@
 package com.ahmadmouslimani.account.repository;
 
 import com.ahmadmouslimani.account.entity.Account;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 @Repository
 public interface AccountRepository extends JpaRepository<Account, UUID> {
@@ -17,4 +22,43 @@ public interface AccountRepository extends JpaRepository<Account, UUID> {
     @Modifying
     @Query("UPDATE Account a SET a.balance = (a.balance + :amount) WHERE a.id = :id")
     int creditBalance(UUID id, BigDecimal amount);
+
+    //Same conditional update as debitBalance, the new balance comes back in the same round trip.
+    //Empty when the account does not exist or the funds are insufficient.
+    @Transactional
+    @Query(value = "UPDATE {h-schema}account SET balance = balance - :amount WHERE id = :id AND balance >= :amount " +
+            "RETURNING id, status, balance", nativeQuery = true)
+    Optional<AccountBalanceView> debitBalanceReturning(UUID id, BigDecimal amount);
+
+    @Transactional
+    @Query(value = "UPDATE {h-schema}account SET balance = balance + :amount WHERE id = :id " +
+            "RETURNING id, status, balance", nativeQuery = true)
+    Optional<AccountBalanceView> creditBalanceReturning(UUID id, BigDecimal amount);
+
+    //Variants used with balance striping: the returned balance is the account row plus all its stripes
+    String TOTAL_BALANCE = "a.balance + (SELECT COALESCE(SUM(s.balance), 0) " +
+            "FROM {h-schema}account_balance_stripe s WHERE s.account_id = a.id)";
+
+    @Transactional
+    @Query(value = "UPDATE {h-schema}account a SET balance = a.balance - :amount WHERE a.id = :id AND a.balance >= :amount " +
+            "RETURNING a.id AS id, a.status AS status, " + TOTAL_BALANCE + " AS balance", nativeQuery = true)
+    Optional<AccountBalanceView> debitBalanceReturningTotal(UUID id, BigDecimal amount);
+
+    @Transactional
+    @Query(value = "UPDATE {h-schema}account a SET balance = a.balance + :amount WHERE a.id = :id " +
+            "RETURNING a.id AS id, a.status AS status, " + TOTAL_BALANCE + " AS balance", nativeQuery = true)
+    Optional<AccountBalanceView> creditBalanceReturningTotal(UUID id, BigDecimal amount);
+
+    //Account row and stripes are read in one statement, so the total is consistent
+    @Query(value = "SELECT a.id AS id, a.status AS status, " + TOTAL_BALANCE + " AS balance " +
+            "FROM {h-schema}account a WHERE a.id = :id", nativeQuery = true)
+    Optional<AccountBalanceView> findTotalById(UUID id);
+
+    @Query(value = "SELECT a.id AS id, a.status AS status, " + TOTAL_BALANCE + " AS balance " +
+            "FROM {h-schema}account a WHERE a.id IN (:ids)", nativeQuery = true)
+    List<AccountBalanceView> findTotalsByIdIn(List<UUID> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id = :id")
+    Optional<Account> findByIdForUpdate(UUID id);
 }
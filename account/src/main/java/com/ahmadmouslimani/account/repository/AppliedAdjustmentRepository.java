@@ -0,0 +1,31 @@
+package com.ahmadmouslimani.account.repository;
+
+import com.ahmadmouslimani.account.entity.AppliedAdjustment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Repository
+public interface AppliedAdjustmentRepository extends JpaRepository<AppliedAdjustment, UUID> {
+
+    //Returns 0 when the key is already taken. A concurrent insert of the same key waits for the
+    //transaction holding it, so two requests with one key are never applied together.
+    @Modifying
+    @Query(value = "INSERT INTO {h-schema}applied_adjustment (idempotency_key, account_id, created_at) " +
+            "VALUES (:idempotencyKey, :accountId, now()) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int claim(UUID idempotencyKey, UUID accountId);
+
+    @Modifying
+    @Query("DELETE FROM AppliedAdjustment a WHERE a.idempotencyKey = :idempotencyKey")
+    int release(UUID idempotencyKey);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AppliedAdjustment a WHERE a.createdAt < :threshold")
+    int deleteOlderThan(Instant threshold);
+}
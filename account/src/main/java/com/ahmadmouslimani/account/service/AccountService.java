@@ -2,8 +2,11 @@ package com.ahmadmouslimani.account.service;
 
 import com.ahmadmouslimani.account.dto.AccountRequestDTO;
 import com.ahmadmouslimani.account.dto.AccountResponseDTO;
+import com.ahmadmouslimani.account.dto.BalanceAdjustmentRequestDTO;
+import com.ahmadmouslimani.account.dto.BalanceAdjustmentResultDTO;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.UUID;
 
 public interface AccountService {
@@ -22,6 +25,13 @@ public interface AccountService {
      */
     AccountResponseDTO getAccountById(UUID id);
 
+    /**
+     * Get many accounts' details in one query.
+     * @param ids The UUIDs of the accounts
+     * @return The found accounts, unknown ids are left out
+     */
+    List<AccountResponseDTO> getAccountsByIds(List<UUID> ids);
+
 
     /**
      * Updates an existing account's status or balance.
@@ -41,6 +51,40 @@ public interface AccountService {
      */
     AccountResponseDTO adjustBalance(UUID id, BigDecimal amount, String transactionType);
 
+    /**
+     * Adjusts Balance for an existing account at most once per idempotency key.
+     * A request repeating the key of an applied adjustment changes nothing and returns the current account.
+     * @param id The UUID of the account to update
+     * @param amount The amount to be added/deducted from the original amount
+     * @param transactionType The type of the transaction. it can be "C" for Credit, or "D" for Debit
+     * @param idempotencyKey The key identifying the adjustment across retries
+     * @return The AccountResponseDTO with the adjusted amount
+     */
+    AccountResponseDTO adjustBalance(UUID id, BigDecimal amount, String transactionType, UUID idempotencyKey);
+
+    /**
+     * Applies many balance adjustments, in the given order, within one database transaction.
+     * Each adjustment is applied entirely or not at all, a rejected one does not affect the others.
+     * @param adjustments The adjustments to apply
+     * @return One result per adjustment, in the same order
+     */
+    List<BalanceAdjustmentResultDTO> adjustBalances(List<BalanceAdjustmentRequestDTO> adjustments);
+
+    /**
+     * Splits the balance of a hot account across sub-balance stripes, so concurrent debits lock different rows.
+     * @param id The UUID of the account
+     * @param stripes The number of stripes, the configured default when null
+     * @return The AccountResponseDTO with the total balance
+     */
+    AccountResponseDTO stripeBalance(UUID id, Integer stripes);
+
+    /**
+     * Moves a striped balance back into the account row.
+     * @param id The UUID of the account
+     * @return The AccountResponseDTO with the total balance
+     */
+    AccountResponseDTO unstripeBalance(UUID id);
+
     /**
      * Deletes an account from the system.
      * @param id The UUID of the account to delete
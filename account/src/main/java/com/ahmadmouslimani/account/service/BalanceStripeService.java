@@ -0,0 +1,53 @@
+package com.ahmadmouslimani.account.service;
+
+import com.ahmadmouslimani.account.dto.AccountResponseDTO;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface BalanceStripeService {
+
+    /**
+     * Splits the whole balance of an account evenly across sub-balance stripes.
+     * An account that is already striped is re-split into the new number of stripes.
+     * @param id The UUID of the account
+     * @param stripes The number of stripes
+     * @return The account with its total balance
+     */
+    AccountResponseDTO stripeAccount(UUID id, int stripes);
+
+    /**
+     * Moves the balance of all stripes back into the account row and removes the stripes.
+     * @param id The UUID of the account
+     * @return The account with its total balance
+     */
+    AccountResponseDTO unstripeAccount(UUID id);
+
+    /**
+     * Debits one stripe of the account, or the total across all stripes when no single stripe can take it.
+     * @param id The UUID of the account
+     * @param amount The amount to deduct
+     * @return The account with its total balance after the debit, empty when the funds are insufficient
+     */
+    Optional<AccountResponseDTO> debit(UUID id, BigDecimal amount);
+
+    /**
+     * Spreads the total balance of a striped account evenly again when the stripes are skewed.
+     * @param id The UUID of the account
+     * @return true when the stripes were rewritten
+     */
+    boolean rebalance(UUID id);
+
+    /**
+     * Removes the stripes of an account without moving their balance, before its balance is overwritten or deleted.
+     * @param id The UUID of the account
+     */
+    void removeStripes(UUID id);
+
+    /**
+     * @return The UUIDs of all striped accounts
+     */
+    List<UUID> getStripedAccountIds();
+}
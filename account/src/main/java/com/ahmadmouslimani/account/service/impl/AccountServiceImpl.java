@@ -1,19 +1,26 @@
 package com.ahmadmouslimani.account.service.impl;
 
+import com.ahmadmouslimani.account.config.BalanceStripingProperties;
 import com.ahmadmouslimani.account.dto.AccountRequestDTO;
 import com.ahmadmouslimani.account.dto.AccountResponseDTO;
+import com.ahmadmouslimani.account.dto.BalanceAdjustmentRequestDTO;
+import com.ahmadmouslimani.account.dto.BalanceAdjustmentResultDTO;
 import com.ahmadmouslimani.account.entity.Account;
 import com.ahmadmouslimani.account.enums.TransactionType;
 import com.ahmadmouslimani.account.exception.BusinessException;
 import com.ahmadmouslimani.account.exception.ResourceNotFoundException;
 import com.ahmadmouslimani.account.mapper.AccountMapper;
 import com.ahmadmouslimani.account.repository.AccountRepository;
+import com.ahmadmouslimani.account.repository.AppliedAdjustmentRepository;
 import com.ahmadmouslimani.account.service.AccountService;
+import com.ahmadmouslimani.account.service.BalanceStripeService;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -21,6 +28,10 @@ import java.util.UUID;
 public class AccountServiceImpl implements AccountService {
     private final AccountRepository accountRepository;
     private final AccountMapper mapper;
+    private final BalanceStripeService balanceStripeService;
+    private final BalanceStripingProperties stripingProperties;
+    private final BalanceGroupCommitter balanceGroupCommitter;
+    private final AppliedAdjustmentRepository appliedAdjustmentRepository;
 
     @Override
     public AccountResponseDTO createAccount(AccountRequestDTO request) {
@@ -31,11 +42,28 @@ public class AccountServiceImpl implements AccountService {
 
     @Override
     public AccountResponseDTO getAccountById(UUID id) {
+        if (stripingProperties.enabled()) {
+            return accountRepository.findTotalById(id)
+                    .map(mapper::mapToDto)
+                    .orElseThrow(() -> new ResourceNotFoundException("Account", "id", id.toString()));
+        }
         Account account = accountRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Account", "id", id.toString()));
         return mapper.mapToDto(account);
     }
 
+    @Override
+    public List<AccountResponseDTO> getAccountsByIds(List<UUID> ids) {
+        if (stripingProperties.enabled()) {
+            return accountRepository.findTotalsByIdIn(ids).stream()
+                    .map(mapper::mapToDto)
+                    .toList();
+        }
+        return accountRepository.findAllById(ids).stream()
+                .map(mapper::mapToDto)
+                .toList();
+    }
+
     @Override
     @Transactional
     public AccountResponseDTO updateAccount(UUID id, AccountRequestDTO request) {
@@ -45,33 +73,121 @@ public class AccountServiceImpl implements AccountService {
 
         existingAccount.setStatus(request.status());
         existingAccount.setBalance(request.balance());
+        if (stripingProperties.enabled()) {
+            //The new balance replaces the whole balance, including the stripes
+            balanceStripeService.removeStripes(id);
+        }
 
         Account updatedAccount = accountRepository.save(existingAccount);
         return mapper.mapToDto(updatedAccount);
     }
 
     @Override
-    @Transactional
     public AccountResponseDTO adjustBalance(UUID id, BigDecimal amount, String transactionType) {
-        int updatedRows;
+        //Runs in its own transaction, or in a transaction shared with concurrent adjustments when group commit is on
+        return balanceGroupCommitter.execute(() -> applyAdjustment(id, amount, transactionType));
+    }
+
+    @Override
+    public AccountResponseDTO adjustBalance(UUID id, BigDecimal amount, String transactionType, UUID idempotencyKey) {
+        return balanceGroupCommitter.execute(() -> {
+            //The key is inserted in the transaction of the adjustment, so it is taken only once the adjustment is committed
+            if (appliedAdjustmentRepository.claim(idempotencyKey, id) == 0) {
+                return getAccountById(id);
+            }
+            try {
+                return applyAdjustment(id, amount, transactionType);
+            } catch (BusinessException | ResourceNotFoundException ex) {
+                //A rejection changes nothing and does not roll back a group commit, free the key for a later retry
+                appliedAdjustmentRepository.release(idempotencyKey);
+                throw ex;
+            }
+        });
+    }
+
+    private AccountResponseDTO applyAdjustment(UUID id, BigDecimal amount, String transactionType) {
+        if (stripingProperties.enabled()) {
+            return adjustStripedBalance(id, amount, transactionType);
+        }
+        //The conditional update returns the new balance and status, no second read of the row is needed
         if (TransactionType.D.name().equals(transactionType)) {
-            updatedRows = accountRepository.debitBalance(id, amount);
-            if (updatedRows == 0) throw new BusinessException("Insufficient funds or account not found");
+            return accountRepository.debitBalanceReturning(id, amount)
+                    .map(mapper::mapToDto)
+                    .orElseThrow(() -> new BusinessException("Insufficient funds or account not found"));
         } else if (TransactionType.C.name().equals(transactionType)) {
-            updatedRows = accountRepository.creditBalance(id, amount);
-            if (updatedRows == 0) throw new BusinessException("account not found");
+            return accountRepository.creditBalanceReturning(id, amount)
+                    .map(mapper::mapToDto)
+                    .orElseThrow(() -> new BusinessException("account not found"));
         }
         Account account = accountRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Account", "id", id.toString()));
         return mapper.mapToDto(account);
     }
 
+    //Debits try the account row first, which holds no funds once striped, then the stripes.
+    //Credits always land on the account row and are moved to the stripes by the rebalancing.
+    private AccountResponseDTO adjustStripedBalance(UUID id, BigDecimal amount, String transactionType) {
+        if (TransactionType.D.name().equals(transactionType)) {
+            return accountRepository.debitBalanceReturningTotal(id, amount)
+                    .map(mapper::mapToDto)
+                    .or(() -> balanceStripeService.debit(id, amount))
+                    .orElseThrow(() -> new BusinessException("Insufficient funds or account not found"));
+        } else if (TransactionType.C.name().equals(transactionType)) {
+            return accountRepository.creditBalanceReturningTotal(id, amount)
+                    .map(mapper::mapToDto)
+                    .orElseThrow(() -> new BusinessException("account not found"));
+        }
+        return getAccountById(id);
+    }
+
+    @Override
+    @Transactional
+    public List<BalanceAdjustmentResultDTO> adjustBalances(List<BalanceAdjustmentRequestDTO> adjustments) {
+        List<BalanceAdjustmentResultDTO> results = new ArrayList<>(adjustments.size());
+        //Each conditional UPDATE either applies fully or touches no row, so one rejection never rolls back the others
+        for (BalanceAdjustmentRequestDTO adjustment : adjustments) {
+            UUID id = adjustment.accountId();
+            if (TransactionType.D.name().equals(adjustment.transactionType())) {
+                results.add(accountRepository.debitBalance(id, adjustment.amount()) == 1
+                        || (stripingProperties.enabled() && balanceStripeService.debit(id, adjustment.amount()).isPresent())
+                        ? BalanceAdjustmentResultDTO.applied(id)
+                        : BalanceAdjustmentResultDTO.rejected(id, "Insufficient funds or account not found"));
+            } else if (TransactionType.C.name().equals(adjustment.transactionType())) {
+                results.add(accountRepository.creditBalance(id, adjustment.amount()) == 1
+                        ? BalanceAdjustmentResultDTO.applied(id)
+                        : BalanceAdjustmentResultDTO.rejected(id, "account not found"));
+            } else {
+                results.add(BalanceAdjustmentResultDTO.rejected(id, "Invalid transaction type"));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public AccountResponseDTO stripeBalance(UUID id, Integer stripes) {
+        if (!stripingProperties.enabled()) {
+            throw new BusinessException("Balance striping is disabled");
+        }
+        return balanceStripeService.stripeAccount(id, stripes != null ? stripes : stripingProperties.defaultStripes());
+    }
+
+    @Override
+    public AccountResponseDTO unstripeBalance(UUID id) {
+        if (!stripingProperties.enabled()) {
+            throw new BusinessException("Balance striping is disabled");
+        }
+        return balanceStripeService.unstripeAccount(id);
+    }
+
     @Override
     @Transactional
     public void deleteAccount(UUID id) {
         Account account = accountRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Account", "id", id.toString()));
 
+        if (stripingProperties.enabled()) {
+            balanceStripeService.removeStripes(id);
+        }
         accountRepository.delete(account);
     }
 }
@@ -0,0 +1,36 @@
+package com.ahmadmouslimani.account.service.impl;
+
+import com.ahmadmouslimani.account.config.IdempotencyProperties;
+import com.ahmadmouslimani.account.repository.AppliedAdjustmentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Deletes the idempotency keys of balance adjustments older than the retention.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AppliedAdjustmentPurger {
+    private final AppliedAdjustmentRepository appliedAdjustmentRepository;
+    private final IdempotencyProperties properties;
+
+    @Scheduled(
+            initialDelayString = "${app.idempotency.purge-interval:1h}",
+            fixedDelayString = "${app.idempotency.purge-interval:1h}"
+    )
+    public void purge() {
+        try {
+            int purged = appliedAdjustmentRepository.deleteOlderThan(Instant.now().minus(properties.retention()));
+            if (purged > 0) {
+                log.debug("Purged {} expired balance adjustment keys", purged);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Could not purge the expired balance adjustment keys: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.ahmadmouslimani.account.service.impl;
+
+import com.ahmadmouslimani.account.config.GroupCommitProperties;
+import com.ahmadmouslimani.account.exception.BusinessException;
+import com.ahmadmouslimani.account.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Applies concurrent balance adjustments in one database transaction.
+ * Adjustments are queued in arrival order, a single flusher thread collects them for at most
+ * {@code maxWait} and applies them in that order. Callers get their result only once the
+ * transaction is committed. Each adjustment is one conditional update, so a rejected adjustment
+ * changes nothing and does not affect the others of its batch.
+ * Once shutdown starts, new adjustments are refused and those left queued after the final drain are failed.
+ */
+@Component
+@Slf4j
+public class BalanceGroupCommitter implements DisposableBean {
+    private static final String SHUTTING_DOWN = "Balance group commit is shutting down";
+
+    private final GroupCommitProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingAdjustment<?>> queue;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private final DistributionSummary batchSize;
+    private final Timer commitLatency;
+    private final Counter fallbacks;
+
+    public BalanceGroupCommitter(GroupCommitProperties properties, PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new LinkedBlockingQueue<>(properties.queueCapacity());
+        this.batchSize = DistributionSummary.builder("account.balance.group.commit.size")
+                .description("Number of balance adjustments committed in one transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.commitLatency = Timer.builder("account.balance.group.commit.latency")
+                .description("Time to apply and commit one batch of balance adjustments")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("account.balance.group.commit.fallbacks")
+                .description("Batches retried one adjustment per transaction after a database error")
+                .register(meterRegistry);
+
+        if (properties.enabled()) {
+            flusher = new Thread(this::flushLoop, "balance-group-commit");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Runs the adjustment in a transaction and returns its result.
+     * Without group commit, or when the caller already has a transaction to join, it runs on the calling thread.
+     */
+    public <T> T execute(Supplier<T> adjustment) {
+        if (flusher == null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transactionTemplate.execute(status -> adjustment.get());
+        }
+        if (!running) {
+            throw new IllegalStateException(SHUTTING_DOWN);
+        }
+
+        PendingAdjustment<T> pending = new PendingAdjustment<>(adjustment);
+        long timeoutNanos = properties.resultTimeout().toNanos();
+        try {
+            if (!queue.offer(pending, timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("Balance adjustment not queued within " + properties.resultTimeout());
+            }
+            //Queued after the flusher stopped: taken back unless the final drain has already taken it
+            if (!running && queue.remove(pending)) {
+                throw new IllegalStateException(SHUTTING_DOWN);
+            }
+            return pending.result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the balance adjustment", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            //The batch may still commit, a retry with the same Idempotency-Key is not applied twice
+            throw new IllegalStateException("Balance adjustment not committed within " + properties.resultTimeout(), ex);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+            //Left by a flusher that was interrupted or is still committing its last batch
+            List<PendingAdjustment<?>> leftover = new ArrayList<>();
+            queue.drainTo(leftover);
+            leftover.forEach(pending -> pending.result.completeExceptionally(new IllegalStateException(SHUTTING_DOWN)));
+            if (!leftover.isEmpty()) {
+                log.warn("Balance group commit stopped with {} adjustments not applied", leftover.size());
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingAdjustment<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    commit(collectBatch(first));
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Balance group commit failed", ex);
+            }
+        }
+    }
+
+    private List<PendingAdjustment<?>> collectBatch(PendingAdjustment<?> first) throws InterruptedException {
+        List<PendingAdjustment<?>> batch = new ArrayList<>(properties.maxBatchSize());
+        batch.add(first);
+        long deadline = System.nanoTime() + properties.maxWait().toNanos();
+        while (batch.size() < properties.maxBatchSize()) {
+            long remaining = deadline - System.nanoTime();
+            PendingAdjustment<?> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void commit(List<PendingAdjustment<?>> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(PendingAdjustment::apply));
+            batch.forEach(PendingAdjustment::complete);
+        } catch (RuntimeException ex) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(ex);
+                return;
+            }
+            //A database error aborts the whole transaction: nothing of the batch is applied,
+            //so retry each adjustment in its own transaction to isolate the failing one
+            log.warn("Group commit of {} balance adjustments failed, retrying one by one: {}", batch.size(), ex.getMessage());
+            fallbacks.increment();
+            for (PendingAdjustment<?> pending : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> pending.apply());
+                    pending.complete();
+                } catch (RuntimeException single) {
+                    pending.result.completeExceptionally(single);
+                }
+            }
+        } finally {
+            batchSize.record(batch.size());
+            commitLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static final class PendingAdjustment<T> {
+        private final Supplier<T> adjustment;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+        private RuntimeException rejection;
+
+        private PendingAdjustment(Supplier<T> adjustment) {
+            this.adjustment = adjustment;
+        }
+
+        //Business rejections (insufficient funds, unknown account) changed nothing, they are kept for the caller
+        //and do not roll back the batch. Any other exception propagates and aborts the transaction.
+        private void apply() {
+            value = null;
+            rejection = null;
+            try {
+                value = adjustment.get();
+            } catch (BusinessException | ResourceNotFoundException ex) {
+                rejection = ex;
+            }
+        }
+
+        //Called once the transaction is committed
+        private void complete() {
+            if (rejection != null) {
+                result.completeExceptionally(rejection);
+            } else {
+                result.complete(value);
+            }
+        }
+    }
+}
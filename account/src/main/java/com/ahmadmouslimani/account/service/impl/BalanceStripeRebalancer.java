@@ -0,0 +1,41 @@
+package com.ahmadmouslimani.account.service.impl;
+
+import com.ahmadmouslimani.account.service.BalanceStripeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Periodically spreads the balance of each striped account evenly again, one short transaction per account.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.balance-striping", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class BalanceStripeRebalancer {
+    private final BalanceStripeService balanceStripeService;
+
+    @Scheduled(
+            initialDelayString = "${app.balance-striping.rebalance-interval:10s}",
+            fixedDelayString = "${app.balance-striping.rebalance-interval:10s}"
+    )
+    public void rebalance() {
+        int rebalanced = 0;
+        for (UUID id : balanceStripeService.getStripedAccountIds()) {
+            try {
+                if (balanceStripeService.rebalance(id)) {
+                    rebalanced++;
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Could not rebalance the stripes of account {}: {}", id, ex.getMessage());
+            }
+        }
+        if (rebalanced > 0) {
+            log.debug("Rebalanced the stripes of {} accounts", rebalanced);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.ahmadmouslimani.account.service.impl;
+
+import com.ahmadmouslimani.account.dto.AccountResponseDTO;
+import com.ahmadmouslimani.account.entity.Account;
+import com.ahmadmouslimani.account.entity.AccountBalanceStripe;
+import com.ahmadmouslimani.account.exception.ResourceNotFoundException;
+import com.ahmadmouslimani.account.mapper.AccountMapper;
+import com.ahmadmouslimani.account.repository.AccountBalanceStripeRepository;
+import com.ahmadmouslimani.account.repository.AccountRepository;
+import com.ahmadmouslimani.account.service.BalanceStripeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BalanceStripeServiceImpl implements BalanceStripeService {
+    private final AccountRepository accountRepository;
+    private final AccountBalanceStripeRepository stripeRepository;
+    private final AccountMapper mapper;
+
+    @Override
+    @Transactional
+    public AccountResponseDTO stripeAccount(UUID id, int stripes) {
+        Account account = lockAccount(id);
+        BigDecimal total = total(account, stripeRepository.findAllByAccountIdOrderByStripeIndex(id));
+        stripeRepository.deleteAllByAccountId(id);
+
+        List<BigDecimal> shares = split(total, stripes);
+        List<AccountBalanceStripe> created = new ArrayList<>(stripes);
+        for (int i = 0; i < stripes; i++) {
+            created.add(new AccountBalanceStripe(id, i, shares.get(i)));
+        }
+        stripeRepository.saveAll(created);
+        account.setBalance(BigDecimal.ZERO);
+        log.info("Account {} balance split across {} stripes", id, stripes);
+        return new AccountResponseDTO(id, account.getStatus(), total);
+    }
+
+    @Override
+    @Transactional
+    public AccountResponseDTO unstripeAccount(UUID id) {
+        Account account = lockAccount(id);
+        BigDecimal total = total(account, stripeRepository.findAllByAccountIdOrderByStripeIndex(id));
+        stripeRepository.deleteAllByAccountId(id);
+        account.setBalance(total);
+        return mapper.mapToDto(account);
+    }
+
+    @Override
+    @Transactional
+    public Optional<AccountResponseDTO> debit(UUID id, BigDecimal amount) {
+        //Fast path: one stripe that is not being debited by another transaction holds enough funds
+        Optional<AccountResponseDTO> debited = stripeRepository.debitAnyStripe(id, amount).map(mapper::mapToDto);
+        if (debited.isPresent()) {
+            return debited;
+        }
+
+        //Slow path: the funds are spread over several stripes, or all of them are busy
+        Optional<Account> found = accountRepository.findByIdForUpdate(id);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        Account account = found.get();
+        List<AccountBalanceStripe> stripes = stripeRepository.findAllByAccountIdOrderByStripeIndex(id);
+        BigDecimal total = total(account, stripes);
+        if (stripes.isEmpty() || total.compareTo(amount) < 0) {
+            return Optional.empty();
+        }
+        BigDecimal remaining = total.subtract(amount);
+        distribute(account, stripes, remaining);
+        return Optional.of(new AccountResponseDTO(id, account.getStatus(), remaining));
+    }
+
+    @Override
+    @Transactional
+    public boolean rebalance(UUID id) {
+        Optional<Account> found = accountRepository.findByIdForUpdate(id);
+        if (found.isEmpty()) {
+            return false;
+        }
+        Account account = found.get();
+        List<AccountBalanceStripe> stripes = stripeRepository.findAllByAccountIdOrderByStripeIndex(id);
+        if (stripes.isEmpty()) {
+            return false;
+        }
+
+        BigDecimal total = total(account, stripes);
+        //Credits land on the account row, debits drain single stripes. Rebalance once either drifts.
+        BigDecimal lowWatermark = total.divide(BigDecimal.valueOf(2L * stripes.size()), 2, RoundingMode.DOWN);
+        boolean skewed = account.getBalance().signum() > 0
+                || stripes.stream().anyMatch(stripe -> stripe.getBalance().compareTo(lowWatermark) < 0);
+        if (!skewed) {
+            return false;
+        }
+        distribute(account, stripes, total);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public void removeStripes(UUID id) {
+        stripeRepository.deleteAllByAccountId(id);
+    }
+
+    @Override
+    public List<UUID> getStripedAccountIds() {
+        return stripeRepository.findStripedAccountIds();
+    }
+
+    private Account lockAccount(UUID id) {
+        return accountRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Account", "id", id.toString()));
+    }
+
+    private void distribute(Account account, List<AccountBalanceStripe> stripes, BigDecimal total) {
+        List<BigDecimal> shares = split(total, stripes.size());
+        for (int i = 0; i < stripes.size(); i++) {
+            stripes.get(i).setBalance(shares.get(i));
+        }
+        account.setBalance(BigDecimal.ZERO);
+    }
+
+    private static BigDecimal total(Account account, List<AccountBalanceStripe> stripes) {
+        return stripes.stream()
+                .map(AccountBalanceStripe::getBalance)
+                .reduce(account.getBalance(), BigDecimal::add);
+    }
+
+    //Even shares rounded down to cents, the first stripe takes the remainder
+    static List<BigDecimal> split(BigDecimal total, int stripes) {
+        BigDecimal share = total.divide(BigDecimal.valueOf(stripes), 2, RoundingMode.DOWN);
+        BigDecimal remainder = total.subtract(share.multiply(BigDecimal.valueOf(stripes)));
+        List<BigDecimal> shares = new ArrayList<>(stripes);
+        shares.add(share.add(remainder));
+        for (int i = 1; i < stripes; i++) {
+            shares.add(share);
+        }
+        return shares;
+    }
+}
@@ -2,6 +2,8 @@ package com.ahmadmouslimani.account.controller;
 
 import com.ahmadmouslimani.account.dto.AccountRequestDTO;
 import com.ahmadmouslimani.account.dto.AccountResponseDTO;
+import com.ahmadmouslimani.account.dto.BalanceAdjustmentRequestDTO;
+import com.ahmadmouslimani.account.dto.BalanceAdjustmentResultDTO;
 import com.ahmadmouslimani.account.exception.BusinessException;
 import com.ahmadmouslimani.account.exception.GlobalExceptionHandler;
 import com.ahmadmouslimani.account.exception.ResourceNotFoundException;
@@ -29,6 +31,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.eq;
 
+import java.util.List;
 import java.util.UUID;
 
 @WebMvcTest(AccountController.class)
@@ -93,6 +96,23 @@ class AccountControllerTest {
                 .andExpect(jsonPath("$.balance").value(150.00));
     }
 
+    @Test
+    @DisplayName("PATCH /balance - Idempotency-Key header is passed to the service")
+    void adjustBalance_IdempotencyKey_ReturnsOk() throws Exception {
+        UUID key = UUID.randomUUID();
+        AccountResponseDTO response = new AccountResponseDTO(fixedId, "ACTIVE", new BigDecimal("50.00"));
+
+        when(accountService.adjustBalance(eq(fixedId), any(BigDecimal.class), eq("D"), eq(key)))
+                .thenReturn(response);
+
+        mockMvc.perform(patch("/api/account/{id}/balance", fixedId)
+                        .header("Idempotency-Key", key.toString())
+                        .param("amount", "50.00")
+                        .param("transactionType", "D"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(50.00));
+    }
+
     @Test
     @DisplayName("POST /create - Validation Failure 400")
     void createAccount_InvalidStatus_ReturnsBadRequest() throws Exception {
@@ -146,6 +166,27 @@ class AccountControllerTest {
                 .andExpect(jsonPath("$.errorMessage").value("Insufficient funds or account not found"));
     }
 
+    @Test
+    @DisplayName("PUT /{id}/stripes - Success 200 with the total balance")
+    void stripeBalance_Success_ReturnsOk() throws Exception {
+        AccountResponseDTO response = new AccountResponseDTO(fixedId, "ACTIVE", new BigDecimal("1000.00"));
+        when(accountService.stripeBalance(fixedId, 16)).thenReturn(response);
+
+        mockMvc.perform(put("/api/account/{id}/stripes", fixedId)
+                        .param("count", "16"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(1000.00));
+    }
+
+    @Test
+    @DisplayName("PUT /{id}/stripes - Validation Failure 400 for a single stripe")
+    void stripeBalance_TooFewStripes_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(put("/api/account/{id}/stripes", fixedId)
+                        .param("count", "1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorMessage").value(containsString("At least 2 stripes")));
+    }
+
     @Test
     @DisplayName("DELETE /{id} - Success 204")
     void deleteAccount_Success_ReturnsNoContent() throws Exception {
@@ -189,4 +230,49 @@ class AccountControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.errorMessage").value(containsString("Status is required")));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("POST /batch - Success 200")
+    void getAccountsByIds_ReturnsOk() throws Exception {
+        AccountResponseDTO response = new AccountResponseDTO(fixedId, "ACTIVE", initial_balance);
+
+        when(accountService.getAccountsByIds(List.of(fixedId))).thenReturn(List.of(response));
+
+        mockMvc.perform(post("/api/account/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(fixedId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(fixedId.toString()));
+    }
+
+    @Test
+    @DisplayName("PATCH /balance/batch - Success 200 with per-item results")
+    void adjustBalances_ReturnsOk() throws Exception {
+        List<BalanceAdjustmentRequestDTO> request = List.of(
+                new BalanceAdjustmentRequestDTO(fixedId, new BigDecimal("50.00"), "D")
+        );
+        when(accountService.adjustBalances(any()))
+                .thenReturn(List.of(BalanceAdjustmentResultDTO.rejected(fixedId, "Insufficient funds or account not found")));
+
+        mockMvc.perform(patch("/api/account/balance/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].applied").value(false))
+                .andExpect(jsonPath("$[0].message").value("Insufficient funds or account not found"));
+    }
+
+    @Test
+    @DisplayName("PATCH /balance/batch - Validation Failure 400")
+    void adjustBalances_InvalidType_ReturnsBadRequest() throws Exception {
+        List<BalanceAdjustmentRequestDTO> request = List.of(
+                new BalanceAdjustmentRequestDTO(fixedId, new BigDecimal("50.00"), "X")
+        );
+
+        mockMvc.perform(patch("/api/account/balance/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorMessage").value(containsString("Transaction type must be either")));
+    }
+}
@@ -0,0 +1,141 @@
+package com.ahmadmouslimani.account.repository;
+
+import com.ahmadmouslimani.account.entity.Account;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Debits one hot account from many threads, comparing the update followed by a re-read
+ * with the single UPDATE ... RETURNING statement. Every debit commits on its own, so the
+ * threads queue on the row lock the way concurrent transactions do.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true"
+)
+@ActiveProfiles("test")
+class AccountBalanceContentionIntegrationTest {
+
+    private static final int THREADS = 8;
+    private static final int DEBITS_PER_THREAD = 250;
+    private static final BigDecimal DEBIT = new BigDecimal("1.00");
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("100000.00");
+
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private TransactionTemplate transactionTemplate;
+    private Statistics statistics;
+    private UUID accountId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Account account = new Account();
+        account.setStatus("ACTIVE");
+        account.setBalance(INITIAL_BALANCE);
+        accountId = accountRepository.save(account).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        accountRepository.deleteById(accountId);
+    }
+
+    @Test
+    @DisplayName("UPDATE ... RETURNING should need one statement per debit instead of two under contention")
+    void debitReturning_HalvesRoundTripsUnderContention() throws Exception {
+        //Warm up the connection pool and the statement cache
+        run(this::debitThenRead, 20);
+        run(this::debitReturning, 20);
+
+        Result updateThenRead = run(this::debitThenRead, DEBITS_PER_THREAD);
+        Result returning = run(this::debitReturning, DEBITS_PER_THREAD);
+        System.out.printf("%d debits on one account from %d threads: update+read %dms (%.2f statements/debit), " +
+                        "update returning %dms (%.2f statements/debit)%n",
+                THREADS * DEBITS_PER_THREAD, THREADS,
+                updateThenRead.elapsedMs(), updateThenRead.statementsPerDebit(),
+                returning.elapsedMs(), returning.statementsPerDebit());
+
+        assertEquals(2.0, updateThenRead.statementsPerDebit(), 0.01);
+        assertEquals(1.0, returning.statementsPerDebit(), 0.01);
+
+        //No debit was lost while the threads raced on the same row
+        BigDecimal expectedBalance = INITIAL_BALANCE.subtract(
+                DEBIT.multiply(BigDecimal.valueOf(2L * THREADS * (DEBITS_PER_THREAD + 20))));
+        BigDecimal balance = accountRepository.findById(accountId).orElseThrow().getBalance();
+        assertEquals(0, expectedBalance.compareTo(balance));
+        assertTrue(returning.elapsedMs() <= updateThenRead.elapsedMs() * 1.25,
+                "Holding the row lock for one round trip less should not be slower");
+    }
+
+    private BigDecimal debitThenRead() {
+        return transactionTemplate.execute(status -> {
+            accountRepository.debitBalance(accountId, DEBIT);
+            return accountRepository.findById(accountId).orElseThrow().getBalance();
+        });
+    }
+
+    private BigDecimal debitReturning() {
+        return transactionTemplate.execute(status ->
+                accountRepository.debitBalanceReturning(accountId, DEBIT).orElseThrow().getBalance());
+    }
+
+    private Result run(Debit debit, int debitsPerThread) throws Exception {
+        statistics.clear();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < debitsPerThread; j++) {
+                        debit.run();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new Result(elapsedMs, (double) statistics.getPrepareStatementCount() / (THREADS * debitsPerThread));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Debit {
+        BigDecimal run();
+    }
+
+    private record Result(long elapsedMs, double statementsPerDebit) {}
+}
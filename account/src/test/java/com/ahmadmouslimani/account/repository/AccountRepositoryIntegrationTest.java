@@ -12,9 +12,11 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DataJpaTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
@@ -84,4 +86,45 @@ class AccountRepositoryIntegrationTest {
         assertEquals(0, updatedAccount.getBalance().compareTo(new BigDecimal("500.00")), 
             "Balance should remain 500 unchanged");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should debit balance and return the new balance from the same statement")
+    void shouldDebitBalanceReturningNewBalance() {
+        //Act
+        Optional<AccountBalanceView> updated = accountRepository.debitBalanceReturning(accountId, new BigDecimal("200.00"));
+
+        //Assert
+        assertTrue(updated.isPresent(), "The updated row should be returned");
+        assertEquals(accountId, updated.get().getId());
+        assertEquals("ACTIVE", updated.get().getStatus());
+        assertEquals(0, updated.get().getBalance().compareTo(new BigDecimal("300.00")),
+            "Balance should be 500 - 200 = 300");
+    }
+
+    @Test
+    @DisplayName("Should return no row and keep the balance when funds are insufficient")
+    void shouldNotDebitReturningWhenFundsInsufficient() {
+        //Act
+        Optional<AccountBalanceView> updated = accountRepository.debitBalanceReturning(accountId, new BigDecimal("600.00"));
+        entityManager.clear();
+
+        //Assert
+        Account account = accountRepository.findById(accountId).orElseThrow();
+
+        assertTrue(updated.isEmpty(), "No row should be returned due to balance constraint");
+        assertEquals(0, account.getBalance().compareTo(new BigDecimal("500.00")),
+            "Balance should remain 500 unchanged");
+    }
+
+    @Test
+    @DisplayName("Should credit balance and return the new balance from the same statement")
+    void shouldCreditBalanceReturningNewBalance() {
+        //Act
+        Optional<AccountBalanceView> updated = accountRepository.creditBalanceReturning(accountId, new BigDecimal("100.00"));
+
+        //Assert
+        assertTrue(updated.isPresent(), "The updated row should be returned");
+        assertEquals(0, updated.get().getBalance().compareTo(new BigDecimal("600.00")),
+            "Balance should be 500 + 100 = 600");
+    }
+}
@@ -1,12 +1,20 @@
 package com.ahmadmouslimani.account.service.impl;
 
+import com.ahmadmouslimani.account.config.BalanceStripingProperties;
+import com.ahmadmouslimani.account.config.GroupCommitProperties;
 import com.ahmadmouslimani.account.dto.AccountRequestDTO;
 import com.ahmadmouslimani.account.dto.AccountResponseDTO;
+import com.ahmadmouslimani.account.dto.BalanceAdjustmentRequestDTO;
+import com.ahmadmouslimani.account.dto.BalanceAdjustmentResultDTO;
 import com.ahmadmouslimani.account.entity.Account;
 import com.ahmadmouslimani.account.exception.BusinessException;
 import com.ahmadmouslimani.account.exception.ResourceNotFoundException;
 import com.ahmadmouslimani.account.mapper.AccountMapper;
+import com.ahmadmouslimani.account.repository.AccountBalanceView;
 import com.ahmadmouslimani.account.repository.AccountRepository;
+import com.ahmadmouslimani.account.repository.AppliedAdjustmentRepository;
+import com.ahmadmouslimani.account.service.BalanceStripeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,8 +23,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -31,6 +42,16 @@ class AccountServiceImplTest {
     private AccountRepository accountRepository;
     @Spy
     private AccountMapper mapper;
+    @Mock
+    private BalanceStripeService balanceStripeService;
+    @Spy
+    private BalanceStripingProperties stripingProperties = new BalanceStripingProperties(false, 8, Duration.ofSeconds(10));
+    @Spy
+    private BalanceGroupCommitter balanceGroupCommitter = new BalanceGroupCommitter(
+            new GroupCommitProperties(false, 128, Duration.ofMillis(1), 4096, Duration.ofSeconds(10)),
+            mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+    @Mock
+    private AppliedAdjustmentRepository appliedAdjustmentRepository;
     @InjectMocks
     private AccountServiceImpl accountService;
     private AccountRequestDTO requestDTO;
@@ -87,8 +108,8 @@ class AccountServiceImplTest {
         UUID id = UUID.randomUUID();
         BigDecimal amount = new BigDecimal("500.00");
         
-        // Mock debitBalance returning 0 (either not found or insufficient funds)
-        when(accountRepository.debitBalance(eq(id), eq(amount))).thenReturn(0);
+        // Mock debitBalanceReturning returning no row (either not found or insufficient funds)
+        when(accountRepository.debitBalanceReturning(eq(id), eq(amount))).thenReturn(Optional.empty());
 
         assertThrows(BusinessException.class, () ->
             accountService.adjustBalance(id, amount, "D")
@@ -126,24 +147,15 @@ class AccountServiceImplTest {
     }
 
     @Test
-    @DisplayName("Should credit balance successfully and return updated value")
+    @DisplayName("Should credit balance successfully and return updated value from the same statement")
     void adjustBalance_Credit_Success() {
         //Arrange
-        BigDecimal initialBalance = new BigDecimal("200.00");
         BigDecimal creditAmount = new BigDecimal("100.00");
-        BigDecimal expectedBalance = initialBalance.add(creditAmount);
-
-        Account account = new Account();
-        account.setId(fixedId);
-        account.setBalance(initialBalance);
+        BigDecimal expectedBalance = new BigDecimal("300.00");
 
-        //Mock the database update success (1 row affected)
-        when(accountRepository.creditBalance(fixedId, creditAmount)).thenReturn(1);
-
-        when(accountRepository.findById(fixedId)).thenAnswer(inv -> {
-            account.setBalance(expectedBalance);
-            return Optional.of(account);
-        });
+        //Mock the UPDATE ... RETURNING of the updated row
+        AccountBalanceView updated = balanceView(expectedBalance);
+        when(accountRepository.creditBalanceReturning(fixedId, creditAmount)).thenReturn(Optional.of(updated));
 
         //Act
         AccountResponseDTO result = accountService.adjustBalance(fixedId, creditAmount, "C");
@@ -151,9 +163,11 @@ class AccountServiceImplTest {
         //Assert
         assertNotNull(result);
         assertEquals(expectedBalance, result.balance());
-        verify(accountRepository, times(1)).findById(fixedId);
-        verify(accountRepository, times(1)).creditBalance(fixedId, creditAmount);
-        verify(accountRepository, never()).debitBalance(any(), any());
+        assertEquals("ACTIVE", result.status());
+        verify(accountRepository, times(1)).creditBalanceReturning(fixedId, creditAmount);
+        //the new balance is not re-read
+        verify(accountRepository, never()).findById(any());
+        verify(accountRepository, never()).debitBalanceReturning(any(), any());
     }
 
     @Test
@@ -162,8 +176,8 @@ class AccountServiceImplTest {
         //Arrange
         BigDecimal creditAmount = new BigDecimal("100.00");
 
-        //Mock the repository return 0 because the ID does not exist
-        when(accountRepository.creditBalance(fixedId, creditAmount)).thenReturn(0);
+        //Mock the repository return no row because the ID does not exist
+        when(accountRepository.creditBalanceReturning(fixedId, creditAmount)).thenReturn(Optional.empty());
 
         //Act & Assert
         BusinessException exception = assertThrows(BusinessException.class, () ->
@@ -171,8 +185,8 @@ class AccountServiceImplTest {
         );
 
         assertTrue(exception.getMessage().contains("not found"));
-        verify(accountRepository, times(1)).creditBalance(fixedId, creditAmount);
-        verify(accountRepository, never()).debitBalance(any(), any());
+        verify(accountRepository, times(1)).creditBalanceReturning(fixedId, creditAmount);
+        verify(accountRepository, never()).debitBalanceReturning(any(), any());
     }
 
 
@@ -180,42 +194,33 @@ class AccountServiceImplTest {
     @DisplayName("Should debit balance successfully when funds are sufficient")
     void adjustBalance_Debit_Success() {
         //Arrange
-        BigDecimal initialBalance = new BigDecimal("1000.00");
         BigDecimal debitAmount = new BigDecimal("400.00");
         BigDecimal expectedBalance = new BigDecimal("600.00");
 
-        Account account = new Account();
-        account.setId(fixedId);
-        account.setBalance(initialBalance);
-
-        //Mock successful update: 1 row modified because (1000 >= 400)
-        when(accountRepository.debitBalance(fixedId, debitAmount)).thenReturn(1);
-
-        //Simulate the database fetch after the update
-        when(accountRepository.findById(fixedId)).thenAnswer(inv -> {
-            account.setBalance(expectedBalance);
-            return Optional.of(account);
-        });
+        //Mock successful update: one row returned because (1000 >= 400)
+        AccountBalanceView updated = balanceView(expectedBalance);
+        when(accountRepository.debitBalanceReturning(fixedId, debitAmount)).thenReturn(Optional.of(updated));
 
         //Act
         AccountResponseDTO result = accountService.adjustBalance(fixedId, debitAmount, "D");
 
         //Assert
         assertNotNull(result);
+        assertEquals(fixedId, result.id());
         assertEquals(expectedBalance, result.balance());
-        verify(accountRepository, times(1)).debitBalance(fixedId, debitAmount);
-        verify(accountRepository, never()).creditBalance(any(), any());
+        verify(accountRepository, times(1)).debitBalanceReturning(fixedId, debitAmount);
+        verify(accountRepository, never()).findById(any());
+        verify(accountRepository, never()).creditBalanceReturning(any(), any());
     }
 
     @Test
     @DisplayName("Should throw BusinessException when balance is insufficient")
     void adjustBalance_Debit_InsufficientFunds() {
         //Arrange
-        BigDecimal currentBalance = new BigDecimal("50.00");
         BigDecimal debitAmount = new BigDecimal("100.00");
 
-        // The SQL query returns 0 because the WHERE condition (50 >= 100)
-        when(accountRepository.debitBalance(fixedId, debitAmount)).thenReturn(0);
+        // The SQL query returns no row because the WHERE condition (50 >= 100) fails
+        when(accountRepository.debitBalanceReturning(fixedId, debitAmount)).thenReturn(Optional.empty());
 
         //Act & Assert
         BusinessException exception = assertThrows(BusinessException.class, () ->
@@ -223,11 +228,51 @@ class AccountServiceImplTest {
         );
 
         assertTrue(exception.getMessage().contains("Insufficient funds"));
-        verify(accountRepository, times(1)).debitBalance(fixedId, debitAmount);
-        verify(accountRepository, never()).creditBalance(any(), any());
+        verify(accountRepository, times(1)).debitBalanceReturning(fixedId, debitAmount);
+        verify(accountRepository, never()).creditBalanceReturning(any(), any());
 
     }
 
+    @Test
+    @DisplayName("Should apply an adjustment once per idempotency key and return the current account on a retry")
+    void adjustBalance_IdempotencyKey_AppliedOnce() {
+        //Arrange
+        UUID key = UUID.randomUUID();
+        BigDecimal debitAmount = new BigDecimal("400.00");
+        Account account = new Account();
+        account.setId(fixedId);
+        account.setStatus("ACTIVE");
+        account.setBalance(new BigDecimal("600.00"));
+        AccountBalanceView updated = balanceView(new BigDecimal("600.00"));
+        when(appliedAdjustmentRepository.claim(key, fixedId)).thenReturn(1, 0);
+        when(accountRepository.debitBalanceReturning(fixedId, debitAmount)).thenReturn(Optional.of(updated));
+        when(accountRepository.findById(fixedId)).thenReturn(Optional.of(account));
+
+        //Act
+        AccountResponseDTO first = accountService.adjustBalance(fixedId, debitAmount, "D", key);
+        AccountResponseDTO retry = accountService.adjustBalance(fixedId, debitAmount, "D", key);
+
+        //Assert
+        assertEquals(new BigDecimal("600.00"), first.balance());
+        assertEquals(new BigDecimal("600.00"), retry.balance());
+        verify(accountRepository, times(1)).debitBalanceReturning(fixedId, debitAmount);
+        verify(appliedAdjustmentRepository, never()).release(any());
+    }
+
+    @Test
+    @DisplayName("Should free the idempotency key of a rejected adjustment")
+    void adjustBalance_IdempotencyKey_ReleasedOnRejection() {
+        //Arrange
+        UUID key = UUID.randomUUID();
+        BigDecimal debitAmount = new BigDecimal("100.00");
+        when(appliedAdjustmentRepository.claim(key, fixedId)).thenReturn(1);
+        when(accountRepository.debitBalanceReturning(fixedId, debitAmount)).thenReturn(Optional.empty());
+
+        //Act & Assert
+        assertThrows(BusinessException.class, () -> accountService.adjustBalance(fixedId, debitAmount, "D", key));
+        verify(appliedAdjustmentRepository).release(key);
+    }
+
     @Test
     @DisplayName("Should delete account successfully when it exists")
     void deleteAccount_Success() {
@@ -260,4 +305,105 @@ class AccountServiceImplTest {
         assertTrue(exception.getMessage().contains("not found"));
         verify(accountRepository, never()).delete(any(Account.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should apply batch adjustments in order and report each outcome")
+    void adjustBalances_MixedOutcomes() {
+        //Arrange
+        UUID otherId = UUID.randomUUID();
+        BigDecimal amount = new BigDecimal("100.00");
+        when(accountRepository.debitBalance(fixedId, amount)).thenReturn(1, 0);
+        when(accountRepository.creditBalance(otherId, amount)).thenReturn(1);
+
+        List<BalanceAdjustmentRequestDTO> adjustments = List.of(
+                new BalanceAdjustmentRequestDTO(fixedId, amount, "D"),
+                new BalanceAdjustmentRequestDTO(otherId, amount, "C"),
+                new BalanceAdjustmentRequestDTO(fixedId, amount, "D")
+        );
+
+        //Act
+        List<BalanceAdjustmentResultDTO> results = accountService.adjustBalances(adjustments);
+
+        //Assert
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).applied());
+        assertTrue(results.get(1).applied());
+        assertFalse(results.get(2).applied());
+        assertTrue(results.get(2).message().contains("Insufficient funds"));
+        //Batch results are built without re-reading the accounts
+        verify(accountRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Striping - Should debit the stripes when the account row holds no funds")
+    void adjustBalance_Striped_DebitFallsBackToStripes() {
+        //Arrange
+        AccountServiceImpl stripedService = stripedAccountService();
+        BigDecimal debitAmount = new BigDecimal("40.00");
+        AccountResponseDTO debited = new AccountResponseDTO(fixedId, "ACTIVE", new BigDecimal("960.00"));
+
+        when(accountRepository.debitBalanceReturningTotal(fixedId, debitAmount)).thenReturn(Optional.empty());
+        when(balanceStripeService.debit(fixedId, debitAmount)).thenReturn(Optional.of(debited));
+
+        //Act
+        AccountResponseDTO result = stripedService.adjustBalance(fixedId, debitAmount, "D");
+
+        //Assert
+        assertEquals(new BigDecimal("960.00"), result.balance());
+        verify(accountRepository, never()).debitBalanceReturning(any(), any());
+    }
+
+    @Test
+    @DisplayName("Striping - Should throw BusinessException when neither the account row nor the stripes hold the funds")
+    void adjustBalance_Striped_InsufficientFunds() {
+        //Arrange
+        AccountServiceImpl stripedService = stripedAccountService();
+        BigDecimal debitAmount = new BigDecimal("40.00");
+
+        when(accountRepository.debitBalanceReturningTotal(fixedId, debitAmount)).thenReturn(Optional.empty());
+        when(balanceStripeService.debit(fixedId, debitAmount)).thenReturn(Optional.empty());
+
+        //Act & Assert
+        BusinessException exception = assertThrows(BusinessException.class, () ->
+                stripedService.adjustBalance(fixedId, debitAmount, "D")
+        );
+        assertTrue(exception.getMessage().contains("Insufficient funds"));
+    }
+
+    @Test
+    @DisplayName("Striping - Should read the account row and its stripes as one total")
+    void getAccountById_Striped_ReturnsTotal() {
+        //Arrange
+        AccountServiceImpl stripedService = stripedAccountService();
+        AccountBalanceView total = balanceView(new BigDecimal("1000.00"));
+        when(accountRepository.findTotalById(fixedId)).thenReturn(Optional.of(total));
+
+        //Act
+        AccountResponseDTO result = stripedService.getAccountById(fixedId);
+
+        //Assert
+        assertEquals(new BigDecimal("1000.00"), result.balance());
+        verify(accountRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Striping - Should reject striping an account when striping is disabled")
+    void stripeBalance_Disabled_ThrowsBusinessException() {
+        //Act & Assert
+        assertThrows(BusinessException.class, () -> accountService.stripeBalance(fixedId, 8));
+        verify(balanceStripeService, never()).stripeAccount(any(), anyInt());
+    }
+
+    private AccountServiceImpl stripedAccountService() {
+        return new AccountServiceImpl(accountRepository, mapper, balanceStripeService,
+                new BalanceStripingProperties(true, 8, Duration.ofSeconds(10)), balanceGroupCommitter, appliedAdjustmentRepository);
+    }
+
+    private AccountBalanceView balanceView(BigDecimal balance) {
+        AccountBalanceView view = mock(AccountBalanceView.class);
+        when(view.getId()).thenReturn(fixedId);
+        when(view.getStatus()).thenReturn("ACTIVE");
+        when(view.getBalance()).thenReturn(balance);
+        return view;
+    }
+}
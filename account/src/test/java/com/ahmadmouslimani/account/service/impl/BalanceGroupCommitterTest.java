@@ -0,0 +1,198 @@
+package com.ahmadmouslimani.account.service.impl;
+
+import com.ahmadmouslimani.account.config.GroupCommitProperties;
+import com.ahmadmouslimani.account.exception.BusinessException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceGroupCommitterTest {
+
+    private static final int REQUESTS = 50;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BalanceGroupCommitter committer;
+    private ExecutorService clients;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (clients != null) {
+            clients.shutdownNow();
+        }
+        if (committer != null) {
+            committer.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Should apply concurrent adjustments in fewer transactions and return each result")
+    void execute_BatchesConcurrentAdjustments() throws Exception {
+        //Arrange
+        committer = enabledCommitter(Duration.ofMillis(50));
+        clients = Executors.newFixedThreadPool(REQUESTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        //Act
+        for (int i = 0; i < REQUESTS; i++) {
+            int request = i;
+            results.add(clients.submit(() -> {
+                start.await();
+                return committer.execute(() -> request);
+            }));
+        }
+        start.countDown();
+
+        //Assert
+        for (int i = 0; i < REQUESTS; i++) {
+            assertEquals(i, results.get(i).get(10, TimeUnit.SECONDS));
+        }
+        verify(transactionManager, atMost(REQUESTS - 1)).commit(any());
+        assertEquals(REQUESTS, meterRegistry.get("account.balance.group.commit.size").summary().totalAmount());
+        assertTrue(meterRegistry.get("account.balance.group.commit.size").summary().max() > 1);
+        assertTrue(meterRegistry.get("account.balance.group.commit.latency").timer().count() > 0);
+    }
+
+    @Test
+    @DisplayName("Should reject only the adjustment that failed its business check, the batch still commits")
+    void execute_RejectionIsolatedToItsRequest() throws Exception {
+        //Arrange
+        committer = enabledCommitter(Duration.ofMillis(50));
+        clients = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+
+        //Act
+        Future<String> accepted = clients.submit(() -> {
+            start.await();
+            return committer.execute(() -> "debited");
+        });
+        Future<String> rejected = clients.submit(() -> {
+            start.await();
+            return committer.execute(() -> {
+                throw new BusinessException("Insufficient funds or account not found");
+            });
+        });
+        start.countDown();
+
+        //Assert
+        assertEquals("debited", accepted.get(10, TimeUnit.SECONDS));
+        Exception ex = assertThrows(Exception.class, () -> rejected.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(BusinessException.class, ex.getCause());
+        verify(transactionManager, never()).rollback(any());
+        assertEquals(0, meterRegistry.get("account.balance.group.commit.fallbacks").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should retry each adjustment in its own transaction when the batch hits a database error")
+    void execute_DatabaseErrorFallsBackToSingleTransactions() throws Exception {
+        //Arrange
+        committer = enabledCommitter(Duration.ofMillis(50));
+        clients = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger applied = new AtomicInteger();
+
+        //Act
+        Future<Integer> healthy = clients.submit(() -> {
+            start.await();
+            return committer.execute(applied::incrementAndGet);
+        });
+        Future<Integer> failing = clients.submit(() -> {
+            start.await();
+            return committer.execute(() -> {
+                throw new DataIntegrityViolationException("constraint violated");
+            });
+        });
+        start.countDown();
+
+        //Assert
+        assertTrue(healthy.get(10, TimeUnit.SECONDS) > 0);
+        Exception ex = assertThrows(Exception.class, () -> failing.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(DataIntegrityViolationException.class, ex.getCause());
+        verify(transactionManager, atLeastOnce()).rollback(any());
+        if (meterRegistry.get("account.balance.group.commit.size").summary().max() > 1) {
+            assertEquals(1, meterRegistry.get("account.balance.group.commit.fallbacks").counter().count());
+        }
+    }
+
+    @Test
+    @DisplayName("Should run the adjustment on the calling thread when group commit is disabled")
+    void execute_Disabled_RunsInline() {
+        //Arrange
+        committer = new BalanceGroupCommitter(new GroupCommitProperties(false, 128, Duration.ofMillis(1), 4096, Duration.ofSeconds(10)),
+                transactionManager, meterRegistry);
+        Thread caller = Thread.currentThread();
+
+        //Act
+        Thread executedOn = committer.execute(Thread::currentThread);
+
+        //Assert
+        assertSame(caller, executedOn);
+        verify(transactionManager, times(1)).commit(any());
+        assertEquals(0, meterRegistry.get("account.balance.group.commit.size").summary().count());
+    }
+
+    @Test
+    @DisplayName("Should refuse adjustments once shutdown has started instead of queuing them")
+    void execute_AfterDestroy_Refused() throws InterruptedException {
+        //Arrange
+        committer = enabledCommitter(Duration.ofMillis(1));
+        committer.destroy();
+
+        //Act
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> committer.execute(() -> "debited"));
+
+        //Assert
+        assertEquals("Balance group commit is shutting down", ex.getMessage());
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    @Test
+    @DisplayName("Should stop waiting for a batch that does not commit within the result timeout")
+    void execute_SlowCommit_TimesOut() {
+        //Arrange
+        committer = new BalanceGroupCommitter(new GroupCommitProperties(true, 128, Duration.ofMillis(1), 4096,
+                Duration.ofMillis(100)), transactionManager, meterRegistry);
+        CountDownLatch committed = new CountDownLatch(1);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            committed.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+
+        //Act
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> committer.execute(() -> "debited"));
+        committed.countDown();
+
+        //Assert
+        assertTrue(ex.getMessage().startsWith("Balance adjustment not committed within"));
+    }
+
+    private BalanceGroupCommitter enabledCommitter(Duration maxWait) {
+        return new BalanceGroupCommitter(new GroupCommitProperties(true, 128, maxWait, 4096, Duration.ofSeconds(10)),
+                transactionManager, meterRegistry);
+    }
+}
@@ -0,0 +1,167 @@
+package com.ahmadmouslimani.account.service.impl;
+
+import com.ahmadmouslimani.account.dto.AccountResponseDTO;
+import com.ahmadmouslimani.account.entity.Account;
+import com.ahmadmouslimani.account.entity.AccountBalanceStripe;
+import com.ahmadmouslimani.account.exception.ResourceNotFoundException;
+import com.ahmadmouslimani.account.mapper.AccountMapper;
+import com.ahmadmouslimani.account.repository.AccountBalanceStripeRepository;
+import com.ahmadmouslimani.account.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceStripeServiceImplTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private AccountBalanceStripeRepository stripeRepository;
+    @Spy
+    private AccountMapper mapper;
+    @InjectMocks
+    private BalanceStripeServiceImpl balanceStripeService;
+
+    private final UUID fixedId = UUID.randomUUID();
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        account = new Account();
+        account.setId(fixedId);
+        account.setStatus("ACTIVE");
+        account.setBalance(BigDecimal.ZERO);
+    }
+
+    @Test
+    @DisplayName("Should split the whole balance evenly across the stripes, remainder on the first one")
+    @SuppressWarnings("unchecked")
+    void stripeAccount_SplitsBalanceEvenly() {
+        //Arrange
+        account.setBalance(new BigDecimal("100.01"));
+        when(accountRepository.findByIdForUpdate(fixedId)).thenReturn(Optional.of(account));
+        when(stripeRepository.findAllByAccountIdOrderByStripeIndex(fixedId)).thenReturn(List.of());
+
+        //Act
+        AccountResponseDTO result = balanceStripeService.stripeAccount(fixedId, 4);
+
+        //Assert
+        ArgumentCaptor<List<AccountBalanceStripe>> created = ArgumentCaptor.forClass(List.class);
+        verify(stripeRepository).saveAll(created.capture());
+        assertEquals(List.of(new BigDecimal("25.01"), new BigDecimal("25.00"), new BigDecimal("25.00"), new BigDecimal("25.00")),
+                created.getValue().stream().map(AccountBalanceStripe::getBalance).toList());
+        assertEquals(0, account.getBalance().signum(), "The account row should hold no funds once striped");
+        assertEquals(new BigDecimal("100.01"), result.balance());
+    }
+
+    @Test
+    @DisplayName("Should throw ResourceNotFoundException when striping an unknown account")
+    void stripeAccount_NotFound() {
+        //Arrange
+        when(accountRepository.findByIdForUpdate(fixedId)).thenReturn(Optional.empty());
+
+        //Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> balanceStripeService.stripeAccount(fixedId, 4));
+        verify(stripeRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("Should debit across all stripes when no single stripe holds the amount")
+    void debit_ConsolidatesWhenNoSingleStripeFits() {
+        //Arrange
+        BigDecimal amount = new BigDecimal("70.00");
+        List<AccountBalanceStripe> stripes = stripes("50.00", "50.00");
+        account.setBalance(new BigDecimal("30.00"));
+        when(stripeRepository.debitAnyStripe(fixedId, amount)).thenReturn(Optional.empty());
+        when(accountRepository.findByIdForUpdate(fixedId)).thenReturn(Optional.of(account));
+        when(stripeRepository.findAllByAccountIdOrderByStripeIndex(fixedId)).thenReturn(stripes);
+
+        //Act
+        Optional<AccountResponseDTO> result = balanceStripeService.debit(fixedId, amount);
+
+        //Assert
+        assertTrue(result.isPresent());
+        assertEquals(new BigDecimal("60.00"), result.get().balance());
+        assertEquals(new BigDecimal("30.00"), stripes.get(0).getBalance());
+        assertEquals(new BigDecimal("30.00"), stripes.get(1).getBalance());
+        assertEquals(0, account.getBalance().signum());
+    }
+
+    @Test
+    @DisplayName("Should reject the debit and keep every balance when the total is insufficient")
+    void debit_InsufficientTotal() {
+        //Arrange
+        BigDecimal amount = new BigDecimal("200.00");
+        List<AccountBalanceStripe> stripes = stripes("50.00", "50.00");
+        when(stripeRepository.debitAnyStripe(fixedId, amount)).thenReturn(Optional.empty());
+        when(accountRepository.findByIdForUpdate(fixedId)).thenReturn(Optional.of(account));
+        when(stripeRepository.findAllByAccountIdOrderByStripeIndex(fixedId)).thenReturn(stripes);
+
+        //Act
+        Optional<AccountResponseDTO> result = balanceStripeService.debit(fixedId, amount);
+
+        //Assert
+        assertTrue(result.isEmpty());
+        assertEquals(new BigDecimal("50.00"), stripes.get(0).getBalance());
+        assertEquals(new BigDecimal("50.00"), stripes.get(1).getBalance());
+    }
+
+    @Test
+    @DisplayName("Should move credits from the account row into the stripes when rebalancing")
+    void rebalance_SweepsAccountRow() {
+        //Arrange
+        List<AccountBalanceStripe> stripes = stripes("40.00", "40.00");
+        account.setBalance(new BigDecimal("20.00"));
+        when(accountRepository.findByIdForUpdate(fixedId)).thenReturn(Optional.of(account));
+        when(stripeRepository.findAllByAccountIdOrderByStripeIndex(fixedId)).thenReturn(stripes);
+
+        //Act
+        boolean rebalanced = balanceStripeService.rebalance(fixedId);
+
+        //Assert
+        assertTrue(rebalanced);
+        assertEquals(new BigDecimal("50.00"), stripes.get(0).getBalance());
+        assertEquals(new BigDecimal("50.00"), stripes.get(1).getBalance());
+        assertEquals(0, account.getBalance().signum());
+    }
+
+    @Test
+    @DisplayName("Should leave balanced stripes untouched")
+    void rebalance_SkipsBalancedStripes() {
+        //Arrange
+        List<AccountBalanceStripe> stripes = stripes("40.00", "35.00");
+        when(accountRepository.findByIdForUpdate(fixedId)).thenReturn(Optional.of(account));
+        when(stripeRepository.findAllByAccountIdOrderByStripeIndex(fixedId)).thenReturn(stripes);
+
+        //Act
+        boolean rebalanced = balanceStripeService.rebalance(fixedId);
+
+        //Assert
+        assertFalse(rebalanced);
+        assertEquals(new BigDecimal("40.00"), stripes.get(0).getBalance());
+        assertEquals(new BigDecimal("35.00"), stripes.get(1).getBalance());
+    }
+
+    private List<AccountBalanceStripe> stripes(String... balances) {
+        return IntStream.range(0, balances.length)
+                .mapToObj(i -> new AccountBalanceStripe(fixedId, i, new BigDecimal(balances[i])))
+                .toList();
+    }
+}
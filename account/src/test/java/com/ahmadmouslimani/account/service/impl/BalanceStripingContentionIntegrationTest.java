@@ -0,0 +1,149 @@
+package com.ahmadmouslimani.account.service.impl;
+
+import com.ahmadmouslimani.account.dto.AccountRequestDTO;
+import com.ahmadmouslimani.account.entity.AccountBalanceStripe;
+import com.ahmadmouslimani.account.exception.BusinessException;
+import com.ahmadmouslimani.account.repository.AccountBalanceStripeRepository;
+import com.ahmadmouslimani.account.service.AccountService;
+import com.ahmadmouslimani.account.service.BalanceStripeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hundreds of concurrent debits on one account, on its single balance row and then on 16 stripes.
+ * Each debit is its own transaction, so on the single row they all queue on one lock.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {
+                "app.balance-striping.enabled=true",
+                "app.balance-striping.rebalance-interval=1h",
+                "spring.datasource.hikari.maximum-pool-size=40"
+        }
+)
+@ActiveProfiles("test")
+class BalanceStripingContentionIntegrationTest {
+
+    private static final int CONCURRENT_DEBITS = 400;
+    private static final int CLIENT_THREADS = 200;
+    private static final BigDecimal DEBIT = new BigDecimal("1.00");
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("100000.00");
+
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private BalanceStripeService balanceStripeService;
+    @Autowired
+    private AccountBalanceStripeRepository stripeRepository;
+
+    private final List<UUID> accountIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        accountIds.forEach(accountService::deleteAccount);
+    }
+
+    @Test
+    @DisplayName("Striped debits should keep a consistent total and not be slower than debits on one row")
+    void stripedDebits_UnderContention() throws Exception {
+        UUID plainAccount = createAccount();
+        UUID stripedAccount = createAccount();
+        accountService.stripeBalance(stripedAccount, 16);
+
+        //Warm up the connection pool
+        debitConcurrently(plainAccount, CLIENT_THREADS);
+        debitConcurrently(stripedAccount, CLIENT_THREADS);
+
+        long plainMs = debitConcurrently(plainAccount, CONCURRENT_DEBITS);
+        long stripedMs = debitConcurrently(stripedAccount, CONCURRENT_DEBITS);
+        System.out.printf("%d concurrent debits on one account: single row %dms, 16 stripes %dms%n",
+                CONCURRENT_DEBITS, plainMs, stripedMs);
+
+        BigDecimal expected = INITIAL_BALANCE.subtract(DEBIT.multiply(BigDecimal.valueOf(CLIENT_THREADS + CONCURRENT_DEBITS)));
+        assertEquals(0, expected.compareTo(accountService.getAccountById(plainAccount).balance()));
+        assertEquals(0, expected.compareTo(accountService.getAccountById(stripedAccount).balance()),
+                "The total of the striped account should account for every debit");
+        for (AccountBalanceStripe stripe : stripeRepository.findAll()) {
+            if (stripe.getAccountId().equals(stripedAccount)) {
+                assertTrue(stripe.getBalance().signum() >= 0, "No stripe should go negative");
+            }
+        }
+
+        //Rebalancing keeps the total
+        balanceStripeService.rebalance(stripedAccount);
+        assertEquals(0, expected.compareTo(accountService.getAccountById(stripedAccount).balance()));
+        assertTrue(stripedMs <= plainMs * 1.25, "Striped debits should not be slower than debits on one row");
+    }
+
+    @Test
+    @DisplayName("Should debit across stripes when no single stripe holds the amount, and reject beyond the total")
+    void stripedDebit_SpreadOverStripes() {
+        UUID stripedAccount = createAccount();
+        accountService.stripeBalance(stripedAccount, 4);
+
+        //25,000 per stripe, so this debit needs the consolidating path
+        assertEquals(0, new BigDecimal("40000.00").compareTo(
+                accountService.adjustBalance(stripedAccount, new BigDecimal("60000.00"), "D").balance()));
+        assertEquals(0, new BigDecimal("40000.00").compareTo(accountService.getAccountById(stripedAccount).balance()));
+
+        try {
+            accountService.adjustBalance(stripedAccount, new BigDecimal("40000.01"), "D");
+            throw new AssertionError("Debit beyond the total should be rejected");
+        } catch (BusinessException expected) {
+            assertEquals(0, new BigDecimal("40000.00").compareTo(accountService.getAccountById(stripedAccount).balance()));
+        }
+    }
+
+    private UUID createAccount() {
+        UUID id = accountService.createAccount(new AccountRequestDTO("ACTIVE", INITIAL_BALANCE)).id();
+        accountIds.add(id);
+        return id;
+    }
+
+    private long debitConcurrently(UUID accountId, int debits) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENT_THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger rejected = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>(debits);
+            for (int i = 0; i < debits; i++) {
+                futures.add(clients.submit(() -> {
+                    start.await();
+                    try {
+                        accountService.adjustBalance(accountId, DEBIT, "D");
+                    } catch (BusinessException ex) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+            assertEquals(0, rejected.get(), "No debit should be rejected while the funds are sufficient");
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+}
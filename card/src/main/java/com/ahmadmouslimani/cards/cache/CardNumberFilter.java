@@ -0,0 +1,221 @@
+package com.ahmadmouslimani.cards.cache;
+
+import com.ahmadmouslimani.cards.config.CardFilterProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bloom filter over the blind index hashes of the stored cards. A hash it has never seen is definitely not in the
+ * card table, so lookups of unknown card numbers, most of a card testing attack, are answered without a query.
+ * A hash it has seen may still be absent, at the configured false positive rate, and is looked up as before.
+ * The filter is built from the card table by {@link CardNumberFilterLoader}, which then adds the cards created or
+ * reindexed by every instance every sync interval, and the cards of this instance are added as they are written.
+ * Until its first build, and whenever it has not been synced for max-staleness, it lets every lookup through.
+ * The hashes are HMAC outputs, so one cheap 64 bit hash of their text gives the bit positions.
+ */
+public class CardNumberFilter {
+    private static final double LN2 = Math.log(2);
+
+    private final CardFilterProperties properties;
+    //Null until the first build completes
+    private volatile Bits bits;
+    //The filter being built, it receives the added hashes too so none is lost while the table is read
+    private volatile Bits building;
+    //System.nanoTime() at the start of the last build or sync that completed
+    private volatile long syncedAt;
+
+    private final Counter absent;
+    private final Counter present;
+    private final Counter falsePositives;
+
+    public CardNumberFilter(CardFilterProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.absent = checks(meterRegistry, "absent");
+        this.present = checks(meterRegistry, "present");
+        this.falsePositives = Counter.builder("card.filter.false.positives")
+                .description("Card lookups let through by the filter that found no card")
+                .register(meterRegistry);
+        Gauge.builder("card.filter.false.positive.rate", this, CardNumberFilter::expectedFalsePositiveRate)
+                .description("False positive rate of the filter given the share of its bits set")
+                .tag("kind", "expected")
+                .register(meterRegistry);
+        Gauge.builder("card.filter.false.positive.rate", this, CardNumberFilter::observedFalsePositiveRate)
+                .description("Share of the lookups of unknown cards the filter let through")
+                .tag("kind", "observed")
+                .register(meterRegistry);
+        Gauge.builder("card.filter.memory", this, CardNumberFilter::memoryBytes)
+                .description("Size of the filter bits")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return False when no card has this blind index, true when one may have it or the filter is not built yet
+     */
+    public boolean mightContain(String cardNumberHash) {
+        Bits current = bits;
+        if (current == null || cardNumberHash == null || isStale()) {
+            return true;
+        }
+        if (current.mightContain(cardNumberHash)) {
+            present.increment();
+            return true;
+        }
+        absent.increment();
+        return false;
+    }
+
+    /**
+     * Adds the blind index of a stored card. Called once the card is committed, so a build that started earlier
+     * receives it here and a build that starts later reads it from the table.
+     */
+    public void put(String cardNumberHash) {
+        if (cardNumberHash == null) {
+            return;
+        }
+        Bits current = bits;
+        if (current != null) {
+            current.put(cardNumberHash);
+        }
+        Bits next = building;
+        if (next != null) {
+            next.put(cardNumberHash);
+        }
+    }
+
+    /** Records lookups let through that found no card. */
+    public void recordFalsePositives(long count) {
+        if (bits != null && count > 0) {
+            falsePositives.increment(count);
+        }
+    }
+
+    /**
+     * Builds a new filter and swaps it in once complete, lookups keep using the previous one meanwhile.
+     * @param cards Number of cards in the table, the filter is sized for twice as many or the expected cards
+     * @param hashes Streams the blind index of every card into the consumer it is given
+     */
+    public void rebuild(long cards, Consumer<Consumer<String>> hashes) {
+        long start = System.nanoTime();
+        Bits next = new Bits(Math.max(properties.expectedCards(), cards * 2), properties.falsePositiveRate());
+        building = next;
+        try {
+            hashes.accept(next::put);
+            bits = next;
+            syncedAt = start;
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * Adds the blind indexes written by any instance since the last build or sync.
+     * @param hashes Streams the recently created or rewritten blind indexes into the consumer it is given
+     */
+    public void sync(Consumer<Consumer<String>> hashes) {
+        long start = System.nanoTime();
+        hashes.accept(this::put);
+        syncedAt = start;
+    }
+
+    public boolean isBuilt() {
+        return bits != null;
+    }
+
+    //Cards written by other instances since then may be missing, so a miss is no longer definite
+    private boolean isStale() {
+        return System.nanoTime() - syncedAt > properties.maxStaleness().toNanos();
+    }
+
+    private double expectedFalsePositiveRate() {
+        Bits current = bits;
+        return current == null ? 1 : current.falsePositiveRate();
+    }
+
+    private double observedFalsePositiveRate() {
+        double unknown = absent.count() + falsePositives.count();
+        return unknown == 0 ? 0 : falsePositives.count() / unknown;
+    }
+
+    private double memoryBytes() {
+        Bits current = bits;
+        Bits next = building;
+        return (current == null ? 0 : current.bytes()) + (next == null ? 0 : next.bytes());
+    }
+
+    private static Counter checks(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("card.filter.checks")
+                .description("Card lookups checked against the filter")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class Bits {
+        private final AtomicLongArray words;
+        private final long size;
+        private final int hashes;
+        private final AtomicLong set = new AtomicLong();
+
+        private Bits(long cards, double falsePositiveRate) {
+            //Optimal size and number of hash functions for that many cards at that rate
+            long optimal = (long) Math.ceil(-cards * Math.log(falsePositiveRate) / (LN2 * LN2));
+            this.words = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimal + 63) / 64)));
+            this.size = words.length() * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) size / cards * LN2));
+        }
+
+        private void put(String hash) {
+            long h1 = mix(fnv(hash));
+            long h2 = mix(h1 + 0x9E3779B97F4A7C15L);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                long mask = 1L << bit;
+                long previous = words.getAndAccumulate((int) (bit >>> 6), mask, (word, m) -> word | m);
+                if ((previous & mask) == 0) {
+                    set.incrementAndGet();
+                }
+            }
+        }
+
+        private boolean mightContain(String hash) {
+            long h1 = mix(fnv(hash));
+            long h2 = mix(h1 + 0x9E3779B97F4A7C15L);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private double falsePositiveRate() {
+            return Math.pow((double) set.get() / size, hashes);
+        }
+
+        private long bytes() {
+            return size / 8;
+        }
+
+        //FNV-1a over the characters of the Base64 hash
+        private static long fnv(String hash) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < hash.length(); i++) {
+                h = (h ^ hash.charAt(i)) * 0x100000001b3L;
+            }
+            return h;
+        }
+
+        //Finalizer of MurmurHash3, spreads every input bit over the whole word
+        private static long mix(long h) {
+            h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+            h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            return h ^ (h >>> 33);
+        }
+    }
+}
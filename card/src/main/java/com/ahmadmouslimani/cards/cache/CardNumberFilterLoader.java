@@ -0,0 +1,95 @@
+package com.ahmadmouslimani.cards.cache;
+
+import com.ahmadmouslimani.cards.config.CardFilterProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the {@link CardNumberFilter} from the card table in the background, right after startup and then every
+ * rebuild interval. The blind indexes are streamed with a cursor, so the table is never held in memory.
+ * In between, the blind indexes stamped by the database since the last read, by cards created or reindexed on
+ * any instance, are added every sync interval. Each read looks back sync-lag before the previous one started, for
+ * the writes that committed after the time they were stamped with.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.card-filter", name = "enabled", havingValue = "true")
+@Slf4j
+public class CardNumberFilterLoader {
+    static final String COUNT = "SELECT count(*) FROM card";
+    static final String SELECT_HASHES = "SELECT card_number_hash FROM card";
+    static final String SELECT_INDEXED_SINCE = "SELECT card_number_hash FROM card WHERE indexed_at > ?";
+    //Start of the read transaction, on the clock the rows are stamped with
+    static final String NOW = "SELECT now()";
+    private static final int FETCH_SIZE = 5_000;
+
+    private final CardNumberFilter filter;
+    private final CardFilterProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    //PostgreSQL only streams with a cursor inside a transaction
+    private final TransactionTemplate readOnly;
+
+    //Null until the first build
+    private volatile Instant readAt;
+
+    public CardNumberFilterLoader(CardNumberFilter filter, CardFilterProperties properties, JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager) {
+        this.filter = filter;
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    @Scheduled(fixedDelayString = "${app.card-filter.rebuild-interval:10m}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        try {
+            readOnly.executeWithoutResult(status -> {
+                Instant now = jdbcTemplate.queryForObject(NOW, Timestamp.class).toInstant();
+                Long cards = jdbcTemplate.queryForObject(COUNT, Long.class);
+                filter.rebuild(cards == null ? 0 : cards, put -> jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(SELECT_HASHES);
+                    statement.setFetchSize(FETCH_SIZE);
+                    return statement;
+                }, (RowCallbackHandler) rs -> put.accept(rs.getString(1))));
+                readAt = now;
+            });
+            log.info("Card number filter built in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (DataAccessException | TransactionException ex) {
+            //The previous filter, or none, stays in use until the next rebuild
+            log.warn("Card number filter could not be built: {}", ex.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.card-filter.sync-interval:1s}")
+    public void sync() {
+        Instant since = readAt;
+        if (since == null) {
+            return;
+        }
+        try {
+            readOnly.executeWithoutResult(status -> {
+                Instant now = jdbcTemplate.queryForObject(NOW, Timestamp.class).toInstant();
+                filter.sync(put -> jdbcTemplate.query(SELECT_INDEXED_SINCE, (RowCallbackHandler) rs -> put.accept(rs.getString(1)),
+                        Timestamp.from(since.minus(properties.syncLag()))));
+                readAt = now;
+            });
+        } catch (DataAccessException | TransactionException ex) {
+            //Every lookup goes to the database once the filter is stale, until a sync or a build succeeds
+            log.warn("Card number filter could not be synced: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.ahmadmouslimani.cards.config;
+
+import com.ahmadmouslimani.cards.encryption.CardCipher;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Storage of card numbers.
+ * @param format Layout of newly written card numbers: CBC, the hex text of earlier releases, or GCM, binary AES-GCM,
+ *               which needs the bytea column. Both are always read
+ * @param migrateColumn Converts card_number from the text of earlier releases to bytea at startup. An offline step,
+ *                      once every instance runs this release
+ * @param keys Every key a stored card number may be encrypted with. When empty, CARD_SECRET_KEY and
+ *             CARD_ENCRYPTION_SALT are key 1
+ * @param activeKey Version of the key new card numbers are encrypted with
+ */
+@ConfigurationProperties(prefix = "app.security.card-encryption")
+public record CardEncryptionProperties(
+        @DefaultValue("CBC") CardCipher.Format format,
+        @DefaultValue("false") boolean migrateColumn,
+        @DefaultValue List<CardCipher.Key> keys,
+        @DefaultValue("1") int activeKey
+) {}
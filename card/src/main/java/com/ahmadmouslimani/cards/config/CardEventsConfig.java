@@ -0,0 +1,37 @@
+package com.ahmadmouslimani.cards.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestClient;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableConfigurationProperties(CardEventsProperties.class)
+public class CardEventsConfig {
+
+    //Notifications are sent off the request thread. If subscribers are down and the queue fills up
+    //the oldest notification is dropped, the subscribers' cache TTL bounds the staleness.
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor cardEventsExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("card-events-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardOldestPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean
+    public RestClient cardEventsRestClient(CardEventsProperties properties) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(properties.timeout());
+        requestFactory.setReadTimeout(properties.timeout());
+        return RestClient.builder().requestFactory(requestFactory).build();
+    }
+}
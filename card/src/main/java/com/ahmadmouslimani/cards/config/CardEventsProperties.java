@@ -0,0 +1,18 @@
+package com.ahmadmouslimani.cards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Services notified of card status changes.
+ * @param subscribers Base URLs of the services caching cards, each one receives the invalidation
+ * @param timeout Connect and read timeout of a notification
+ */
+@ConfigurationProperties(prefix = "app.card-cache")
+public record CardEventsProperties(
+        @DefaultValue List<String> subscribers,
+        @DefaultValue("2s") Duration timeout
+) {}
@@ -0,0 +1,18 @@
+package com.ahmadmouslimani.cards.config;
+
+import com.ahmadmouslimani.cards.cache.CardNumberFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(CardFilterProperties.class)
+public class CardFilterConfig {
+
+    //Always present, until CardNumberFilterLoader has built it the filter lets every lookup through
+    @Bean
+    public CardNumberFilter cardNumberFilter(CardFilterProperties properties, MeterRegistry meterRegistry) {
+        return new CardNumberFilter(properties, meterRegistry);
+    }
+}
@@ -0,0 +1,31 @@
+package com.ahmadmouslimani.cards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the Bloom filter over the card blind indexes, which answers the lookups of unknown card numbers
+ * without a query.
+ * @param enabled When false, the filter is never built and every lookup queries the database
+ * @param expectedCards Number of cards the filter is sized for, at least twice the cards found when it is built
+ * @param falsePositiveRate Share of unknown card numbers the filter lets through to the database at the expected size
+ * @param rebuildInterval Delay between two builds from the card table. A build drops the blind indexes rewritten by
+ * the rekey job
+ * @param syncInterval Delay between two reads of the blind indexes created or rewritten since the last read, by any
+ * instance. A card created by another instance may be filtered out for that long
+ * @param syncLag How far back each read looks, longer than any transaction writing a card, which commits after
+ * the time it stamps
+ * @param maxStaleness Once the filter has not been built or synced for that long, every lookup goes to the database
+ */
+@ConfigurationProperties(prefix = "app.card-filter")
+public record CardFilterProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("1000000") long expectedCards,
+        @DefaultValue("0.01") double falsePositiveRate,
+        @DefaultValue("10m") Duration rebuildInterval,
+        @DefaultValue("1s") Duration syncInterval,
+        @DefaultValue("1m") Duration syncLag,
+        @DefaultValue("5s") Duration maxStaleness
+) {}
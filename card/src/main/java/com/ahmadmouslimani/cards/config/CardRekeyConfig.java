@@ -0,0 +1,27 @@
+package com.ahmadmouslimani.cards.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableConfigurationProperties(CardRekeyProperties.class)
+@EnableScheduling
+public class CardRekeyConfig {
+
+    //Re-encrypts the slices of a chunk. The job waits for a chunk before reading the next one, so the queue
+    //never holds more than one slice per thread
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "app.security.card-rekey", name = "enabled", havingValue = "true")
+    public ThreadPoolTaskExecutor cardRekeyExecutor(CardRekeyProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.threads());
+        executor.setMaxPoolSize(properties.threads());
+        executor.setThreadNamePrefix("card-rekey-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,30 @@
+package com.ahmadmouslimani.cards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the rekey job, which rewrites the cards encrypted with a previous key or indexed with a previous
+ * blind index salt.
+ * @param enabled When true, the job runs in the background after startup and then every interval
+ * @param chunkSize Number of cards read, re-encrypted and written back in one database transaction
+ * @param rowsPerSecond Upper bound of the cards scanned per second, to leave database capacity to the traffic
+ * @param parallelism Number of threads re-encrypting a chunk, 0 for one per core
+ * @param initialDelay Delay between startup and the first run
+ * @param interval Delay between two runs. A run with nothing left to do only reads its checkpoint
+ */
+@ConfigurationProperties(prefix = "app.security.card-rekey")
+public record CardRekeyProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("500") int chunkSize,
+        @DefaultValue("2000") int rowsPerSecond,
+        @DefaultValue("0") int parallelism,
+        @DefaultValue("1m") Duration initialDelay,
+        @DefaultValue("1h") Duration interval
+) {
+    public int threads() {
+        return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+}
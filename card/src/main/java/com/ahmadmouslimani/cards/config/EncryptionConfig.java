@@ -1,11 +1,12 @@
 package com.ahmadmouslimani.cards.config;
 
+import com.ahmadmouslimani.cards.encryption.CardCipher;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.crypto.encrypt.Encryptors;
-import org.springframework.security.crypto.encrypt.TextEncryptor;
 
 @Configuration
+@EnableConfigurationProperties(CardEncryptionProperties.class)
 public class EncryptionConfig {
     private static final String ENCRYPTION_PASSWORD =
             System.getenv().getOrDefault("CARD_SECRET_KEY", "ABCDEFGHIJKLMNOPQRSTUVWXYZ");
@@ -14,7 +15,10 @@ public class EncryptionConfig {
 
 
     @Bean
-    public TextEncryptor textEncryptor() {
-        return Encryptors.text(ENCRYPTION_PASSWORD, SALT);
+    public CardCipher cardCipher(CardEncryptionProperties properties) {
+        if (properties.keys().isEmpty()) {
+            return new CardCipher(ENCRYPTION_PASSWORD, SALT, properties.format());
+        }
+        return new CardCipher(properties.keys(), properties.activeKey(), properties.format());
     }
 }
@@ -2,10 +2,12 @@ package com.ahmadmouslimani.cards.controller;
 
 import com.ahmadmouslimani.cards.dto.CardRequestDTO;
 import com.ahmadmouslimani.cards.dto.CardResponseDTO;
+import com.ahmadmouslimani.cards.dto.CardSummaryDTO;
 import com.ahmadmouslimani.cards.dto.ErrorResponseDTO;
 import com.ahmadmouslimani.cards.service.CardService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -13,6 +15,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -20,6 +23,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -123,10 +127,100 @@ public class CardController {
 
 
 
+    @Operation(
+            summary = "Fetch the Card Summary by Card Number",
+            description = "Retrieves the status, expiry and account of a card without its card number. " +
+                    "The encrypted card number is not read, use this variant when the card number is not needed."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Card summary fetched successfully",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = CardSummaryDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid card number format",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "No card found with the provided card number",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Internal server error",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDTO.class)
+                    )
+            )
+    })
+    @GetMapping("/fetch/summary")
+    public ResponseEntity<CardSummaryDTO> getCardSummaryByCardNumber(
+            @RequestParam
+            @Parameter(description = "The 16-digit card number", example = "1234123412341234")
+            @Pattern(regexp = "^[0-9]{16}$", message = "Card number must be 16 digits")
+            String cardNumber) {
+
+        log.debug("Request fetching summary for card number: {}", cardNumber.substring(cardNumber.length() - 4));
+
+        return ResponseEntity.ok(cardService.getCardSummaryByCardNumber(cardNumber));
+    }
+
+
+
+    @Operation(
+            summary = "Fetch Card Details for many Card Numbers",
+            description = "Retrieves the cards matching the provided 16-digit card numbers in one call. Unknown card numbers are left out of the response."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Cards fetched successfully",
+                    content = @Content(
+                            array = @ArraySchema(schema = @Schema(implementation = CardResponseDTO.class))
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid card number format",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Internal server error",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDTO.class)
+                    )
+            )
+    })
+    @PostMapping("/fetch/batch")
+    public ResponseEntity<List<CardResponseDTO>> getCardsByCardNumbers(
+            @RequestBody
+            @Size(min = 1, max = 1000, message = "Between 1 and 1000 card numbers are allowed")
+            List<@Pattern(regexp = "^[0-9]{16}$", message = "Card number must be 16 digits") String> cardNumbers) {
+
+        log.debug("Request fetching details for {} card numbers", cardNumbers.size());
+
+        return ResponseEntity.ok(cardService.getCardsByCardNumbers(cardNumbers));
+    }
+
+
+
 
     @Operation(
             summary = "Fetch Card Details by Id",
-            description = "Retrieves full card information using its unique Id."
+            description = "Retrieves full card information using its unique Id. This is the read that decrypts the stored card number."
     )
     @ApiResponses({
             @ApiResponse(
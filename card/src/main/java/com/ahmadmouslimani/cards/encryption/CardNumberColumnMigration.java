@@ -0,0 +1,55 @@
+package com.ahmadmouslimani.cards.encryption;
+
+import com.ahmadmouslimani.cards.config.CardEncryptionProperties;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Converts the card_number column of databases created by earlier releases from hex text to bytea.
+ * Hibernate does not change the type of an existing column. The rows keep their value as the ASCII bytes
+ * of the hex text, which {@link CardCipher} still reads, and are written as AES-GCM from their next update.
+ * The conversion rewrites the table under an ACCESS EXCLUSIVE lock and earlier releases cannot read bytea, so it
+ * is an offline step, enabled with migrate-column once every instance runs this release. Until then the CBC hex
+ * text is written, and an instance configured to write GCM refuses to start on a text column.
+ */
+@Component
+@ConditionalOnExpression("${app.security.card-encryption.migrate-column:false} or '${app.security.card-encryption.format:CBC}'.equalsIgnoreCase('GCM')")
+@Slf4j
+public class CardNumberColumnMigration implements InitializingBean {
+    static final String SELECT_TYPE = """
+            SELECT data_type FROM information_schema.columns
+            WHERE table_schema = current_schema() AND table_name = 'card' AND column_name = 'card_number'
+            """;
+    static final String ALTER = "ALTER TABLE card ALTER COLUMN card_number TYPE bytea USING convert_to(card_number, 'UTF8')";
+
+    private final CardEncryptionProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+
+    //The EntityManagerFactory is only required so that Hibernate has created the table first
+    public CardNumberColumnMigration(CardEncryptionProperties properties, JdbcTemplate jdbcTemplate,
+                                     EntityManagerFactory entityManagerFactory) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        List<String> types = jdbcTemplate.queryForList(SELECT_TYPE, String.class);
+        if (types.size() != 1 || "bytea".equals(types.get(0))) {
+            return;
+        }
+        if (!properties.migrateColumn()) {
+            //Binary AES-GCM written to a text column would be stored as the text of its bytes
+            throw new IllegalStateException("card.card_number is still " + types.get(0) + ": write the CBC format "
+                    + "until every instance runs this release, then convert it with migrate-column");
+        }
+        jdbcTemplate.execute(ALTER);
+        log.info("Converted card.card_number from {} to bytea", types.get(0));
+    }
+}
@@ -3,27 +3,25 @@ package com.ahmadmouslimani.cards.encryption;
 import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.encrypt.TextEncryptor;
-import org.springframework.stereotype.Component;
 
 @Converter(autoApply = false)
-public class CardNumberEncryptorConverter implements AttributeConverter<String, String> {
-    private final TextEncryptor encryptor;
+public class CardNumberEncryptorConverter implements AttributeConverter<String, byte[]> {
+    private final CardCipher cardCipher;
 
     @Autowired
-    public CardNumberEncryptorConverter(TextEncryptor encryptor) {
-        this.encryptor = encryptor;
+    public CardNumberEncryptorConverter(CardCipher cardCipher) {
+        this.cardCipher = cardCipher;
     }
 
     @Override
-    public String convertToDatabaseColumn(String attribute) {
-        if (attribute == null || encryptor == null) return null;
-        return encryptor.encrypt(attribute);
+    public byte[] convertToDatabaseColumn(String attribute) {
+        if (attribute == null || cardCipher == null) return null;
+        return cardCipher.encrypt(attribute);
     }
 
     @Override
-    public String convertToEntityAttribute(String dbData) {
-        if (dbData == null || encryptor == null) return null;
-        return encryptor.decrypt(dbData);
+    public String convertToEntityAttribute(byte[] dbData) {
+        if (dbData == null || cardCipher == null) return null;
+        return cardCipher.decrypt(dbData);
     }
 }
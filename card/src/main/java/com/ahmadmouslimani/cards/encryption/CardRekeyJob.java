@@ -0,0 +1,223 @@
+package com.ahmadmouslimani.cards.encryption;
+
+import com.ahmadmouslimani.cards.cache.CardNumberFilter;
+import com.ahmadmouslimani.cards.config.CardRekeyProperties;
+import com.ahmadmouslimani.cards.entity.CardRekeyCheckpoint;
+import com.ahmadmouslimani.cards.repository.CardRekeyCheckpointRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rewrites the cards encrypted with a previous key, or indexed with a previous blind index salt, while the
+ * service keeps running. Cards are read in id order, a chunk at a time after the last id written, re-encrypted
+ * in parallel and written back with one JDBC batch, together with the checkpoint, so a restarted job resumes
+ * where it stopped. Reads keep working meanwhile: every configured key is read through the key version stored
+ * with each card number, and lookups fall back to the previous blind index salt.
+ * A card updated by the service during the run is already current, its write back is skipped.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.security.card-rekey", name = "enabled", havingValue = "true")
+@Slf4j
+public class CardRekeyJob {
+    static final String SELECT_FIRST = "SELECT id, card_number, card_number_hash FROM card ORDER BY id LIMIT ?";
+    static final String SELECT_AFTER = "SELECT id, card_number, card_number_hash FROM card WHERE id > ? ORDER BY id LIMIT ?";
+    //Only if the row was not changed since it was read
+    static final String UPDATE = "UPDATE card SET card_number = ?, card_number_hash = ?, indexed_at = now() WHERE id = ? AND card_number = ?";
+
+    private final CardRekeyProperties properties;
+    private final CardCipher cardCipher;
+    private final HashUtils hashUtils;
+    private final CardRekeyCheckpointRepository checkpointRepository;
+    private final CardNumberFilter cardNumberFilter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final Counter rewritten;
+    private final Counter current;
+    private final Counter failed;
+
+    public CardRekeyJob(CardRekeyProperties properties, CardCipher cardCipher, HashUtils hashUtils,
+                        CardRekeyCheckpointRepository checkpointRepository, CardNumberFilter cardNumberFilter,
+                        JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, @Qualifier("cardRekeyExecutor") Executor executor,
+                        MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.cardCipher = cardCipher;
+        this.hashUtils = hashUtils;
+        this.checkpointRepository = checkpointRepository;
+        this.cardNumberFilter = cardNumberFilter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+        this.rewritten = rows(meterRegistry, "rewritten");
+        this.current = rows(meterRegistry, "current");
+        this.failed = rows(meterRegistry, "failed");
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.security.card-rekey.initial-delay:1m}",
+            fixedDelayString = "${app.security.card-rekey.interval:1h}"
+    )
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            CardRekeyCheckpoint checkpoint = checkpointRepository.findById(target()).orElseGet(this::newCheckpoint);
+            if (checkpoint.getCompletedAt() == null) {
+                resume(checkpoint);
+            }
+        } catch (DataAccessException ex) {
+            //The next run resumes from the last checkpoint
+            log.warn("Card rekey stopped: {}", ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void resume(CardRekeyCheckpoint checkpoint) throws InterruptedException {
+        log.info("Card rekey towards {} starts after card {}", checkpoint.getTarget(), checkpoint.getLastCardId());
+        long start = System.nanoTime();
+        long scanned = 0;
+        while (true) {
+            List<StoredCard> chunk = checkpoint.getLastCardId() == null
+                    ? jdbcTemplate.query(SELECT_FIRST, CardRekeyJob::storedCard, properties.chunkSize())
+                    : jdbcTemplate.query(SELECT_AFTER, CardRekeyJob::storedCard, checkpoint.getLastCardId(), properties.chunkSize());
+            if (chunk.isEmpty()) {
+                checkpoint.setCompletedAt(Instant.now());
+                checkpointRepository.save(checkpoint);
+                log.info("Card rekey towards {} completed: {} cards scanned, {} rewritten, {} failed", checkpoint.getTarget(),
+                        checkpoint.getScanned(), checkpoint.getRewritten(), checkpoint.getFailed());
+                return;
+            }
+            checkpoint = write(checkpoint, chunk, rekey(chunk));
+            scanned += chunk.size();
+            throttle(start, scanned);
+        }
+    }
+
+    //Re-encrypts the slices of the chunk on the rekey executor, one outcome per card in chunk order
+    List<Outcome> rekey(List<StoredCard> chunk) {
+        int slices = Math.min(properties.threads(), chunk.size());
+        int sliceSize = (chunk.size() + slices - 1) / slices;
+        List<CompletableFuture<List<Outcome>>> results = new ArrayList<>();
+        for (int from = 0; from < chunk.size(); from += sliceSize) {
+            List<StoredCard> slice = chunk.subList(from, Math.min(from + sliceSize, chunk.size()));
+            results.add(CompletableFuture.supplyAsync(() -> slice.stream().map(this::rekey).toList(), executor));
+        }
+        List<Outcome> outcomes = new ArrayList<>(chunk.size());
+        for (CompletableFuture<List<Outcome>> result : results) {
+            outcomes.addAll(result.join());
+        }
+        return outcomes;
+    }
+
+    private Outcome rekey(StoredCard card) {
+        String cardNumber;
+        try {
+            cardNumber = cardCipher.decrypt(card.cardNumber());
+        } catch (RuntimeException ex) {
+            log.error("Card {} could not be decrypted, it is left as is: {}", card.id(), ex.getMessage());
+            return Outcome.FAILED;
+        }
+        boolean keyCurrent = cardCipher.isCurrent(card.cardNumber());
+        String cardNumberHash = hashUtils.generateSearchHash(cardNumber);
+        if (keyCurrent && cardNumberHash.equals(card.cardNumberHash())) {
+            return Outcome.CURRENT;
+        }
+        byte[] encrypted = keyCurrent ? card.cardNumber() : cardCipher.encrypt(cardNumber);
+        //Hex text is bound as text, for a card_number column not yet converted to bytea
+        return new Outcome(new Object[]{CardNumberJdbcType.sqlParameter(encrypted), cardNumberHash, card.id(),
+                CardNumberJdbcType.sqlParameter(card.cardNumber())}, false);
+    }
+
+    private CardRekeyCheckpoint write(CardRekeyCheckpoint checkpoint, List<StoredCard> chunk, List<Outcome> outcomes) {
+        List<Object[]> batch = outcomes.stream().map(Outcome::update).filter(Objects::nonNull).toList();
+        long unreadable = outcomes.stream().filter(Outcome::failed).count();
+        long rewrittenBefore = checkpoint.getRewritten();
+        //Added before the commit so a rewritten card is never filtered out, and after it for a filter build
+        //that started meanwhile
+        batch.forEach(update -> cardNumberFilter.put((String) update[1]));
+        CardRekeyCheckpoint saved = transactionTemplate.execute(status -> {
+            long written = batch.isEmpty() ? 0
+                    : Arrays.stream(jdbcTemplate.batchUpdate(UPDATE, batch)).filter(count -> count != 0).count();
+            checkpoint.setLastCardId(chunk.get(chunk.size() - 1).id());
+            checkpoint.setScanned(checkpoint.getScanned() + chunk.size());
+            checkpoint.setRewritten(checkpoint.getRewritten() + written);
+            checkpoint.setFailed(checkpoint.getFailed() + unreadable);
+            return checkpointRepository.save(checkpoint);
+        });
+        //A card the service updated since it was read is current already, its write back changed no row
+        batch.forEach(update -> cardNumberFilter.put((String) update[1]));
+        long written = saved.getRewritten() - rewrittenBefore;
+        rewritten.increment(written);
+        current.increment(chunk.size() - written - unreadable);
+        failed.increment(unreadable);
+        return saved;
+    }
+
+    private void throttle(long start, long scanned) throws InterruptedException {
+        long due = start + TimeUnit.SECONDS.toNanos(scanned) / properties.rowsPerSecond();
+        long wait = due - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    //One target per active key, write format and blind index salt, a new one starts a new pass over the table
+    String target() {
+        //Identifies the salt without revealing it
+        String salt = hashUtils.generateSearchHash("card-rekey").substring(0, 16);
+        return "key-" + cardCipher.activeVersion() + "/" + cardCipher.format() + "/salt-" + salt;
+    }
+
+    private CardRekeyCheckpoint newCheckpoint() {
+        CardRekeyCheckpoint checkpoint = new CardRekeyCheckpoint();
+        checkpoint.setTarget(target());
+        checkpoint.setStartedAt(Instant.now());
+        return checkpoint;
+    }
+
+    private static StoredCard storedCard(ResultSet rs, int rowNum) throws SQLException {
+        return new StoredCard(rs.getObject("id", UUID.class), rs.getBytes("card_number"), rs.getString("card_number_hash"));
+    }
+
+    private static Counter rows(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("card.rekey.rows")
+                .description("Cards scanned by the rekey job, by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    record StoredCard(UUID id, byte[] cardNumber, String cardNumberHash) {}
+
+    //update holds the parameters of the UPDATE, null when the card is left as is
+    record Outcome(Object[] update, boolean failed) {
+        static final Outcome CURRENT = new Outcome(null, false);
+        static final Outcome FAILED = new Outcome(null, true);
+    }
+}
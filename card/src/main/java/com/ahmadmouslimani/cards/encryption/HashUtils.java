@@ -1,36 +1,177 @@
 package com.ahmadmouslimani.cards.encryption;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.util.Base64;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Blind index of card numbers: HMAC-SHA256 of the number keyed with the blind index salt.
+ * The key is initialized once and the Mac instances are reused through a small lock-free pool, so a hash
+ * costs neither a provider lookup nor a key schedule. The pool does not pin engines to threads, which keeps
+ * it bounded when requests run on virtual threads.
+ * While the blind index salt is rotated the previous salt stays configured, cards the rekey job has not
+ * rewritten yet are looked up with {@link #generatePreviousSearchHash(String)}.
+ */
 @Component
 public class HashUtils {
-    private final String secretSalt;
+    /** Length in bytes of a raw blind index. */
+    public static final int HASH_LENGTH = 32;
+
     private static final String HMAC_ALGO = "HmacSHA256";
+    //Card numbers are 16 ASCII digits, longer or non ASCII input is encoded with String.getBytes
+    private static final int SCRATCH_LENGTH = 64;
+
+    private final SecretKeySpec secretKey;
+    private final Mac prototype;
+    private final AtomicReferenceArray<Engine> pool;
+    private final int poolMask;
+    private final HashUtils previous;
+
+    public HashUtils(String secretSalt) {
+        this(secretSalt, null);
+    }
 
-    public HashUtils(@Value("${app.security.blind-index-salt}") String secretSalt) {
-        this.secretSalt = secretSalt;
+    /**
+     * @param previousSalt Salt being rotated out, null or blank when no rotation is in progress
+     */
+    @Autowired
+    public HashUtils(@Value("${app.security.blind-index-salt}") String secretSalt,
+                     @Value("${app.security.previous-blind-index-salt:}") String previousSalt) {
+        this.previous = previousSalt == null || previousSalt.isBlank() ? null : new HashUtils(previousSalt);
+        this.secretKey = new SecretKeySpec(secretSalt.getBytes(StandardCharsets.UTF_8), HMAC_ALGO);
+        this.prototype = newMac();
+        int size = Integer.highestOneBit(Math.max(2, Runtime.getRuntime().availableProcessors() * 2) - 1) << 1;
+        this.pool = new AtomicReferenceArray<>(size);
+        this.poolMask = size - 1;
     }
 
     public String generateSearchHash(String input) {
+        byte[] hashBytes = generateSearchHashBytes(input);
+        return hashBytes == null ? null : Base64.getEncoder().encodeToString(hashBytes);
+    }
+
+    public boolean hasPreviousSalt() {
+        return previous != null;
+    }
+
+    /**
+     * Blind index of the input with the salt being rotated out.
+     * @return The Base64 hash, null for a null or blank input or when no previous salt is configured
+     */
+    public String generatePreviousSearchHash(String input) {
+        return previous == null ? null : previous.generateSearchHash(input);
+    }
+
+    /**
+     * Same blind index as {@link #generateSearchHash(String)}, without the Base64 encoding.
+     * @return The {@value #HASH_LENGTH} bytes of the hash, null for a null or blank input
+     */
+    public byte[] generateSearchHashBytes(String input) {
         if (input == null || input.isBlank()) {
             return null;
         }
+        byte[] hashBytes = new byte[HASH_LENGTH];
+        generateSearchHash(input, hashBytes, 0);
+        return hashBytes;
+    }
+
+    /**
+     * Writes the blind index of the input into output. For card numbers the only allocation left is the digest
+     * the JCE copies into output.
+     * @throws IllegalArgumentException When the input is null or blank, or output has no room for the hash
+     */
+    public void generateSearchHash(String input, byte[] output, int offset) {
+        if (input == null || input.isBlank()) {
+            throw new IllegalArgumentException("Cannot generate the blind index of a blank input");
+        }
+        if (offset < 0 || output.length - offset < HASH_LENGTH) {
+            throw new IllegalArgumentException("The blind index needs " + HASH_LENGTH + " bytes of output");
+        }
+        Engine engine = acquire();
+        try {
+            engine.hash(input, output, offset);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Encryption error: Could not generate blind index", e);
+        } finally {
+            release(engine);
+        }
+    }
+
+    private Engine acquire() {
+        int start = (int) Thread.currentThread().getId();
+        for (int i = 0; i <= poolMask; i++) {
+            Engine engine = pool.getAndSet((start + i) & poolMask, null);
+            if (engine != null) {
+                return engine;
+            }
+        }
+        return newEngine();
+    }
+
+    private void release(Engine engine) {
+        int start = (int) Thread.currentThread().getId();
+        for (int i = 0; i <= poolMask; i++) {
+            if (pool.compareAndSet((start + i) & poolMask, null, engine)) {
+                return;
+            }
+        }
+        //Pool full, the engine is left to the garbage collector
+    }
+
+    //Cloning the initialized Mac skips the provider lookup and the key schedule
+    private Engine newEngine() {
+        try {
+            return new Engine((Mac) prototype.clone());
+        } catch (CloneNotSupportedException e) {
+            return new Engine(newMac());
+        }
+    }
+
+    private Mac newMac() {
         try {
-            SecretKeySpec secretKey = new SecretKeySpec(
-                    secretSalt.getBytes(StandardCharsets.UTF_8),
-                    HMAC_ALGO
-            );
             Mac mac = Mac.getInstance(HMAC_ALGO);
             mac.init(secretKey);
-            byte[] hashBytes = mac.doFinal(input.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(hashBytes);
-        } catch (Exception e) {
-            throw new RuntimeException("Encryption error: Could not generate blind index", e);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Encryption error: Could not initialize the blind index", e);
+        }
+    }
+
+    private static final class Engine {
+        private final Mac mac;
+        private final byte[] scratch = new byte[SCRATCH_LENGTH];
+
+        private Engine(Mac mac) {
+            this.mac = mac;
+        }
+
+        private void hash(String input, byte[] output, int offset) throws GeneralSecurityException {
+            int length = input.length();
+            if (length <= SCRATCH_LENGTH && encodeAscii(input, length)) {
+                mac.update(scratch, 0, length);
+            } else {
+                mac.update(input.getBytes(StandardCharsets.UTF_8));
+            }
+            //doFinal also resets the Mac for its next use, output was checked to have room for the hash
+            mac.doFinal(output, offset);
+        }
+
+        private boolean encodeAscii(String input, int length) {
+            for (int i = 0; i < length; i++) {
+                char c = input.charAt(i);
+                if (c >= 0x80) {
+                    return false;
+                }
+                scratch[i] = (byte) c;
+            }
+            return true;
         }
     }
-}
\ No newline at end of file
+}
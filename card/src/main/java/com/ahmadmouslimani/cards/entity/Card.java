@@ -1,13 +1,17 @@
 package com.ahmadmouslimani.cards.entity;
 
 import com.ahmadmouslimani.cards.encryption.CardNumberEncryptorConverter;
+import com.ahmadmouslimani.cards.encryption.CardNumberJdbcType;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.JdbcType;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = @Index(columnList = "indexedAt"))
 @EntityListeners(CardEntityListener.class)
 @Getter
 @Setter
@@ -27,6 +31,7 @@ public class Card {
 
     @Column(nullable = false, length = 1000)
     @Convert(converter = CardNumberEncryptorConverter.class)
+    @JdbcType(CardNumberJdbcType.class)
     private String cardNumber;
 
     @Column(nullable = false, unique = true, length = 255)
@@ -35,4 +40,9 @@ public class Card {
     @Column(nullable = false)
     private UUID accountId;
 
+    //Stamped by the database when the card is created or its blind index rewritten, other instances then add the
+    //blind index to their card number filter
+    @Column(insertable = false, updatable = false, columnDefinition = "timestamp(6) with time zone default now()")
+    private Instant indexedAt;
+
 }
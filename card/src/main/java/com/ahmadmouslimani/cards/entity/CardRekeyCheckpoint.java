@@ -0,0 +1,43 @@
+package com.ahmadmouslimani.cards.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Progress of the rekey job towards one target: active card key, write format and blind index salt.
+ * Saved with each chunk the job writes back, a restarted job resumes after the last card of the checkpoint.
+ */
+@Entity
+@Table(name = "card_rekey_checkpoint")
+@Getter
+@Setter
+@NoArgsConstructor
+public class CardRekeyCheckpoint {
+    @Id
+    @Column(updatable = false, nullable = false, length = 64)
+    private String target;
+
+    //Cards are scanned in id order, null until the first chunk is written
+    private UUID lastCardId;
+
+    private long scanned;
+
+    private long rewritten;
+
+    //Cards that could not be decrypted, with a key that is no longer configured for instance
+    private long failed;
+
+    @Column(nullable = false)
+    private Instant startedAt;
+
+    //Null while the job has cards left to scan
+    private Instant completedAt;
+}
@@ -0,0 +1,50 @@
+package com.ahmadmouslimani.cards.event;
+
+import com.ahmadmouslimani.cards.config.CardEventsProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.client.RestClient;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Pushes card status changes to the services that cache cards, once the change is committed.
+ */
+@Component
+@Slf4j
+public class CardCacheInvalidationNotifier {
+    private static final String INVALIDATE_PATH = "/api/transaction/cache/card/invalidate";
+
+    private final CardEventsProperties properties;
+    private final RestClient restClient;
+    private final Executor executor;
+
+    public CardCacheInvalidationNotifier(CardEventsProperties properties,
+                                         @Qualifier("cardEventsRestClient") RestClient restClient,
+                                         @Qualifier("cardEventsExecutor") Executor executor) {
+        this.properties = properties;
+        this.restClient = restClient;
+        this.executor = executor;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardStatusChanged(CardStatusChangedEvent event) {
+        for (String subscriber : properties.subscribers()) {
+            executor.execute(() -> notify(subscriber, event));
+        }
+    }
+
+    private void notify(String subscriber, CardStatusChangedEvent event) {
+        try {
+            restClient.post()
+                    .uri(subscriber + INVALIDATE_PATH)
+                    .body(event)
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (Exception ex) {
+            log.warn("Could not notify {} of a card status change: {}", subscriber, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.ahmadmouslimani.cards.event;
+
+import java.time.Instant;
+
+/**
+ * Published when a card is activated or deactivated, so caches of the card can be invalidated.
+ * @param cardNumberHash Blind index hash of the card, the card number itself is never published
+ * @param changedAt When the status changed
+ */
+public record CardStatusChangedEvent(
+        String cardNumberHash,
+        Instant changedAt
+) {}
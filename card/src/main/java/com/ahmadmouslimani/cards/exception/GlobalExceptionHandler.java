@@ -20,7 +20,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
-@RestControllerAdvice
+@RestControllerAdvice(basePackages = "com.ahmadmouslimani.cards")
 @Slf4j
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
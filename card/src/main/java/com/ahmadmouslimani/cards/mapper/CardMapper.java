@@ -2,7 +2,9 @@ package com.ahmadmouslimani.cards.mapper;
 
 import com.ahmadmouslimani.cards.dto.CardRequestDTO;
 import com.ahmadmouslimani.cards.dto.CardResponseDTO;
+import com.ahmadmouslimani.cards.dto.CardSummaryDTO;
 import com.ahmadmouslimani.cards.entity.Card;
+import com.ahmadmouslimani.cards.repository.CardSummary;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -20,6 +22,22 @@ public class CardMapper {
         return card;
     }
 
+    public CardResponseDTO mapToDto(CardSummary card, String cardNumber) {
+        if (card == null) return null;
+        return new CardResponseDTO(
+                card.id(),
+                card.expiry(),
+                cardNumber,
+                card.status(),
+                card.accountId()
+        );
+    }
+
+    public CardSummaryDTO mapToSummaryDto(CardSummary card) {
+        if (card == null) return null;
+        return new CardSummaryDTO(card.id(), card.expiry(), card.status(), card.accountId());
+    }
+
     public CardResponseDTO mapToDto(Card card) {
         if (card == null) return null;
         return new CardResponseDTO(
@@ -0,0 +1,9 @@
+package com.ahmadmouslimani.cards.repository;
+
+import com.ahmadmouslimani.cards.entity.CardRekeyCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CardRekeyCheckpointRepository extends JpaRepository<CardRekeyCheckpoint, String> {
+}
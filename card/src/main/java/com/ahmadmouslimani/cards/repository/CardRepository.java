@@ -2,8 +2,12 @@ package com.ahmadmouslimani.cards.repository;
 
 import com.ahmadmouslimani.cards.entity.Card;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 @Repository
@@ -11,5 +15,19 @@ public interface CardRepository extends JpaRepository<Card, UUID> {
 
     Optional<Card> findByCardNumberHash(String cardNumberHash);
 
+    //Stamps a rewritten blind index, so the other instances add it to their card number filter
+    @Modifying
+    @Query(value = "UPDATE card SET indexed_at = now() WHERE id = :id", nativeQuery = true)
+    int markIndexed(UUID id);
+
     boolean existsByCardNumberHash(String cardNumberHash);
+
+    //Lookups that leave out the encrypted card number, so no card number is decrypted
+    @Query("SELECT new com.ahmadmouslimani.cards.repository.CardSummary(c.id, c.expiry, c.status, c.accountId, c.cardNumberHash) " +
+            "FROM Card c WHERE c.cardNumberHash = :cardNumberHash")
+    Optional<CardSummary> findSummaryByCardNumberHash(String cardNumberHash);
+
+    @Query("SELECT new com.ahmadmouslimani.cards.repository.CardSummary(c.id, c.expiry, c.status, c.accountId, c.cardNumberHash) " +
+            "FROM Card c WHERE c.cardNumberHash IN :cardNumberHashes")
+    List<CardSummary> findSummariesByCardNumberHashIn(Collection<String> cardNumberHashes);
 }
@@ -0,0 +1,15 @@
+package com.ahmadmouslimani.cards.repository;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Unencrypted columns of a card. Loading it never runs the card number converter.
+ */
+public record CardSummary(
+        UUID id,
+        LocalDate expiry,
+        String status,
+        UUID accountId,
+        String cardNumberHash
+) {}
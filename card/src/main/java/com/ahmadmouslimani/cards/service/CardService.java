@@ -2,7 +2,9 @@ package com.ahmadmouslimani.cards.service;
 
 import com.ahmadmouslimani.cards.dto.CardRequestDTO;
 import com.ahmadmouslimani.cards.dto.CardResponseDTO;
+import com.ahmadmouslimani.cards.dto.CardSummaryDTO;
 
+import java.util.List;
 import java.util.UUID;
 
 public interface CardService {
@@ -11,8 +13,24 @@ public interface CardService {
 
     CardResponseDTO getCardById(UUID id);
 
+    /**
+     * Fetches a card by its number. The card number of the response is the requested one,
+     * the stored card number is not decrypted.
+     */
     CardResponseDTO getCardByCardNumber(String cardNumber);
 
+    /**
+     * Fetches the status, expiry and account of a card, without its card number.
+     */
+    CardSummaryDTO getCardSummaryByCardNumber(String cardNumber);
+
+    /**
+     * Fetches many cards in one query. Card numbers that do not exist are left out of the result.
+     * @param cardNumbers The card numbers to look up
+     * @return The found cards
+     */
+    List<CardResponseDTO> getCardsByCardNumbers(List<String> cardNumbers);
+
     CardResponseDTO activateCard(String cardNumber);
 
     CardResponseDTO deactivateCard(String cardNumber);
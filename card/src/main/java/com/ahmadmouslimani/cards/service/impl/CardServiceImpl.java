@@ -1,19 +1,37 @@
 package com.ahmadmouslimani.cards.service.impl;
 
+import com.ahmadmouslimani.cards.cache.CardNumberFilter;
 import com.ahmadmouslimani.cards.dto.CardRequestDTO;
 import com.ahmadmouslimani.cards.dto.CardResponseDTO;
+import com.ahmadmouslimani.cards.dto.CardSummaryDTO;
 import com.ahmadmouslimani.cards.encryption.HashUtils;
 import com.ahmadmouslimani.cards.entity.Card;
 import com.ahmadmouslimani.cards.enums.CardStatus;
+import com.ahmadmouslimani.cards.event.CardStatusChangedEvent;
 import com.ahmadmouslimani.cards.exception.CardAlreadyExistsException;
 import com.ahmadmouslimani.cards.exception.ResourceNotFoundException;
 import com.ahmadmouslimani.cards.mapper.CardMapper;
 import com.ahmadmouslimani.cards.repository.CardRepository;
+import com.ahmadmouslimani.cards.repository.CardSummary;
 import com.ahmadmouslimani.cards.service.CardService;
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 @Service
 @AllArgsConstructor
@@ -22,17 +40,30 @@ public class CardServiceImpl implements CardService {
     private final CardRepository cardRepository;
     private final CardMapper mapper;
     private final HashUtils hashUtils;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CardNumberFilter cardNumberFilter;
 
     @Override
     public CardResponseDTO createCard(CardRequestDTO cardRequestDTO) {
         String cardNumberHash = hashUtils.generateSearchHash(cardRequestDTO.cardNumber());
 
-        if (cardRepository.existsByCardNumberHash(cardNumberHash)) {
+        if (exists(cardNumberHash) || (hashUtils.hasPreviousSalt()
+                && exists(hashUtils.generatePreviousSearchHash(cardRequestDTO.cardNumber())))) {
             throw new CardAlreadyExistsException("Card already exists");
         }
 
         Card card = mapper.mapToEntity(cardRequestDTO);
-        Card savedCard = cardRepository.save(card);
+        Card savedCard;
+        try {
+            savedCard = cardRepository.save(card);
+        } catch (DataIntegrityViolationException ex) {
+            //Created meanwhile, or by another instance since this one built its filter
+            if (cardRepository.existsByCardNumberHash(cardNumberHash)) {
+                throw new CardAlreadyExistsException("Card already exists");
+            }
+            throw ex;
+        }
+        cardNumberFilter.put(savedCard.getCardNumberHash());
         return mapper.mapToDto(savedCard);
     }
 
@@ -46,28 +77,112 @@ public class CardServiceImpl implements CardService {
 
     @Override
     public CardResponseDTO getCardByCardNumber(String cardNumber) {
-        Card card = findCardByNumber(cardNumber);
-        return mapper.mapToDto(card);
+        //The caller already knows the card number, answering with it spares decrypting the stored one
+        return mapper.mapToDto(findCardSummaryByNumber(cardNumber), cardNumber);
+    }
+
+    @Override
+    public CardSummaryDTO getCardSummaryByCardNumber(String cardNumber) {
+        return mapper.mapToSummaryDto(findCardSummaryByNumber(cardNumber));
+    }
+
+    @Override
+    public List<CardResponseDTO> getCardsByCardNumbers(List<String> cardNumbers) {
+        Map<String, String> cardNumbersByHash = new HashMap<>();
+        for (String cardNumber : new LinkedHashSet<>(cardNumbers)) {
+            cardNumbersByHash.put(hashUtils.generateSearchHash(cardNumber), cardNumber);
+        }
+        List<CardResponseDTO> cards = new ArrayList<>();
+        Collection<String> unmatched = findSummaries(cardNumbersByHash, cards);
+        if (hashUtils.hasPreviousSalt() && !unmatched.isEmpty()) {
+            //Cards the rekey job has not rewritten yet
+            Map<String, String> cardNumbersByPreviousHash = new HashMap<>();
+            for (String cardNumber : unmatched) {
+                cardNumbersByPreviousHash.put(hashUtils.generatePreviousSearchHash(cardNumber), cardNumber);
+            }
+            findSummaries(cardNumbersByPreviousHash, cards);
+        }
+        return cards;
     }
 
     @Override
+    @Transactional
     public CardResponseDTO activateCard(String cardNumber) {
-        Card card = findCardByNumber(cardNumber);
-        card.setStatus(CardStatus.ACTIVE.name());
-        return mapper.mapToDto(cardRepository.save(card));
+        return changeStatus(cardNumber, CardStatus.ACTIVE);
     }
 
     @Override
+    @Transactional
     public CardResponseDTO deactivateCard(String cardNumber) {
-        Card card = findCardByNumber(cardNumber);
-        card.setStatus(CardStatus.INACTIVE.name());
-        return mapper.mapToDto(cardRepository.save(card));
+        return changeStatus(cardNumber, CardStatus.INACTIVE);
     }
 
-    private Card findCardByNumber(String cardNumber) {
-        String searchHash = hashUtils.generateSearchHash(cardNumber);
-        return cardRepository.findByCardNumberHash(searchHash).orElseThrow(
-                () -> new ResourceNotFoundException("Card", "cardNumber", cardNumber)
-        );
+    private CardResponseDTO changeStatus(String cardNumber, CardStatus status) {
+        String cardNumberHash = hashUtils.generateSearchHash(cardNumber);
+        Card card = findByNumber(cardNumber, cardNumberHash, cardRepository::findByCardNumberHash);
+        card.setStatus(status.name());
+        //A card not rewritten by the rekey job yet is rehashed with the current salt when saved. Like the rekey job,
+        //the new blind index is added to the filter before the commit, and stamped for the other instances.
+        boolean rehashed = !cardNumberHash.equals(card.getCardNumberHash());
+        card.setCardNumberHash(cardNumberHash);
+        if (rehashed) {
+            cardNumberFilter.put(cardNumberHash);
+        }
+        Card savedCard = cardRepository.save(card);
+        if (rehashed) {
+            cardRepository.markIndexed(savedCard.getId());
+        }
+        //Lets the services caching this card drop it
+        eventPublisher.publishEvent(new CardStatusChangedEvent(savedCard.getCardNumberHash(), Instant.now()));
+        return mapper.mapToDto(savedCard);
+    }
+
+    private CardSummary findCardSummaryByNumber(String cardNumber) {
+        return findByNumber(cardNumber, hashUtils.generateSearchHash(cardNumber), cardRepository::findSummaryByCardNumberHash);
+    }
+
+    private <T> T findByNumber(String cardNumber, String cardNumberHash, Function<String, Optional<T>> findByHash) {
+        Optional<T> card = findByHash(cardNumberHash, findByHash);
+        if (card.isEmpty() && hashUtils.hasPreviousSalt()) {
+            //Not rewritten by the rekey job yet
+            card = findByHash(hashUtils.generatePreviousSearchHash(cardNumber), findByHash);
+        }
+        return card.orElseThrow(() -> new ResourceNotFoundException("Card", "cardNumber", cardNumber));
+    }
+
+    //The filter answers for the hashes no card has, without a query
+    private <T> Optional<T> findByHash(String cardNumberHash, Function<String, Optional<T>> findByHash) {
+        if (!cardNumberFilter.mightContain(cardNumberHash)) {
+            return Optional.empty();
+        }
+        Optional<T> card = findByHash.apply(cardNumberHash);
+        if (card.isEmpty()) {
+            cardNumberFilter.recordFalsePositives(1);
+        }
+        return card;
+    }
+
+    private boolean exists(String cardNumberHash) {
+        return findByHash(cardNumberHash,
+                hash -> cardRepository.existsByCardNumberHash(hash) ? Optional.of(hash) : Optional.empty()).isPresent();
+    }
+
+    //Adds the cards found to cards and returns the card numbers left unmatched
+    private Collection<String> findSummaries(Map<String, String> cardNumbersByHash, List<CardResponseDTO> cards) {
+        Set<String> hashes = new HashSet<>();
+        for (String cardNumberHash : cardNumbersByHash.keySet()) {
+            if (cardNumberFilter.mightContain(cardNumberHash)) {
+                hashes.add(cardNumberHash);
+            }
+        }
+        if (hashes.isEmpty()) {
+            return cardNumbersByHash.values();
+        }
+        for (CardSummary card : cardRepository.findSummariesByCardNumberHashIn(hashes)) {
+            hashes.remove(card.cardNumberHash());
+            cards.add(mapper.mapToDto(card, cardNumbersByHash.remove(card.cardNumberHash())));
+        }
+        cardNumberFilter.recordFalsePositives(hashes.size());
+        return cardNumbersByHash.values();
     }
 }
@@ -0,0 +1,125 @@
+package com.ahmadmouslimani.cards.cache;
+
+import com.ahmadmouslimani.cards.config.CardFilterProperties;
+import com.ahmadmouslimani.cards.encryption.HashUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardNumberFilterTest {
+
+    private static final int CARDS = 10_000;
+    private static final int UNKNOWN_LOOKUPS = 100_000;
+
+    private final HashUtils hashUtils = new HashUtils("1234567890abcdefghijklmnopqrstuvwxyz");
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CardNumberFilter filter = new CardNumberFilter(
+            new CardFilterProperties(true, CARDS, 0.01, Duration.ofMinutes(10),
+            Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofMinutes(1)), meterRegistry);
+
+    @Test
+    @DisplayName("Should never filter out a stored card and let through about 1% of the unknown ones")
+    void mightContain_NoFalseNegative_FalsePositiveRateAsConfigured() {
+        //Arrange
+        List<String> stored = new ArrayList<>();
+        for (int i = 0; i < CARDS; i++) {
+            stored.add(hashUtils.generateSearchHash(cardNumber(i)));
+        }
+        filter.rebuild(0, put -> stored.forEach(put));
+
+        //Act
+        int letThrough = 0;
+        for (int i = CARDS; i < CARDS + UNKNOWN_LOOKUPS; i++) {
+            if (filter.mightContain(hashUtils.generateSearchHash(cardNumber(i)))) {
+                letThrough++;
+            }
+        }
+        filter.recordFalsePositives(letThrough);
+
+        //Assert
+        assertTrue(stored.stream().allMatch(filter::mightContain));
+        double observed = gauge("observed");
+        System.out.printf("False positive rate: expected %.4f, observed %.4f, memory %,.0f B%n",
+                gauge("expected"), observed, memory());
+        assertEquals((double) letThrough / UNKNOWN_LOOKUPS, observed, 1e-9);
+        assertTrue(observed < 0.02, "Observed false positive rate " + observed);
+        assertEquals(0.01, gauge("expected"), 0.005);
+        //95,851 bits for 10,000 cards at 1%, rounded up to whole words
+        assertEquals(11_984, memory());
+    }
+
+    @Test
+    @DisplayName("Should let every lookup through until it is built")
+    void mightContain_NotBuilt_LetsEverythingThrough() {
+        //Act & Assert
+        assertFalse(filter.isBuilt());
+        assertTrue(filter.mightContain(hashUtils.generateSearchHash(cardNumber(1))));
+        assertEquals(0, memory());
+        assertEquals(0, meterRegistry.get("card.filter.checks").tag("result", "present").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should keep a card created while the table is read, and the cards already added")
+    void rebuild_KeepsCardsAddedDuringBuild() {
+        //Arrange
+        String before = hashUtils.generateSearchHash(cardNumber(1));
+        String during = hashUtils.generateSearchHash(cardNumber(2));
+        filter.rebuild(0, put -> put.accept(before));
+
+        //Act
+        filter.rebuild(1, put -> {
+            put.accept(before);
+            filter.put(during);
+        });
+
+        //Assert
+        assertTrue(filter.mightContain(before));
+        assertTrue(filter.mightContain(during));
+    }
+
+    @Test
+    @DisplayName("Should add the cards written by other instances when synced")
+    void sync_AddsCardsWrittenElsewhere() {
+        //Arrange
+        String elsewhere = hashUtils.generateSearchHash(cardNumber(3));
+        filter.rebuild(0, put -> put.accept(hashUtils.generateSearchHash(cardNumber(1))));
+        assertFalse(filter.mightContain(elsewhere));
+
+        //Act
+        filter.sync(put -> put.accept(elsewhere));
+
+        //Assert
+        assertTrue(filter.mightContain(elsewhere));
+    }
+
+    @Test
+    @DisplayName("Should let every lookup through once it has not been synced for max-staleness")
+    void mightContain_Stale_LetsEverythingThrough() {
+        //Arrange
+        CardNumberFilter stale = new CardNumberFilter(new CardFilterProperties(true, CARDS, 0.01, Duration.ofMinutes(10),
+                Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ZERO), meterRegistry);
+        stale.rebuild(0, put -> put.accept(hashUtils.generateSearchHash(cardNumber(1))));
+
+        //Act & Assert
+        assertTrue(stale.mightContain(hashUtils.generateSearchHash(cardNumber(2))), "A card created elsewhere may be missing");
+    }
+
+    private double gauge(String kind) {
+        return meterRegistry.get("card.filter.false.positive.rate").tag("kind", kind).gauge().value();
+    }
+
+    private double memory() {
+        return meterRegistry.get("card.filter.memory").gauge().value();
+    }
+
+    private static String cardNumber(int i) {
+        return String.format("4%015d", i);
+    }
+}
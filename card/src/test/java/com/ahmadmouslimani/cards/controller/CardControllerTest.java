@@ -2,6 +2,7 @@ package com.ahmadmouslimani.cards.controller;
 
 import com.ahmadmouslimani.cards.dto.CardRequestDTO;
 import com.ahmadmouslimani.cards.dto.CardResponseDTO;
+import com.ahmadmouslimani.cards.dto.CardSummaryDTO;
 import com.ahmadmouslimani.cards.exception.CardAlreadyExistsException;
 import com.ahmadmouslimani.cards.exception.GlobalExceptionHandler;
 import com.ahmadmouslimani.cards.exception.ResourceNotFoundException;
@@ -17,6 +18,7 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -93,6 +95,20 @@ class CardControllerTest {
                 .andExpect(jsonPath("$.errorMessage").exists());
     }
 
+    @Test
+    @DisplayName("GET /fetch/summary - Success 200 without the card number")
+    void getCardSummary_ValidCardNumber_ReturnsOk() throws Exception {
+        CardSummaryDTO response = new CardSummaryDTO(UUID.randomUUID(), LocalDate.now(), "ACTIVE", account_id);
+
+        when(cardService.getCardSummaryByCardNumber(valid_card)).thenReturn(response);
+
+        mockMvc.perform(get("/api/card/fetch/summary")
+                .param("cardNumber", valid_card))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("ACTIVE"))
+                .andExpect(jsonPath("$.cardNumber").doesNotExist());
+    }
+
     @Test
     @DisplayName("PATCH /activate - Success 200")
     void activateCard_Valid_ReturnsOk() throws Exception {
@@ -130,4 +146,28 @@ class CardControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.errorMessage").value(containsString("not found")));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("POST /fetch/batch - Success 200")
+    void getCardsByNumbers_ValidCardNumbers_ReturnsOk() throws Exception {
+        CardResponseDTO response = new CardResponseDTO(UUID.randomUUID(), LocalDate.now(), valid_card, "ACTIVE", account_id);
+
+        when(cardService.getCardsByCardNumbers(List.of(valid_card))).thenReturn(List.of(response));
+
+        mockMvc.perform(post("/api/card/fetch/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(valid_card))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].cardNumber").value(valid_card));
+    }
+
+    @Test
+    @DisplayName("POST /fetch/batch - Validation Failure 400 (Invalid Card Number)")
+    void getCardsByNumbers_InvalidCardNumber_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/card/fetch/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(valid_card, "123"))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorMessage").value(containsString("Card number must be 16 digits")));
+    }
+}
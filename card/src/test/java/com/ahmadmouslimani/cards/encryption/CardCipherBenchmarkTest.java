@@ -0,0 +1,107 @@
+package com.ahmadmouslimani.cards.encryption;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.security.crypto.encrypt.TextEncryptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares encrypt and decrypt throughput of Encryptors.text, as it was, with the pooled AES-GCM and AES-CBC
+ * engines, on one thread and on one thread per core. Encryptors.text shares one Cipher per direction behind a
+ * lock, so it does not scale with threads. Only printed since it depends on the machine, the test asserts the
+ * stored sizes.
+ */
+class CardCipherBenchmarkTest {
+
+    private static final int WARMUP_RUNS = 5_000;
+    private static final int MEASURED_RUNS = 50_000;
+    private static final String CARD_NUMBER = "1234123412341234";
+
+    private final TextEncryptor legacy = Encryptors.text(CardCipherTest.PASSWORD, CardCipherTest.SALT);
+    private final CardCipher gcm = new CardCipher(CardCipherTest.PASSWORD, CardCipherTest.SALT, CardCipher.Format.GCM);
+    private final CardCipher cbc = new CardCipher(CardCipherTest.PASSWORD, CardCipherTest.SALT, CardCipher.Format.CBC);
+
+    @Test
+    @DisplayName("Pooled engines encrypt and decrypt without a shared lock, AES-GCM stores 46 bytes instead of 96")
+    void cardCipher_Throughput() throws Exception {
+        //Arrange
+        String legacyStored = legacy.encrypt(CARD_NUMBER);
+        byte[] gcmStored = gcm.encrypt(CARD_NUMBER);
+        byte[] cbcStored = cbc.encrypt(CARD_NUMBER);
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        //Act & Assert
+        print("Encryptors.text encrypt", threads, () -> legacy.encrypt(CARD_NUMBER).length());
+        print("Encryptors.text decrypt", threads, () -> legacy.decrypt(legacyStored).length());
+        print("Pooled CBC encrypt     ", threads, () -> cbc.encrypt(CARD_NUMBER).length);
+        print("Pooled CBC decrypt     ", threads, () -> cbc.decrypt(cbcStored).length());
+        print("Pooled GCM encrypt     ", threads, () -> gcm.encrypt(CARD_NUMBER).length);
+        print("Pooled GCM decrypt     ", threads, () -> gcm.decrypt(gcmStored).length());
+        System.out.printf("Stored size: Encryptors.text %d B, CBC %d B, GCM %d B%n",
+                legacyStored.getBytes(StandardCharsets.US_ASCII).length, cbcStored.length, gcmStored.length);
+
+        //IV and two AES blocks, the 16 digits fill the first one and the padding the second
+        assertEquals(96, legacyStored.length());
+        assertEquals(96, cbcStored.length);
+        assertEquals(46, gcmStored.length);
+    }
+
+    private static void print(String name, int threads, IntSupplier operation) throws Exception {
+        if (threads == 1) {
+            System.out.printf("%s: %,10.0f ops/s%n", name, opsPerSecond(1, operation));
+            return;
+        }
+        System.out.printf("%s: %,10.0f ops/s on 1 thread, %,10.0f ops/s on %d threads%n",
+                name, opsPerSecond(1, operation), opsPerSecond(threads, operation), threads);
+    }
+
+    private static double opsPerSecond(int threads, IntSupplier operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Callable<Long> run = () -> {
+                long sink = 0;
+                for (int i = 0; i < WARMUP_RUNS; i++) {
+                    sink += operation.getAsInt();
+                }
+                return sink;
+            };
+            for (Future<Long> warmup : executor.invokeAll(copies(run, threads))) {
+                assertTrue(warmup.get() > 0);
+            }
+            Callable<Long> measured = () -> {
+                long sink = 0;
+                for (int i = 0; i < MEASURED_RUNS / threads; i++) {
+                    sink += operation.getAsInt();
+                }
+                return sink;
+            };
+            long start = System.nanoTime();
+            for (Future<Long> result : executor.invokeAll(copies(measured, threads))) {
+                assertTrue(result.get() > 0);
+            }
+            long elapsed = System.nanoTime() - start;
+            return (double) (MEASURED_RUNS / threads) * threads * 1e9 / elapsed;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Callable<Long>> copies(Callable<Long> run, int count) {
+        List<Callable<Long>> copies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            copies.add(run);
+        }
+        return copies;
+    }
+}
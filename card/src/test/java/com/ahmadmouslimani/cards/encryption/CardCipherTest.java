@@ -0,0 +1,103 @@
+package com.ahmadmouslimani.cards.encryption;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.security.crypto.encrypt.TextEncryptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardCipherTest {
+
+    static final String PASSWORD = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    static final String SALT = "5c0744940b5c369b";
+    private static final String CARD_NUMBER = "1234123412341234";
+
+    private final CardCipher gcm = new CardCipher(PASSWORD, SALT, CardCipher.Format.GCM);
+    private final CardCipher cbc = new CardCipher(PASSWORD, SALT, CardCipher.Format.CBC);
+    private final TextEncryptor legacy = Encryptors.text(PASSWORD, SALT);
+
+    @Test
+    @DisplayName("Should write binary AES-GCM with a fresh nonce and read it back")
+    void encrypt_Gcm_RoundTrip() {
+        //Act
+        byte[] first = gcm.encrypt(CARD_NUMBER);
+        byte[] second = gcm.encrypt(CARD_NUMBER);
+
+        //Assert
+        assertEquals(CardCipher.FORMAT_GCM, first[0]);
+        assertEquals(1, first[1], "Key version");
+        assertEquals(46, first.length);
+        assertFalse(Arrays.equals(first, second), "Each encryption uses its own nonce");
+        assertEquals(CARD_NUMBER, gcm.decrypt(first));
+        assertEquals(CARD_NUMBER, cbc.decrypt(second), "Every format is read whatever the write format");
+    }
+
+    @Test
+    @DisplayName("Should read the hex text written by Encryptors.text and write it in CBC format")
+    void decrypt_LegacyHex_StaysCompatible() {
+        //Arrange
+        byte[] legacyRow = legacy.encrypt(CARD_NUMBER).getBytes(StandardCharsets.US_ASCII);
+
+        //Act
+        String decrypted = gcm.decrypt(legacyRow);
+        String writtenAsCbc = new String(cbc.encrypt(CARD_NUMBER), StandardCharsets.US_ASCII);
+
+        //Assert
+        assertEquals(CARD_NUMBER, decrypted);
+        assertEquals(CARD_NUMBER, legacy.decrypt(writtenAsCbc), "Earlier releases read the CBC format");
+    }
+
+    @Test
+    @DisplayName("Should refuse a tampered value or one encrypted with another key")
+    void decrypt_TamperedOrOtherKey_Fails() {
+        //Arrange
+        byte[] stored = gcm.encrypt(CARD_NUMBER);
+        byte[] tampered = stored.clone();
+        tampered[tampered.length - 1] ^= 1;
+
+        //Act & Assert
+        assertThrows(RuntimeException.class, () -> gcm.decrypt(tampered));
+        assertThrows(RuntimeException.class,
+                () -> new CardCipher("another password", SALT, CardCipher.Format.GCM).decrypt(stored));
+    }
+
+    @Test
+    @DisplayName("Should read every configured key through the stored key version and write the active one")
+    void keyring_ReadsEveryVersion_WritesActive() {
+        //Arrange
+        CardCipher.Key previous = new CardCipher.Key(1, PASSWORD, SALT);
+        CardCipher.Key next = new CardCipher.Key(2, "another password", "a1b2c3d4e5f60718");
+        CardCipher rotated = new CardCipher(List.of(previous, next), 2, CardCipher.Format.GCM);
+        byte[] legacyRow = legacy.encrypt(CARD_NUMBER).getBytes(StandardCharsets.US_ASCII);
+        byte[] previousRow = gcm.encrypt(CARD_NUMBER);
+
+        //Act
+        byte[] nextRow = rotated.encrypt(CARD_NUMBER);
+
+        //Assert
+        assertEquals(2, nextRow[1], "Key version");
+        assertEquals(CARD_NUMBER, rotated.decrypt(legacyRow));
+        assertEquals(CARD_NUMBER, rotated.decrypt(previousRow));
+        assertEquals(CARD_NUMBER, rotated.decrypt(nextRow));
+        assertFalse(rotated.isCurrent(legacyRow));
+        assertFalse(rotated.isCurrent(previousRow));
+        assertTrue(rotated.isCurrent(nextRow));
+        assertThrows(RuntimeException.class, () -> gcm.decrypt(nextRow), "Key 2 is not configured");
+    }
+
+    @Test
+    @DisplayName("Should refuse a keyring without its active key, or the CBC format with another key than 1")
+    void keyring_InvalidConfiguration_Refused() {
+        CardCipher.Key key = new CardCipher.Key(2, PASSWORD, SALT);
+
+        assertThrows(IllegalArgumentException.class, () -> new CardCipher(List.of(key), 3, CardCipher.Format.GCM));
+        assertThrows(IllegalArgumentException.class, () -> new CardCipher(List.of(key), 2, CardCipher.Format.CBC));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CardCipher(List.of(new CardCipher.Key(256, PASSWORD, SALT)), 256, CardCipher.Format.GCM));
+    }
+}
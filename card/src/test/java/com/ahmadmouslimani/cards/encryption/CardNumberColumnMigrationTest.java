@@ -0,0 +1,67 @@
+package com.ahmadmouslimani.cards.encryption;
+
+import com.ahmadmouslimani.cards.config.CardEncryptionProperties;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardNumberColumnMigrationTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("Should refuse to start writing GCM while the column is still text, instead of converting it")
+    void afterPropertiesSet_TextColumnWithoutMigration_Refused() {
+        //Arrange
+        when(jdbcTemplate.queryForList(CardNumberColumnMigration.SELECT_TYPE, String.class)).thenReturn(List.of("character varying"));
+
+        //Act & Assert
+        assertThrows(IllegalStateException.class, () -> migration(CardCipher.Format.GCM, false).afterPropertiesSet());
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    @DisplayName("Should convert a text column only when the migration is enabled")
+    void afterPropertiesSet_MigrationEnabled_ColumnConverted() {
+        //Arrange
+        when(jdbcTemplate.queryForList(CardNumberColumnMigration.SELECT_TYPE, String.class)).thenReturn(List.of("character varying"));
+
+        //Act
+        migration(CardCipher.Format.CBC, true).afterPropertiesSet();
+
+        //Assert
+        verify(jdbcTemplate).execute(CardNumberColumnMigration.ALTER);
+    }
+
+    @Test
+    @DisplayName("Should leave a bytea column as is")
+    void afterPropertiesSet_ByteaColumn_NothingDone() {
+        //Arrange
+        when(jdbcTemplate.queryForList(CardNumberColumnMigration.SELECT_TYPE, String.class)).thenReturn(List.of("bytea"));
+
+        //Act
+        migration(CardCipher.Format.GCM, true).afterPropertiesSet();
+
+        //Assert
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    private CardNumberColumnMigration migration(CardCipher.Format format, boolean migrateColumn) {
+        return new CardNumberColumnMigration(new CardEncryptionProperties(format, migrateColumn, List.of(), 1),
+                jdbcTemplate, entityManagerFactory);
+    }
+}
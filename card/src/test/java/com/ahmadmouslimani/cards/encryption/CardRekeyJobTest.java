@@ -0,0 +1,204 @@
+package com.ahmadmouslimani.cards.encryption;
+
+import com.ahmadmouslimani.cards.cache.CardNumberFilter;
+import com.ahmadmouslimani.cards.config.CardFilterProperties;
+import com.ahmadmouslimani.cards.config.CardRekeyProperties;
+import com.ahmadmouslimani.cards.entity.CardRekeyCheckpoint;
+import com.ahmadmouslimani.cards.repository.CardRekeyCheckpointRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardRekeyJobTest {
+
+    private static final String CARD_NUMBER = "1234123412341234";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private CardRekeyCheckpointRepository checkpointRepository;
+    @Captor
+    private ArgumentCaptor<List<Object[]>> batch;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CardCipher.Key previousKey = new CardCipher.Key(1, CardCipherTest.PASSWORD, CardCipherTest.SALT);
+    private final CardCipher previousCipher = new CardCipher(List.of(previousKey), 1, CardCipher.Format.GCM);
+    //Key 2 and a new blind index salt are active, key 1 and the previous salt are still read
+    private final CardCipher cardCipher = new CardCipher(
+            List.of(previousKey, new CardCipher.Key(2, "another password", "a1b2c3d4e5f60718")), 2, CardCipher.Format.GCM);
+    private final HashUtils hashUtils = new HashUtils("new salt", "previous salt");
+    private final CardNumberFilter cardNumberFilter = new CardNumberFilter(
+            new CardFilterProperties(true, 1000, 0.01, Duration.ofMinutes(10),
+            Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofMinutes(1)), meterRegistry);
+    private CardRekeyJob job;
+
+    @BeforeEach
+    void setUp() {
+        CardRekeyProperties properties = new CardRekeyProperties(true, 4, 1_000_000, 2, Duration.ofMinutes(1), Duration.ofHours(1));
+        job = new CardRekeyJob(properties, cardCipher, hashUtils, checkpointRepository, cardNumberFilter, jdbcTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), Runnable::run, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should resume after the checkpoint, rewrite the stale cards with one batch and complete the target")
+    void run_ResumesAndRewritesStaleCards() {
+        //Arrange
+        UUID lastCardId = UUID.randomUUID();
+        CardRekeyCheckpoint checkpoint = checkpoint(lastCardId);
+        byte[] previousKeyRow = previousCipher.encrypt(CARD_NUMBER);
+        byte[] currentRow = cardCipher.encrypt(CARD_NUMBER);
+        List<CardRekeyJob.StoredCard> chunk = List.of(
+                new CardRekeyJob.StoredCard(UUID.randomUUID(), previousKeyRow, hashUtils.generatePreviousSearchHash(CARD_NUMBER)),
+                new CardRekeyJob.StoredCard(UUID.randomUUID(), currentRow, hashUtils.generateSearchHash(CARD_NUMBER)),
+                new CardRekeyJob.StoredCard(UUID.randomUUID(), new byte[]{1, 9, 9}, "unreadable"),
+                new CardRekeyJob.StoredCard(UUID.randomUUID(), currentRow, hashUtils.generatePreviousSearchHash(CARD_NUMBER)));
+        UUID chunkEnd = chunk.get(3).id();
+        when(checkpointRepository.findById(job.target())).thenReturn(Optional.of(checkpoint));
+        when(checkpointRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(jdbcTemplate.query(eq(CardRekeyJob.SELECT_AFTER), storedCards(), eq(lastCardId), eq(4))).thenReturn(chunk);
+        when(jdbcTemplate.query(eq(CardRekeyJob.SELECT_AFTER), storedCards(), eq(chunkEnd), eq(4))).thenReturn(List.of());
+        when(jdbcTemplate.batchUpdate(eq(CardRekeyJob.UPDATE), anyList())).thenReturn(new int[]{1, 1});
+
+        cardNumberFilter.rebuild(chunk.size(), put -> chunk.forEach(card -> put.accept(card.cardNumberHash())));
+
+        //Act
+        job.run();
+
+        //Assert
+        assertTrue(cardNumberFilter.mightContain(hashUtils.generateSearchHash(CARD_NUMBER)), "Reindexed card is never filtered out");
+        verify(jdbcTemplate).batchUpdate(eq(CardRekeyJob.UPDATE), batch.capture());
+        assertEquals(2, batch.getValue().size());
+
+        Object[] reencrypted = batch.getValue().get(0);
+        assertTrue(cardCipher.isCurrent((byte[]) reencrypted[0]), "Encrypted with the active key");
+        assertEquals(CARD_NUMBER, cardCipher.decrypt((byte[]) reencrypted[0]));
+        assertEquals(hashUtils.generateSearchHash(CARD_NUMBER), reencrypted[1]);
+        assertEquals(chunk.get(0).id(), reencrypted[2]);
+        assertSame(previousKeyRow, reencrypted[3], "Written only if unchanged since read");
+
+        Object[] reindexed = batch.getValue().get(1);
+        assertSame(currentRow, reindexed[0], "Already encrypted with the active key");
+        assertEquals(hashUtils.generateSearchHash(CARD_NUMBER), reindexed[1]);
+
+        assertEquals(chunkEnd, checkpoint.getLastCardId());
+        assertEquals(4, checkpoint.getScanned());
+        assertEquals(2, checkpoint.getRewritten());
+        assertEquals(1, checkpoint.getFailed());
+        assertNotNull(checkpoint.getCompletedAt());
+        assertEquals(2, rows("rewritten"));
+        assertEquals(1, rows("current"));
+        assertEquals(1, rows("failed"));
+    }
+
+    @Test
+    @DisplayName("Should count a card updated by the service since it was read as current, its write back changes no row")
+    void run_CardUpdatedMeanwhile_NotCountedAsRewritten() {
+        //Arrange
+        CardRekeyCheckpoint checkpoint = checkpoint(null);
+        List<CardRekeyJob.StoredCard> chunk = List.of(new CardRekeyJob.StoredCard(UUID.randomUUID(),
+                previousCipher.encrypt(CARD_NUMBER), hashUtils.generateSearchHash(CARD_NUMBER)));
+        when(checkpointRepository.findById(job.target())).thenReturn(Optional.of(checkpoint));
+        when(checkpointRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(jdbcTemplate.query(eq(CardRekeyJob.SELECT_FIRST), storedCards(), eq(4))).thenReturn(chunk);
+        when(jdbcTemplate.query(eq(CardRekeyJob.SELECT_AFTER), storedCards(), eq(chunk.get(0).id()), eq(4))).thenReturn(List.of());
+        when(jdbcTemplate.batchUpdate(eq(CardRekeyJob.UPDATE), anyList())).thenReturn(new int[]{0});
+
+        //Act
+        job.run();
+
+        //Assert
+        assertEquals(0, checkpoint.getRewritten());
+        assertEquals(1, rows("current"));
+        assertNotNull(checkpoint.getCompletedAt());
+    }
+
+    @Test
+    @DisplayName("Should bind the hex text of AES-CBC as text, so a card_number column not yet converted to bytea is updated")
+    void run_CbcRows_BoundAsText() {
+        //Arrange
+        CardCipher cbcCipher = new CardCipher(CardCipherTest.PASSWORD, CardCipherTest.SALT, CardCipher.Format.CBC);
+        CardRekeyJob cbcJob = new CardRekeyJob(new CardRekeyProperties(true, 4, 1_000_000, 2, Duration.ofMinutes(1),
+                Duration.ofHours(1)), cbcCipher, hashUtils, checkpointRepository, cardNumberFilter, jdbcTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), Runnable::run, meterRegistry);
+        CardRekeyCheckpoint checkpoint = checkpoint(null);
+        byte[] stored = cbcCipher.encrypt(CARD_NUMBER);
+        List<CardRekeyJob.StoredCard> chunk = List.of(new CardRekeyJob.StoredCard(UUID.randomUUID(), stored,
+                hashUtils.generatePreviousSearchHash(CARD_NUMBER)));
+        when(checkpointRepository.findById(cbcJob.target())).thenReturn(Optional.of(checkpoint));
+        when(checkpointRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(jdbcTemplate.query(eq(CardRekeyJob.SELECT_FIRST), storedCards(), eq(4))).thenReturn(chunk);
+        when(jdbcTemplate.query(eq(CardRekeyJob.SELECT_AFTER), storedCards(), eq(chunk.get(0).id()), eq(4))).thenReturn(List.of());
+        when(jdbcTemplate.batchUpdate(eq(CardRekeyJob.UPDATE), anyList())).thenReturn(new int[]{1});
+
+        //Act
+        cbcJob.run();
+
+        //Assert
+        verify(jdbcTemplate).batchUpdate(eq(CardRekeyJob.UPDATE), batch.capture());
+        Object[] reindexed = batch.getValue().get(0);
+        SqlParameterValue cardNumber = assertInstanceOf(SqlParameterValue.class, reindexed[0]);
+        assertEquals(Types.OTHER, cardNumber.getSqlType(), "Sent without a type, PostgreSQL takes the type of the column");
+        assertEquals(new String(stored, StandardCharsets.US_ASCII), cardNumber.getValue());
+        assertEquals(hashUtils.generateSearchHash(CARD_NUMBER), reindexed[1]);
+        assertEquals(new String(stored, StandardCharsets.US_ASCII), ((SqlParameterValue) reindexed[3]).getValue());
+    }
+
+    @Test
+    @DisplayName("Should only read the checkpoint once its target is completed")
+    void run_TargetCompleted_NothingScanned() {
+        //Arrange
+        CardRekeyCheckpoint checkpoint = checkpoint(UUID.randomUUID());
+        checkpoint.setCompletedAt(Instant.now());
+        when(checkpointRepository.findById(job.target())).thenReturn(Optional.of(checkpoint));
+
+        //Act
+        job.run();
+
+        //Assert
+        verifyNoInteractions(jdbcTemplate);
+        verify(checkpointRepository, never()).save(any());
+    }
+
+    private CardRekeyCheckpoint checkpoint(UUID lastCardId) {
+        CardRekeyCheckpoint checkpoint = new CardRekeyCheckpoint();
+        checkpoint.setTarget(job.target());
+        checkpoint.setLastCardId(lastCardId);
+        checkpoint.setStartedAt(Instant.now());
+        return checkpoint;
+    }
+
+    private double rows(String result) {
+        return meterRegistry.get("card.rekey.rows").tag("result", result).counter().count();
+    }
+
+    //Typed matcher for the row mapper of the chunk queries
+    private static RowMapper<CardRekeyJob.StoredCard> storedCards() {
+        return ArgumentMatchers.any();
+    }
+}
@@ -0,0 +1,81 @@
+package com.ahmadmouslimani.cards.encryption;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the blind index computed with a new Mac per call, as it was, with the pooled engines:
+ * hashes per second and bytes allocated per hash on one thread. Allocation is read from the thread
+ * counters of the JVM, the throughput is only printed since it depends on the machine.
+ */
+class HashUtilsBenchmarkTest {
+
+    private static final int WARMUP_RUNS = 20_000;
+    private static final int MEASURED_RUNS = 100_000;
+    private static final String CARD_NUMBER = "1234123412341234";
+
+    private final HashUtils hashUtils = new HashUtils("1234567890abcdefghijklmnopqrstuvwxyz");
+
+    @Test
+    @DisplayName("Pooled engines skip the provider lookup and key schedule, and allocate only the digest and its encoding")
+    void searchHash_ThroughputAndAllocation() throws Exception {
+        //Arrange
+        com.sun.management.ThreadMXBean threads = threadBean();
+        byte[] output = new byte[HashUtils.HASH_LENGTH];
+
+        //Act
+        Result fresh = measure(threads, () -> HashUtilsTest.freshHash(CARD_NUMBER).length());
+        Result pooled = measure(threads, () -> hashUtils.generateSearchHash(CARD_NUMBER).length());
+        Result pooledBytes = measure(threads, () -> {
+            hashUtils.generateSearchHash(CARD_NUMBER, output, 0);
+            return output[0];
+        });
+        System.out.printf("New Mac per call: %,.0f hashes/s, %.0f B/op%n", fresh.hashesPerSecond(), fresh.bytesPerOp());
+        System.out.printf("Pooled, Base64:   %,.0f hashes/s, %.0f B/op%n", pooled.hashesPerSecond(), pooled.bytesPerOp());
+        System.out.printf("Pooled, bytes:    %,.0f hashes/s, %.0f B/op%n", pooledBytes.hashesPerSecond(), pooledBytes.bytesPerOp());
+
+        //Assert
+        //Mac.doFinal(byte[], int) still copies from a digest array of its own, 32 bytes plus the array header
+        assertTrue(pooledBytes.bytesPerOp() <= 64, "Only the digest of the JCE is allocated, got " + pooledBytes.bytesPerOp());
+        assertTrue(pooled.bytesPerOp() * 4 < fresh.bytesPerOp(),
+                "Only the hash and its Base64 text are allocated, got " + pooled.bytesPerOp() + " against " + fresh.bytesPerOp());
+    }
+
+    private static Result measure(com.sun.management.ThreadMXBean threads, HashRun run) throws Exception {
+        long threadId = Thread.currentThread().getId();
+        long sink = 0;
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            sink += run.hash();
+        }
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            sink += run.hash();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        assertNotEquals(Long.MIN_VALUE, sink);
+        return new Result(MEASURED_RUNS * 1e9 / elapsed, (double) allocated / MEASURED_RUNS);
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "Needs the HotSpot thread allocation counters");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+                "Thread allocation counters are disabled");
+        return threads;
+    }
+
+    @FunctionalInterface
+    private interface HashRun {
+        int hash() throws Exception;
+    }
+
+    private record Result(double hashesPerSecond, double bytesPerOp) {}
+}
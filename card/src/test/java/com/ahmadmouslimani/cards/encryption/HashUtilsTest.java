@@ -0,0 +1,101 @@
+package com.ahmadmouslimani.cards.encryption;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashUtilsTest {
+
+    private static final String SALT = "1234567890abcdefghijklmnopqrstuvwxyz";
+
+    private final HashUtils hashUtils = new HashUtils(SALT);
+
+    @Test
+    @DisplayName("Should produce the same blind index as a fresh Mac for ASCII, non ASCII and long input")
+    void generateSearchHash_MatchesFreshMac() throws Exception {
+        for (String input : List.of("1234123412341234", "4000000000000002", "café-ünïcode", "9".repeat(200))) {
+            assertEquals(freshHash(input), hashUtils.generateSearchHash(input), input);
+        }
+        assertNull(hashUtils.generateSearchHash(null));
+        assertNull(hashUtils.generateSearchHash(" "));
+    }
+
+    @Test
+    @DisplayName("Should return the raw bytes of the blind index, and write them at an offset of a caller buffer")
+    void generateSearchHashBytes_RawHash() throws Exception {
+        //Act
+        byte[] hashBytes = hashUtils.generateSearchHashBytes("1234123412341234");
+        byte[] output = new byte[HashUtils.HASH_LENGTH + 8];
+        hashUtils.generateSearchHash("1234123412341234", output, 8);
+
+        //Assert
+        assertArrayEquals(Base64.getDecoder().decode(freshHash("1234123412341234")), hashBytes);
+        assertArrayEquals(hashBytes, Arrays.copyOfRange(output, 8, output.length));
+        assertThrows(IllegalArgumentException.class, () -> hashUtils.generateSearchHash("1234123412341234", new byte[40], 9));
+    }
+
+    @Test
+    @DisplayName("Should hash correctly from many threads sharing the pooled engines")
+    void generateSearchHash_Concurrent() throws Exception {
+        //Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        //Act
+        try {
+            for (int t = 0; t < 16; t++) {
+                int thread = t;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        String cardNumber = String.format("%016d", thread * 1_000_000L + i);
+                        if (!freshHash(cardNumber).equals(hashUtils.generateSearchHash(cardNumber))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+
+            //Assert
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should compute the blind index with the previous salt only while one is configured")
+    void generatePreviousSearchHash_DuringSaltRotation() throws Exception {
+        //Arrange
+        HashUtils rotated = new HashUtils("another salt", SALT);
+
+        //Act & Assert
+        assertTrue(rotated.hasPreviousSalt());
+        assertEquals(freshHash("1234123412341234"), rotated.generatePreviousSearchHash("1234123412341234"));
+        assertNotEquals(freshHash("1234123412341234"), rotated.generateSearchHash("1234123412341234"));
+        assertFalse(hashUtils.hasPreviousSalt());
+        assertNull(hashUtils.generatePreviousSearchHash("1234123412341234"));
+        assertFalse(new HashUtils(SALT, "").hasPreviousSalt());
+    }
+
+    //The blind index as it was computed before the engines were pooled
+    static String freshHash(String input) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SALT.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return Base64.getEncoder().encodeToString(mac.doFinal(input.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -11,9 +11,11 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.encrypt.Encryptors;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 import static org.junit.jupiter.api.Assertions.*;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Optional;
 import java.util.UUID;
@@ -74,16 +76,44 @@ class CardSecurityIntegrationTest {
         assertEquals(rawCardNumber, loadedCard.getCardNumber(), "JPA should decrypt automatically");
 
         // 4. Assert: Verify database Encryption (Bypass the converter)
-        // By using a Native Query returning a String, JPA won't apply the AttributeConverter
-        String rawValueInDb = (String) entityManager.getEntityManager()
+        // By using a Native Query returning the raw bytes, JPA won't apply the AttributeConverter
+        byte[] rawValueInDb = (byte[]) entityManager.getEntityManager()
                 .createNativeQuery("SELECT card_number FROM card WHERE id = :id")
                 .setParameter("id", savedCard.getId())
                 .getSingleResult();
 
         assertNotNull(rawValueInDb);
-        assertNotEquals(rawCardNumber, rawValueInDb, "The value stored in the database should be encrypted");
-        assertFalse(rawValueInDb.contains(rawCardNumber), "The raw card digits should not exist in the database string");
+        //Format byte, key version, nonce, 16 digits and the tag
+        assertEquals(46, rawValueInDb.length, "The card number should be stored as binary AES-GCM");
+        assertFalse(new String(rawValueInDb, StandardCharsets.ISO_8859_1).contains(rawCardNumber),
+                "The raw card digits should not exist in the database value");
+    }
 
-        System.out.println("Encrypted string in DB: " + rawValueInDb);
+    @Test
+    @DisplayName("Should read a card number written as hex text by earlier releases")
+    void shouldReadLegacyHexCardNumber() {
+        //Arrange
+        String rawCardNumber = "1234123412341234";
+        Card card = new Card();
+        card.setCardNumber(rawCardNumber);
+        card.setExpiry(LocalDate.now().plusYears(2));
+        card.setStatus("ACTIVE");
+        card.setAccountId(UUID.randomUUID());
+        Card savedCard = cardRepository.saveAndFlush(card);
+
+        //the value as Encryptors.text wrote it, after the conversion of the column to bytea
+        String legacyValue = Encryptors.text("ABCDEFGHIJKLMNOPQRSTUVWXYZ", "5c0744940b5c369b").encrypt(rawCardNumber);
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE card SET card_number = convert_to(:value, 'UTF8') WHERE id = :id")
+                .setParameter("value", legacyValue)
+                .setParameter("id", savedCard.getId())
+                .executeUpdate();
+        entityManager.clear();
+
+        //Act
+        Card loadedCard = cardRepository.findById(savedCard.getId()).orElseThrow();
+
+        //Assert
+        assertEquals(rawCardNumber, loadedCard.getCardNumber());
     }
 }
\ No newline at end of file
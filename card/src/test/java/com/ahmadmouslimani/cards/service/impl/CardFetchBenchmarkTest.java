@@ -0,0 +1,113 @@
+package com.ahmadmouslimani.cards.service.impl;
+
+import com.ahmadmouslimani.cards.cache.CardNumberFilter;
+import com.ahmadmouslimani.cards.config.CardFilterProperties;
+import com.ahmadmouslimani.cards.dto.CardResponseDTO;
+import com.ahmadmouslimani.cards.encryption.CardCipher;
+import com.ahmadmouslimani.cards.encryption.CardNumberEncryptorConverter;
+import com.ahmadmouslimani.cards.encryption.HashUtils;
+import com.ahmadmouslimani.cards.entity.Card;
+import com.ahmadmouslimani.cards.mapper.CardMapper;
+import com.ahmadmouslimani.cards.repository.CardRepository;
+import com.ahmadmouslimani.cards.repository.CardSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Compares card fetches per second when the card number is decrypted, as Hibernate does when it loads the entity,
+ * with the summary read that never selects the encrypted column. The database is left out so only the cost of the
+ * read path itself is measured, the throughput is only printed since it depends on the machine.
+ */
+class CardFetchBenchmarkTest {
+
+    private static final int WARMUP_RUNS = 5_000;
+    private static final int MEASURED_RUNS = 20_000;
+    private static final String CARD_NUMBER = "1234123412341234";
+
+    private final AtomicLong decryptions = new AtomicLong();
+    private final CardNumberEncryptorConverter converter = countingDecryptions(
+            new CardCipher("ABCDEFGHIJKLMNOPQRSTUVWXYZ", "5c0744940b5c369b", CardCipher.Format.GCM));
+    //Stub only, so the mock does not record the invocations of the measured loops
+    private final CardRepository cardRepository = mock(CardRepository.class, withSettings().stubOnly());
+    private final CardServiceImpl cardService = new CardServiceImpl(cardRepository, new CardMapper(),
+            new HashUtils("1234567890abcdefghijklmnopqrstuvwxyz"), mock(ApplicationEventPublisher.class),
+            new CardNumberFilter(new CardFilterProperties(false, 1000, 0.01, Duration.ofMinutes(10),
+            Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofMinutes(1)), new SimpleMeterRegistry()));
+
+    @Test
+    @DisplayName("The summary read answers without a single decryption")
+    void fetchCard_WithAndWithoutDecryption() {
+        //Arrange
+        UUID id = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+        LocalDate expiry = LocalDate.now().plusYears(1);
+        byte[] encryptedCardNumber = converter.convertToDatabaseColumn(CARD_NUMBER);
+        when(cardRepository.findById(any())).thenAnswer(inv -> {
+            Card card = new Card();
+            card.setId(id);
+            card.setExpiry(expiry);
+            card.setStatus("ACTIVE");
+            card.setAccountId(accountId);
+            card.setCardNumber(converter.convertToEntityAttribute(encryptedCardNumber));
+            return Optional.of(card);
+        });
+        when(cardRepository.findSummaryByCardNumberHash(anyString()))
+                .thenReturn(Optional.of(new CardSummary(id, expiry, "ACTIVE", accountId, "hash")));
+
+        //Act
+        Result decrypted = measure(() -> cardService.getCardById(id));
+        Result summary = measure(() -> cardService.getCardByCardNumber(CARD_NUMBER));
+        System.out.printf("Entity, decrypted: %,.0f fetches/s, %.1f decryptions/fetch%n",
+                decrypted.fetchesPerSecond(), decrypted.decryptionsPerFetch());
+        System.out.printf("Summary:           %,.0f fetches/s, %.1f decryptions/fetch%n",
+                summary.fetchesPerSecond(), summary.decryptionsPerFetch());
+
+        //Assert
+        assertEquals(1.0, decrypted.decryptionsPerFetch());
+        assertEquals(0.0, summary.decryptionsPerFetch());
+        assertEquals(CARD_NUMBER, cardService.getCardByCardNumber(CARD_NUMBER).cardNumber());
+    }
+
+    private Result measure(Supplier<CardResponseDTO> fetch) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            sink += fetch.get().cardNumber().length();
+        }
+        long decryptionsBefore = decryptions.get();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            sink += fetch.get().cardNumber().length();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals((long) (WARMUP_RUNS + MEASURED_RUNS) * CARD_NUMBER.length(), sink);
+        return new Result(MEASURED_RUNS * 1e9 / elapsed, (double) (decryptions.get() - decryptionsBefore) / MEASURED_RUNS);
+    }
+
+    private CardNumberEncryptorConverter countingDecryptions(CardCipher cardCipher) {
+        return new CardNumberEncryptorConverter(cardCipher) {
+            @Override
+            public String convertToEntityAttribute(byte[] dbData) {
+                decryptions.incrementAndGet();
+                return super.convertToEntityAttribute(dbData);
+            }
+        };
+    }
+
+    private record Result(double fetchesPerSecond, double decryptionsPerFetch) {}
+}
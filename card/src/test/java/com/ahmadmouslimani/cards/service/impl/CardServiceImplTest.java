@@ -1,24 +1,36 @@
 package com.ahmadmouslimani.cards.service.impl;
 
+import com.ahmadmouslimani.cards.cache.CardNumberFilter;
+import com.ahmadmouslimani.cards.config.CardFilterProperties;
 import com.ahmadmouslimani.cards.dto.CardRequestDTO;
 import com.ahmadmouslimani.cards.dto.CardResponseDTO;
+import com.ahmadmouslimani.cards.dto.CardSummaryDTO;
 import com.ahmadmouslimani.cards.encryption.HashUtils;
 import com.ahmadmouslimani.cards.entity.Card;
+import com.ahmadmouslimani.cards.event.CardStatusChangedEvent;
 import com.ahmadmouslimani.cards.exception.CardAlreadyExistsException;
 import com.ahmadmouslimani.cards.exception.ResourceNotFoundException;
 import com.ahmadmouslimani.cards.mapper.CardMapper;
 import com.ahmadmouslimani.cards.repository.CardRepository;
+import com.ahmadmouslimani.cards.repository.CardSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,6 +38,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 
 
 @ExtendWith(MockitoExtension.class)
@@ -36,6 +49,13 @@ public class CardServiceImplTest {
     private HashUtils hashUtils;
     @Spy
     private CardMapper mapper;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    //Not built, so it lets every lookup through until a test builds it
+    @Spy
+    private CardNumberFilter cardNumberFilter = new CardNumberFilter(
+            new CardFilterProperties(true, 1000, 0.01, Duration.ofMinutes(10),
+            Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofMinutes(1)), new SimpleMeterRegistry());
     @InjectMocks
     private CardServiceImpl cardService;
     private CardRequestDTO requestDTO;
@@ -113,7 +133,7 @@ public class CardServiceImplTest {
     @DisplayName("Should throw ResourceNotFoundException, when card not found for a card number")
     void shouldThrowExceptionWhenCardNotFound_ForCardNumber() {
         when(hashUtils.generateSearchHash(cardNumber)).thenReturn(cardHash);
-        when(cardRepository.findByCardNumberHash(cardHash)).thenReturn(Optional.empty());
+        when(cardRepository.findSummaryByCardNumberHash(cardHash)).thenReturn(Optional.empty());
 
         ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class,
                 () -> cardService.getCardByCardNumber(cardNumber));
@@ -121,7 +141,26 @@ public class CardServiceImplTest {
         // the custom ResourceNotFoundException should include the card Number
         assertTrue(exception.getMessage().contains(cardNumber));
         // ensure that the database wasn't hit multiple times unnecessarily
-        verify(cardRepository, times(1)).findByCardNumberHash(cardHash);
+        verify(cardRepository, times(1)).findSummaryByCardNumberHash(cardHash);
+    }
+
+    @Test
+    @DisplayName("Should fetch a card by number from its summary, answering with the requested card number")
+    void getCardByCardNumber_FromSummary() {
+        //Arrange
+        CardSummary summary = new CardSummary(fixedId, LocalDate.now().plusYears(1), "ACTIVE", UUID.randomUUID(), cardHash);
+        when(hashUtils.generateSearchHash(cardNumber)).thenReturn(cardHash);
+        when(cardRepository.findSummaryByCardNumberHash(cardHash)).thenReturn(Optional.of(summary));
+
+        //Act
+        CardResponseDTO card = cardService.getCardByCardNumber(cardNumber);
+        CardSummaryDTO cardSummary = cardService.getCardSummaryByCardNumber(cardNumber);
+
+        //Assert
+        assertEquals(new CardResponseDTO(fixedId, summary.expiry(), cardNumber, "ACTIVE", summary.accountId()), card);
+        assertEquals(new CardSummaryDTO(fixedId, summary.expiry(), "ACTIVE", summary.accountId()), cardSummary);
+        //the entity, and with it the encrypted card number, is never loaded
+        verify(cardRepository, never()).findByCardNumberHash(any());
     }
 
 
@@ -152,6 +191,7 @@ public class CardServiceImplTest {
         //Arrange
         Card card = new Card();
         card.setCardNumber(cardNumber);
+        card.setCardNumberHash(cardHash);
         card.setStatus("ACTIVE");
 
         when(hashUtils.generateSearchHash(cardNumber)).thenReturn(cardHash);
@@ -165,5 +205,144 @@ public class CardServiceImplTest {
         assertEquals("INACTIVE", result.status());
         //ensure that the database wasn't hit multiple times unnecessarily
         verify(cardRepository, times(1)).save(card);
+        //the status change is published with the blind index only, never the card number
+        ArgumentCaptor<CardStatusChangedEvent> event = ArgumentCaptor.forClass(CardStatusChangedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertEquals(cardHash, event.getValue().cardNumberHash());
+    }
+
+    @Test
+    @DisplayName("Should keep a card rehashed by a status change during a salt rotation findable, here and on other instances")
+    void activateCard_PreviousSalt_NewHashFilteredIn() {
+        //Arrange
+        Card card = new Card();
+        card.setId(fixedId);
+        card.setCardNumber(cardNumber);
+        card.setCardNumberHash("previousHash");
+        card.setStatus("INACTIVE");
+        cardNumberFilter.rebuild(1, put -> put.accept("previousHash"));
+
+        when(hashUtils.generateSearchHash(cardNumber)).thenReturn(cardHash);
+        when(hashUtils.hasPreviousSalt()).thenReturn(true);
+        when(hashUtils.generatePreviousSearchHash(cardNumber)).thenReturn("previousHash");
+        when(cardRepository.findByCardNumberHash("previousHash")).thenReturn(Optional.of(card));
+        when(cardRepository.save(any(Card.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        //Act
+        CardResponseDTO result = cardService.activateCard(cardNumber);
+
+        //Assert
+        assertEquals("ACTIVE", result.status());
+        assertEquals(cardHash, card.getCardNumberHash());
+        assertTrue(cardNumberFilter.mightContain(cardHash), "The card is found with the current salt once saved");
+        verify(cardRepository).markIndexed(fixedId);
+        ArgumentCaptor<CardStatusChangedEvent> event = ArgumentCaptor.forClass(CardStatusChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(cardHash, event.getValue().cardNumberHash());
+    }
+
+    @Test
+    @DisplayName("Should not stamp a card whose blind index is unchanged")
+    void deactivateCard_SameHash_NotStamped() {
+        //Arrange
+        Card card = new Card();
+        card.setCardNumber(cardNumber);
+        card.setCardNumberHash(cardHash);
+        card.setStatus("ACTIVE");
+
+        when(hashUtils.generateSearchHash(cardNumber)).thenReturn(cardHash);
+        when(cardRepository.findByCardNumberHash(cardHash)).thenReturn(Optional.of(card));
+        when(cardRepository.save(any(Card.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        //Act
+        cardService.deactivateCard(cardNumber);
+
+        //Assert
+        verify(cardRepository, never()).markIndexed(any());
+    }
+
+    @Test
+    @DisplayName("Should fetch many cards with one query, hashing each distinct card number once")
+    void getCardsByCardNumbers_Success() {
+        //Arrange
+        CardSummary card = new CardSummary(fixedId, LocalDate.now().plusYears(1), "ACTIVE", UUID.randomUUID(), cardHash);
+
+        when(hashUtils.generateSearchHash(cardNumber)).thenReturn(cardHash);
+        when(hashUtils.generateSearchHash("9999888877776666")).thenReturn("unknownHash");
+        when(cardRepository.findSummariesByCardNumberHashIn(Set.of(cardHash, "unknownHash"))).thenReturn(List.of(card));
+
+        //Act
+        List<CardResponseDTO> result = cardService.getCardsByCardNumbers(List.of(cardNumber, "9999888877776666", cardNumber));
+
+        //Assert
+        assertEquals(1, result.size());
+        assertEquals(fixedId, result.get(0).id());
+        assertEquals(cardNumber, result.get(0).cardNumber());
+        verify(hashUtils, times(1)).generateSearchHash(cardNumber);
+        verify(cardRepository, times(1)).findSummariesByCardNumberHashIn(any());
+    }
+
+    @Test
+    @DisplayName("Should find a card still indexed with the previous salt while the salt is rotated")
+    void getCardByCardNumber_PreviousSalt_FallsBack() {
+        //Arrange
+        CardSummary summary = new CardSummary(fixedId, LocalDate.now().plusYears(1), "ACTIVE", UUID.randomUUID(), "previousHash");
+        when(hashUtils.generateSearchHash(cardNumber)).thenReturn(cardHash);
+        when(hashUtils.hasPreviousSalt()).thenReturn(true);
+        when(hashUtils.generatePreviousSearchHash(cardNumber)).thenReturn("previousHash");
+        when(cardRepository.findSummaryByCardNumberHash(cardHash)).thenReturn(Optional.empty());
+        when(cardRepository.findSummaryByCardNumberHash("previousHash")).thenReturn(Optional.of(summary));
+
+        //Act
+        CardResponseDTO card = cardService.getCardByCardNumber(cardNumber);
+
+        //Assert
+        assertEquals(fixedId, card.id());
+        assertEquals(cardNumber, card.cardNumber());
+    }
+
+    @Test
+    @DisplayName("Should answer an unknown card number from the filter without a query")
+    void getCardByCardNumber_FilteredOut_NoQuery() {
+        //Arrange
+        cardNumberFilter.rebuild(1, put -> put.accept("anotherHash"));
+        when(hashUtils.generateSearchHash(cardNumber)).thenReturn(cardHash);
+
+        //Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> cardService.getCardByCardNumber(cardNumber));
+        verify(cardRepository, never()).findSummaryByCardNumberHash(any());
+    }
+
+    @Test
+    @DisplayName("Should create a card the filter has never seen without the existence query, and add it to the filter")
+    void createCard_FilteredOut_SkipsExistenceQuery() {
+        //Arrange
+        cardNumberFilter.rebuild(0, put -> {});
+        when(hashUtils.generateSearchHash(cardNumber)).thenReturn(cardHash);
+        when(cardRepository.save(any(Card.class))).thenAnswer(inv -> {
+            Card savedCard = inv.getArgument(0);
+            savedCard.setId(fixedId);
+            savedCard.setCardNumberHash(cardHash);
+            return savedCard;
+        });
+
+        //Act
+        cardService.createCard(requestDTO);
+
+        //Assert
+        verify(cardRepository, never()).existsByCardNumberHash(any());
+        assertTrue(cardNumberFilter.mightContain(cardHash));
+    }
+
+    @Test
+    @DisplayName("Should throw CardAlreadyExistsException, when the card is created meanwhile and the insert hits the unique index")
+    void createCard_CreatedMeanwhile_ThrowCardAlreadyExistsException() {
+        //Arrange
+        when(hashUtils.generateSearchHash(cardNumber)).thenReturn(cardHash);
+        when(cardRepository.existsByCardNumberHash(cardHash)).thenReturn(false, true);
+        when(cardRepository.save(any(Card.class))).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        //Act & Assert
+        assertThrows(CardAlreadyExistsException.class, () -> cardService.createCard(requestDTO));
     }
 }
@@ -0,0 +1,51 @@
+package com.ahmadmouslimani.collocated;
+
+import io.swagger.v3.oas.annotations.OpenAPIDefinition;
+import io.swagger.v3.oas.annotations.info.Contact;
+import io.swagger.v3.oas.annotations.info.Info;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.FullyQualifiedAnnotationBeanNameGenerator;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Runs the Account, Card, Fraud and Transaction services in one JVM, on one datasource.
+ * The Feign clients of the Transaction service are not created (no @EnableFeignClients),
+ * the in-process clients of the client package implement them instead.
+ * Service classes share simple names (GlobalExceptionHandler...), hence the fully qualified bean names.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@ComponentScan(
+		basePackages = "com.ahmadmouslimani",
+		nameGenerator = FullyQualifiedAnnotationBeanNameGenerator.class,
+		excludeFilters = {
+				//The standalone entry points, TransactionApplication would enable the HTTP Feign clients
+				@ComponentScan.Filter(type = FilterType.REGEX,
+						pattern = "com\\.ahmadmouslimani\\.(account|cards|fraud|transaction)\\.\\w+Application")
+		}
+)
+@EntityScan("com.ahmadmouslimani")
+@EnableJpaRepositories("com.ahmadmouslimani")
+@OpenAPIDefinition(
+		info = @Info(
+				title = "Collocated CMS REST API Documentation",
+				description = "Account, Card, Fraud and Transaction services REST API Documentation",
+				version = "v1",
+				contact = @Contact(
+						name = "Ahmad Mouslimani",
+						email = "amd.moslmani@gmail.com"
+				)
+		)
+)
+public class CollocatedApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(CollocatedApplication.class, args);
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.ahmadmouslimani.collocated.client;
+
+import com.ahmadmouslimani.account.service.AccountService;
+import com.ahmadmouslimani.transaction.dto.AccountResponseDTO;
+import com.ahmadmouslimani.transaction.dto.BalanceAdjustmentRequestDTO;
+import com.ahmadmouslimani.transaction.dto.BalanceAdjustmentResultDTO;
+import com.ahmadmouslimani.transaction.exception.BusinessException;
+import com.ahmadmouslimani.transaction.exception.ExternalServiceException;
+import com.ahmadmouslimani.transaction.exception.account.AccountNotFoundException;
+import com.ahmadmouslimani.transaction.service.client.AccountFeignClient;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * AccountFeignClient served by the AccountService of the same JVM.
+ * Errors are translated into the exceptions the FeignErrorDecoder produces for the matching HTTP status.
+ */
+@Component
+@RequiredArgsConstructor
+public class InProcessAccountClient implements AccountFeignClient {
+    private final AccountService accountService;
+
+    @Override
+    public AccountResponseDTO getAccountById(UUID accountId) {
+        return call(() -> toTransactionDto(accountService.getAccountById(accountId)));
+    }
+
+    @Override
+    public List<AccountResponseDTO> getAccountsByIds(List<UUID> accountIds) {
+        return call(() -> accountService.getAccountsByIds(accountIds).stream()
+                .map(this::toTransactionDto)
+                .toList());
+    }
+
+    @Override
+    public AccountResponseDTO adjustBalance(UUID id, BigDecimal amount, String transactionType) {
+        return call(() -> toTransactionDto(accountService.adjustBalance(id, amount, transactionType)));
+    }
+
+    @Override
+    public AccountResponseDTO adjustBalance(UUID id, BigDecimal amount, String transactionType, UUID idempotencyKey) {
+        return call(() -> toTransactionDto(accountService.adjustBalance(id, amount, transactionType, idempotencyKey)));
+    }
+
+    @Override
+    public List<BalanceAdjustmentResultDTO> adjustBalances(List<BalanceAdjustmentRequestDTO> adjustments) {
+        List<com.ahmadmouslimani.account.dto.BalanceAdjustmentRequestDTO> requests = adjustments.stream()
+                .map(adjustment -> new com.ahmadmouslimani.account.dto.BalanceAdjustmentRequestDTO(
+                        adjustment.accountId(), adjustment.amount(), adjustment.transactionType()))
+                .toList();
+        return call(() -> accountService.adjustBalances(requests).stream()
+                .map(result -> new BalanceAdjustmentResultDTO(result.accountId(), result.applied(), result.message()))
+                .toList());
+    }
+
+    private AccountResponseDTO toTransactionDto(com.ahmadmouslimani.account.dto.AccountResponseDTO account) {
+        return new AccountResponseDTO(account.id(), account.status(), account.balance());
+    }
+
+    private <T> T call(Supplier<T> call) {
+        try {
+            return call.get();
+        } catch (com.ahmadmouslimani.account.exception.ResourceNotFoundException ex) {
+            throw new AccountNotFoundException(ex.getMessage());
+        } catch (com.ahmadmouslimani.account.exception.BusinessException ex) {
+            throw new BusinessException(ex.getMessage());
+        } catch (RuntimeException ex) {
+            throw new ExternalServiceException("Service Account. " + ex.getMessage());
+        }
+    }
+}
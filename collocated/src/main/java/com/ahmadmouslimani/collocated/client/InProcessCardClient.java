@@ -0,0 +1,51 @@
+package com.ahmadmouslimani.collocated.client;
+
+import com.ahmadmouslimani.cards.service.CardService;
+import com.ahmadmouslimani.transaction.dto.CardResponseDTO;
+import com.ahmadmouslimani.transaction.exception.BusinessException;
+import com.ahmadmouslimani.transaction.exception.ExternalServiceException;
+import com.ahmadmouslimani.transaction.exception.card.CardNotFoundException;
+import com.ahmadmouslimani.transaction.service.client.CardFeignClient;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * CardFeignClient served by the CardService of the same JVM.
+ * Errors are translated into the exceptions the FeignErrorDecoder produces for the matching HTTP status.
+ */
+@Component
+@RequiredArgsConstructor
+public class InProcessCardClient implements CardFeignClient {
+    private final CardService cardService;
+
+    @Override
+    public CardResponseDTO getCardByCardNumber(String cardNumber) {
+        return call(() -> toTransactionDto(cardService.getCardByCardNumber(cardNumber)));
+    }
+
+    @Override
+    public List<CardResponseDTO> getCardsByCardNumbers(List<String> cardNumbers) {
+        return call(() -> cardService.getCardsByCardNumbers(cardNumbers).stream()
+                .map(this::toTransactionDto)
+                .toList());
+    }
+
+    private CardResponseDTO toTransactionDto(com.ahmadmouslimani.cards.dto.CardResponseDTO card) {
+        return new CardResponseDTO(card.id(), card.expiry(), card.cardNumber(), card.status(), card.accountId());
+    }
+
+    private <T> T call(Supplier<T> call) {
+        try {
+            return call.get();
+        } catch (com.ahmadmouslimani.cards.exception.ResourceNotFoundException ex) {
+            throw new CardNotFoundException(ex.getMessage());
+        } catch (com.ahmadmouslimani.cards.exception.BusinessException ex) {
+            throw new BusinessException(ex.getMessage());
+        } catch (RuntimeException ex) {
+            throw new ExternalServiceException("Service Card. " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.ahmadmouslimani.collocated.client;
+
+import com.ahmadmouslimani.fraud.service.FraudAuditLogService;
+import com.ahmadmouslimani.transaction.dto.FraudRequestDTO;
+import com.ahmadmouslimani.transaction.dto.FraudResponseDTO;
+import com.ahmadmouslimani.transaction.exception.ExternalServiceException;
+import com.ahmadmouslimani.transaction.exception.ResourceNotFoundException;
+import com.ahmadmouslimani.transaction.service.client.FraudFeignClient;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * FraudFeignClient served by the FraudAuditLogService of the same JVM.
+ * Errors are translated into the exceptions the FeignErrorDecoder produces for the matching HTTP status.
+ */
+@Component
+@RequiredArgsConstructor
+public class InProcessFraudClient implements FraudFeignClient {
+    private final FraudAuditLogService fraudAuditLogService;
+
+    @Override
+    public FraudResponseDTO checkFraud(FraudRequestDTO request) {
+        try {
+            com.ahmadmouslimani.fraud.dto.FraudResponseDTO response = fraudAuditLogService.validateTransaction(
+                    new com.ahmadmouslimani.fraud.dto.FraudRequestDTO(request.cardId(), request.amount(), request.accountId())
+            );
+            return new FraudResponseDTO(response.isFraudulent(), response.rejectionReason());
+        } catch (com.ahmadmouslimani.fraud.exception.ResourceNotFoundException ex) {
+            throw new ResourceNotFoundException(ex.getMessage());
+        } catch (RuntimeException ex) {
+            throw new ExternalServiceException("Service Fraud. " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public List<FraudResponseDTO> checkFrauds(List<FraudRequestDTO> requests) {
+        try {
+            return fraudAuditLogService.validateTransactions(requests.stream()
+                            .map(request -> new com.ahmadmouslimani.fraud.dto.FraudRequestDTO(request.cardId(), request.amount(), request.accountId()))
+                            .toList())
+                    .stream()
+                    .map(response -> new FraudResponseDTO(response.isFraudulent(), response.rejectionReason()))
+                    .toList();
+        } catch (com.ahmadmouslimani.fraud.exception.ResourceNotFoundException ex) {
+            throw new ResourceNotFoundException(ex.getMessage());
+        } catch (RuntimeException ex) {
+            throw new ExternalServiceException("Service Fraud. " + ex.getMessage());
+        }
+    }
+}
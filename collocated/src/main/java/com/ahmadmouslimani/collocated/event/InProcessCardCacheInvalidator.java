@@ -0,0 +1,22 @@
+package com.ahmadmouslimani.collocated.event;
+
+import com.ahmadmouslimani.cards.event.CardStatusChangedEvent;
+import com.ahmadmouslimani.transaction.cache.CardNearCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Invalidates the card near cache of the same JVM when a card status changes,
+ * instead of the HTTP notification used between the separate services.
+ */
+@Component
+@RequiredArgsConstructor
+public class InProcessCardCacheInvalidator {
+    private final CardNearCache cardNearCache;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardStatusChanged(CardStatusChangedEvent event) {
+        cardNearCache.invalidate(event.cardNumberHash(), event.changedAt());
+    }
+}
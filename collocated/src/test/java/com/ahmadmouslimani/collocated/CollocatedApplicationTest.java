@@ -0,0 +1,52 @@
+package com.ahmadmouslimani.collocated;
+
+import com.ahmadmouslimani.collocated.client.InProcessAccountClient;
+import com.ahmadmouslimani.collocated.client.InProcessCardClient;
+import com.ahmadmouslimani.collocated.client.InProcessFraudClient;
+import com.ahmadmouslimani.fraud.repository.FraudPolicyRepository;
+import com.ahmadmouslimani.transaction.service.client.AccountFeignClient;
+import com.ahmadmouslimani.transaction.service.client.CardFeignClient;
+import com.ahmadmouslimani.transaction.service.client.FraudFeignClient;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Wiring only: Hibernate starts without reading JDBC metadata and nothing touches the database
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.boot.allow_jdbc_metadata_access=false",
+        "app.audit-partitions.enabled=false",
+        "app.security.card-encryption.migrate-column=false",
+        "app.card-filter.enabled=false"
+})
+class CollocatedApplicationTest {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @MockitoBean
+    private FraudPolicyRepository fraudPolicyRepository;
+
+    @Test
+    @DisplayName("Feign client interfaces resolve to the in-process clients")
+    void feignClients_ResolveToInProcessClients() {
+        assertInstanceOf(InProcessAccountClient.class, context.getBean(AccountFeignClient.class));
+        assertInstanceOf(InProcessCardClient.class, context.getBean(CardFeignClient.class));
+        assertInstanceOf(InProcessFraudClient.class, context.getBean(FraudFeignClient.class));
+    }
+
+    @Test
+    @DisplayName("Each service keeps its own exception handler")
+    void exceptionHandlers_OnePerService() {
+        long serviceHandlers = context.getBeansWithAnnotation(RestControllerAdvice.class).values().stream()
+                .filter(handler -> handler.getClass().getName().endsWith(".exception.GlobalExceptionHandler"))
+                .count();
+        assertEquals(4, serviceHandlers);
+    }
+}
@@ -0,0 +1,230 @@
+package com.ahmadmouslimani.collocated;
+
+import com.ahmadmouslimani.account.service.AccountService;
+import com.ahmadmouslimani.cards.service.CardService;
+import com.ahmadmouslimani.collocated.client.InProcessAccountClient;
+import com.ahmadmouslimani.collocated.client.InProcessCardClient;
+import com.ahmadmouslimani.collocated.client.InProcessFraudClient;
+import com.ahmadmouslimani.fraud.service.FraudAuditLogService;
+import com.ahmadmouslimani.transaction.cache.CardNearCache;
+import com.ahmadmouslimani.transaction.config.CardCacheProperties;
+import com.ahmadmouslimani.transaction.config.OrchestrationProperties;
+import com.ahmadmouslimani.transaction.config.OutboxProperties;
+import com.ahmadmouslimani.transaction.dto.TransactionRequestDTO;
+import com.ahmadmouslimani.transaction.encryption.HashUtils;
+import com.ahmadmouslimani.transaction.enums.TransactionStatus;
+import com.ahmadmouslimani.transaction.exception.FeignErrorDecoder;
+import com.ahmadmouslimani.transaction.mapper.TransactionMapper;
+import com.ahmadmouslimani.transaction.repository.TransactionRepository;
+import com.ahmadmouslimani.transaction.service.TransactionRejectionService;
+import com.ahmadmouslimani.transaction.service.client.AccountFeignClient;
+import com.ahmadmouslimani.transaction.service.client.CardFeignClient;
+import com.ahmadmouslimani.transaction.service.client.FraudFeignClient;
+import com.ahmadmouslimani.transaction.service.impl.TransactionOutboxRelay;
+import com.ahmadmouslimani.transaction.service.impl.TransactionServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.Feign;
+import feign.Request;
+import feign.hc5.ApacheHttp5Client;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
+import org.springframework.cloud.openfeign.support.SpringEncoder;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures createTransaction with the downstream services reached through real Feign clients
+ * (SpringMvcContract, Jackson, Apache HttpClient 5 to an embedded Tomcat over loopback) and through the in-process clients.
+ * Both paths end in the same service stubs, so the difference is the HTTP+JSON hop itself.
+ */
+@ExtendWith(MockitoExtension.class)
+class CollocatedLatencyBenchmarkTest {
+
+    private static final int WARMUP_RUNS = 500;
+    private static final int MEASURED_RUNS = 1_000;
+    private static final OutboxProperties OUTBOX_DISABLED = new OutboxProperties(false, 1, 1, Duration.ofMillis(500),
+            Duration.ofSeconds(30), Duration.ofSeconds(1), Duration.ofMinutes(5));
+
+    @Mock
+    private AccountService accountService;
+    @Mock
+    private CardService cardService;
+    @Mock
+    private FraudAuditLogService fraudAuditLogService;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private TransactionRejectionService transactionRejectionService;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final UUID accountId = UUID.randomUUID();
+    private final TransactionRequestDTO request =
+            new TransactionRequestDTO(new BigDecimal("10.00"), "D", "1234123412341234");
+    private Tomcat server;
+
+    @TempDir
+    private Path baseDir;
+
+    @BeforeEach
+    void setUp() throws LifecycleException {
+        UUID cardId = UUID.randomUUID();
+        var account = new com.ahmadmouslimani.account.dto.AccountResponseDTO(accountId, "ACTIVE", new BigDecimal("1000000.00"));
+        lenient().when(cardService.getCardByCardNumber(anyString())).thenReturn(new com.ahmadmouslimani.cards.dto.CardResponseDTO(
+                cardId, LocalDate.now().plusYears(1), "1234123412341234", "ACTIVE", accountId
+        ));
+        lenient().when(accountService.getAccountById(accountId)).thenReturn(account);
+        lenient().when(accountService.adjustBalance(any(), any(), any())).thenReturn(account);
+        lenient().when(fraudAuditLogService.validateTransaction(any()))
+                .thenReturn(com.ahmadmouslimani.fraud.dto.FraudResponseDTO.approved());
+        lenient().when(transactionRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        //Same role as the Card, Account and Fraud controllers: decode the request, call the service, encode the result
+        server = new Tomcat();
+        server.setBaseDir(baseDir.toString());
+        server.setPort(0);
+        server.getConnector();
+        Context context = server.addContext("", null);
+        Tomcat.addServlet(context, "services", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                respond(resp, handle(req));
+            }
+        });
+        context.addServletMappingDecoded("/*", "services");
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws LifecycleException {
+        server.stop();
+        server.destroy();
+    }
+
+    @Test
+    @DisplayName("In-process clients should be at least an order of magnitude faster than Feign over HTTP")
+    void inProcessClients_OrderOfMagnitudeFasterThanFeign() {
+        String baseUrl = "http://127.0.0.1:" + server.getConnector().getLocalPort();
+        Feign.Builder feign = feignBuilder();
+        TransactionServiceImpl overHttp = transactionService(
+                feign.target(AccountFeignClient.class, baseUrl),
+                feign.target(CardFeignClient.class, baseUrl),
+                feign.target(FraudFeignClient.class, baseUrl)
+        );
+        TransactionServiceImpl inProcess = transactionService(
+                new InProcessAccountClient(accountService),
+                new InProcessCardClient(cardService),
+                new InProcessFraudClient(fraudAuditLogService)
+        );
+
+        long[] httpLatencies = measure(overHttp);
+        long[] inProcessLatencies = measure(inProcess);
+        long httpMedian = httpLatencies[MEASURED_RUNS / 2];
+        long inProcessMedian = inProcessLatencies[MEASURED_RUNS / 2];
+
+        System.out.printf("createTransaction latency over %d runs: feign/http median=%dus p99=%dus, in-process median=%dus p99=%dus (%.1fx)%n",
+                MEASURED_RUNS,
+                TimeUnit.NANOSECONDS.toMicros(httpMedian), TimeUnit.NANOSECONDS.toMicros(httpLatencies[MEASURED_RUNS * 99 / 100]),
+                TimeUnit.NANOSECONDS.toMicros(inProcessMedian), TimeUnit.NANOSECONDS.toMicros(inProcessLatencies[MEASURED_RUNS * 99 / 100]),
+                (double) httpMedian / inProcessMedian);
+
+        assertTrue(httpMedian >= 10 * inProcessMedian,
+                "Expected an order of magnitude, got " + httpMedian + "ns vs " + inProcessMedian + "ns");
+    }
+
+    private long[] measure(TransactionServiceImpl transactionService) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            assertEquals(TransactionStatus.APPROVED, transactionService.createTransaction(request).status());
+        }
+        long[] latencies = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            transactionService.createTransaction(request);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private TransactionServiceImpl transactionService(AccountFeignClient accountClient, CardFeignClient cardClient,
+                                                      FraudFeignClient fraudClient) {
+        return new TransactionServiceImpl(transactionRepository, transactionRejectionService, accountClient, cardClient,
+                fraudClient, new TransactionMapper(), new OrchestrationProperties(false, 1, 1, Duration.ofSeconds(1)),
+                Runnable::run, new CardNearCache(new CardCacheProperties(false, 1, Duration.ofSeconds(1)), new HashUtils("salt"),
+                new SimpleMeterRegistry(), Clock.systemUTC()), new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                OUTBOX_DISABLED, mock(TransactionOutboxRelay.class));
+    }
+
+    //The same encoder, decoder, contract and HTTP client as the Spring Cloud OpenFeign setup of the Transaction service
+    private Feign.Builder feignBuilder() {
+        HttpMessageConverters converters =
+                new HttpMessageConverters(false, List.of(new MappingJackson2HttpMessageConverter(objectMapper)));
+        ObjectFactory<HttpMessageConverters> messageConverters = () -> converters;
+        return Feign.builder()
+                .client(new ApacheHttp5Client())
+                .contract(new SpringMvcContract())
+                .encoder(new SpringEncoder(messageConverters))
+                .decoder(new ResponseEntityDecoder(new SpringDecoder(messageConverters)))
+                .options(new Request.Options(1, TimeUnit.SECONDS, 2, TimeUnit.SECONDS, true))
+                .errorDecoder(new FeignErrorDecoder());
+    }
+
+    private Object handle(HttpServletRequest request) throws IOException {
+        String path = request.getRequestURI();
+        if (path.equals("/api/card/fetch")) {
+            return cardService.getCardByCardNumber(request.getParameter("cardNumber"));
+        }
+        if (path.equals("/api/fraud/check")) {
+            return fraudAuditLogService.validateTransaction(
+                    objectMapper.readValue(request.getInputStream(), com.ahmadmouslimani.fraud.dto.FraudRequestDTO.class)
+            );
+        }
+        UUID id = UUID.fromString(path.split("/")[3]);
+        return "PATCH".equals(request.getMethod()) ?
+                accountService.adjustBalance(id, new BigDecimal(request.getParameter("amount")), request.getParameter("transactionType")) :
+                accountService.getAccountById(id);
+    }
+
+    private void respond(HttpServletResponse response, Object body) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        response.setContentType("application/json");
+        response.setContentLength(json.length);
+        response.getOutputStream().write(json);
+    }
+}
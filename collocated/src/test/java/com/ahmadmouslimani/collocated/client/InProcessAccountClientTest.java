@@ -0,0 +1,66 @@
+package com.ahmadmouslimani.collocated.client;
+
+import com.ahmadmouslimani.account.exception.ResourceNotFoundException;
+import com.ahmadmouslimani.account.service.AccountService;
+import com.ahmadmouslimani.transaction.dto.AccountResponseDTO;
+import com.ahmadmouslimani.transaction.exception.BusinessException;
+import com.ahmadmouslimani.transaction.exception.ExternalServiceException;
+import com.ahmadmouslimani.transaction.exception.account.AccountNotFoundException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InProcessAccountClientTest {
+
+    @Mock
+    private AccountService accountService;
+
+    @InjectMocks
+    private InProcessAccountClient accountClient;
+
+    private final UUID accountId = UUID.randomUUID();
+
+    @Test
+    @DisplayName("Get Account - Maps the Account service DTO")
+    void getAccountById_MapsDto() {
+        //Arrange
+        when(accountService.getAccountById(accountId)).thenReturn(
+                new com.ahmadmouslimani.account.dto.AccountResponseDTO(accountId, "ACTIVE", new BigDecimal("500.00"))
+        );
+
+        //Act
+        AccountResponseDTO result = accountClient.getAccountById(accountId);
+
+        //Assert
+        assertEquals(new AccountResponseDTO(accountId, "ACTIVE", new BigDecimal("500.00")), result);
+    }
+
+    @Test
+    @DisplayName("Errors - Translated like the FeignErrorDecoder does for 404, 422 and 500")
+    void errors_TranslatedLikeFeignErrorDecoder() {
+        //Arrange
+        when(accountService.getAccountById(accountId)).thenThrow(new ResourceNotFoundException("Account", "id", accountId.toString()));
+        when(accountService.adjustBalance(accountId, BigDecimal.TEN, "D"))
+                .thenThrow(new com.ahmadmouslimani.account.exception.BusinessException("Insufficient funds"));
+        when(accountService.adjustBalance(accountId, BigDecimal.TEN, "C")).thenThrow(new IllegalStateException("boom"));
+
+        //Act & Assert
+        assertThrows(AccountNotFoundException.class, () -> accountClient.getAccountById(accountId));
+        BusinessException businessException =
+                assertThrows(BusinessException.class, () -> accountClient.adjustBalance(accountId, BigDecimal.TEN, "D"));
+        assertEquals("Insufficient funds", businessException.getMessage());
+        ExternalServiceException externalException =
+                assertThrows(ExternalServiceException.class, () -> accountClient.adjustBalance(accountId, BigDecimal.TEN, "C"));
+        assertEquals("Service Account. boom", externalException.getMessage());
+    }
+}
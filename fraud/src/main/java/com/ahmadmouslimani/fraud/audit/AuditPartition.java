@@ -0,0 +1,40 @@
+package com.ahmadmouslimani.fraud.audit;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One partition of the audit table and its range of createdAt, as reported by pg_get_expr(relpartbound).
+ * @param name Table name of the partition
+ * @param from Inclusive lower bound, null for MINVALUE
+ * @param to Exclusive upper bound, null for MAXVALUE
+ * @param isDefault True for the DEFAULT partition, which has no bounds
+ */
+record AuditPartition(String name, LocalDateTime from, LocalDateTime to, boolean isDefault) {
+    private static final Pattern RANGE = Pattern.compile("FROM \\((.+)\\) TO \\((.+)\\)");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss[.SSSSSS]");
+
+    static AuditPartition parse(String name, String bound) {
+        if ("DEFAULT".equals(bound)) {
+            return new AuditPartition(name, null, null, true);
+        }
+        Matcher matcher = RANGE.matcher(bound);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("Unexpected partition bound of " + name + ": " + bound);
+        }
+        return new AuditPartition(name, value(matcher.group(1)), value(matcher.group(2)), false);
+    }
+
+    boolean covers(LocalDateTime time) {
+        return !isDefault && (from == null || !time.isBefore(from)) && (to == null || time.isBefore(to));
+    }
+
+    private static LocalDateTime value(String literal) {
+        if (literal.equals("MINVALUE") || literal.equals("MAXVALUE")) {
+            return null;
+        }
+        return LocalDateTime.parse(literal.replace("'", ""), BOUND);
+    }
+}
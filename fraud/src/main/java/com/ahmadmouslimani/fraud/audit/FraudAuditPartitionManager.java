@@ -0,0 +1,212 @@
+package com.ahmadmouslimani.fraud.audit;
+
+import com.ahmadmouslimani.fraud.config.AuditPartitionProperties;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the fraud audit table range-partitioned by createdAt, one partition per day.
+ * The velocity rule only looks back the policy time interval, so its queries touch one or two
+ * partitions, and each partition has its own small (cardId, createdAt) index. Days past the
+ * retention are dropped as whole tables, without deletes to vacuum.
+ * A table created by Hibernate is converted once, at the startup of an instance with the conversion enabled: it
+ * becomes the partition of all rows up to tomorrow and keeps its indexes, so it is dropped once it falls out of the
+ * retention. The conversion holds an advisory lock, so that two instances enabled at once do not both convert.
+ * Until the table is converted, maintenance is skipped.
+ * Rows of a day without a partition land in the DEFAULT partition. They are moved to the day's partition when
+ * it is created, and deleted once past the retention. A failed create or drop does not stop the others.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.audit-partitions", name = "enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class FraudAuditPartitionManager implements InitializingBean {
+    static final String TABLE = "fraud_audit_log";
+    static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+    //Key of the advisory lock held while converting the table
+    static final long CONVERSION_LOCK = 0x66726175645f6175L;
+
+    private final AuditPartitionProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private volatile boolean partitioned;
+
+    //The EntityManagerFactory is only required so that Hibernate has created the table first
+    public FraudAuditPartitionManager(AuditPartitionProperties properties, JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        partitioned = isPartitioned();
+        if (!partitioned && properties.convertTable()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                //Released with the transaction. The instance that waited finds the table converted.
+                jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(?)::text", String.class, CONVERSION_LOCK);
+                if (!isPartitioned()) {
+                    convertToPartitioned(LocalDate.now().plusDays(1).atStartOfDay());
+                }
+            });
+            partitioned = true;
+        } else if (!partitioned) {
+            log.warn("{} is not partitioned, partition maintenance is skipped until it is converted " +
+                    "with app.audit-partitions.convert-table", TABLE);
+        }
+        maintain();
+    }
+
+    @Scheduled(fixedDelayString = "${app.audit-partitions.maintenance-interval:1h}")
+    public void maintain() {
+        List<AuditPartition> partitions;
+        try {
+            if (!partitioned) {
+                //Converted meanwhile by another instance
+                partitioned = isPartitioned();
+                if (!partitioned) {
+                    return;
+                }
+            }
+            partitions = partitions();
+        } catch (DataAccessException ex) {
+            log.error("Fraud audit partition maintenance failed, the partitions could not be listed", ex);
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        boolean hasDefault = partitions.stream().anyMatch(AuditPartition::isDefault);
+        for (LocalDate day : missingDays(partitions, today, properties.precreateDays())) {
+            try {
+                createPartition(day, hasDefault);
+            } catch (DataAccessException | TransactionException ex) {
+                log.error("Could not create the audit partition of {}", day, ex);
+            }
+        }
+        LocalDateTime cutoff = today.atStartOfDay().minus(properties.retention());
+        for (AuditPartition partition : expired(partitions, cutoff)) {
+            try {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition.name());
+                log.info("Dropped audit partition {}, all its rows are older than {}", partition.name(), cutoff);
+            } catch (DataAccessException ex) {
+                log.error("Could not drop the audit partition {}", partition.name(), ex);
+            }
+        }
+        if (hasDefault) {
+            try {
+                int deleted = jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE created_at < ?", cutoff);
+                if (deleted > 0) {
+                    log.info("Deleted {} audits older than {} from {}", deleted, cutoff, DEFAULT_PARTITION);
+                }
+            } catch (DataAccessException ex) {
+                log.error("Could not delete the expired audits of {}", DEFAULT_PARTITION, ex);
+            }
+        }
+    }
+
+    //Days from today on that no partition covers yet
+    static List<LocalDate> missingDays(List<AuditPartition> partitions, LocalDate today, int precreateDays) {
+        List<LocalDate> missing = new ArrayList<>();
+        for (int i = 0; i <= precreateDays; i++) {
+            LocalDateTime start = today.plusDays(i).atStartOfDay();
+            if (partitions.stream().noneMatch(partition -> partition.covers(start))) {
+                missing.add(today.plusDays(i));
+            }
+        }
+        return missing;
+    }
+
+    //Partitions whose rows are all older than the cutoff
+    static List<AuditPartition> expired(List<AuditPartition> partitions, LocalDateTime cutoff) {
+        return partitions.stream()
+                .filter(partition -> !partition.isDefault() && partition.to() != null && !partition.to().isAfter(cutoff))
+                .toList();
+    }
+
+    private boolean isPartitioned() {
+        String kind = jdbcTemplate.queryForObject(
+                "SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)", String.class, TABLE);
+        return "p".equals(kind);
+    }
+
+    private void convertToPartitioned(LocalDateTime legacyUntil) {
+        String legacy = TABLE + "_legacy";
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+                        "WHERE i.indrelid = to_regclass(?) AND NOT i.indisprimary " +
+                        "AND pg_get_indexdef(i.indexrelid) LIKE '%(card_id, created_at)'", String.class, TABLE);
+        String primaryKey = jdbcTemplate.queryForObject(
+                "SELECT conname FROM pg_constraint WHERE conrelid = to_regclass(?) AND contype = 'p'", String.class, TABLE);
+
+        //The primary key of a partitioned table has to include the partition key
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP CONSTRAINT " + primaryKey);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + legacy);
+        //Index names are kept on the partitioned table, so Hibernate finds the index it created
+        for (String index : indexes) {
+            jdbcTemplate.execute("ALTER INDEX " + index + " RENAME TO " + index + "_legacy");
+        }
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (" +
+                "id uuid NOT NULL, card_id uuid NOT NULL, created_at timestamp(6) NOT NULL, amount numeric(19,2), " +
+                "PRIMARY KEY (id, created_at)) PARTITION BY RANGE (created_at)");
+        for (String index : indexes) {
+            jdbcTemplate.execute("CREATE INDEX " + index + " ON " + TABLE + " (card_id, created_at)");
+        }
+        //Validated by one scan of the existing rows, which also builds their (id, createdAt) key.
+        //Their (cardId, createdAt) index is attached as is.
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + legacy +
+                " FOR VALUES FROM (MINVALUE) TO ('" + legacyUntil + "')");
+        //Takes the rows of a day whose partition is missing, instead of failing the insert
+        jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+        log.info("Converted {} to a partitioned table, existing rows kept in {}", TABLE, legacy);
+    }
+
+    private List<AuditPartition> partitions() {
+        return jdbcTemplate.query(
+                "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?)",
+                (rs, rowNum) -> AuditPartition.parse(rs.getString(1), rs.getString(2)), TABLE);
+    }
+
+    private void createPartition(LocalDate day, boolean hasDefault) {
+        String name = TABLE + "_p" + day.format(PARTITION_SUFFIX);
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = day.plusDays(1).atStartOfDay();
+        String create = "CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + TABLE +
+                " FOR VALUES FROM ('" + from + "') TO ('" + to + "')";
+        Integer stray = hasDefault ? jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM " + DEFAULT_PARTITION + " WHERE created_at >= ? AND created_at < ?",
+                Integer.class, from, to) : null;
+        if (stray == null || stray == 0) {
+            jdbcTemplate.execute(create);
+            log.info("Created audit partition {}", name);
+            return;
+        }
+        //PostgreSQL refuses a partition for rows already in DEFAULT, they are moved in one transaction.
+        //Inserts wait for it, the DEFAULT partition only holds the days that had no partition.
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + DEFAULT_PARTITION);
+            jdbcTemplate.execute(create);
+            jdbcTemplate.update("INSERT INTO " + name + " (id, card_id, created_at, amount) " +
+                    "SELECT id, card_id, created_at, amount FROM " + DEFAULT_PARTITION +
+                    " WHERE created_at >= ? AND created_at < ?", from, to);
+            jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE created_at >= ? AND created_at < ?", from, to);
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + DEFAULT_PARTITION + " DEFAULT");
+        });
+        log.info("Created audit partition {} with the {} audits of that day held in {}", name, stray, DEFAULT_PARTITION);
+    }
+}
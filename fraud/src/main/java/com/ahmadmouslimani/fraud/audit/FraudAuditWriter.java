@@ -0,0 +1,204 @@
+package com.ahmadmouslimani.fraud.audit;
+
+import com.ahmadmouslimani.fraud.config.AuditWriterProperties;
+import com.ahmadmouslimani.fraud.entity.FraudAuditLog;
+import com.ahmadmouslimani.fraud.repository.FraudAuditLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the fraud audit rows in the background, so a fraud check does not wait for an insert.
+ * Audits go to a bounded lock-free queue and a single flusher thread inserts them with JDBC batches,
+ * every {@code flushInterval} or as soon as a batch is full. When the queue is full the check
+ * inserts its row itself. The queue is flushed on shutdown.
+ */
+@Component
+@Slf4j
+public class FraudAuditWriter implements DisposableBean {
+    private static final String INSERT_AUDIT = "INSERT INTO fraud_audit_log (id, card_id, created_at, amount) VALUES (?, ?, ?, ?)";
+
+    private final AuditWriterProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final FraudAuditLogRepository auditRepository;
+    private final Queue<PendingAudit> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final Thread flusher;
+    private volatile boolean running = true;
+    //Rows of a failed batch, retried first by the next flush
+    private List<PendingAudit> failed = List.of();
+
+    private final DistributionSummary batchSizes;
+    private final Counter directInserts;
+
+    public FraudAuditWriter(AuditWriterProperties properties, JdbcTemplate jdbcTemplate,
+                            FraudAuditLogRepository auditRepository, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.auditRepository = auditRepository;
+        Gauge.builder("fraud.audit.queue.depth", depth, AtomicInteger::get)
+                .description("Fraud audits waiting to be inserted")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("fraud.audit.flush.size")
+                .description("Fraud audit rows inserted per batch")
+                .register(meterRegistry);
+        this.directInserts = Counter.builder("fraud.audit.direct.inserts")
+                .description("Fraud audits inserted by the check itself, queue full or writer disabled")
+                .register(meterRegistry);
+
+        if (properties.enabled()) {
+            flusher = new Thread(this::flushLoop, "fraud-audit-writer");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    public void enqueue(UUID cardId, BigDecimal amount) {
+        if (flusher == null || !running) {
+            insertDirectly(cardId, amount);
+            return;
+        }
+        if (depth.incrementAndGet() > properties.queueCapacity()) {
+            depth.decrementAndGet();
+            insertDirectly(cardId, amount);
+            return;
+        }
+        queue.add(PendingAudit.of(cardId, amount));
+        if (depth.get() >= properties.batchSize()) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    /**
+     * Queues the audits of a batch of checks together, or inserts them in one JDBC batch when they do not fit.
+     */
+    public void enqueueAll(List<PendingAudit> audits) {
+        if (audits.isEmpty()) {
+            return;
+        }
+        boolean queued = flusher != null && running;
+        if (queued && depth.addAndGet(audits.size()) > properties.queueCapacity()) {
+            depth.addAndGet(-audits.size());
+            queued = false;
+        }
+        if (!queued) {
+            //A failed insert propagates to the caller, the checks were not audited
+            jdbcTemplate.batchUpdate(INSERT_AUDIT, rows(audits));
+            directInserts.increment(audits.size());
+            return;
+        }
+        queue.addAll(audits);
+        if (depth.get() >= properties.batchSize()) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    /**
+     * Inserts the audit on the calling thread, in its transaction if it has one.
+     */
+    public void insertNow(UUID cardId, BigDecimal amount) {
+        PendingAudit audit = PendingAudit.of(cardId, amount);
+        jdbcTemplate.update(INSERT_AUDIT, audit.id(), audit.cardId(), audit.createdAt(), audit.amount());
+    }
+
+    public int depth() {
+        return depth.get();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            flusher.join();
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            LockSupport.parkNanos(this, properties.flushInterval().toNanos());
+            flush();
+        }
+        //Drain what is left before the datasource closes
+        while (!queue.isEmpty() || !failed.isEmpty()) {
+            if (!flush()) {
+                log.error("Fraud audit writer stopped with {} audits not inserted", depth.get() + failed.size());
+                return;
+            }
+        }
+    }
+
+    //Inserts the failed rows, then the queue in batches. Returns false when an insert failed.
+    boolean flush() {
+        if (!failed.isEmpty() && !insert(failed)) {
+            return false;
+        }
+        failed = List.of();
+        List<PendingAudit> batch = new ArrayList<>(properties.batchSize());
+        PendingAudit audit;
+        while ((audit = queue.poll()) != null) {
+            depth.decrementAndGet();
+            batch.add(audit);
+            if (batch.size() == properties.batchSize()) {
+                if (!insert(batch)) {
+                    failed = batch;
+                    return false;
+                }
+                batch = new ArrayList<>(properties.batchSize());
+            }
+        }
+        if (!batch.isEmpty() && !insert(batch)) {
+            failed = batch;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean insert(List<PendingAudit> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_AUDIT, rows(batch));
+            batchSizes.record(batch.size());
+            return true;
+        } catch (RuntimeException ex) {
+            log.warn("Failed to insert {} fraud audits, will retry: {}", batch.size(), ex.getMessage());
+            return false;
+        }
+    }
+
+    private void insertDirectly(UUID cardId, BigDecimal amount) {
+        FraudAuditLog fraudAuditLog = new FraudAuditLog();
+        fraudAuditLog.setCardId(cardId);
+        fraudAuditLog.setAmount(amount);
+        auditRepository.save(fraudAuditLog);
+        directInserts.increment();
+    }
+
+    private static List<Object[]> rows(List<PendingAudit> audits) {
+        return audits.stream()
+                .map(audit -> new Object[]{audit.id(), audit.cardId(), audit.createdAt(), audit.amount()})
+                .toList();
+    }
+
+    public record PendingAudit(UUID id, UUID cardId, LocalDateTime createdAt, BigDecimal amount) {
+        public static PendingAudit of(UUID cardId, BigDecimal amount) {
+            return new PendingAudit(UUID.randomUUID(), cardId, LocalDateTime.now(), amount);
+        }
+    }
+}
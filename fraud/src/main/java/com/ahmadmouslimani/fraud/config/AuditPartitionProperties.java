@@ -0,0 +1,24 @@
+package com.ahmadmouslimani.fraud.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the daily partitions of the fraud audit table.
+ * @param enabled When false, the audit table is left as Hibernate created it
+ * @param convertTable Converts the table Hibernate created into a partitioned one at startup. Offline step: it holds
+ *                     an exclusive lock on the table while its rows are checked, enable it on one instance only
+ * @param retention Age from which a day of audits is dropped, must stay above the policy time interval
+ * @param precreateDays Number of days ahead for which partitions are created
+ * @param maintenanceInterval How often partitions are created and dropped
+ */
+@ConfigurationProperties(prefix = "app.audit-partitions")
+public record AuditPartitionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("false") boolean convertTable,
+        @DefaultValue("7d") Duration retention,
+        @DefaultValue("3") int precreateDays,
+        @DefaultValue("1h") Duration maintenanceInterval
+) {}
@@ -0,0 +1,9 @@
+package com.ahmadmouslimani.fraud.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({AuditWriterProperties.class, AuditPartitionProperties.class})
+public class AuditWriterConfig {
+}
@@ -0,0 +1,21 @@
+package com.ahmadmouslimani.fraud.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the asynchronous writer of fraud audit rows.
+ * @param enabled When false, each fraud check inserts its audit row itself
+ * @param queueCapacity Audits that may wait for a flush, beyond it the check inserts its row itself
+ * @param batchSize Rows per batch insert, a full batch is flushed without waiting for the interval
+ * @param flushInterval Maximum time an audit waits in the queue
+ */
+@ConfigurationProperties(prefix = "app.audit")
+public record AuditWriterProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") int queueCapacity,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("50ms") Duration flushInterval
+) {}
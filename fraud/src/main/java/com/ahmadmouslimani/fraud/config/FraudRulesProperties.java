@@ -0,0 +1,16 @@
+package com.ahmadmouslimani.fraud.config;
+
+import com.ahmadmouslimani.fraud.rules.FraudRuleDefinition;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Fraud rules evaluated along with the amount and frequency limits of the fraud policy.
+ * @param rules Rules defined as data, compiled once into the evaluation plan
+ */
+@ConfigurationProperties(prefix = "app.fraud-rules")
+public record FraudRulesProperties(
+        @DefaultValue List<FraudRuleDefinition> rules
+) {}
@@ -0,0 +1,21 @@
+package com.ahmadmouslimani.fraud.config;
+
+import com.ahmadmouslimani.fraud.velocity.CardVelocityTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Clock;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties({VelocityProperties.class, FraudRulesProperties.class})
+public class VelocityConfig {
+
+    @Bean
+    public CardVelocityTracker cardVelocityTracker(VelocityProperties properties, MeterRegistry meterRegistry) {
+        return new CardVelocityTracker(properties, meterRegistry, Clock.systemDefaultZone());
+    }
+}
@@ -0,0 +1,23 @@
+package com.ahmadmouslimani.fraud.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-memory per-card transaction counters.
+ * @param frequencyLimit Number of checks within the policy time interval from which a card is rejected
+ * @param historySize Latest checks kept per card, VELOCITY_COUNT thresholds are capped by it. Older checks are
+ *                    only kept as amount sums
+ * @param evictionInterval How often cards without a check in the last time interval are dropped
+ * @param shared Several instances check the same cards (no routing by card): the checks of a card are then
+ *               serialized by a database lock and counted from the audit table instead of memory
+ */
+@ConfigurationProperties(prefix = "app.velocity")
+public record VelocityProperties(
+        @DefaultValue("8") int frequencyLimit,
+        @DefaultValue("64") int historySize,
+        @DefaultValue("1m") Duration evictionInterval,
+        @DefaultValue("false") boolean shared
+) {}
@@ -5,22 +5,28 @@ import com.ahmadmouslimani.fraud.dto.FraudRequestDTO;
 import com.ahmadmouslimani.fraud.dto.FraudResponseDTO;
 import com.ahmadmouslimani.fraud.service.FraudAuditLogService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/fraud")
+@Validated
 @RequiredArgsConstructor
 @Slf4j
 @Tag(name = "Fraud API", description = "Operations for testing Fraud service")
@@ -57,4 +63,37 @@ public class FraudAuditLogController {
 
         return ResponseEntity.ok(response);
     }
+
+
+    @Operation(
+            summary = "Fraud check of many transactions",
+            description = "Checks many transactions in one call, with the same results as checking them one by one in the given order. Returns one result per transaction."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Transactions successfully checked for fraud",
+                    content = @Content(
+                            array = @ArraySchema(schema = @Schema(implementation = FraudResponseDTO.class))
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid request body",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Internal server error",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @PostMapping("/check/batch")
+    public ResponseEntity<List<FraudResponseDTO>> checkTransactions(
+            @RequestBody
+            @Size(min = 1, max = 1000, message = "Between 1 and 1000 transactions are allowed")
+            List<@Valid FraudRequestDTO> requests) {
+        log.debug("Request fraud check for {} transactions", requests.size());
+        return ResponseEntity.ok(fraudAuditLogService.validateTransactions(requests));
+    }
 }
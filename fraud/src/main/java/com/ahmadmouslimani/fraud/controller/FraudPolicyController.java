@@ -0,0 +1,63 @@
+package com.ahmadmouslimani.fraud.controller;
+
+import com.ahmadmouslimani.fraud.dto.ErrorResponseDTO;
+import com.ahmadmouslimani.fraud.dto.FraudPolicyRequestDTO;
+import com.ahmadmouslimani.fraud.dto.FraudPolicyResponseDTO;
+import com.ahmadmouslimani.fraud.service.FraudPolicyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/fraud/policy")
+@RequiredArgsConstructor
+@Tag(name = "Fraud Policy API", description = "Administration of the fraud limits")
+public class FraudPolicyController {
+    private final FraudPolicyService fraudPolicyService;
+
+    @Operation(
+            summary = "Get fraud policy",
+            description = "Returns the fraud policy currently applied by this instance."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Active fraud policy",
+            content = @Content(schema = @Schema(implementation = FraudPolicyResponseDTO.class))
+    )
+    @GetMapping
+    public ResponseEntity<FraudPolicyResponseDTO> getPolicy() {
+        return ResponseEntity.ok(fraudPolicyService.getPolicy());
+    }
+
+    @Operation(
+            summary = "Update fraud policy",
+            description = "Updates the fraud limits. This instance applies them at once, other instances within their refresh interval."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Fraud policy updated",
+                    content = @Content(schema = @Schema(implementation = FraudPolicyResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid request body",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @PutMapping
+    public ResponseEntity<FraudPolicyResponseDTO> updatePolicy(@Valid @RequestBody FraudPolicyRequestDTO request) {
+        return ResponseEntity.ok(fraudPolicyService.updatePolicy(request));
+    }
+}
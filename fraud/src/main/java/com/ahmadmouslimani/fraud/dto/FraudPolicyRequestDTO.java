@@ -0,0 +1,31 @@
+package com.ahmadmouslimani.fraud.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+@Schema(name = "FraudPolicyRequest", description = "Schema to hold the fraud policy limits")
+public record FraudPolicyRequestDTO(
+
+        @Schema(description = "Maximum amount of a single transaction", example = "10000")
+        @NotNull(message = "fraudLimit is required")
+        @Positive(message = "fraudLimit must be positive")
+        @Digits(integer = 17, fraction = 2, message = "Invalid fraudLimit format")
+        BigDecimal fraudLimit,
+
+        @Schema(description = "Time window of the frequency limit, ISO-8601 duration", example = "PT1H")
+        @NotNull(message = "timeInterval is required")
+        Duration timeInterval
+) {
+    @JsonIgnore
+    @AssertTrue(message = "timeInterval must be positive")
+    public boolean isTimeIntervalPositive() {
+        return timeInterval == null || !(timeInterval.isNegative() || timeInterval.isZero());
+    }
+}
@@ -0,0 +1,24 @@
+package com.ahmadmouslimani.fraud.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+
+@Schema(name = "FraudPolicyResponse", description = "Schema to hold the active fraud policy")
+public record FraudPolicyResponseDTO(
+        @Schema(description = "Policy Id", example = "295a95ff-9a67-4a4f-bff1-7b8558368673")
+        UUID id,
+
+        @Schema(description = "Maximum amount of a single transaction", example = "10000.00")
+        BigDecimal fraudLimit,
+
+        @Schema(description = "Time window of the frequency limit, ISO-8601 duration", example = "PT1H")
+        @JsonFormat(shape = JsonFormat.Shape.STRING)
+        Duration timeInterval,
+
+        @Schema(description = "Incremented on every update", example = "3")
+        long version
+) {}
@@ -18,5 +18,8 @@ public record FraudRequestDTO(
         @Schema(description = "Amount", example = "100.5")
         @NotNull(message = "Amount is required")
         @Digits(integer = 17, fraction = 2, message = "Invalid amount format")
-        BigDecimal amount
+        BigDecimal amount,
+
+        @Schema(description = "account Id of the card, matched by the per-account fraud rules", example = "7c1f0a0e-3f4b-4a55-9d47-2f1e3a1f8b21")
+        UUID accountId
 ) {}
\ No newline at end of file
@@ -11,6 +11,7 @@ import java.util.UUID;
 @Entity
 @Getter
 @Setter
+//Range-partitioned by day on createdAt, see FraudAuditPartitionManager
 @Table(indexes = @Index(columnList = "cardId, createdAt"))
 public class FraudAuditLog {
 
@@ -24,6 +25,10 @@ public class FraudAuditLog {
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    //Read back by the amount velocity rules, null for checks audited before it was recorded
+    @Column(precision = 19, scale = 2)
+    private BigDecimal amount;
+
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
@@ -9,6 +9,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.Duration;
@@ -28,4 +29,10 @@ public class FraudPolicy {
 
     @Column(nullable = false)
     private Duration timeInterval;
+
+    //Bumped on every update, instances compare it to know when to reload their cached policy
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
 }
\ No newline at end of file
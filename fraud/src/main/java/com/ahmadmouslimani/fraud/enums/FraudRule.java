@@ -1,7 +0,0 @@
-package com.ahmadmouslimani.fraud.enums;
-
-public enum FraudRule {
-    EXCEED_AMOUNT_LIMIT,
-    EXCEED_FREQUENCY_LIMIT,
-    NONE
-}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.ahmadmouslimani.fraud.enums;
+
+/**
+ * Kinds of fraud rules, ordered by their evaluation cost.
+ */
+public enum FraudRuleType {
+    //Amount of the transaction above the threshold
+    AMOUNT_LIMIT(1),
+    //First check of the card within the window, with an amount above the threshold
+    FIRST_USE(2),
+    //Earlier checks of the card within the window reaching the threshold
+    VELOCITY_COUNT(3),
+    //Amounts of the card within the window, this one included, above the threshold
+    VELOCITY_AMOUNT(4);
+
+    private final int cost;
+
+    FraudRuleType(int cost) {
+        this.cost = cost;
+    }
+
+    public int cost() {
+        return cost;
+    }
+
+    public boolean needsWindow() {
+        return this != AMOUNT_LIMIT;
+    }
+}
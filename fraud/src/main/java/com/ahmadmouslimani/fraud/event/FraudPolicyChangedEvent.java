@@ -0,0 +1,11 @@
+package com.ahmadmouslimani.fraud.event;
+
+import com.ahmadmouslimani.fraud.policy.FraudPolicySnapshot;
+
+/**
+ * Published when the fraud policy is updated, so the cached policy can be replaced once the update is committed.
+ * @param policy The policy as saved, with its new version
+ */
+public record FraudPolicyChangedEvent(
+        FraudPolicySnapshot policy
+) {}
@@ -0,0 +1,56 @@
+package com.ahmadmouslimani.fraud.policy;
+
+import com.ahmadmouslimani.fraud.event.FraudPolicyChangedEvent;
+import com.ahmadmouslimani.fraud.repository.FraudPolicyRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Keeps the active fraud policy in memory, so fraud checks read it without any database access.
+ * The policy is loaded on first use and replaced as a whole: directly after an update through
+ * this instance, or when the periodic version check sees an update made through another instance.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FraudPolicyHolder {
+    private final FraudPolicyRepository policyRepository;
+    private volatile FraudPolicySnapshot snapshot;
+
+    public FraudPolicySnapshot get() {
+        FraudPolicySnapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    public synchronized FraudPolicySnapshot refresh() {
+        snapshot = policyRepository.findFirstByOrderByIdAsc()
+                .map(FraudPolicySnapshot::of)
+                .orElseThrow(() -> new IllegalStateException("Fraud Policy not initialized"));
+        return snapshot;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onPolicyChanged(FraudPolicyChangedEvent event) {
+        //A concurrent refresh may already hold a newer version
+        if (snapshot == null || event.policy().version() >= snapshot.version()) {
+            snapshot = event.policy();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.fraud-policy.refresh-interval:5s}")
+    public void checkVersion() {
+        FraudPolicySnapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        policyRepository.findVersionById(current.id())
+                .filter(version -> version != current.version())
+                .ifPresent(version -> {
+                    log.info("Fraud Policy changed from version {} to {}, reloading", current.version(), version);
+                    refresh();
+                });
+    }
+}
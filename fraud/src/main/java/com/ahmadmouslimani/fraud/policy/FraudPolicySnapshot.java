@@ -0,0 +1,21 @@
+package com.ahmadmouslimani.fraud.policy;
+
+import com.ahmadmouslimani.fraud.entity.FraudPolicy;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Immutable copy of the active fraud policy, shared by all fraud checks.
+ */
+public record FraudPolicySnapshot(
+        UUID id,
+        BigDecimal fraudLimit,
+        Duration timeInterval,
+        long version
+) {
+    public static FraudPolicySnapshot of(FraudPolicy policy) {
+        return new FraudPolicySnapshot(policy.getId(), policy.getFraudLimit(), policy.getTimeInterval(), policy.getVersion());
+    }
+}
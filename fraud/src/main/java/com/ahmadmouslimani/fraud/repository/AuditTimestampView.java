@@ -0,0 +1,16 @@
+package com.ahmadmouslimani.fraud.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * The card, time and amount of one audited fraud check, enough to rebuild the card histories.
+ */
+public interface AuditTimestampView {
+    UUID getCardId();
+
+    LocalDateTime getCreatedAt();
+
+    BigDecimal getAmount();
+}
@@ -2,9 +2,12 @@ package com.ahmadmouslimani.fraud.repository;
 
 import com.ahmadmouslimani.fraud.entity.FraudAuditLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
@@ -12,4 +15,14 @@ public interface FraudAuditLogRepository extends JpaRepository<FraudAuditLog, UU
 
      //query is optimized by the index (cardId, createdAt)
     long countByCardIdAndCreatedAtAfter(UUID cardId, LocalDateTime timeThreshold);
+
+    //History of one card read from the table, uses the index (cardId, createdAt)
+    @Query("SELECT a.cardId AS cardId, a.createdAt AS createdAt, a.amount AS amount FROM FraudAuditLog a " +
+            "WHERE a.cardId = :cardId AND a.createdAt > :timeThreshold AND a.createdAt <= :until")
+    List<AuditTimestampView> findCardChecks(UUID cardId, LocalDateTime timeThreshold, LocalDateTime until);
+
+    //Histories of the cards of a batch check, one query for the whole batch
+    @Query("SELECT a.cardId AS cardId, a.createdAt AS createdAt, a.amount AS amount FROM FraudAuditLog a " +
+            "WHERE a.cardId IN :cardIds AND a.createdAt > :timeThreshold AND a.createdAt <= :until")
+    List<AuditTimestampView> findCardsChecks(Collection<UUID> cardIds, LocalDateTime timeThreshold, LocalDateTime until);
 }
\ No newline at end of file
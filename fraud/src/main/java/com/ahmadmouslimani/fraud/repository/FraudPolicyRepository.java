@@ -2,10 +2,18 @@ package com.ahmadmouslimani.fraud.repository;
 
 import com.ahmadmouslimani.fraud.entity.FraudPolicy;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface FraudPolicyRepository extends JpaRepository<FraudPolicy, UUID> {
+
+    Optional<FraudPolicy> findFirstByOrderByIdAsc();
+
+    //Single column read, cheap enough to poll for policy changes made through another instance
+    @Query("SELECT p.version FROM FraudPolicy p WHERE p.id = :id")
+    Optional<Long> findVersionById(UUID id);
 }
\ No newline at end of file
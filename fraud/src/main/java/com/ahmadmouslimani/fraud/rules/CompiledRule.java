@@ -0,0 +1,77 @@
+package com.ahmadmouslimani.fraud.rules;
+
+import com.ahmadmouslimani.fraud.dto.FraudRequestDTO;
+import com.ahmadmouslimani.fraud.velocity.CardHistory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fraud rule ready to evaluate: its thresholds are converted once and its meters registered once.
+ */
+final class CompiledRule {
+    private final String name;
+    private final String reason;
+    private final int cost;
+    private final Duration window;
+    private final UUID cardAccountId;
+    private final Condition condition;
+    private final Timer evaluationTime;
+    private final Counter hits;
+
+    CompiledRule(FraudRuleDefinition definition, Condition condition, MeterRegistry meterRegistry) {
+        this.name = definition.name();
+        this.reason = definition.reason();
+        this.cost = definition.type().cost();
+        this.window = definition.window();
+        this.cardAccountId = definition.cardAccountId();
+        this.condition = condition;
+        this.evaluationTime = Timer.builder("fraud.rule.evaluation")
+                .description("Time to evaluate one fraud rule")
+                .tag("rule", name)
+                .register(meterRegistry);
+        this.hits = Counter.builder("fraud.rule.hits")
+                .description("Fraud checks rejected by the rule")
+                .tag("rule", name)
+                .register(meterRegistry);
+    }
+
+    boolean matches(FraudRequestDTO request, long amountCents, CardHistory history) {
+        if (cardAccountId != null && !cardAccountId.equals(request.accountId())) {
+            return false;
+        }
+        long start = System.nanoTime();
+        boolean matched = condition.matches(request.amount(), amountCents, history);
+        evaluationTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (matched) {
+            hits.increment();
+        }
+        return matched;
+    }
+
+    String name() {
+        return name;
+    }
+
+    String reason() {
+        return reason;
+    }
+
+    int cost() {
+        return cost;
+    }
+
+    Duration window() {
+        return window;
+    }
+
+    @FunctionalInterface
+    interface Condition {
+        boolean matches(BigDecimal amount, long amountCents, CardHistory history);
+    }
+}
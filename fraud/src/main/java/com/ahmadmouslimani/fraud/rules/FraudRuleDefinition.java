@@ -0,0 +1,26 @@
+package com.ahmadmouslimani.fraud.rules;
+
+import com.ahmadmouslimani.fraud.enums.FraudRuleType;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * One fraud rule, defined as data.
+ * @param name Unique name of the rule, used as the tag of its metrics
+ * @param type Kind of the rule
+ * @param threshold Amount for the amount rules, number of checks for VELOCITY_COUNT
+ * @param window Time window of the card history, required by every type but AMOUNT_LIMIT
+ * @param cardAccountId When set, the rule only applies to the cards of this account, each card on its own: the
+ *                      velocity rules read the history of the card, not the sum of the checks of every card of the account
+ * @param reason Rejection reason returned when the rule matches
+ */
+public record FraudRuleDefinition(
+        String name,
+        FraudRuleType type,
+        BigDecimal threshold,
+        Duration window,
+        UUID cardAccountId,
+        String reason
+) {}
@@ -0,0 +1,156 @@
+package com.ahmadmouslimani.fraud.rules;
+
+import com.ahmadmouslimani.fraud.config.FraudRulesProperties;
+import com.ahmadmouslimani.fraud.config.VelocityProperties;
+import com.ahmadmouslimani.fraud.enums.FraudRuleType;
+import com.ahmadmouslimani.fraud.policy.FraudPolicySnapshot;
+import com.ahmadmouslimani.fraud.velocity.CardHistory;
+import com.ahmadmouslimani.fraud.velocity.CardVelocityTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiles the fraud rules into the evaluation plan of the active policy.
+ * The configured rules are validated and compiled once at startup, the amount and frequency limits
+ * of the policy are added to them whenever a new policy version is seen.
+ */
+@Component
+@Slf4j
+public class FraudRuleEngine {
+    static final String AMOUNT_LIMIT_RULE = "amount-limit";
+    static final String FREQUENCY_LIMIT_RULE = "frequency-limit";
+
+    private final VelocityProperties velocityProperties;
+    private final CardVelocityTracker velocityTracker;
+    private final MeterRegistry meterRegistry;
+    private final List<CompiledRule> configuredRules;
+    private volatile FraudRulePlan plan;
+
+    public FraudRuleEngine(FraudRulesProperties properties, VelocityProperties velocityProperties,
+                           CardVelocityTracker velocityTracker, MeterRegistry meterRegistry) {
+        this.velocityProperties = velocityProperties;
+        this.velocityTracker = velocityTracker;
+        this.meterRegistry = meterRegistry;
+
+        Set<String> names = new HashSet<>(Set.of(AMOUNT_LIMIT_RULE, FREQUENCY_LIMIT_RULE));
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (FraudRuleDefinition definition : properties.rules()) {
+            if (!names.add(definition.name())) {
+                throw new IllegalArgumentException("Duplicate fraud rule name: " + definition.name());
+            }
+            compiled.add(compile(definition));
+        }
+        this.configuredRules = List.copyOf(compiled);
+        log.info("Compiled {} configured fraud rules", configuredRules.size());
+    }
+
+    /**
+     * Returns the plan of the policy, compiled on the first check of each policy version.
+     */
+    public FraudRulePlan plan(FraudPolicySnapshot policy) {
+        FraudRulePlan current = plan;
+        if (current != null && current.isCompiledFor(policy.id(), policy.version())) {
+            return current;
+        }
+        return compilePlan(policy);
+    }
+
+    private synchronized FraudRulePlan compilePlan(FraudPolicySnapshot policy) {
+        FraudRulePlan current = plan;
+        if (current != null && current.isCompiledFor(policy.id(), policy.version())) {
+            return current;
+        }
+        List<CompiledRule> rules = new ArrayList<>(configuredRules.size() + 2);
+        rules.add(compile(new FraudRuleDefinition(AMOUNT_LIMIT_RULE, FraudRuleType.AMOUNT_LIMIT,
+                policy.fraudLimit(), null, null, "Transaction amount exceeds $" + policy.fraudLimit())));
+        rules.add(compile(new FraudRuleDefinition(FREQUENCY_LIMIT_RULE, FraudRuleType.VELOCITY_COUNT,
+                BigDecimal.valueOf(velocityProperties.frequencyLimit()), policy.timeInterval(), null,
+                "Frequency limit exceeded: more than " + velocityProperties.frequencyLimit() + " transactions in "
+                        + describe(policy.timeInterval()))));
+        rules.addAll(configuredRules);
+
+        FraudRulePlan compiled = new FraudRulePlan(policy.id(), policy.version(), rules);
+        velocityTracker.retainFor(compiled.maxWindow());
+        plan = compiled;
+        log.info("Compiled fraud rule plan for policy version {}: {}", policy.version(), compiled.ruleNames());
+        return compiled;
+    }
+
+    //Largest whole unit of the window, e.g. "1 hour" or "90 minutes"
+    static String describe(Duration window) {
+        long seconds = window.toSeconds();
+        long[] unitSeconds = {86400, 3600, 60, 1};
+        String[] units = {"day", "hour", "minute", "second"};
+        for (int i = 0; i < units.length - 1; i++) {
+            if (seconds % unitSeconds[i] == 0) {
+                return plural(seconds / unitSeconds[i], units[i]);
+            }
+        }
+        return plural(seconds, units[units.length - 1]);
+    }
+
+    private static String plural(long count, String unit) {
+        return count + " " + unit + (count == 1 ? "" : "s");
+    }
+
+    private CompiledRule compile(FraudRuleDefinition definition) {
+        validate(definition);
+        Duration window = definition.window();
+        CompiledRule.Condition condition = switch (definition.type()) {
+            case AMOUNT_LIMIT -> {
+                BigDecimal limit = definition.threshold();
+                yield (amount, amountCents, history) -> amount.compareTo(limit) > 0;
+            }
+            case FIRST_USE -> {
+                long limitCents = CardHistory.toCents(definition.threshold());
+                yield (amount, amountCents, history) -> amountCents > limitCents && history.countWithin(window) == 0;
+            }
+            case VELOCITY_COUNT -> {
+                int limit = definition.threshold().intValueExact();
+                yield (amount, amountCents, history) -> history.countWithin(window) >= limit;
+            }
+            case VELOCITY_AMOUNT -> {
+                long limitCents = CardHistory.toCents(definition.threshold());
+                yield (amount, amountCents, history) -> history.amountWithin(window) + amountCents > limitCents;
+            }
+        };
+        return new CompiledRule(definition, condition, meterRegistry);
+    }
+
+    private void validate(FraudRuleDefinition definition) {
+        String name = definition.name();
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Fraud rule name is required");
+        }
+        if (definition.type() == null) {
+            throw new IllegalArgumentException("Fraud rule " + name + " has no type");
+        }
+        if (definition.reason() == null || definition.reason().isBlank()) {
+            throw new IllegalArgumentException("Fraud rule " + name + " has no rejection reason");
+        }
+        if (definition.threshold() == null && definition.type() != FraudRuleType.FIRST_USE) {
+            throw new IllegalArgumentException("Fraud rule " + name + " has no threshold");
+        }
+        if (definition.threshold() != null && definition.threshold().signum() < 0) {
+            throw new IllegalArgumentException("Fraud rule " + name + " has a negative threshold");
+        }
+        Duration window = definition.window();
+        if (definition.type().needsWindow() && (window == null || window.isNegative() || window.isZero())) {
+            throw new IllegalArgumentException("Fraud rule " + name + " needs a positive window");
+        }
+        //Only the latest history-size checks of a card are kept, a higher count could never be reached
+        if (definition.type() == FraudRuleType.VELOCITY_COUNT
+                && definition.threshold().compareTo(BigDecimal.valueOf(velocityTracker.capacity())) > 0) {
+            throw new IllegalArgumentException("Fraud rule " + name + " counts more checks than app.velocity.history-size ("
+                    + velocityTracker.capacity() + ")");
+        }
+    }
+}
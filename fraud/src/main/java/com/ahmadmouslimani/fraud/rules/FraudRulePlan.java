@@ -0,0 +1,66 @@
+package com.ahmadmouslimani.fraud.rules;
+
+import com.ahmadmouslimani.fraud.dto.FraudRequestDTO;
+import com.ahmadmouslimani.fraud.velocity.CardHistory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * The fraud rules of one policy version, cheapest first.
+ * Evaluation stops at the first rule that matches, so the order of rules of the same cost is kept:
+ * the policy rules come before the configured ones.
+ */
+public final class FraudRulePlan {
+    private final UUID policyId;
+    private final long policyVersion;
+    private final CompiledRule[] rules;
+    private final Duration maxWindow;
+
+    FraudRulePlan(UUID policyId, long policyVersion, List<CompiledRule> rules) {
+        this.policyId = policyId;
+        this.policyVersion = policyVersion;
+        this.rules = rules.stream()
+                .sorted(Comparator.comparingInt(CompiledRule::cost))
+                .toArray(CompiledRule[]::new);
+        this.maxWindow = rules.stream()
+                .map(CompiledRule::window)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(Duration.ZERO);
+    }
+
+    /**
+     * Returns the rejection reason of the first matching rule, empty when the transaction is approved.
+     * @param history Earlier checks of the card, not including this one
+     */
+    public Optional<String> evaluate(FraudRequestDTO request, CardHistory history) {
+        long amountCents = CardHistory.toCents(request.amount());
+        for (CompiledRule rule : rules) {
+            if (rule.matches(request, amountCents, history)) {
+                return Optional.of(rule.reason());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Longest window of the rules, older checks of a card are never read.
+     */
+    public Duration maxWindow() {
+        return maxWindow;
+    }
+
+    public List<String> ruleNames() {
+        return Arrays.stream(rules).map(CompiledRule::name).toList();
+    }
+
+    boolean isCompiledFor(UUID policyId, long policyVersion) {
+        return this.policyVersion == policyVersion && Objects.equals(this.policyId, policyId);
+    }
+}
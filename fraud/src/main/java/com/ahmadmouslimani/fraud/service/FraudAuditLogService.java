@@ -3,9 +3,10 @@ package com.ahmadmouslimani.fraud.service;
 import com.ahmadmouslimani.fraud.dto.FraudRequestDTO;
 import com.ahmadmouslimani.fraud.dto.FraudResponseDTO;
 
-import java.math.BigDecimal;
-import java.util.UUID;
+import java.util.List;
 
 public interface FraudAuditLogService {
     FraudResponseDTO validateTransaction(FraudRequestDTO request);
+
+    List<FraudResponseDTO> validateTransactions(List<FraudRequestDTO> requests);
 }
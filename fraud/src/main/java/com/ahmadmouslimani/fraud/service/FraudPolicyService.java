@@ -0,0 +1,10 @@
+package com.ahmadmouslimani.fraud.service;
+
+import com.ahmadmouslimani.fraud.dto.FraudPolicyRequestDTO;
+import com.ahmadmouslimani.fraud.dto.FraudPolicyResponseDTO;
+
+public interface FraudPolicyService {
+    FraudPolicyResponseDTO getPolicy();
+
+    FraudPolicyResponseDTO updatePolicy(FraudPolicyRequestDTO request);
+}
@@ -1,59 +1,143 @@
 package com.ahmadmouslimani.fraud.service.impl;
 
+import com.ahmadmouslimani.fraud.audit.FraudAuditWriter;
+import com.ahmadmouslimani.fraud.config.VelocityProperties;
 import com.ahmadmouslimani.fraud.dto.FraudRequestDTO;
 import com.ahmadmouslimani.fraud.dto.FraudResponseDTO;
-import com.ahmadmouslimani.fraud.entity.FraudAuditLog;
-import com.ahmadmouslimani.fraud.entity.FraudPolicy;
-import com.ahmadmouslimani.fraud.enums.FraudRule;
+import com.ahmadmouslimani.fraud.policy.FraudPolicyHolder;
+import com.ahmadmouslimani.fraud.policy.FraudPolicySnapshot;
+import com.ahmadmouslimani.fraud.repository.AuditTimestampView;
 import com.ahmadmouslimani.fraud.repository.FraudAuditLogRepository;
-import com.ahmadmouslimani.fraud.repository.FraudPolicyRepository;
+import com.ahmadmouslimani.fraud.rules.FraudRuleEngine;
+import com.ahmadmouslimani.fraud.rules.FraudRulePlan;
 import com.ahmadmouslimani.fraud.service.FraudAuditLogService;
+import com.ahmadmouslimani.fraud.velocity.CardCheckLock;
+import com.ahmadmouslimani.fraud.velocity.CardHistory;
+import com.ahmadmouslimani.fraud.velocity.CardVelocityTracker;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class FraudAuditLogServiceImpl implements FraudAuditLogService {
-    private final FraudPolicyRepository policyRepository;
+    private final FraudPolicyHolder policyHolder;
     private final FraudAuditLogRepository auditRepository;
+    private final FraudAuditWriter auditWriter;
+    private final CardVelocityTracker velocityTracker;
+    private final FraudRuleEngine ruleEngine;
+    private final VelocityProperties velocityProperties;
+    private final CardCheckLock cardCheckLock;
 
-    @Transactional
+    //No transaction: the policy, the rules and the card history are read from memory and the audit row is written in the background
     public FraudResponseDTO validateTransaction(FraudRequestDTO request) {
-        FraudPolicy policy = policyRepository.findAll().stream()
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException("Fraud Policy not initialized"));
+        FraudPolicySnapshot policy = policyHolder.get();
+        FraudRulePlan plan = ruleEngine.plan(policy);
+        if (velocityProperties.shared()) {
+            return validateShared(request, plan);
+        }
 
-        FraudRule rule = determineFraudRule(request, policy);
-        FraudResponseDTO response = switch (rule) {
-            case EXCEED_AMOUNT_LIMIT -> FraudResponseDTO.rejected("Transaction amount exceeds $" + policy.getFraudLimit());
-            case EXCEED_FREQUENCY_LIMIT -> FraudResponseDTO.rejected("Frequency limit exceeded: more than 8 transactions in 1 hour");
-            default -> FraudResponseDTO.approved();
-        };
+        //Every check is audited, so every check counts towards the velocity of its card
+        CardHistory history = cardHistory(request, plan.maxWindow());
+        FraudResponseDTO response = evaluate(plan, request, history);
 
         saveAudit(request);
         return response;
     }
 
+    //Same result as checking the requests one by one in the given order: each item sees the earlier items of its card
+    public List<FraudResponseDTO> validateTransactions(List<FraudRequestDTO> requests) {
+        FraudPolicySnapshot policy = policyHolder.get();
+        FraudRulePlan plan = ruleEngine.plan(policy);
+        if (velocityProperties.shared()) {
+            return requests.stream().map(request -> validateShared(request, plan)).toList();
+        }
+
+        Map<UUID, List<AuditTimestampView>> storedChecks = velocityTracker.isWarm() ?
+                Map.of() : storedChecks(requests, plan.maxWindow());
+        List<FraudResponseDTO> responses = new ArrayList<>(requests.size());
+        List<FraudAuditWriter.PendingAudit> audits = new ArrayList<>(requests.size());
+        for (FraudRequestDTO request : requests) {
+            CardHistory history = velocityTracker.recordAndGet(request.cardId(), CardHistory.toCents(request.amount()));
+            List<AuditTimestampView> stored = storedChecks.get(request.cardId());
+            if (stored != null) {
+                history = withStoredChecks(history, stored);
+            }
+            responses.add(evaluate(plan, request, history));
+            audits.add(FraudAuditWriter.PendingAudit.of(request.cardId(), request.amount()));
+        }
+
+        auditWriter.enqueueAll(audits);
+        return responses;
+    }
+
+    private FraudResponseDTO evaluate(FraudRulePlan plan, FraudRequestDTO request, CardHistory history) {
+        return plan.evaluate(request, history)
+                .map(FraudResponseDTO::rejected)
+                .orElseGet(FraudResponseDTO::approved);
+    }
+
     private void saveAudit(FraudRequestDTO request) {
-        FraudAuditLog fraudAuditLog = new FraudAuditLog();
-        fraudAuditLog.setCardId(request.cardId());
-        auditRepository.save(fraudAuditLog);
+        auditWriter.enqueue(request.cardId(), request.amount());
     }
 
-    private FraudRule determineFraudRule(FraudRequestDTO request, FraudPolicy policy) {
-        if (request.amount().compareTo(policy.getFraudLimit()) > 0) {
-            return FraudRule.EXCEED_AMOUNT_LIMIT;
+    //The tracker reads and records the check atomically per card, so concurrent checks of a card always see each other
+    private CardHistory cardHistory(FraudRequestDTO request, Duration maxWindow) {
+        CardHistory history = velocityTracker.recordAndGet(request.cardId(), CardHistory.toCents(request.amount()));
+        if (velocityTracker.isWarm()) {
+            return history;
+        }
+        //Until warm, the tracker lacks the checks made before it started: those are read from the audit table.
+        //Later checks are all in the tracker, reading them from the table would miss the concurrent ones.
+        LocalDateTime timeThreshold = LocalDateTime.now().minus(maxWindow);
+        LocalDateTime until = LocalDateTime.ofInstant(velocityTracker.recordingSince(), ZoneId.systemDefault());
+        if (!timeThreshold.isBefore(until)) {
+            return history;
         }
-        LocalDateTime window = LocalDateTime.now().minus(policy.getTimeInterval());
-        long count = auditRepository.countByCardIdAndCreatedAtAfter(request.cardId(), window);
-        if (count >= 8) {
-            return FraudRule.EXCEED_FREQUENCY_LIMIT;
+        return withStoredChecks(history, auditRepository.findCardChecks(request.cardId(), timeThreshold, until));
+    }
+
+    //One audit query for all the cards of the batch, limited to the checks made before the tracker started
+    private Map<UUID, List<AuditTimestampView>> storedChecks(List<FraudRequestDTO> requests, Duration maxWindow) {
+        LocalDateTime timeThreshold = LocalDateTime.now().minus(maxWindow);
+        LocalDateTime until = LocalDateTime.ofInstant(velocityTracker.recordingSince(), ZoneId.systemDefault());
+        if (!timeThreshold.isBefore(until)) {
+            return Map.of();
         }
-        return FraudRule.NONE;
+        Set<UUID> cardIds = requests.stream().map(FraudRequestDTO::cardId).collect(Collectors.toSet());
+        return auditRepository.findCardsChecks(cardIds, timeThreshold, until).stream()
+                .collect(Collectors.groupingBy(AuditTimestampView::getCardId));
+    }
+
+    private CardHistory withStoredChecks(CardHistory recent, List<AuditTimestampView> stored) {
+        CardHistory.Builder builder = new CardHistory.Builder(recent);
+        stored.forEach(check -> builder.add(check.getCreatedAt(), check.getAmount()));
+        return builder.build();
+    }
+
+    //Instances without routing by card: the check holds the card's database lock until its audit row is committed
+    private FraudResponseDTO validateShared(FraudRequestDTO request, FraudRulePlan plan) {
+        return cardCheckLock.withLock(request.cardId(), () -> {
+            Instant now = Instant.now();
+            LocalDateTime timeThreshold = LocalDateTime.ofInstant(now.minus(plan.maxWindow()), ZoneId.systemDefault());
+            //No upper bound that matters: rows of an instance whose clock is ahead must be counted too
+            LocalDateTime until = LocalDateTime.ofInstant(now.plus(plan.maxWindow()), ZoneId.systemDefault());
+            CardHistory.Builder builder = new CardHistory.Builder(now.toEpochMilli());
+            auditRepository.findCardChecks(request.cardId(), timeThreshold, until)
+                    .forEach(check -> builder.add(check.getCreatedAt(), check.getAmount()));
+            FraudResponseDTO response = evaluate(plan, request, builder.build());
+            auditWriter.insertNow(request.cardId(), request.amount());
+            return response;
+        });
     }
 }
@@ -0,0 +1,45 @@
+package com.ahmadmouslimani.fraud.service.impl;
+
+import com.ahmadmouslimani.fraud.dto.FraudPolicyRequestDTO;
+import com.ahmadmouslimani.fraud.dto.FraudPolicyResponseDTO;
+import com.ahmadmouslimani.fraud.entity.FraudPolicy;
+import com.ahmadmouslimani.fraud.event.FraudPolicyChangedEvent;
+import com.ahmadmouslimani.fraud.policy.FraudPolicyHolder;
+import com.ahmadmouslimani.fraud.policy.FraudPolicySnapshot;
+import com.ahmadmouslimani.fraud.repository.FraudPolicyRepository;
+import com.ahmadmouslimani.fraud.service.FraudPolicyService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@RequiredArgsConstructor
+public class FraudPolicyServiceImpl implements FraudPolicyService {
+    private final FraudPolicyRepository policyRepository;
+    private final FraudPolicyHolder policyHolder;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public FraudPolicyResponseDTO getPolicy() {
+        return mapToDto(policyHolder.get());
+    }
+
+    @Override
+    @Transactional
+    public FraudPolicyResponseDTO updatePolicy(FraudPolicyRequestDTO request) {
+        FraudPolicy policy = policyRepository.findFirstByOrderByIdAsc()
+                .orElseThrow(() -> new IllegalStateException("Fraud Policy not initialized"));
+        policy.setFraudLimit(request.fraudLimit());
+        policy.setTimeInterval(request.timeInterval());
+
+        //Flush so the snapshot carries the incremented version
+        FraudPolicySnapshot snapshot = FraudPolicySnapshot.of(policyRepository.saveAndFlush(policy));
+        eventPublisher.publishEvent(new FraudPolicyChangedEvent(snapshot));
+        return mapToDto(snapshot);
+    }
+
+    private FraudPolicyResponseDTO mapToDto(FraudPolicySnapshot policy) {
+        return new FraudPolicyResponseDTO(policy.id(), policy.fraudLimit(), policy.timeInterval(), policy.version());
+    }
+}
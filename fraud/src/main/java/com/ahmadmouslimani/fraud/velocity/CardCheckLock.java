@@ -0,0 +1,43 @@
+package com.ahmadmouslimani.fraud.velocity;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Serializes the checks of one card across fraud instances, for deployments that do not route each card
+ * to the same instance. The lock is a PostgreSQL advisory lock held by the transaction of the check, so it
+ * is released on commit or rollback. Checks of different cards do not wait for each other, except on the
+ * rare collision of two cards on the same 64-bit lock key.
+ */
+@Component
+public class CardCheckLock {
+    private static final ResultSetExtractor<Void> IGNORE = rs -> null;
+
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    public CardCheckLock(PlatformTransactionManager transactionManager, JdbcTemplate jdbcTemplate) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Runs the check in a transaction holding the lock of the card, its audit must be inserted in that transaction.
+     */
+    public <T> T withLock(UUID cardId, Supplier<T> check) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", IGNORE, lockKey(cardId));
+            return check.get();
+        });
+    }
+
+    static long lockKey(UUID cardId) {
+        return cardId.getMostSignificantBits() ^ cardId.getLeastSignificantBits();
+    }
+}
@@ -0,0 +1,114 @@
+package com.ahmadmouslimani.fraud.velocity;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Earlier checks of one card, as seen by the current check: their time in epoch millis and amount in cents.
+ * The checks pushed out of a full in-memory history are only kept as sums per time bucket. Amount sums
+ * include every bucket ending within the window, so they may count checks up to one bucket older.
+ */
+public final class CardHistory {
+    //Caps one amount so that the sum of a full history cannot overflow a long
+    private static final BigDecimal MAX_CENTS = BigDecimal.valueOf(100_000_000_000_000_000L);
+    private static final long[] NO_BUCKETS = new long[0];
+
+    private final long now;
+    private final long[] timestamps;
+    private final long[] amounts;
+    private final int size;
+    //Exclusive end and cents of each bucket of pushed out checks, empty when none was
+    private final long[] bucketEnds;
+    private final long[] bucketCents;
+
+    CardHistory(long now, long[] timestamps, long[] amounts, int size) {
+        this(now, timestamps, amounts, size, NO_BUCKETS, NO_BUCKETS);
+    }
+
+    CardHistory(long now, long[] timestamps, long[] amounts, int size, long[] bucketEnds, long[] bucketCents) {
+        this.now = now;
+        this.timestamps = timestamps;
+        this.amounts = amounts;
+        this.size = size;
+        this.bucketEnds = bucketEnds;
+        this.bucketCents = bucketCents;
+    }
+
+    public int countWithin(Duration window) {
+        long threshold = now - window.toMillis();
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (timestamps[i] > threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long amountWithin(Duration window) {
+        long threshold = now - window.toMillis();
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            if (timestamps[i] > threshold) {
+                sum += amounts[i];
+            }
+        }
+        for (int i = 0; i < bucketEnds.length; i++) {
+            if (bucketEnds[i] > threshold) {
+                sum += bucketCents[i];
+            }
+        }
+        return sum;
+    }
+
+    public static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.movePointRight(2).min(MAX_CENTS).longValue();
+    }
+
+    /**
+     * Collects the checks read from the audit table, when the in-memory history is not complete.
+     */
+    public static final class Builder {
+        private final long now;
+        private long[] timestamps = new long[16];
+        private long[] amounts = new long[16];
+        private int size;
+        private long[] bucketEnds = NO_BUCKETS;
+        private long[] bucketCents = NO_BUCKETS;
+
+        public Builder(long now) {
+            this.now = now;
+        }
+
+        //Starts from the checks of the in-memory history
+        public Builder(CardHistory recent) {
+            this.now = recent.now;
+            this.timestamps = Arrays.copyOf(recent.timestamps, Math.max(16, recent.size * 2));
+            this.amounts = Arrays.copyOf(recent.amounts, timestamps.length);
+            this.size = recent.size;
+            this.bucketEnds = recent.bucketEnds;
+            this.bucketCents = recent.bucketCents;
+        }
+
+        public Builder add(LocalDateTime createdAt, BigDecimal amount) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                amounts = Arrays.copyOf(amounts, size * 2);
+            }
+            timestamps[size] = createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            amounts[size] = toCents(amount);
+            size++;
+            return this;
+        }
+
+        public CardHistory build() {
+            return new CardHistory(now, timestamps, amounts, size, bucketEnds, bucketCents);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.ahmadmouslimani.fraud.velocity;
+
+import com.ahmadmouslimani.fraud.config.VelocityProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the latest fraud checks of each card in memory: their time and amount.
+ * Each card holds at most {@code historySize} checks in two fixed long arrays, which bounds the
+ * velocity rules a check can evaluate, so a check costs the same whatever the size of the audit
+ * table. The FraudAuditLog table stays the durable record: the history is rebuilt from it at
+ * startup and is only trusted once that warm-up is done.
+ * A check pushed out of a full history is added to per card time buckets spanning the retention, allocated
+ * on the first one, so amount sums still see every check of their window. Counts only see the history.
+ */
+@Slf4j
+public class CardVelocityTracker {
+    private final ConcurrentMap<UUID, Checks> cards = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final Clock clock;
+    private final Instant recordingSince;
+    private volatile long retentionMillis;
+    private volatile boolean warm;
+
+    public CardVelocityTracker(VelocityProperties properties, MeterRegistry meterRegistry, Clock clock) {
+        this.capacity = properties.historySize();
+        this.clock = clock;
+        this.recordingSince = clock.instant();
+        Gauge.builder("fraud.velocity.cards", cards, ConcurrentMap::size)
+                .description("Cards with a fraud check in the current time window")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records a check of the card and returns its earlier checks, at most {@code historySize} of them.
+     */
+    public CardHistory recordAndGet(UUID cardId, long amountCents) {
+        long now = clock.millis();
+        CardHistory[] history = new CardHistory[1];
+        //compute() keeps the read and the insert atomic per card, and excludes a concurrent eviction of the entry
+        cards.compute(cardId, (id, checks) -> {
+            Checks entry = checks != null ? checks : new Checks(capacity);
+            history[0] = entry.history(now);
+            entry.add(now, amountCents, retentionMillis);
+            return entry;
+        });
+        return history[0];
+    }
+
+    /**
+     * Time from which every check went through {@link #recordAndGet}, earlier checks are only in the audit table.
+     */
+    public Instant recordingSince() {
+        return recordingSince;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Adds a past check, read from the audit table during warm-up.
+     */
+    public void restore(UUID cardId, Instant checkedAt, long amountCents) {
+        cards.compute(cardId, (id, checks) -> {
+            Checks entry = checks != null ? checks : new Checks(capacity);
+            entry.add(checkedAt.toEpochMilli(), amountCents, retentionMillis);
+            return entry;
+        });
+    }
+
+    /**
+     * Sets how long checks are needed by the rules, cards without a check for longer are evicted.
+     */
+    public void retainFor(Duration window) {
+        retentionMillis = window.toMillis();
+    }
+
+    /**
+     * Marks the history as complete, until then callers should read the checks from the audit table.
+     */
+    public void markWarm() {
+        warm = true;
+    }
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+    public int size() {
+        return cards.size();
+    }
+
+    //Drops the cards without any check in the retention window, no rule would see their checks
+    @Scheduled(fixedDelayString = "${app.velocity.eviction-interval:1m}")
+    public void evictIdle() {
+        if (!warm) {
+            return;
+        }
+        long threshold = clock.millis() - retentionMillis;
+        int before = cards.size();
+        for (UUID cardId : cards.keySet()) {
+            cards.computeIfPresent(cardId, (id, entry) -> entry.newest() > threshold ? entry : null);
+        }
+        log.debug("Evicted {} idle card velocity counters", before - cards.size());
+    }
+
+    //Latest checks of one card, time in epoch millis and amount in cents. Slots are overwritten oldest first.
+    private static final class Checks {
+        //Buckets of the checks pushed out of the history, enough for a bucket to stay small against the window
+        private static final int BUCKETS = 64;
+
+        private final long[] timestamps;
+        private final long[] amounts;
+        //Null until a check is pushed out. Exclusive end of each bucket and the cents of its checks.
+        private long[] bucketEnds;
+        private long[] bucketCents;
+        private long bucketMillis;
+
+        private Checks(int capacity) {
+            this.timestamps = new long[capacity];
+            this.amounts = new long[capacity];
+            Arrays.fill(timestamps, Long.MIN_VALUE);
+        }
+
+        private CardHistory history(long now) {
+            if (bucketEnds == null) {
+                return new CardHistory(now, timestamps.clone(), amounts.clone(), timestamps.length);
+            }
+            return new CardHistory(now, timestamps.clone(), amounts.clone(), timestamps.length,
+                    bucketEnds.clone(), bucketCents.clone());
+        }
+
+        //Replaces the oldest slot, so warm-up may add checks older than the live ones in any order.
+        //The check pushed out, or the added one when it is the oldest, goes to the buckets.
+        private void add(long timestamp, long amount, long retentionMillis) {
+            int oldest = 0;
+            for (int i = 1; i < timestamps.length; i++) {
+                if (timestamps[i] < timestamps[oldest]) {
+                    oldest = i;
+                }
+            }
+            if (timestamp >= timestamps[oldest]) {
+                spill(timestamps[oldest], amounts[oldest], retentionMillis);
+                timestamps[oldest] = timestamp;
+                amounts[oldest] = amount;
+            } else {
+                spill(timestamp, amount, retentionMillis);
+            }
+        }
+
+        private void spill(long timestamp, long amount, long retentionMillis) {
+            //An empty slot, or no rule window yet
+            if (timestamp == Long.MIN_VALUE || retentionMillis <= 0) {
+                return;
+            }
+            if (bucketEnds == null || bucketMillis * BUCKETS < retentionMillis) {
+                rebucket((retentionMillis + BUCKETS - 1) / BUCKETS);
+            }
+            long end = (Math.floorDiv(timestamp, bucketMillis) + 1) * bucketMillis;
+            int slot = (int) Math.floorMod(end / bucketMillis, (long) BUCKETS);
+            if (bucketEnds[slot] == end) {
+                bucketCents[slot] += amount;
+            } else if (bucketEnds[slot] < end) {
+                //The slot held a bucket older than the retention
+                bucketEnds[slot] = end;
+                bucketCents[slot] = amount;
+            }
+            //Else the check is older than the retention
+        }
+
+        //Allocates the buckets, or widens them when the retention grew, keeping the sums already spilled
+        private void rebucket(long millis) {
+            long[] ends = bucketEnds;
+            long[] cents = bucketCents;
+            bucketMillis = millis;
+            bucketEnds = new long[BUCKETS];
+            bucketCents = new long[BUCKETS];
+            Arrays.fill(bucketEnds, Long.MIN_VALUE);
+            if (ends != null) {
+                for (int i = 0; i < ends.length; i++) {
+                    if (ends[i] != Long.MIN_VALUE) {
+                        spill(ends[i] - 1, cents[i], millis * BUCKETS);
+                    }
+                }
+            }
+        }
+
+        private long newest() {
+            long newest = Long.MIN_VALUE;
+            for (long timestamp : timestamps) {
+                newest = Math.max(newest, timestamp);
+            }
+            return newest;
+        }
+    }
+}
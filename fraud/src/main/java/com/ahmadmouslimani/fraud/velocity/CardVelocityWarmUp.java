@@ -0,0 +1,81 @@
+package com.ahmadmouslimani.fraud.velocity;
+
+import com.ahmadmouslimani.fraud.policy.FraudPolicyHolder;
+import com.ahmadmouslimani.fraud.policy.FraudPolicySnapshot;
+import com.ahmadmouslimani.fraud.rules.FraudRuleEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+/**
+ * Rebuilds the card histories from the audit table once the policy is initialized.
+ * Runs before the service reports itself ready to take traffic. Checks served meanwhile are
+ * read from the audit table and already recorded in the histories, so only the audit rows
+ * older than the histories are loaded, back to the longest window of the fraud rules.
+ * The rows are streamed with a cursor and fed to the tracker one by one, so the window is never held in memory.
+ */
+@Component
+@Slf4j
+public class CardVelocityWarmUp {
+    static final String SELECT_CHECKS =
+            "SELECT card_id, created_at, amount FROM fraud_audit_log WHERE created_at > ? AND created_at <= ?";
+    private static final int FETCH_SIZE = 5_000;
+
+    private final FraudPolicyHolder policyHolder;
+    private final FraudRuleEngine ruleEngine;
+    private final CardVelocityTracker velocityTracker;
+    private final JdbcTemplate jdbcTemplate;
+    //PostgreSQL only streams with a cursor inside a transaction
+    private final TransactionTemplate readOnly;
+
+    public CardVelocityWarmUp(FraudPolicyHolder policyHolder, FraudRuleEngine ruleEngine, CardVelocityTracker velocityTracker,
+                              JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.policyHolder = policyHolder;
+        this.ruleEngine = ruleEngine;
+        this.velocityTracker = velocityTracker;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        FraudPolicySnapshot policy;
+        try {
+            policy = policyHolder.get();
+        } catch (IllegalStateException ex) {
+            log.warn("No Fraud Policy found, card histories are read from the audit table");
+            return;
+        }
+        Duration window = ruleEngine.plan(policy).maxWindow();
+
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDateTime since = LocalDateTime.now().minus(window);
+        LocalDateTime until = LocalDateTime.ofInstant(velocityTracker.recordingSince(), zone);
+        long[] checks = new long[1];
+        readOnly.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_CHECKS);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setObject(1, since);
+            statement.setObject(2, until);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            velocityTracker.restore(rs.getObject(1, UUID.class), rs.getObject(2, LocalDateTime.class).atZone(zone).toInstant(),
+                    CardHistory.toCents(rs.getBigDecimal(3)));
+            checks[0]++;
+        }));
+        velocityTracker.markWarm();
+        log.info("Card histories warmed up from {} audited checks of {} cards", checks[0], velocityTracker.size());
+    }
+}
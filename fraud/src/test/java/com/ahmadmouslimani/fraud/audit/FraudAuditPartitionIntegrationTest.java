@@ -0,0 +1,107 @@
+package com.ahmadmouslimani.fraud.audit;
+
+import com.ahmadmouslimani.fraud.repository.FraudAuditLogRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "app.audit-partitions.convert-table=true")
+@ActiveProfiles("test")
+class FraudAuditPartitionIntegrationTest {
+
+    @Autowired
+    private FraudAuditPartitionManager partitionManager;
+    @Autowired
+    private FraudAuditLogRepository auditRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Audit table should be partitioned by day, with the coming days created ahead")
+    void auditTable_PartitionedByDay() {
+        //Assert
+        assertEquals("p", jdbcTemplate.queryForObject(
+                "SELECT relkind::text FROM pg_class WHERE oid = to_regclass('fraud_audit_log')", String.class));
+        LocalDate today = LocalDate.now();
+        for (int i = 1; i <= 3; i++) {
+            String partition = "fraud_audit_log_p" + today.plusDays(i).toString().replace("-", "");
+            assertNotNull(jdbcTemplate.queryForObject("SELECT to_regclass(?)::text", String.class, partition),
+                    partition + " should exist");
+        }
+    }
+
+    @Test
+    @DisplayName("The velocity count should only scan the partitions of its time window")
+    void velocityCount_PartitionPruned() {
+        //Arrange
+        UUID cardId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO fraud_audit_log (id, card_id, created_at) VALUES (?, ?, ?)",
+                UUID.randomUUID(), cardId, LocalDateTime.now());
+
+        //Act
+        List<String> plan = jdbcTemplate.queryForList(
+                "EXPLAIN SELECT count(*) FROM fraud_audit_log WHERE card_id = ? AND created_at > ?",
+                String.class, cardId, LocalDateTime.now().minusHours(1));
+
+        //Assert
+        String joined = String.join("\n", plan);
+        String future = "fraud_audit_log_p" + LocalDate.now().plusDays(3).toString().replace("-", "");
+        assertFalse(joined.contains(future), "Partitions outside the window should be pruned:\n" + joined);
+        assertEquals(1, auditRepository.countByCardIdAndCreatedAtAfter(cardId, LocalDateTime.now().minusHours(1)));
+    }
+
+    @Test
+    @DisplayName("Partitions past the retention should be dropped, the current and coming days kept")
+    void maintain_DropsExpiredPartitions() {
+        //Arrange
+        LocalDate old = LocalDate.now().minusDays(30);
+        String name = "fraud_audit_log_p" + old.toString().replace("-", "");
+        //The converted table covers every day up to tomorrow, take it out to make room for an old day
+        jdbcTemplate.execute("ALTER TABLE fraud_audit_log DETACH PARTITION fraud_audit_log_legacy");
+        jdbcTemplate.execute("DROP TABLE fraud_audit_log_legacy");
+        jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF fraud_audit_log FOR VALUES FROM ('" +
+                old.atStartOfDay() + "') TO ('" + old.plusDays(1).atStartOfDay() + "')");
+
+        //Act
+        partitionManager.maintain();
+
+        //Assert
+        assertNull(jdbcTemplate.queryForObject("SELECT to_regclass(?)::text", String.class, name));
+        String today = "fraud_audit_log_p" + LocalDate.now().toString().replace("-", "");
+        assertNotNull(jdbcTemplate.queryForObject("SELECT to_regclass(?)::text", String.class, today),
+                "The day no longer covered by the converted table should get its partition");
+    }
+
+    @Test
+    @DisplayName("Audits held in DEFAULT for a day without a partition should be moved into it once it is created")
+    void maintain_MovesDefaultRowsIntoNewPartition() {
+        //Arrange
+        LocalDate day = LocalDate.now().plusDays(2);
+        String name = "fraud_audit_log_p" + day.toString().replace("-", "");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO fraud_audit_log (id, card_id, created_at) VALUES (?, ?, ?)",
+                id, UUID.randomUUID(), day.atTime(12, 0));
+
+        //Act
+        partitionManager.maintain();
+
+        //Assert
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM " + name + " WHERE id = ?", Integer.class, id));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM fraud_audit_log_default WHERE id = ?", Integer.class, id));
+        assertEquals("DEFAULT", jdbcTemplate.queryForObject(
+                "SELECT pg_get_expr(relpartbound, oid) FROM pg_class WHERE oid = to_regclass('fraud_audit_log_default')",
+                String.class));
+    }
+}
@@ -0,0 +1,205 @@
+package com.ahmadmouslimani.fraud.audit;
+
+import com.ahmadmouslimani.fraud.config.AuditPartitionProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FraudAuditPartitionManagerTest {
+
+    private final LocalDate today = LocalDate.of(2026, 3, 10);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final FraudAuditPartitionManager partitionManager = partitionManager(false);
+
+    @Test
+    @DisplayName("Should parse daily, MINVALUE and DEFAULT partition bounds")
+    void parse_PartitionBounds() {
+        //Act
+        AuditPartition daily = AuditPartition.parse("fraud_audit_log_p20260310",
+                "FOR VALUES FROM ('2026-03-10 00:00:00') TO ('2026-03-11 00:00:00')");
+        AuditPartition legacy = AuditPartition.parse("fraud_audit_log_legacy",
+                "FOR VALUES FROM (MINVALUE) TO ('2026-03-09 00:00:00')");
+        AuditPartition fallback = AuditPartition.parse("fraud_audit_log_default", "DEFAULT");
+
+        //Assert
+        assertEquals(LocalDateTime.of(2026, 3, 10, 0, 0), daily.from());
+        assertEquals(LocalDateTime.of(2026, 3, 11, 0, 0), daily.to());
+        assertNull(legacy.from());
+        assertTrue(legacy.covers(LocalDateTime.of(2020, 1, 1, 0, 0)));
+        assertFalse(legacy.covers(LocalDateTime.of(2026, 3, 9, 0, 0)));
+        assertTrue(fallback.isDefault());
+        assertFalse(fallback.covers(LocalDateTime.of(2026, 3, 9, 0, 0)));
+    }
+
+    @Test
+    @DisplayName("Should create the partitions of the coming days that no partition covers yet")
+    void missingDays_SkipsCoveredDays() {
+        //Arrange
+        List<AuditPartition> partitions = List.of(
+                AuditPartition.parse("fraud_audit_log_legacy", "FOR VALUES FROM (MINVALUE) TO ('2026-03-11 00:00:00')"),
+                daily(today.plusDays(2)),
+                AuditPartition.parse("fraud_audit_log_default", "DEFAULT"));
+
+        //Act
+        List<LocalDate> missing = FraudAuditPartitionManager.missingDays(partitions, today, 3);
+
+        //Assert
+        assertEquals(List.of(today.plusDays(1), today.plusDays(3)), missing);
+    }
+
+    @Test
+    @DisplayName("Should drop only the partitions whose rows are all older than the cutoff")
+    void expired_PartitionsPastRetention() {
+        //Arrange
+        AuditPartition legacy = AuditPartition.parse("fraud_audit_log_legacy",
+                "FOR VALUES FROM (MINVALUE) TO ('2026-03-02 00:00:00')");
+        AuditPartition old = daily(LocalDate.of(2026, 3, 2));
+        AuditPartition kept = daily(LocalDate.of(2026, 3, 3));
+        List<AuditPartition> partitions = List.of(legacy, old, kept, AuditPartition.parse("fraud_audit_log_default", "DEFAULT"));
+
+        //Act
+        List<AuditPartition> expired = FraudAuditPartitionManager.expired(partitions, LocalDate.of(2026, 3, 3).atStartOfDay());
+
+        //Assert
+        assertEquals(List.of(legacy, old), expired);
+    }
+
+    @Test
+    @DisplayName("Should still create the other partitions, drop the expired ones and age out DEFAULT when a create fails")
+    void maintain_FailedCreate_OthersStillRun() {
+        //Arrange
+        AuditPartition old = daily(LocalDate.now().minusDays(30));
+        stubRelkind("p");
+        stubPartitions(List.of(old, AuditPartition.parse(FraudAuditPartitionManager.DEFAULT_PARTITION, "DEFAULT")));
+        when(jdbcTemplate.queryForObject(contains("count(*)"), eq(Integer.class), any(), any())).thenReturn(0);
+        doThrow(new DataAccessResourceFailureException("lock timeout"))
+                .doNothing()
+                .when(jdbcTemplate).execute(startsWith("CREATE TABLE"));
+
+        //Act
+        partitionManager.maintain();
+
+        //Assert
+        verify(jdbcTemplate, times(4)).execute(startsWith("CREATE TABLE"));
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS " + old.name());
+        verify(jdbcTemplate).update(eq("DELETE FROM fraud_audit_log_default WHERE created_at < ?"),
+                eq(LocalDate.now().atStartOfDay().minusDays(7)));
+    }
+
+    @Test
+    @DisplayName("Should move the rows of a day held in DEFAULT into the partition created for that day")
+    void maintain_DayInDefault_RowsMoved() {
+        //Arrange
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        List<AuditPartition> partitions = new ArrayList<>();
+        for (int i = 0; i <= 3; i++) {
+            if (i != 1) {
+                partitions.add(daily(LocalDate.now().plusDays(i)));
+            }
+        }
+        partitions.add(AuditPartition.parse(FraudAuditPartitionManager.DEFAULT_PARTITION, "DEFAULT"));
+        stubRelkind("p");
+        stubPartitions(partitions);
+        when(jdbcTemplate.queryForObject(contains("count(*)"), eq(Integer.class), any(), any())).thenReturn(2);
+
+        //Act
+        partitionManager.maintain();
+
+        //Assert
+        String name = "fraud_audit_log_p" + tomorrow.toString().replace("-", "");
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE fraud_audit_log DETACH PARTITION fraud_audit_log_default");
+        inOrder.verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF"));
+        inOrder.verify(jdbcTemplate).update(startsWith("INSERT INTO " + name), eq(tomorrow.atStartOfDay()),
+                eq(tomorrow.plusDays(1).atStartOfDay()));
+        inOrder.verify(jdbcTemplate).update(startsWith("DELETE FROM fraud_audit_log_default WHERE created_at >="),
+                eq(tomorrow.atStartOfDay()), eq(tomorrow.plusDays(1).atStartOfDay()));
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE fraud_audit_log ATTACH PARTITION fraud_audit_log_default DEFAULT");
+    }
+
+    @Test
+    @DisplayName("Should neither convert nor maintain an unpartitioned table when the conversion is not enabled")
+    void afterPropertiesSet_ConversionDisabled_TableLeftAsIs() {
+        //Arrange
+        stubRelkind("r");
+
+        //Act
+        partitionManager.afterPropertiesSet();
+
+        //Assert
+        verify(jdbcTemplate, never()).queryForObject(contains("pg_advisory_xact_lock"), eq(String.class), any());
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(jdbcTemplate, never()).query(anyString(), ArgumentMatchers.<RowMapper<AuditPartition>>any(),
+                eq(FraudAuditPartitionManager.TABLE));
+    }
+
+    @Test
+    @DisplayName("Should take the advisory lock and skip the conversion once another instance has converted the table")
+    void afterPropertiesSet_ConvertedWhileWaiting_NotConvertedAgain() {
+        //Arrange
+        FraudAuditPartitionManager converting = partitionManager(true);
+        stubRelkind("r", "p");
+        stubPartitions(List.of());
+
+        //Act
+        converting.afterPropertiesSet();
+
+        //Assert
+        verify(jdbcTemplate).queryForObject(contains("pg_advisory_xact_lock"), eq(String.class),
+                eq(FraudAuditPartitionManager.CONVERSION_LOCK));
+        verify(jdbcTemplate, never()).execute(startsWith("ALTER TABLE"));
+        verify(jdbcTemplate, times(4)).execute(startsWith("CREATE TABLE IF NOT EXISTS"));
+    }
+
+    @Test
+    @DisplayName("Should start maintaining the table once another instance has converted it")
+    void maintain_ConvertedByAnotherInstance_PartitionsCreated() {
+        //Arrange
+        stubRelkind("r", "r", "p");
+        partitionManager.afterPropertiesSet();
+        stubPartitions(List.of());
+        verify(jdbcTemplate, never()).execute(anyString());
+
+        //Act
+        partitionManager.maintain();
+
+        //Assert
+        verify(jdbcTemplate, times(4)).execute(startsWith("CREATE TABLE IF NOT EXISTS"));
+    }
+
+    private FraudAuditPartitionManager partitionManager(boolean convertTable) {
+        return new FraudAuditPartitionManager(
+                new AuditPartitionProperties(true, convertTable, Duration.ofDays(7), 3, Duration.ofHours(1)),
+                jdbcTemplate, mock(PlatformTransactionManager.class), null);
+    }
+
+    private void stubRelkind(String relkind, String... next) {
+        when(jdbcTemplate.queryForObject(contains("relkind"), eq(String.class), eq(FraudAuditPartitionManager.TABLE)))
+                .thenReturn(relkind, next);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubPartitions(List<AuditPartition> partitions) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(FraudAuditPartitionManager.TABLE))).thenReturn(partitions);
+    }
+
+    private AuditPartition daily(LocalDate day) {
+        return AuditPartition.parse("fraud_audit_log_p" + day.toString().replace("-", ""),
+                "FOR VALUES FROM ('" + day + " 00:00:00') TO ('" + day.plusDays(1) + " 00:00:00')");
+    }
+}
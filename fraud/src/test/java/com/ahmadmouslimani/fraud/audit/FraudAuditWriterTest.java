@@ -0,0 +1,208 @@
+package com.ahmadmouslimani.fraud.audit;
+
+import com.ahmadmouslimani.fraud.config.AuditWriterProperties;
+import com.ahmadmouslimani.fraud.entity.FraudAuditLog;
+import com.ahmadmouslimani.fraud.repository.FraudAuditLogRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FraudAuditWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private FraudAuditLogRepository auditRepository;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private static final BigDecimal AMOUNT = new BigDecimal("100.00");
+
+    private final UUID cardId = UUID.randomUUID();
+    private FraudAuditWriter auditWriter;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        auditWriter.destroy();
+    }
+
+    @Test
+    @DisplayName("Should queue audits without inserting them until flushed")
+    @SuppressWarnings("unchecked")
+    void enqueue_QueuesUntilFlushed() {
+        //Arrange
+        auditWriter = writer(true, 100, 10);
+
+        //Act
+        auditWriter.enqueue(cardId, AMOUNT);
+        auditWriter.enqueue(cardId, AMOUNT);
+        auditWriter.enqueue(UUID.randomUUID(), AMOUNT);
+
+        //Assert
+        assertEquals(3, auditWriter.depth());
+        assertEquals(3, meterRegistry.get("fraud.audit.queue.depth").gauge().value());
+        verifyNoInteractions(jdbcTemplate, auditRepository);
+
+        assertTrue(auditWriter.flush());
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        assertEquals(3, rows.getValue().size());
+        assertEquals(cardId, rows.getValue().get(0)[1]);
+        assertEquals(AMOUNT, rows.getValue().get(0)[3]);
+        assertEquals(0, auditWriter.depth());
+    }
+
+    @Test
+    @DisplayName("Should split the queue into batches of the configured size")
+    void flush_InsertsInBatches() {
+        //Arrange
+        auditWriter = writer(true, 100, 2);
+        for (int i = 0; i < 5; i++) {
+            auditWriter.enqueue(cardId, AMOUNT);
+        }
+
+        //Act
+        //A full batch also wakes the flusher thread up, both may take part in the flush
+        auditWriter.flush();
+
+        //Assert
+        DistributionSummary flushed = meterRegistry.get("fraud.audit.flush.size").summary();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flushed.totalAmount() < 5 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(5, flushed.totalAmount());
+        assertEquals(0, auditWriter.depth());
+        assertTrue(flushed.max() <= 2, "No batch should exceed the batch size");
+        verify(jdbcTemplate, atLeast(3)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("Should keep a batch that failed to insert and retry it on the next flush")
+    void flush_RetriesFailedBatch() {
+        //Arrange
+        auditWriter = writer(true, 100, 10);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"))
+                .thenReturn(new int[]{1});
+        auditWriter.enqueue(cardId, AMOUNT);
+
+        //Act
+        boolean first = auditWriter.flush();
+        boolean second = auditWriter.flush();
+
+        //Assert
+        assertFalse(first);
+        assertTrue(second);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("Should insert the audit directly when the queue is full")
+    void enqueue_QueueFull_InsertsDirectly() {
+        //Arrange
+        auditWriter = writer(true, 1, 10);
+
+        //Act
+        auditWriter.enqueue(cardId, AMOUNT);
+        auditWriter.enqueue(cardId, AMOUNT);
+
+        //Assert
+        assertEquals(1, auditWriter.depth());
+        verify(auditRepository, times(1)).save(any(FraudAuditLog.class));
+        assertEquals(1, meterRegistry.get("fraud.audit.direct.inserts").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should flush the queue on shutdown")
+    void destroy_FlushesQueue() throws InterruptedException {
+        //Arrange
+        auditWriter = writer(true, 100, 10);
+        auditWriter.enqueue(cardId, AMOUNT);
+
+        //Act
+        auditWriter.destroy();
+
+        //Assert
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+        assertEquals(0, auditWriter.depth());
+    }
+
+    @Test
+    @DisplayName("Should insert every audit directly when the writer is disabled")
+    void enqueue_Disabled_InsertsDirectly() {
+        //Arrange
+        auditWriter = writer(false, 100, 10);
+
+        //Act
+        auditWriter.enqueue(cardId, AMOUNT);
+
+        //Assert
+        verify(auditRepository, times(1)).save(any(FraudAuditLog.class));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Should queue the audits of a batch check together, or insert them in one JDBC batch when they do not fit")
+    @SuppressWarnings("unchecked")
+    void enqueueAll_QueuesOrInsertsInOneBatch() {
+        //Arrange
+        auditWriter = writer(true, 3, 10);
+        List<FraudAuditWriter.PendingAudit> audits = List.of(
+                FraudAuditWriter.PendingAudit.of(cardId, AMOUNT), FraudAuditWriter.PendingAudit.of(cardId, AMOUNT));
+
+        //Act
+        auditWriter.enqueueAll(audits);
+        auditWriter.enqueueAll(audits);
+
+        //Assert
+        assertEquals(2, auditWriter.depth(), "The second batch does not fit the queue");
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rows.capture());
+        assertEquals(2, rows.getValue().size());
+        assertEquals(2, meterRegistry.get("fraud.audit.direct.inserts").counter().count());
+        verifyNoInteractions(auditRepository);
+    }
+
+    @Test
+    @DisplayName("Should insert the audit on the calling thread, bypassing the queue")
+    void insertNow_InsertsImmediately() {
+        //Arrange
+        auditWriter = writer(true, 100, 10);
+
+        //Act
+        auditWriter.insertNow(cardId, AMOUNT);
+
+        //Assert
+        verify(jdbcTemplate).update(anyString(), any(), eq(cardId), any(), eq(AMOUNT));
+        assertEquals(0, auditWriter.depth());
+    }
+
+        //The interval is long enough for the background flusher to stay out of the way of the assertions
+    private FraudAuditWriter writer(boolean enabled, int queueCapacity, int batchSize) {
+        return new FraudAuditWriter(new AuditWriterProperties(enabled, queueCapacity, batchSize, Duration.ofHours(1)),
+                jdbcTemplate, auditRepository, meterRegistry);
+    }
+}
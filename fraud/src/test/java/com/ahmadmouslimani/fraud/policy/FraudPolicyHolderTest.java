@@ -0,0 +1,114 @@
+package com.ahmadmouslimani.fraud.policy;
+
+import com.ahmadmouslimani.fraud.entity.FraudPolicy;
+import com.ahmadmouslimani.fraud.event.FraudPolicyChangedEvent;
+import com.ahmadmouslimani.fraud.repository.FraudPolicyRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FraudPolicyHolderTest {
+
+    @Mock
+    private FraudPolicyRepository policyRepository;
+    @InjectMocks
+    private FraudPolicyHolder policyHolder;
+
+    private final UUID policyId = UUID.randomUUID();
+
+    @Test
+    @DisplayName("Should load the policy once and serve every later check from memory")
+    void get_LoadsOnce() {
+        //Arrange
+        when(policyRepository.findFirstByOrderByIdAsc()).thenReturn(Optional.of(policy("10000.00", 0)));
+
+        //Act
+        FraudPolicySnapshot first = policyHolder.get();
+        FraudPolicySnapshot second = policyHolder.get();
+
+        //Assert
+        assertSame(first, second);
+        assertEquals(new BigDecimal("10000.00"), second.fraudLimit());
+        verify(policyRepository, times(1)).findFirstByOrderByIdAsc();
+    }
+
+    @Test
+    @DisplayName("Should throw IllegalStateException if no policy exists")
+    void get_NoPolicy() {
+        //Arrange
+        when(policyRepository.findFirstByOrderByIdAsc()).thenReturn(Optional.empty());
+
+        //Act & Assert
+        assertThrows(IllegalStateException.class, () -> policyHolder.get());
+    }
+
+    @Test
+    @DisplayName("Should reload the policy when its version changed in the database")
+    void checkVersion_ReloadsChangedPolicy() {
+        //Arrange
+        when(policyRepository.findFirstByOrderByIdAsc())
+                .thenReturn(Optional.of(policy("10000.00", 0)))
+                .thenReturn(Optional.of(policy("500.00", 1)));
+        policyHolder.get();
+        when(policyRepository.findVersionById(policyId)).thenReturn(Optional.of(1L));
+
+        //Act
+        policyHolder.checkVersion();
+
+        //Assert
+        assertEquals(new BigDecimal("500.00"), policyHolder.get().fraudLimit());
+        assertEquals(1, policyHolder.get().version());
+    }
+
+    @Test
+    @DisplayName("Should keep the policy when its version is unchanged")
+    void checkVersion_KeepsUnchangedPolicy() {
+        //Arrange
+        when(policyRepository.findFirstByOrderByIdAsc()).thenReturn(Optional.of(policy("10000.00", 0)));
+        policyHolder.get();
+        when(policyRepository.findVersionById(policyId)).thenReturn(Optional.of(0L));
+
+        //Act
+        policyHolder.checkVersion();
+
+        //Assert
+        verify(policyRepository, times(1)).findFirstByOrderByIdAsc();
+    }
+
+    @Test
+    @DisplayName("Should apply an updated policy at once and ignore an older one")
+    void onPolicyChanged_ReplacesWithNewerVersion() {
+        //Arrange
+        FraudPolicySnapshot updated = new FraudPolicySnapshot(policyId, new BigDecimal("500.00"), Duration.ofHours(2), 2);
+        FraudPolicySnapshot stale = new FraudPolicySnapshot(policyId, new BigDecimal("900.00"), Duration.ofHours(1), 1);
+
+        //Act
+        policyHolder.onPolicyChanged(new FraudPolicyChangedEvent(updated));
+        policyHolder.onPolicyChanged(new FraudPolicyChangedEvent(stale));
+
+        //Assert
+        assertSame(updated, policyHolder.get());
+        verifyNoInteractions(policyRepository);
+    }
+
+    private FraudPolicy policy(String fraudLimit, long version) {
+        FraudPolicy policy = new FraudPolicy();
+        policy.setId(policyId);
+        policy.setFraudLimit(new BigDecimal(fraudLimit));
+        policy.setTimeInterval(Duration.ofHours(1));
+        policy.setVersion(version);
+        return policy;
+    }
+}
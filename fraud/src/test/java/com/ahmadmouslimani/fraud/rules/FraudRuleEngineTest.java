@@ -0,0 +1,177 @@
+package com.ahmadmouslimani.fraud.rules;
+
+import com.ahmadmouslimani.fraud.config.FraudRulesProperties;
+import com.ahmadmouslimani.fraud.config.VelocityProperties;
+import com.ahmadmouslimani.fraud.dto.FraudRequestDTO;
+import com.ahmadmouslimani.fraud.enums.FraudRuleType;
+import com.ahmadmouslimani.fraud.policy.FraudPolicySnapshot;
+import com.ahmadmouslimani.fraud.velocity.CardHistory;
+import com.ahmadmouslimani.fraud.velocity.CardVelocityTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FraudRuleEngineTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VelocityProperties velocityProperties = new VelocityProperties(8, 64, Duration.ofMinutes(1), false);
+    private final CardVelocityTracker velocityTracker =
+            new CardVelocityTracker(velocityProperties, meterRegistry, Clock.systemDefaultZone());
+    private final FraudPolicySnapshot policy =
+            new FraudPolicySnapshot(UUID.randomUUID(), new BigDecimal("10000.00"), Duration.ofHours(1), 0);
+    private final UUID cardId = UUID.randomUUID();
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @Test
+    @DisplayName("Should order the rules cheapest first, keeping the policy rules ahead of configured rules of the same cost")
+    void plan_OrdersRulesByCost() {
+        //Arrange
+        FraudRuleEngine engine = engine(
+                rule("spend", FraudRuleType.VELOCITY_AMOUNT, "500.00", Duration.ofDays(1), null),
+                rule("burst", FraudRuleType.VELOCITY_COUNT, "3", Duration.ofMinutes(5), null),
+                rule("new-card", FraudRuleType.FIRST_USE, "200.00", Duration.ofDays(30), null),
+                rule("large", FraudRuleType.AMOUNT_LIMIT, "5000.00", null, null));
+
+        //Act
+        FraudRulePlan plan = engine.plan(policy);
+
+        //Assert
+        assertEquals(List.of("amount-limit", "large", "new-card", "frequency-limit", "burst", "spend"), plan.ruleNames());
+        assertEquals(Duration.ofDays(30), plan.maxWindow());
+    }
+
+    @Test
+    @DisplayName("Should stop at the first matching rule and record its hit and the evaluation time of the rules run")
+    void evaluate_ShortCircuitsOnFirstMatch() {
+        //Arrange
+        FraudRuleEngine engine = engine(
+                rule("large", FraudRuleType.AMOUNT_LIMIT, "5000.00", null, null),
+                rule("burst", FraudRuleType.VELOCITY_COUNT, "3", Duration.ofMinutes(5), null));
+        FraudRulePlan plan = engine.plan(policy);
+
+        //Act
+        Optional<String> reason = plan.evaluate(request("6000.00", null), history());
+
+        //Assert
+        assertEquals(Optional.of("large rejected"), reason);
+        assertEquals(1, meterRegistry.get("fraud.rule.hits").tag("rule", "large").counter().count());
+        assertEquals(1, meterRegistry.get("fraud.rule.evaluation").tag("rule", "large").timer().count());
+        assertEquals(0, meterRegistry.get("fraud.rule.evaluation").tag("rule", "burst").timer().count(),
+                "Rules after the first match are not evaluated");
+    }
+
+    @Test
+    @DisplayName("Should evaluate the velocity rules each with its own window over the card history")
+    void evaluate_VelocityWindows() {
+        //Arrange
+        FraudRulePlan plan = engine(
+                rule("burst", FraudRuleType.VELOCITY_COUNT, "3", Duration.ofMinutes(5), null),
+                rule("spend", FraudRuleType.VELOCITY_AMOUNT, "500.00", Duration.ofDays(1), null)).plan(policy);
+
+        //Act & Assert
+        assertEquals(Optional.of("burst rejected"), plan.evaluate(request("10.00", null), history(1, 2, 3)));
+        assertEquals(Optional.empty(), plan.evaluate(request("10.00", null), history(1, 2, 30)),
+                "The check of 30 minutes ago is out of the 5 minutes window");
+        assertEquals(Optional.of("spend rejected"), plan.evaluate(request("300.01", null), history(300, 600)));
+        assertEquals(Optional.empty(), plan.evaluate(request("300.00", null), history(300, 600)));
+    }
+
+    @Test
+    @DisplayName("Should flag the first use of a card above the threshold, and apply account rules to their account only")
+    void evaluate_FirstUseAndAccountScope() {
+        //Arrange
+        UUID accountId = UUID.randomUUID();
+        FraudRulePlan plan = engine(
+                rule("new-card", FraudRuleType.FIRST_USE, "200.00", Duration.ofDays(30), null),
+                rule("account-cap", FraudRuleType.AMOUNT_LIMIT, "50.00", null, accountId)).plan(policy);
+
+        //Act & Assert
+        assertEquals(Optional.of("new-card rejected"), plan.evaluate(request("250.00", null), history()));
+        assertEquals(Optional.empty(), plan.evaluate(request("150.00", null), history()));
+        assertEquals(Optional.empty(), plan.evaluate(request("250.00", null), history(60)));
+        assertEquals(Optional.of("account-cap rejected"), plan.evaluate(request("60.00", accountId), history(60)));
+        assertEquals(Optional.empty(), plan.evaluate(request("60.00", UUID.randomUUID()), history(60)));
+    }
+
+    @Test
+    @DisplayName("Should compile the plan once per policy version")
+    void plan_RecompiledOnNewPolicyVersion() {
+        //Arrange
+        FraudRuleEngine engine = engine();
+        FraudPolicySnapshot updated = new FraudPolicySnapshot(policy.id(), new BigDecimal("100.00"), Duration.ofHours(2), 1);
+
+        //Act
+        FraudRulePlan first = engine.plan(policy);
+        FraudRulePlan same = engine.plan(policy);
+        FraudRulePlan next = engine.plan(updated);
+
+        //Assert
+        assertSame(first, same);
+        assertNotSame(first, next);
+        assertEquals(Optional.of("Transaction amount exceeds $100.00"), next.evaluate(request("100.01", null), history()));
+        assertEquals(Duration.ofHours(2), next.maxWindow());
+    }
+
+    @Test
+    @DisplayName("Should state the policy time interval in the rejection reason of the frequency limit")
+    void evaluate_FrequencyLimit_ReasonStatesInterval() {
+        //Arrange
+        FraudPolicySnapshot halfHour = new FraudPolicySnapshot(policy.id(), new BigDecimal("10000.00"), Duration.ofMinutes(30), 1);
+        FraudRulePlan plan = engine().plan(halfHour);
+
+        //Act
+        Optional<String> reason = plan.evaluate(request("10.00", null), history(1, 2, 3, 4, 5, 6, 7, 8));
+
+        //Assert
+        assertEquals(Optional.of("Frequency limit exceeded: more than 8 transactions in 30 minutes"), reason);
+        assertEquals("1 hour", FraudRuleEngine.describe(Duration.ofHours(1)));
+        assertEquals("90 minutes", FraudRuleEngine.describe(Duration.ofMinutes(90)));
+        assertEquals("2 days", FraudRuleEngine.describe(Duration.ofDays(2)));
+        assertEquals("45 seconds", FraudRuleEngine.describe(Duration.ofSeconds(45)));
+    }
+
+    @Test
+    @DisplayName("Should reject rules that cannot be evaluated at startup")
+    void constructor_RejectsInvalidRules() {
+        assertThrows(IllegalArgumentException.class,
+                () -> engine(rule("burst", FraudRuleType.VELOCITY_COUNT, "65", Duration.ofMinutes(5), null)),
+                "A count above the history size could never be reached");
+        assertThrows(IllegalArgumentException.class,
+                () -> engine(rule("spend", FraudRuleType.VELOCITY_AMOUNT, "500.00", null, null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> engine(rule("amount-limit", FraudRuleType.AMOUNT_LIMIT, "500.00", null, null)));
+    }
+
+    private FraudRuleEngine engine(FraudRuleDefinition... rules) {
+        return new FraudRuleEngine(new FraudRulesProperties(List.of(rules)), velocityProperties, velocityTracker, meterRegistry);
+    }
+
+    private FraudRuleDefinition rule(String name, FraudRuleType type, String threshold, Duration window, UUID cardAccountId) {
+        return new FraudRuleDefinition(name, type, new BigDecimal(threshold), window, cardAccountId, name + " rejected");
+    }
+
+    private FraudRequestDTO request(String amount, UUID accountId) {
+        return new FraudRequestDTO(cardId, new BigDecimal(amount), accountId);
+    }
+
+    //Earlier checks of 100.00 each, the given number of minutes ago
+    private CardHistory history(long... minutesAgo) {
+        CardHistory.Builder builder = new CardHistory.Builder(now.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        for (long minutes : minutesAgo) {
+            builder.add(now.minusMinutes(minutes), new BigDecimal("100.00"));
+        }
+        return builder.build();
+    }
+}
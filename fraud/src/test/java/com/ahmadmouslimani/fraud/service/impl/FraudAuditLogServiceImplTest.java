@@ -1,26 +1,51 @@
 package com.ahmadmouslimani.fraud.service.impl;
 
+import com.ahmadmouslimani.fraud.audit.FraudAuditWriter;
+import com.ahmadmouslimani.fraud.config.FraudRulesProperties;
+import com.ahmadmouslimani.fraud.config.VelocityProperties;
 import com.ahmadmouslimani.fraud.dto.FraudRequestDTO;
 import com.ahmadmouslimani.fraud.dto.FraudResponseDTO;
-import com.ahmadmouslimani.fraud.entity.FraudAuditLog;
 import com.ahmadmouslimani.fraud.entity.FraudPolicy;
+import com.ahmadmouslimani.fraud.enums.FraudRuleType;
+import com.ahmadmouslimani.fraud.policy.FraudPolicyHolder;
+import com.ahmadmouslimani.fraud.policy.FraudPolicySnapshot;
+import com.ahmadmouslimani.fraud.repository.AuditTimestampView;
 import com.ahmadmouslimani.fraud.repository.FraudAuditLogRepository;
-import com.ahmadmouslimani.fraud.repository.FraudPolicyRepository;
+import com.ahmadmouslimani.fraud.rules.FraudRuleDefinition;
+import com.ahmadmouslimani.fraud.rules.FraudRuleEngine;
+import com.ahmadmouslimani.fraud.velocity.CardCheckLock;
+import com.ahmadmouslimani.fraud.velocity.CardVelocityTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
@@ -29,9 +54,22 @@ import static org.mockito.Mockito.times;
 class FraudAuditLogServiceImplTest {
 
     @Mock
-    private FraudPolicyRepository policyRepository;
+    private FraudPolicyHolder policyHolder;
     @Mock
     private FraudAuditLogRepository auditRepository;
+    @Mock
+    private FraudAuditWriter auditWriter;
+    @Mock
+    private CardCheckLock cardCheckLock;
+    @Spy
+    private VelocityProperties velocityProperties = new VelocityProperties(8, 64, Duration.ofMinutes(1), false);
+    //Not warmed up: the card history is read from the audit table until markWarm() is called
+    @Spy
+    private CardVelocityTracker velocityTracker =
+            new CardVelocityTracker(velocityProperties, new SimpleMeterRegistry(), Clock.systemDefaultZone());
+    @Spy
+    private FraudRuleEngine ruleEngine = new FraudRuleEngine(new FraudRulesProperties(List.of()), velocityProperties,
+            velocityTracker, new SimpleMeterRegistry());
 
     @InjectMocks
     private FraudAuditLogServiceImpl fraudService;
@@ -42,14 +80,14 @@ class FraudAuditLogServiceImplTest {
     void shouldApproveWhenWithinLimits() {
         //Arrange
         UUID cardId = UUID.randomUUID();
-        FraudRequestDTO request = new FraudRequestDTO(cardId, new BigDecimal("500.00"));
+        FraudRequestDTO request = new FraudRequestDTO(cardId, new BigDecimal("500.00"), null);
 
         FraudPolicy policy = new FraudPolicy();
         policy.setFraudLimit(new BigDecimal("10000.00"));
         policy.setTimeInterval(Duration.ofHours(1));
 
-        when(policyRepository.findAll()).thenReturn(List.of(policy));
-        when(auditRepository.countByCardIdAndCreatedAtAfter(eq(cardId), any())).thenReturn(5L); // Below 8
+        when(policyHolder.get()).thenReturn(FraudPolicySnapshot.of(policy));
+        when(auditRepository.findCardChecks(eq(cardId), any(), any())).thenReturn(checks(cardId, 5)); // Below 8
 
         //Act
         FraudResponseDTO response = fraudService.validateTransaction(request);
@@ -57,8 +95,8 @@ class FraudAuditLogServiceImplTest {
         //Assert
         assertFalse(response.isFraudulent());
         assertEquals("Approved", response.rejectionReason());
-        //Ensure saving FraudAuditLog, and the database wasn't hit multiple times unnecessarily
-        verify(auditRepository, times(1)).save(any(FraudAuditLog.class));
+        //Ensure the FraudAuditLog is queued once, and not inserted by the check itself
+        verify(auditWriter, times(1)).enqueue(eq(cardId), any());
     }
 
 
@@ -70,13 +108,13 @@ class FraudAuditLogServiceImplTest {
         BigDecimal limit = new BigDecimal("10000.00");
         BigDecimal excessiveAmount = new BigDecimal("10000.01");
 
-        FraudRequestDTO request = new FraudRequestDTO(cardId, excessiveAmount);
+        FraudRequestDTO request = new FraudRequestDTO(cardId, excessiveAmount, null);
 
         FraudPolicy policy = new FraudPolicy();
         policy.setFraudLimit(limit);
         policy.setTimeInterval(Duration.ofHours(1));
 
-        when(policyRepository.findAll()).thenReturn(List.of(policy));
+        when(policyHolder.get()).thenReturn(FraudPolicySnapshot.of(policy));
 
         //Act
         FraudResponseDTO response = fraudService.validateTransaction(request);
@@ -85,8 +123,8 @@ class FraudAuditLogServiceImplTest {
         assertTrue(response.isFraudulent(), "Transaction should be marked as fraudulent");
         assertTrue(response.rejectionReason().contains("exceeds"));
         assertTrue(response.rejectionReason().contains(limit.toString()));
-        //Ensure saving FraudAuditLog, and the database wasn't hit multiple times unnecessarily
-        verify(auditRepository, times(1)).save(any(FraudAuditLog.class));
+        //Ensure the FraudAuditLog is queued once, and not inserted by the check itself
+        verify(auditWriter, times(1)).enqueue(eq(cardId), any());
     }
 
 
@@ -94,15 +132,15 @@ class FraudAuditLogServiceImplTest {
     void shouldRejectWhenCardIdFrequencyExceeded() {
         //Arrange
         UUID cardId = UUID.randomUUID();
-        FraudRequestDTO request = new FraudRequestDTO(cardId, new BigDecimal("100.00"));
+        FraudRequestDTO request = new FraudRequestDTO(cardId, new BigDecimal("100.00"), null);
         
         FraudPolicy policy = new FraudPolicy();
         policy.setFraudLimit(new BigDecimal("10000.00"));
         policy.setTimeInterval(Duration.ofHours(1));
 
-        when(policyRepository.findAll()).thenReturn(List.of(policy));
+        when(policyHolder.get()).thenReturn(FraudPolicySnapshot.of(policy));
         //Mock that 8 transactions already exist
-        when(auditRepository.countByCardIdAndCreatedAtAfter(eq(cardId), any())).thenReturn(8L);
+        when(auditRepository.findCardChecks(eq(cardId), any(), any())).thenReturn(checks(cardId, 8));
 
         //Act
         FraudResponseDTO response = fraudService.validateTransaction(request);
@@ -110,18 +148,213 @@ class FraudAuditLogServiceImplTest {
         //Assert
         assertTrue(response.isFraudulent());
         assertEquals("Frequency limit exceeded: more than 8 transactions in 1 hour", response.rejectionReason());
-        //Ensure saving FraudAuditLog, and the database wasn't hit multiple times unnecessarily
-        verify(auditRepository, times(1)).save(any(FraudAuditLog.class));
+        //Ensure the FraudAuditLog is queued once, and not inserted by the check itself
+        verify(auditWriter, times(1)).enqueue(eq(cardId), any());
     }
 
     @Test
     @DisplayName("Should throw IllegalStateException if no policy exists")
     void shouldThrowExceptionWhenNoPolicyFound() {
-        when(policyRepository.findAll()).thenReturn(List.of());
+        when(policyHolder.get()).thenThrow(new IllegalStateException("Fraud Policy not initialized"));
 
         assertThrows(IllegalStateException.class, () ->
-                fraudService.validateTransaction(new FraudRequestDTO(UUID.randomUUID(), new BigDecimal("10.00")))
+                fraudService.validateTransaction(new FraudRequestDTO(UUID.randomUUID(), new BigDecimal("10.00"), null))
         );
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Should count the frequency in memory, without querying the audit table, once warmed up")
+    void shouldRejectFromInMemoryCountersOnceWarm() {
+        //Arrange
+        UUID cardId = UUID.randomUUID();
+        FraudPolicy policy = new FraudPolicy();
+        policy.setFraudLimit(new BigDecimal("10000.00"));
+        policy.setTimeInterval(Duration.ofHours(1));
+        when(policyHolder.get()).thenReturn(FraudPolicySnapshot.of(policy));
+        velocityTracker.markWarm();
+
+        //Act
+        for (int i = 0; i < 8; i++) {
+            assertFalse(fraudService.validateTransaction(new FraudRequestDTO(cardId, new BigDecimal("100.00"), null)).isFraudulent());
+        }
+        FraudResponseDTO ninth = fraudService.validateTransaction(new FraudRequestDTO(cardId, new BigDecimal("100.00"), null));
+
+        //Assert
+        assertTrue(ninth.isFraudulent());
+        assertEquals("Frequency limit exceeded: more than 8 transactions in 1 hour", ninth.rejectionReason());
+        verify(auditRepository, never()).findCardChecks(any(), any(), any());
+        verify(auditWriter, times(9)).enqueue(eq(cardId), any());
+    }
+
+    @Test
+    @DisplayName("Should count the checks made since startup from memory along with the older audits before warm-up")
+    void shouldCountRecentChecksFromMemoryBeforeWarmUp() {
+        //Arrange
+        UUID cardId = UUID.randomUUID();
+        FraudPolicy policy = new FraudPolicy();
+        policy.setFraudLimit(new BigDecimal("10000.00"));
+        policy.setTimeInterval(Duration.ofHours(1));
+        when(policyHolder.get()).thenReturn(FraudPolicySnapshot.of(policy));
+        when(auditRepository.findCardChecks(eq(cardId), any(), any())).thenReturn(checks(cardId, 6));
+
+        //Act
+        FraudResponseDTO seventh = fraudService.validateTransaction(new FraudRequestDTO(cardId, new BigDecimal("100.00"), null));
+        FraudResponseDTO eighth = fraudService.validateTransaction(new FraudRequestDTO(cardId, new BigDecimal("100.00"), null));
+        FraudResponseDTO ninth = fraudService.validateTransaction(new FraudRequestDTO(cardId, new BigDecimal("100.00"), null));
+
+        //Assert
+        assertFalse(seventh.isFraudulent());
+        assertFalse(eighth.isFraudulent());
+        assertTrue(ninth.isFraudulent(), "6 audited and 2 in-memory checks reach the limit of 8");
+        LocalDateTime trackerStart = LocalDateTime.ofInstant(velocityTracker.recordingSince(), ZoneId.systemDefault());
+        verify(auditRepository, times(3)).findCardChecks(eq(cardId), any(), eq(trackerStart));
+    }
+
+    @Test
+    @DisplayName("Should approve exactly the frequency limit when one card is flooded from many threads, before and after warm-up")
+    void shouldApproveExactlyTheLimitUnderConcurrency() throws Exception {
+        //Arrange
+        FraudPolicy policy = new FraudPolicy();
+        policy.setFraudLimit(new BigDecimal("10000.00"));
+        policy.setTimeInterval(Duration.ofHours(1));
+        when(policyHolder.get()).thenReturn(FraudPolicySnapshot.of(policy));
+        CardVelocityTracker tracker =
+                new CardVelocityTracker(velocityProperties, new SimpleMeterRegistry(), Clock.systemDefaultZone());
+        FraudAuditLogServiceImpl service = new FraudAuditLogServiceImpl(policyHolder, auditRepository, auditWriter, tracker,
+                new FraudRuleEngine(new FraudRulesProperties(List.of()), velocityProperties, tracker, new SimpleMeterRegistry()),
+                velocityProperties, cardCheckLock);
+
+        //Act
+        int approvedCold = flood(service, UUID.randomUUID());
+        tracker.markWarm();
+        int approvedWarm = flood(service, UUID.randomUUID());
+
+        //Assert
+        assertEquals(8, approvedCold);
+        assertEquals(8, approvedWarm);
+    }
+
+    @Test
+    @DisplayName("Should count from the audit table under the card lock and insert the audit in it when instances share cards")
+    @SuppressWarnings("unchecked")
+    void shouldCheckUnderCardLockWhenShared() {
+        //Arrange
+        UUID cardId = UUID.randomUUID();
+        FraudPolicy policy = new FraudPolicy();
+        policy.setFraudLimit(new BigDecimal("10000.00"));
+        policy.setTimeInterval(Duration.ofHours(1));
+        when(policyHolder.get()).thenReturn(FraudPolicySnapshot.of(policy));
+        when(velocityProperties.shared()).thenReturn(true);
+        when(cardCheckLock.withLock(eq(cardId), any())).thenAnswer(inv -> ((Supplier<Object>) inv.getArgument(1)).get());
+        when(auditRepository.findCardChecks(eq(cardId), any(), any())).thenReturn(checks(cardId, 8));
+
+        //Act
+        FraudResponseDTO response = fraudService.validateTransaction(new FraudRequestDTO(cardId, new BigDecimal("100.00"), null));
+
+        //Assert
+        assertTrue(response.isFraudulent());
+        verify(auditWriter, times(1)).insertNow(eq(cardId), any());
+        verify(auditWriter, never()).enqueue(any(), any());
+        verify(velocityTracker, never()).recordAndGet(any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Should sum the amounts of the card history for the amount velocity rules")
+    void shouldRejectWhenAmountVelocityExceeded() {
+        //Arrange
+        UUID cardId = UUID.randomUUID();
+        FraudPolicy policy = new FraudPolicy();
+        policy.setFraudLimit(new BigDecimal("10000.00"));
+        policy.setTimeInterval(Duration.ofHours(1));
+        when(policyHolder.get()).thenReturn(FraudPolicySnapshot.of(policy));
+        FraudRuleEngine engine = new FraudRuleEngine(new FraudRulesProperties(List.of(new FraudRuleDefinition(
+                "daily-spend", FraudRuleType.VELOCITY_AMOUNT, new BigDecimal("1000.00"), Duration.ofDays(1), null,
+                "Daily spend limit exceeded"))), velocityProperties, velocityTracker, new SimpleMeterRegistry());
+        FraudAuditLogServiceImpl service =
+                new FraudAuditLogServiceImpl(policyHolder, auditRepository, auditWriter, velocityTracker, engine,
+                        velocityProperties, cardCheckLock);
+        velocityTracker.markWarm();
+
+        //Act
+        FraudResponseDTO first = service.validateTransaction(new FraudRequestDTO(cardId, new BigDecimal("600.00"), null));
+        FraudResponseDTO second = service.validateTransaction(new FraudRequestDTO(cardId, new BigDecimal("400.01"), null));
+
+        //Assert
+        assertFalse(first.isFraudulent());
+        assertTrue(second.isFraudulent());
+        assertEquals("Daily spend limit exceeded", second.rejectionReason());
+    }
+
+    @Test
+    @DisplayName("Should check a batch like the same checks one by one, counting earlier items of the same card")
+    void shouldCheckBatchInOrder() {
+        //Arrange
+        UUID busyCard = UUID.randomUUID();
+        UUID otherCard = UUID.randomUUID();
+        FraudPolicy policy = new FraudPolicy();
+        policy.setFraudLimit(new BigDecimal("10000.00"));
+        policy.setTimeInterval(Duration.ofHours(1));
+        when(policyHolder.get()).thenReturn(FraudPolicySnapshot.of(policy));
+        //7 audited checks of the busy card, its second item in the batch is its 9th check
+        when(auditRepository.findCardsChecks(any(), any(), any())).thenReturn(checks(busyCard, 7));
+
+        //Act
+        List<FraudResponseDTO> responses = fraudService.validateTransactions(List.of(
+                new FraudRequestDTO(busyCard, new BigDecimal("100.00"), null),
+                new FraudRequestDTO(otherCard, new BigDecimal("20000.00"), null),
+                new FraudRequestDTO(busyCard, new BigDecimal("100.00"), null),
+                new FraudRequestDTO(otherCard, new BigDecimal("100.00"), null)));
+
+        //Assert
+        assertFalse(responses.get(0).isFraudulent());
+        assertEquals("Transaction amount exceeds $10000.00", responses.get(1).rejectionReason());
+        assertEquals("Frequency limit exceeded: more than 8 transactions in 1 hour", responses.get(2).rejectionReason());
+        assertFalse(responses.get(3).isFraudulent());
+        verify(auditRepository, times(1)).findCardsChecks(any(), any(), any());
+        verify(auditWriter, times(1)).enqueueAll(argThat(audits -> audits.size() == 4));
+        verify(auditWriter, never()).enqueue(any(), any());
+    }
+
+    //Checks of one card from 32 threads at once, returns the number approved
+    private int flood(FraudAuditLogServiceImpl service, UUID cardId) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<FraudResponseDTO>> responses = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                responses.add(clients.submit(() -> {
+                    start.await();
+                    return service.validateTransaction(new FraudRequestDTO(cardId, new BigDecimal("100.00"), null));
+                }));
+            }
+            start.countDown();
+            int approved = 0;
+            for (Future<FraudResponseDTO> response : responses) {
+                if (!response.get(10, TimeUnit.SECONDS).isFraudulent()) {
+                    approved++;
+                }
+            }
+            return approved;
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private List<AuditTimestampView> checks(UUID cardId, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> (AuditTimestampView) new AuditTimestampView() {
+                    public UUID getCardId() {
+                        return cardId;
+                    }
+
+                    public LocalDateTime getCreatedAt() {
+                        return LocalDateTime.now().minusMinutes(i + 1);
+                    }
+
+                    public BigDecimal getAmount() {
+                        return new BigDecimal("100.00");
+                    }
+                })
+                .toList();
+    }
+}
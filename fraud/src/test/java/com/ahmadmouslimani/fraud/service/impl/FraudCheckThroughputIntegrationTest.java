@@ -0,0 +1,78 @@
+package com.ahmadmouslimani.fraud.service.impl;
+
+import com.ahmadmouslimani.fraud.dto.FraudRequestDTO;
+import com.ahmadmouslimani.fraud.repository.FraudPolicyRepository;
+import com.ahmadmouslimani.fraud.service.FraudAuditLogService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fraud checks per second with the cached policy, against the same checks preceded by the
+ * findAll() policy read every check used to do.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class FraudCheckThroughputIntegrationTest {
+
+    private static final int THREADS = 8;
+    private static final int CHECKS_PER_THREAD = 500;
+
+    @Autowired
+    private FraudAuditLogService fraudAuditLogService;
+    @Autowired
+    private FraudPolicyRepository policyRepository;
+
+    @Test
+    @DisplayName("Checks reading the cached policy should sustain at least the throughput of checks reading it from the database")
+    void cachedPolicy_Throughput() throws Exception {
+        //Warm up the connection pool and the JIT
+        run(false, 50);
+        run(true, 50);
+
+        double before = run(false, CHECKS_PER_THREAD);
+        double after = run(true, CHECKS_PER_THREAD);
+        System.out.printf("%d fraud checks from %d threads: policy read per check %.0f checks/s, cached policy %.0f checks/s%n",
+                THREADS * CHECKS_PER_THREAD, THREADS, before, after);
+
+        assertTrue(after >= before, "Dropping the policy query should not lower the throughput");
+    }
+
+    private double run(boolean cachedPolicy, int checksPerThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < checksPerThread; j++) {
+                        if (!cachedPolicy) {
+                            policyRepository.findAll().stream().findFirst().orElseThrow();
+                        }
+                        fraudAuditLogService.validateTransaction(new FraudRequestDTO(UUID.randomUUID(), new BigDecimal("100.00"), null));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return THREADS * checksPerThread / seconds;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.ahmadmouslimani.fraud.service.impl;
+
+import com.ahmadmouslimani.fraud.dto.FraudPolicyRequestDTO;
+import com.ahmadmouslimani.fraud.dto.FraudPolicyResponseDTO;
+import com.ahmadmouslimani.fraud.entity.FraudPolicy;
+import com.ahmadmouslimani.fraud.event.FraudPolicyChangedEvent;
+import com.ahmadmouslimani.fraud.policy.FraudPolicyHolder;
+import com.ahmadmouslimani.fraud.repository.FraudPolicyRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FraudPolicyServiceImplTest {
+
+    @Mock
+    private FraudPolicyRepository policyRepository;
+    @Mock
+    private FraudPolicyHolder policyHolder;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @InjectMocks
+    private FraudPolicyServiceImpl fraudPolicyService;
+
+    @Test
+    @DisplayName("Should save the new limits and publish the policy with its new version")
+    void updatePolicy_SavesAndPublishes() {
+        //Arrange
+        FraudPolicy policy = new FraudPolicy();
+        policy.setId(UUID.randomUUID());
+        policy.setFraudLimit(new BigDecimal("10000.00"));
+        policy.setTimeInterval(Duration.ofHours(1));
+        when(policyRepository.findFirstByOrderByIdAsc()).thenReturn(Optional.of(policy));
+        when(policyRepository.saveAndFlush(policy)).thenAnswer(inv -> {
+            policy.setVersion(1);
+            return policy;
+        });
+
+        //Act
+        FraudPolicyResponseDTO response = fraudPolicyService.updatePolicy(
+                new FraudPolicyRequestDTO(new BigDecimal("500.00"), Duration.ofMinutes(30)));
+
+        //Assert
+        assertEquals(new BigDecimal("500.00"), response.fraudLimit());
+        assertEquals(Duration.ofMinutes(30), response.timeInterval());
+        assertEquals(1, response.version());
+        ArgumentCaptor<FraudPolicyChangedEvent> event = ArgumentCaptor.forClass(FraudPolicyChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(1, event.getValue().policy().version());
+        assertEquals(new BigDecimal("500.00"), event.getValue().policy().fraudLimit());
+    }
+
+    @Test
+    @DisplayName("Should throw IllegalStateException when updating a policy that was never initialized")
+    void updatePolicy_NoPolicy() {
+        //Arrange
+        when(policyRepository.findFirstByOrderByIdAsc()).thenReturn(Optional.empty());
+
+        //Act & Assert
+        assertThrows(IllegalStateException.class, () -> fraudPolicyService.updatePolicy(
+                new FraudPolicyRequestDTO(new BigDecimal("500.00"), Duration.ofMinutes(30))));
+        verify(policyRepository, never()).saveAndFlush(any());
+        verifyNoInteractions(eventPublisher);
+    }
+}
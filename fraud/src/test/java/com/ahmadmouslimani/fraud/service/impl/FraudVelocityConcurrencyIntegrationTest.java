@@ -0,0 +1,79 @@
+package com.ahmadmouslimani.fraud.service.impl;
+
+import com.ahmadmouslimani.fraud.dto.FraudRequestDTO;
+import com.ahmadmouslimani.fraud.dto.FraudResponseDTO;
+import com.ahmadmouslimani.fraud.repository.FraudAuditLogRepository;
+import com.ahmadmouslimani.fraud.service.FraudAuditLogService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Floods one card from many threads with the checks serialized by the card's database lock, the way
+ * instances without routing by card run them. Exactly the frequency limit should be approved.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {
+                "app.velocity.shared=true",
+                "spring.datasource.hikari.maximum-pool-size=20"
+        }
+)
+@ActiveProfiles("test")
+class FraudVelocityConcurrencyIntegrationTest {
+
+    private static final int THREADS = 16;
+    private static final int CHECKS = 200;
+
+    @Autowired
+    private FraudAuditLogService fraudAuditLogService;
+    @Autowired
+    private FraudAuditLogRepository auditRepository;
+
+    @Test
+    @DisplayName("Concurrent checks of one card should approve exactly the frequency limit and audit every check")
+    void floodOneCard_ApprovesExactlyTheLimit() throws Exception {
+        UUID cardId = UUID.randomUUID();
+        ExecutorService clients = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<FraudResponseDTO>> responses = new ArrayList<>(CHECKS);
+            for (int i = 0; i < CHECKS; i++) {
+                responses.add(clients.submit(() -> {
+                    start.await();
+                    return fraudAuditLogService.validateTransaction(new FraudRequestDTO(cardId, new BigDecimal("10.00"), null));
+                }));
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            int approved = 0;
+            for (Future<FraudResponseDTO> response : responses) {
+                if (!response.get(2, TimeUnit.MINUTES).isFraudulent()) {
+                    approved++;
+                }
+            }
+            System.out.printf("%d concurrent checks of one card from %d threads under the card lock: %dms%n",
+                    CHECKS, THREADS, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+            assertEquals(8, approved);
+            assertEquals(CHECKS, auditRepository.countByCardIdAndCreatedAtAfter(cardId, LocalDateTime.now().minusHours(1)));
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.ahmadmouslimani.fraud.velocity;
+
+import com.ahmadmouslimani.fraud.config.VelocityProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardVelocityTrackerTest {
+
+    @Mock
+    private Clock clock;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Instant start = Instant.parse("2026-01-01T10:00:00Z");
+    private final Duration window = Duration.ofHours(1);
+    private final UUID cardId = UUID.randomUUID();
+    private CardVelocityTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        when(clock.instant()).thenReturn(start);
+        lenient().when(clock.millis()).thenReturn(start.toEpochMilli());
+        tracker = new CardVelocityTracker(new VelocityProperties(8, 3, Duration.ofMinutes(1), false), meterRegistry, clock);
+    }
+
+    @Test
+    @DisplayName("Should return the earlier checks of the card, at most the history size")
+    void recordAndGet_ReturnsEarlierChecks() {
+        //Act & Assert
+        assertEquals(0, tracker.recordAndGet(cardId, 100).countWithin(window));
+        assertEquals(1, tracker.recordAndGet(cardId, 200).countWithin(window));
+        assertEquals(2, tracker.recordAndGet(cardId, 300).countWithin(window));
+        CardHistory history = tracker.recordAndGet(cardId, 400);
+        assertEquals(3, history.countWithin(window));
+        assertEquals(600, history.amountWithin(window));
+        CardHistory full = tracker.recordAndGet(cardId, 500);
+        assertEquals(3, full.countWithin(window));
+        assertEquals(900, full.amountWithin(window), "The oldest check is replaced once the history is full");
+        assertEquals(0, tracker.recordAndGet(UUID.randomUUID(), 100).countWithin(window), "Cards are tracked separately");
+    }
+
+    @Test
+    @DisplayName("Should still sum the amounts of the checks pushed out of a full history within the retention")
+    void recordAndGet_FullHistory_AmountsKept() {
+        //Arrange
+        tracker.retainFor(window);
+        for (int i = 0; i < 10; i++) {
+            tracker.recordAndGet(cardId, 100);
+        }
+
+        //Act
+        CardHistory history = tracker.recordAndGet(cardId, 100);
+        when(clock.millis()).thenReturn(start.plus(Duration.ofMinutes(70)).toEpochMilli());
+        CardHistory later = tracker.recordAndGet(cardId, 100);
+
+        //Assert
+        assertEquals(3, history.countWithin(window), "Counts only see the history");
+        assertEquals(1000, history.amountWithin(window), "Every earlier check of the window is summed");
+        assertEquals(0, later.amountWithin(window), "Pushed out checks leave the window too");
+    }
+
+    @Test
+    @DisplayName("Should stop counting checks older than the window")
+    void recordAndGet_SlidesWithTheWindow() {
+        //Arrange
+        tracker.recordAndGet(cardId, 100);
+        when(clock.millis()).thenReturn(start.plus(Duration.ofMinutes(40)).toEpochMilli());
+        tracker.recordAndGet(cardId, 250);
+
+        //Act
+        when(clock.millis()).thenReturn(start.plus(Duration.ofMinutes(70)).toEpochMilli());
+        CardHistory history = tracker.recordAndGet(cardId, 100);
+
+        //Assert
+        assertEquals(1, history.countWithin(window), "Only the check of 30 minutes ago is within the window");
+        assertEquals(250, history.amountWithin(window));
+        assertEquals(2, history.countWithin(Duration.ofHours(2)), "Each rule reads the history with its own window");
+    }
+
+    @Test
+    @DisplayName("Should keep the checks restored from the audit table, in any order")
+    void restore_KeepsPastChecks() {
+        //Arrange
+        tracker.recordAndGet(cardId, 100);
+        tracker.restore(cardId, start.minus(Duration.ofMinutes(5)), 100);
+        tracker.restore(cardId, start.minus(Duration.ofMinutes(90)), 100);
+        tracker.restore(cardId, start.minus(Duration.ofMinutes(20)), 100);
+
+        //Act
+        tracker.markWarm();
+
+        //Assert
+        assertTrue(tracker.isWarm());
+        assertEquals(3, tracker.recordAndGet(cardId, 100).countWithin(window),
+                "The check of 90 minutes ago is the oldest of four and was replaced");
+        assertEquals(start, tracker.recordingSince());
+    }
+
+    @Test
+    @DisplayName("Should evict the cards without a check in the retention window, once warmed up")
+    void evictIdle_DropsIdleCards() {
+        //Arrange
+        UUID idleCard = UUID.randomUUID();
+        tracker.retainFor(window);
+        tracker.recordAndGet(idleCard, 100);
+        tracker.evictIdle();
+        assertEquals(1, tracker.size(), "Nothing is evicted before the warm-up is done");
+        tracker.markWarm();
+        when(clock.millis()).thenReturn(start.plus(Duration.ofMinutes(61)).toEpochMilli());
+        tracker.recordAndGet(cardId, 100);
+
+        //Act
+        tracker.evictIdle();
+
+        //Assert
+        assertEquals(1, tracker.size());
+        assertEquals(1, meterRegistry.get("fraud.velocity.cards").gauge().value());
+        assertEquals(1, tracker.recordAndGet(cardId, 100).countWithin(window));
+        assertEquals(0, tracker.recordAndGet(idleCard, 100).countWithin(Duration.ofDays(1)));
+    }
+}
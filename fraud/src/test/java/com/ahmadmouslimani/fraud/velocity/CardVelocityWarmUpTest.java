@@ -0,0 +1,95 @@
+package com.ahmadmouslimani.fraud.velocity;
+
+import com.ahmadmouslimani.fraud.policy.FraudPolicyHolder;
+import com.ahmadmouslimani.fraud.policy.FraudPolicySnapshot;
+import com.ahmadmouslimani.fraud.rules.FraudRuleEngine;
+import com.ahmadmouslimani.fraud.rules.FraudRulePlan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardVelocityWarmUpTest {
+
+    @Mock
+    private FraudPolicyHolder policyHolder;
+    @Mock
+    private FraudRuleEngine ruleEngine;
+    @Mock
+    private FraudRulePlan plan;
+    @Mock
+    private CardVelocityTracker velocityTracker;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement statement;
+    @Mock
+    private ResultSet resultSet;
+
+    @Test
+    @DisplayName("Should stream the audited checks with a cursor and feed each one to the tracker before marking it warm")
+    void warmUp_StreamsChecksIntoTracker() throws Exception {
+        //Arrange
+        FraudPolicySnapshot policy = new FraudPolicySnapshot(UUID.randomUUID(), new BigDecimal("10000.00"), Duration.ofHours(1), 0);
+        when(policyHolder.get()).thenReturn(policy);
+        when(ruleEngine.plan(policy)).thenReturn(plan);
+        when(plan.maxWindow()).thenReturn(Duration.ofHours(1));
+        when(velocityTracker.recordingSince()).thenReturn(Instant.now());
+        when(connection.prepareStatement(CardVelocityWarmUp.SELECT_CHECKS)).thenReturn(statement);
+
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        LocalDateTime checkedAt = LocalDateTime.now().minusMinutes(5);
+        when(resultSet.getObject(1, UUID.class)).thenReturn(first, second);
+        when(resultSet.getObject(2, LocalDateTime.class)).thenReturn(checkedAt);
+        when(resultSet.getBigDecimal(3)).thenReturn(new BigDecimal("12.50"), new BigDecimal("7.00"));
+        doAnswer(invocation -> {
+            invocation.<PreparedStatementCreator>getArgument(0).createPreparedStatement(connection);
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(resultSet);
+            handler.processRow(resultSet);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        CardVelocityWarmUp warmUp = new CardVelocityWarmUp(policyHolder, ruleEngine, velocityTracker, jdbcTemplate, transactionManager);
+
+        //Act
+        warmUp.warmUp();
+
+        //Assert
+        verify(statement).setFetchSize(anyInt());
+        Instant instant = checkedAt.atZone(ZoneId.systemDefault()).toInstant();
+        InOrder inOrder = inOrder(velocityTracker);
+        inOrder.verify(velocityTracker).restore(first, instant, 1250);
+        inOrder.verify(velocityTracker).restore(second, instant, 700);
+        inOrder.verify(velocityTracker).markWarm();
+        verify(transactionManager).commit(any());
+        verify(statement).setObject(eq(1), any(LocalDateTime.class));
+    }
+}
@@ -9,6 +9,8 @@ CREATE DATABASE fraud_db;
 CREATE DATABASE transaction_db;
 CREATE DATABASE card_db;
 CREATE DATABASE account_db;
+-- Single database used by the collocated deployment
+CREATE DATABASE collocated_db;
 
 -- 2. Setup Fraud Service Schemas
 \c fraud_db;
@@ -0,0 +1,160 @@
+package com.ahmadmouslimani.transaction.cache;
+
+import com.ahmadmouslimani.transaction.config.CardCacheProperties;
+import com.ahmadmouslimani.transaction.dto.CardResponseDTO;
+import com.ahmadmouslimani.transaction.encryption.HashUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL based cache of the card fields needed to validate a transaction.
+ * Cards are keyed by their blind index hash, the card number itself is never stored.
+ * The Card service pushes status changes to {@link #invalidate(String, Instant)}, the TTL
+ * bounds staleness if one of those pushes is lost.
+ * Entries live in a {@link SegmentedLruMap}, so concurrent lookups of different cards do not share a lock.
+ */
+@Slf4j
+public class CardNearCache {
+    private final CardCacheProperties properties;
+    private final HashUtils hashUtils;
+    private final Clock clock;
+
+    //A card loaded while its segment had an invalidation is returned but not cached
+    private final SegmentedLruMap<String, CachedCard> entries;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter expiredEvictions;
+    private final Counter sizeEvictions;
+    private final Counter invalidatedEvictions;
+    private final Timer entryAge;
+    private final Timer invalidationLag;
+
+    public CardNearCache(CardCacheProperties properties, HashUtils hashUtils, MeterRegistry meterRegistry, Clock clock) {
+        this.properties = properties;
+        this.hashUtils = hashUtils;
+        this.clock = clock;
+        this.entries = new SegmentedLruMap<>(properties.maxSize());
+
+        this.hits = requests(meterRegistry, "hit");
+        this.misses = requests(meterRegistry, "miss");
+        this.expiredEvictions = evictions(meterRegistry, "expired");
+        this.sizeEvictions = evictions(meterRegistry, "size");
+        this.invalidatedEvictions = evictions(meterRegistry, "invalidated");
+        this.entryAge = Timer.builder("card.cache.entry.age")
+                .description("Age of the cached card served on a hit")
+                .register(meterRegistry);
+        this.invalidationLag = Timer.builder("card.cache.invalidation.lag")
+                .description("Time between a card status change and its invalidation reaching the cache")
+                .register(meterRegistry);
+        Gauge.builder("card.cache.size", this, CardNearCache::size)
+                .description("Number of cards in the near cache")
+                .register(meterRegistry);
+        Gauge.builder("card.cache.hit.ratio", this, CardNearCache::hitRatio)
+                .description("Share of card lookups served from the near cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached card for this card number, or loads it and caches it on a miss.
+     * The returned card always carries the card number of the caller.
+     */
+    public CardResponseDTO getCard(String cardNumber, Function<String, CardResponseDTO> loader) {
+        if (!properties.enabled()) {
+            return loader.apply(cardNumber);
+        }
+
+        String key = hashUtils.generateSearchHash(cardNumber);
+        CachedCard cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            entryAge.record(Duration.between(cached.loadedAt(), clock.instant()));
+            return cached.toDto(cardNumber);
+        }
+
+        misses.increment();
+        long version = entries.version(key);
+        CardResponseDTO card = loader.apply(cardNumber);
+        store(key, new CachedCard(card.id(), card.expiry(), card.status(), card.accountId(), clock.instant()), version);
+        return card;
+    }
+
+    /**
+     * Drops the cached card with this blind index hash.
+     * @param changedAt When the Card service changed the card, used to measure the invalidation lag
+     */
+    public void invalidate(String cardNumberHash, Instant changedAt) {
+        CachedCard removed = entries.invalidate(cardNumberHash);
+
+        if (removed != null) {
+            invalidatedEvictions.increment();
+        }
+        if (changedAt != null) {
+            Duration lag = Duration.between(changedAt, clock.instant());
+            invalidationLag.record(lag.isNegative() ? Duration.ZERO : lag);
+        }
+        log.debug("Card invalidated in near cache, cached: {}", removed != null);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private CachedCard lookup(String key) {
+        CachedCard cached = entries.get(key);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.loadedAt().plus(properties.ttl()).isBefore(clock.instant())) {
+            //Unless a concurrent lookup already replaced it
+            if (entries.remove(key, cached)) {
+                expiredEvictions.increment();
+            }
+            return null;
+        }
+        return cached;
+    }
+
+    private void store(String key, CachedCard card, long version) {
+        //Not added when an invalidation arrived while the card was loading, what we loaded may already be stale
+        int evicted = entries.put(key, card, version);
+        if (evicted > 0) {
+            sizeEvictions.increment(evicted);
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("card.cache.requests")
+                .description("Card lookups through the near cache")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter evictions(MeterRegistry meterRegistry, String cause) {
+        return Counter.builder("card.cache.evictions")
+                .description("Cards removed from the near cache")
+                .tag("cause", cause)
+                .register(meterRegistry);
+    }
+
+    private record CachedCard(UUID id, LocalDate expiry, String status, UUID accountId, Instant loadedAt) {
+        CardResponseDTO toDto(String cardNumber) {
+            return new CardResponseDTO(id, expiry, cardNumber, status, accountId);
+        }
+    }
+}
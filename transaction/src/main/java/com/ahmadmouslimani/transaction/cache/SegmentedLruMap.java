@@ -0,0 +1,143 @@
+package com.ahmadmouslimani.transaction.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded map that evicts its least recently used entries, split into segments by key hash. Each segment is an
+ * access ordered LinkedHashMap behind its own lock, so lookups of different keys rarely contend. The eviction order
+ * is exact within a segment and approximate across segments. Maps too small to split have a single segment and
+ * evict exactly.
+ */
+public class SegmentedLruMap<K, V> {
+    //Keeps each segment large enough for its LRU order to be meaningful
+    private static final int MIN_SEGMENT_SIZE = 64;
+    private static final int MAX_SEGMENTS = 64;
+
+    private final Segment<K, V>[] segments;
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    public SegmentedLruMap(int maxSize) {
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(maxSize / count + (i < maxSize % count ? 1 : 0));
+        }
+        this.mask = count - 1;
+    }
+
+    /** Returns the value of the key and marks it as the most recently used one, null when absent. */
+    public V get(K key) {
+        Segment<K, V> segment = segment(key);
+        segment.lock.lock();
+        try {
+            return segment.entries.get(key);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the entry, evicting the least recently used entries of its segment beyond its share of the max size.
+     * @return The number of entries evicted
+     */
+    public int put(K key, V value) {
+        return put(key, value, -1);
+    }
+
+    /**
+     * Adds the entry unless the key's segment had an invalidation since {@link #version(Object)} returned version.
+     * @param version The version read before the value was loaded, -1 to add unconditionally
+     * @return The number of entries evicted, -1 when the entry was not added
+     */
+    public int put(K key, V value, long version) {
+        Segment<K, V> segment = segment(key);
+        segment.lock.lock();
+        try {
+            if (version >= 0 && segment.invalidations != version) {
+                return -1;
+            }
+            segment.entries.put(key, value);
+            int evicted = 0;
+            Iterator<Map.Entry<K, V>> eldest = segment.entries.entrySet().iterator();
+            while (segment.entries.size() > segment.maxSize && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evicted++;
+            }
+            return evicted;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /** Removes the entry only if it still holds this value, e.g. an expired one. */
+    public boolean remove(K key, V value) {
+        Segment<K, V> segment = segment(key);
+        segment.lock.lock();
+        try {
+            return segment.entries.remove(key, value);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the entry and bumps the version of its segment, so a value loaded before is not added.
+     * @return The value removed, null when absent
+     */
+    public V invalidate(K key) {
+        Segment<K, V> segment = segment(key);
+        segment.lock.lock();
+        try {
+            segment.invalidations++;
+            return segment.entries.remove(key);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /** Version of the key's segment, to read before loading a value added with {@link #put(Object, Object, long)}. */
+    public long version(K key) {
+        Segment<K, V> segment = segment(key);
+        segment.lock.lock();
+        try {
+            return segment.invalidations;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.entries.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private Segment<K, V> segment(K key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & mask];
+    }
+
+    private static final class Segment<K, V> {
+        private final ReentrantLock lock = new ReentrantLock();
+        //Access ordered, so the first entry is always the least recently used one
+        private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int maxSize;
+        private long invalidations;
+
+        private Segment(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+}
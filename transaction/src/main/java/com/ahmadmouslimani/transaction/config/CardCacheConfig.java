@@ -0,0 +1,20 @@
+package com.ahmadmouslimani.transaction.config;
+
+import com.ahmadmouslimani.transaction.cache.CardNearCache;
+import com.ahmadmouslimani.transaction.encryption.HashUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+@EnableConfigurationProperties(CardCacheProperties.class)
+public class CardCacheConfig {
+
+    @Bean
+    public CardNearCache cardNearCache(CardCacheProperties properties, HashUtils hashUtils, MeterRegistry meterRegistry) {
+        return new CardNearCache(properties, hashUtils, meterRegistry, Clock.systemUTC());
+    }
+}
@@ -0,0 +1,19 @@
+package com.ahmadmouslimani.transaction.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the near cache of card lookups.
+ * @param enabled When false, every lookup goes to the Card service
+ * @param maxSize Maximum number of cards kept, the least recently used card is evicted first
+ * @param ttl Maximum age of a cached card, bounds staleness when an invalidation is missed
+ */
+@ConfigurationProperties(prefix = "application.config.card-cache")
+public record CardCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") int maxSize,
+        @DefaultValue("30s") Duration ttl
+) {}
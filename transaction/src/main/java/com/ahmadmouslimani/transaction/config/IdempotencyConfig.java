@@ -0,0 +1,26 @@
+package com.ahmadmouslimani.transaction.config;
+
+import com.ahmadmouslimani.transaction.encryption.HashUtils;
+import com.ahmadmouslimani.transaction.idempotency.TransactionIdempotencyStore;
+import com.ahmadmouslimani.transaction.repository.TransactionIdempotencyKeyRepository;
+import com.ahmadmouslimani.transaction.service.TransactionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+@EnableConfigurationProperties(IdempotencyProperties.class)
+public class IdempotencyConfig {
+
+    @Bean
+    public TransactionIdempotencyStore transactionIdempotencyStore(IdempotencyProperties properties,
+                                                                   TransactionIdempotencyKeyRepository repository,
+                                                                   TransactionService transactionService,
+                                                                   HashUtils hashUtils, MeterRegistry meterRegistry) {
+        return new TransactionIdempotencyStore(properties, repository, transactionService, hashUtils, meterRegistry,
+                Clock.systemUTC());
+    }
+}
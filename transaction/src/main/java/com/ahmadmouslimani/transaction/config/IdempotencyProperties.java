@@ -0,0 +1,29 @@
+package com.ahmadmouslimani.transaction.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the Idempotency-Key header of POST /api/transaction/create.
+ * @param enabled When false, the header is ignored and every request creates a transaction
+ * @param maxSize Maximum number of completed keys kept in memory, the least recently used key is evicted first
+ * @param ttl How long a completed key is answered from memory, older keys are looked up in the database
+ * @param retention How long the claim of a key, and so the request it was used for, is kept in the database.
+ *                  Retries arriving later still get the transaction carrying the key, without that check
+ * @param waitTimeout How long a duplicate waits for the request holding its key before getting a 409
+ * @param staleClaim Age after which a key without a committed transaction may be taken over by a retry, longer
+ *                   than any request
+ * @param purgeInterval Delay between two deletions of the expired keys
+ */
+@ConfigurationProperties(prefix = "application.config.idempotency")
+public record IdempotencyProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("100000") int maxSize,
+        @DefaultValue("10m") Duration ttl,
+        @DefaultValue("24h") Duration retention,
+        @DefaultValue("5s") Duration waitTimeout,
+        @DefaultValue("1m") Duration staleClaim,
+        @DefaultValue("1h") Duration purgeInterval
+) {}
@@ -0,0 +1,17 @@
+package com.ahmadmouslimani.transaction.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the streaming NDJSON ingest.
+ * @param concurrency Number of transactions orchestrated at the same time
+ * @param windowSize Maximum number of items read but not yet written back. Reading stops while the window is full
+ * @param progressInterval Number of items between two throughput log lines
+ */
+@ConfigurationProperties(prefix = "application.config.ingest")
+public record IngestProperties(
+        @DefaultValue("16") int concurrency,
+        @DefaultValue("64") int windowSize,
+        @DefaultValue("10000") int progressInterval
+) {}
@@ -0,0 +1,21 @@
+package com.ahmadmouslimani.transaction.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for how createTransaction calls the downstream services.
+ * @param parallel When true, the account fetch and the fraud check run concurrently once the card is resolved
+ * @param poolSize Number of threads available for the concurrent downstream calls
+ * @param queueCapacity Number of calls that may wait for a thread before the caller runs them itself
+ * @param callTimeout Maximum time to wait for a downstream call in parallel mode
+ */
+@ConfigurationProperties(prefix = "application.config.orchestration")
+public record OrchestrationProperties(
+        @DefaultValue("false") boolean parallel,
+        @DefaultValue("32") int poolSize,
+        @DefaultValue("256") int queueCapacity,
+        @DefaultValue("3s") Duration callTimeout
+) {}
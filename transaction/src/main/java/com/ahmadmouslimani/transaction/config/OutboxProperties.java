@@ -0,0 +1,28 @@
+package com.ahmadmouslimani.transaction.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the transactional outbox of balance adjustments.
+ * @param enabled When true, createTransaction commits an approved transaction as PENDING with an outbox event
+ *                and the relay applies its balance adjustment, no database connection is held during the remote calls
+ * @param concurrency Number of balance adjustments the relay makes at the same time
+ * @param batchSize Maximum number of due events claimed by one poll
+ * @param pollInterval Delay between two polls for due events
+ * @param lease Time a claimed event is reserved for its relay. Must exceed the Account call timeout
+ * @param initialBackoff Delay before the first retry of a failed adjustment, doubled on each further failure
+ * @param maxBackoff Upper bound of the delay between two retries
+ */
+@ConfigurationProperties(prefix = "application.config.outbox")
+public record OutboxProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("16") int concurrency,
+        @DefaultValue("100") int batchSize,
+        @DefaultValue("500ms") Duration pollInterval,
+        @DefaultValue("30s") Duration lease,
+        @DefaultValue("1s") Duration initialBackoff,
+        @DefaultValue("5m") Duration maxBackoff
+) {}
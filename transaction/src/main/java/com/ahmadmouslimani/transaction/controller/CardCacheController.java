@@ -0,0 +1,50 @@
+package com.ahmadmouslimani.transaction.controller;
+
+import com.ahmadmouslimani.transaction.cache.CardNearCache;
+import com.ahmadmouslimani.transaction.dto.CardInvalidationDTO;
+import com.ahmadmouslimani.transaction.dto.ErrorResponseDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/transaction/cache/card")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Card Cache API", description = "Invalidation of the cached card lookups")
+public class CardCacheController {
+    private final CardNearCache cardNearCache;
+
+    @Operation(
+            summary = "Invalidate a cached Card",
+            description = "Called by the Card service when a card status changes, so the next transaction reloads the card."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "204",
+                    description = "Card invalidated"
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid request body",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @PostMapping("/invalidate")
+    public ResponseEntity<Void> invalidateCard(@RequestBody @Valid CardInvalidationDTO invalidation) {
+        log.debug("Invalidate cached Card");
+        cardNearCache.invalidate(invalidation.cardNumberHash(), invalidation.changedAt());
+        return ResponseEntity.noContent().build();
+    }
+}
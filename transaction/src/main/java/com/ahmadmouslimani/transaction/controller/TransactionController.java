@@ -1,23 +1,35 @@
 package com.ahmadmouslimani.transaction.controller;
 
 import com.ahmadmouslimani.transaction.dto.ErrorResponseDTO;
+import com.ahmadmouslimani.transaction.dto.IngestSummaryDTO;
+import com.ahmadmouslimani.transaction.dto.TransactionBatchItemDTO;
 import com.ahmadmouslimani.transaction.dto.TransactionRequestDTO;
 import com.ahmadmouslimani.transaction.dto.TransactionResponseDTO;
+import com.ahmadmouslimani.transaction.idempotency.TransactionIdempotencyStore;
+import com.ahmadmouslimani.transaction.service.TransactionIngestService;
 import com.ahmadmouslimani.transaction.service.TransactionService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -28,10 +40,13 @@ import java.util.UUID;
 @Tag(name = "Transaction API", description = "Operations for managing Transactions")
 public class TransactionController {
     private final TransactionService transactionService;
+    private final TransactionIngestService transactionIngestService;
+    private final TransactionIdempotencyStore transactionIdempotencyStore;
 
     @Operation(
             summary = "Create a new Transaction",
-            description = "Creates a new Transaction in the system based on the provided details."
+            description = "Creates a new Transaction in the system based on the provided details. " +
+                    "A retry carrying the same Idempotency-Key returns the Transaction created for that key."
     )
     @ApiResponses({
             @ApiResponse(
@@ -44,7 +59,12 @@ public class TransactionController {
             ),
             @ApiResponse(
                     responseCode = "409",
-                    description = "Card is INACTIVE",
+                    description = "A request with the same Idempotency-Key is still in progress",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "Idempotency-Key already used for a different request",
                     content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
             ),
             @ApiResponse(
@@ -59,14 +79,87 @@ public class TransactionController {
             )
     })
     @PostMapping("/create")
-    public ResponseEntity<TransactionResponseDTO> createTransaction(@RequestBody @Valid TransactionRequestDTO request) {
+    public ResponseEntity<TransactionResponseDTO> createTransaction(
+            @RequestBody @Valid TransactionRequestDTO request,
+            @Parameter(description = "Client chosen key identifying the request across retries")
+            @RequestHeader(name = "Idempotency-Key", required = false)
+            @Size(min = 1, max = 64, message = "Idempotency-Key must be between 1 and 64 characters")
+            String idempotencyKey
+    ) {
         log.debug("Create Transaction");
-        TransactionResponseDTO transactionResponseDTO = transactionService.createTransaction(request);
+        TransactionResponseDTO transactionResponseDTO = transactionIdempotencyStore.createTransaction(idempotencyKey, request);
         return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .body(transactionResponseDTO);
     }
 
+    @Operation(
+            summary = "Create a batch of Transactions",
+            description = "Processes up to 1000 Transactions in one request. Items are applied in the submitted order " +
+                    "and the result of each item is returned at the same position."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Batch processed",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = TransactionBatchItemDTO.class))
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid request body",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Internal server error",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<List<TransactionBatchItemDTO>> createTransactions(
+            @RequestBody
+            @Size(min = 1, max = 1000, message = "Batch must contain between 1 and 1000 transactions")
+            List<@Valid TransactionRequestDTO> requests
+    ) {
+        log.debug("Create Transaction batch of size: {}", requests.size());
+        List<TransactionBatchItemDTO> items = transactionService.createTransactions(requests);
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(items);
+    }
+
+    @Operation(
+            summary = "Stream Transactions as NDJSON",
+            description = "Reads one TransactionRequest JSON object per line and streams back one TransactionBatchItem " +
+                    "per line, in input order, while the upload is still in progress. Suited for large replays."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Items processed, one result per line",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = TransactionBatchItemDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Internal server error",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @PostMapping(value = "/ingest", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void ingestTransactions(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("Ingest Transaction stream");
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        IngestSummaryDTO summary = transactionIngestService.ingest(request.getInputStream(), response.getOutputStream());
+        log.debug("Ingested {} Transactions", summary.items());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<TransactionResponseDTO> getTransaction(@PathVariable UUID id) {
         log.debug("Request Get Transaction by Id: {}", id);
@@ -0,0 +1,10 @@
+package com.ahmadmouslimani.transaction.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record BalanceAdjustmentRequestDTO(
+        UUID accountId,
+        BigDecimal amount,
+        String transactionType
+) {}
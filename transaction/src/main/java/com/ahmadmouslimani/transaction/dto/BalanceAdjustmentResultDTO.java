@@ -0,0 +1,9 @@
+package com.ahmadmouslimani.transaction.dto;
+
+import java.util.UUID;
+
+public record BalanceAdjustmentResultDTO(
+        UUID accountId,
+        boolean applied,
+        String message
+) {}
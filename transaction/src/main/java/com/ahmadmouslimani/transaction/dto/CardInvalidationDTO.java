@@ -0,0 +1,16 @@
+package com.ahmadmouslimani.transaction.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+
+import java.time.Instant;
+
+@Schema(name = "CardInvalidation", description = "Schema to hold a card status change pushed by the Card service")
+public record CardInvalidationDTO(
+        @Schema(description = "Blind index hash of the changed card", example = "q1u8m0Hk4V7pQeL2m7sY0f8n3pZxw6c1bVfR9tJ2kLo=")
+        @NotBlank(message = "cardNumberHash is required")
+        String cardNumberHash,
+
+        @Schema(description = "When the card status changed", example = "2026-01-01T10:15:30Z")
+        Instant changedAt
+) {}
@@ -6,5 +6,6 @@ import java.util.UUID;
 public record FraudRequestDTO(
 
     UUID cardId,
-    BigDecimal amount
+    BigDecimal amount,
+    UUID accountId
 ) {}
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.ahmadmouslimani.transaction.dto;
+
+import java.time.Duration;
+
+public record IngestSummaryDTO(
+        long items,
+        long approved,
+        long rejected,
+        long failed,
+        Duration elapsed
+) {
+    public double itemsPerSecond() {
+        long millis = Math.max(1, elapsed.toMillis());
+        return items * 1000.0 / millis;
+    }
+}
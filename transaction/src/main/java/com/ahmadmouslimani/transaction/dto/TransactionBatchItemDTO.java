@@ -0,0 +1,23 @@
+package com.ahmadmouslimani.transaction.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "TransactionBatchItem", description = "Schema to hold the outcome of a single item of a Transaction batch")
+public record TransactionBatchItemDTO(
+        @Schema(description = "Position of the item in the submitted batch", example = "0")
+        int index,
+
+        @Schema(description = "The recorded Transaction, APPROVED or REJECTED. Empty when the item could not be processed")
+        TransactionResponseDTO transaction,
+
+        @Schema(description = "Reason the item could not be processed", example = "Card not found")
+        String errorMessage
+) {
+    public static TransactionBatchItemDTO processed(int index, TransactionResponseDTO transaction) {
+        return new TransactionBatchItemDTO(index, transaction, null);
+    }
+
+    public static TransactionBatchItemDTO failed(int index, String errorMessage) {
+        return new TransactionBatchItemDTO(index, null, errorMessage);
+    }
+}
@@ -0,0 +1,43 @@
+package com.ahmadmouslimani.transaction.encryption;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * Same blind index as the Card service, used to key cached cards without keeping the card number.
+ * The key is initialized once, each hash clones the initialized Mac instead of looking up the provider
+ * and running the key schedule again.
+ */
+@Component
+public class HashUtils {
+    private static final String HMAC_ALGO = "HmacSHA256";
+
+    private final Mac prototype;
+
+    public HashUtils(@Value("${app.security.blind-index-salt}") String secretSalt) {
+        try {
+            this.prototype = Mac.getInstance(HMAC_ALGO);
+            this.prototype.init(new SecretKeySpec(secretSalt.getBytes(StandardCharsets.UTF_8), HMAC_ALGO));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Encryption error: Could not initialize the blind index", e);
+        }
+    }
+
+    public String generateSearchHash(String input) {
+        if (input == null || input.isBlank()) {
+            return null;
+        }
+        try {
+            Mac mac = (Mac) prototype.clone();
+            return Base64.getEncoder().encodeToString(mac.doFinal(input.getBytes(StandardCharsets.UTF_8)));
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException("Encryption error: Could not generate blind index", e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.ahmadmouslimani.transaction.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Balance adjustment of a PENDING transaction, inserted in the same database transaction as the transaction row
+ * and deleted once the transaction reaches its final status. Its id is the id of the transaction, which is also
+ * the idempotency key sent to the Account service, so a retried adjustment is never applied twice.
+ */
+@Entity
+@Table(
+        name = "transaction_outbox",
+        indexes = @Index(columnList = "availableAt")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxEvent implements Persistable<UUID> {
+    @Id
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(updatable = false, nullable = false)
+    private UUID accountId;
+
+    @Column(updatable = false, nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(updatable = false, nullable = false, length = 2)
+    private String transactionType;
+
+    @Column(updatable = false, nullable = false)
+    private Instant createdAt;
+
+    //The event is due from this instant on. A relay claiming it moves it forward by the lease,
+    //so it is picked up again only if that relay did not complete it in time.
+    @Column(nullable = false)
+    private Instant availableAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    private String lastError;
+
+    //The id is assigned from the transaction, without this flag every insert would be preceded by a select
+    @Transient
+    private boolean stored;
+
+    public OutboxEvent(Transaction transaction, Instant now, Instant availableAt) {
+        this.id = transaction.getId();
+        this.accountId = transaction.getAccountId();
+        this.amount = transaction.getTransactionAmount();
+        this.transactionType = transaction.getTransactionType();
+        this.createdAt = now;
+        this.availableAt = availableAt;
+        this.attempts = 1;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !stored;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markStored() {
+        this.stored = true;
+    }
+}
@@ -41,6 +41,10 @@ public class Transaction {
     @Column(nullable = false)
     private TransactionStatus status;
 
+    //Idempotency-Key of the create request, inserted with the row so a key is never completed apart from its transaction
+    @Column(updatable = false, unique = true, length = 64)
+    private String idempotencyKey;
+
     @OneToOne(mappedBy = "transaction")
     private TransactionRejection transactionRejection;
 
@@ -0,0 +1,34 @@
+package com.ahmadmouslimani.transaction.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Claim of the Idempotency-Key of a create request, taken before the transaction is processed. The key is completed
+ * by the transaction row itself, which carries it, so a retry on any instance returns that transaction instead of
+ * creating another.
+ */
+@Entity
+@Table(
+        name = "transaction_idempotency_key",
+        indexes = @Index(columnList = "createdAt")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class TransactionIdempotencyKey {
+    @Id
+    @Column(updatable = false, nullable = false, length = 64)
+    private String idempotencyKey;
+
+    //Blind index of the request, a key reused for a different request is refused
+    @Column(nullable = false, length = 44)
+    private String requestHash;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
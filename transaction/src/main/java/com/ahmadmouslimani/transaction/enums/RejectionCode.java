@@ -0,0 +1,11 @@
+package com.ahmadmouslimani.transaction.enums;
+
+/**
+ * Business checks a transaction can fail before the balance adjustment.
+ */
+public enum RejectionCode {
+    INACTIVE_CARD,
+    EXPIRED_CARD,
+    INACTIVE_ACCOUNT,
+    INSUFFICIENT_FUNDS
+}
@@ -2,5 +2,7 @@ package com.ahmadmouslimani.transaction.enums;
 
 public enum TransactionStatus {
     APPROVED,
-    REJECTED
-}
\ No newline at end of file
+    REJECTED,
+    //Accepted, its balance adjustment is still to be applied by the outbox relay
+    PENDING
+}
@@ -0,0 +1,7 @@
+package com.ahmadmouslimani.transaction.exception;
+
+public class IdempotencyConflictException extends TransactionException {
+    public IdempotencyConflictException() {
+        super("A request with this Idempotency-Key is still in progress, retry later");
+    }
+}
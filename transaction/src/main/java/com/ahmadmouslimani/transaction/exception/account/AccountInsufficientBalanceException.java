@@ -1,9 +0,0 @@
-package com.ahmadmouslimani.transaction.exception.account;
-
-import com.ahmadmouslimani.transaction.exception.TransactionException;
-
-public class AccountInsufficientBalanceException extends TransactionException {
-    public AccountInsufficientBalanceException() {
-        super("Transaction failed. Account has insufficient funds.");
-    }
-}
\ No newline at end of file
@@ -1,9 +0,0 @@
-package com.ahmadmouslimani.transaction.exception.account;
-
-import com.ahmadmouslimani.transaction.exception.TransactionException;
-
-public class InactiveAccountException extends TransactionException {
-    public InactiveAccountException() {
-        super("Transaction failed. Account is INACTIVE");
-    }
-}
\ No newline at end of file
@@ -1,9 +0,0 @@
-package com.ahmadmouslimani.transaction.exception.card;
-
-import com.ahmadmouslimani.transaction.exception.TransactionException;
-
-public class InactiveCardException extends TransactionException {
-    public InactiveCardException() {
-        super("Transaction failed. Card is INACTIVE");
-    }
-}
\ No newline at end of file
@@ -0,0 +1,267 @@
+package com.ahmadmouslimani.transaction.idempotency;
+
+import com.ahmadmouslimani.transaction.cache.SegmentedLruMap;
+import com.ahmadmouslimani.transaction.config.IdempotencyProperties;
+import com.ahmadmouslimani.transaction.dto.TransactionRequestDTO;
+import com.ahmadmouslimani.transaction.dto.TransactionResponseDTO;
+import com.ahmadmouslimani.transaction.encryption.HashUtils;
+import com.ahmadmouslimani.transaction.entity.TransactionIdempotencyKey;
+import com.ahmadmouslimani.transaction.enums.TransactionStatus;
+import com.ahmadmouslimani.transaction.exception.BusinessException;
+import com.ahmadmouslimani.transaction.exception.IdempotencyConflictException;
+import com.ahmadmouslimani.transaction.repository.TransactionIdempotencyKeyRepository;
+import com.ahmadmouslimani.transaction.service.TransactionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Creates at most one transaction per Idempotency-Key.
+ * Completed keys are answered from a bounded in-memory index, so a retry costs one hash and one map lookup.
+ * A PENDING transaction is only indexed by its id and read again until its status is final.
+ * A key not completed on this instance is claimed in the database before the transaction is processed. The
+ * transaction row carries the key, so it is completed by the same commit, and a retry reaching another instance,
+ * or this one after a restart, gets the transaction created for the key.
+ * A duplicate arriving while its key is in progress waits for that request: on this instance through its
+ * result, on another instance by polling the claim, and gets a 409 if it does not complete within wait-timeout.
+ */
+@Slf4j
+public class TransactionIdempotencyStore {
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(50);
+
+    private final IdempotencyProperties properties;
+    private final TransactionIdempotencyKeyRepository repository;
+    private final TransactionService transactionService;
+    private final HashUtils hashUtils;
+    private final Clock clock;
+
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final SegmentedLruMap<String, Completed> completed;
+
+    private final Counter created;
+    private final Counter replayedFromMemory;
+    private final Counter replayedFromDatabase;
+    private final Counter waited;
+
+    public TransactionIdempotencyStore(IdempotencyProperties properties, TransactionIdempotencyKeyRepository repository,
+                                       TransactionService transactionService, HashUtils hashUtils,
+                                       MeterRegistry meterRegistry, Clock clock) {
+        this.properties = properties;
+        this.repository = repository;
+        this.transactionService = transactionService;
+        this.hashUtils = hashUtils;
+        this.clock = clock;
+        this.completed = new SegmentedLruMap<>(properties.maxSize());
+
+        this.created = requests(meterRegistry, "created");
+        this.replayedFromMemory = requests(meterRegistry, "memory");
+        this.replayedFromDatabase = requests(meterRegistry, "database");
+        this.waited = requests(meterRegistry, "waited");
+        Gauge.builder("transaction.idempotency.size", this, TransactionIdempotencyStore::size)
+                .description("Number of completed Idempotency-Keys kept in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Creates the transaction, or returns the one already created for this key.
+     * @param idempotencyKey The key sent by the client, null to create the transaction unconditionally
+     * @throws BusinessException When the key was already used for a different request
+     * @throws IdempotencyConflictException When the request holding the key did not complete within wait-timeout
+     */
+    public TransactionResponseDTO createTransaction(String idempotencyKey, TransactionRequestDTO request) {
+        if (!properties.enabled() || idempotencyKey == null) {
+            return transactionService.createTransaction(request);
+        }
+
+        String requestHash = requestHash(request);
+        Completed done = lookup(idempotencyKey);
+        if (done != null) {
+            replayedFromMemory.increment();
+            return replay(idempotencyKey, done, requestHash);
+        }
+
+        CompletableFuture<TransactionResponseDTO> result = new CompletableFuture<>();
+        InFlight running = inFlight.putIfAbsent(idempotencyKey, new InFlight(requestHash, result));
+        if (running != null) {
+            waited.increment();
+            return await(running, requestHash);
+        }
+        try {
+            TransactionResponseDTO response = createOnce(idempotencyKey, requestHash, request);
+            result.complete(response);
+            return response;
+        } catch (RuntimeException ex) {
+            result.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(idempotencyKey);
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${application.config.idempotency.purge-interval:1h}",
+            fixedDelayString = "${application.config.idempotency.purge-interval:1h}"
+    )
+    public void purgeExpired() {
+        if (!properties.enabled()) {
+            return;
+        }
+        try {
+            int purged = repository.deleteOlderThan(clock.instant().minus(properties.retention()));
+            if (purged > 0) {
+                log.debug("Purged {} expired Idempotency-Keys", purged);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Could not purge the expired Idempotency-Keys: {}", ex.getMessage());
+        }
+    }
+
+    public int size() {
+        return completed.size();
+    }
+
+    private TransactionResponseDTO createOnce(String idempotencyKey, String requestHash, TransactionRequestDTO request) {
+        //The previous holder of the key may have completed it between our lookup and our registration
+        Completed done = lookup(idempotencyKey);
+        if (done != null) {
+            replayedFromMemory.increment();
+            return replay(idempotencyKey, done, requestHash);
+        }
+
+        Instant deadline = clock.instant().plus(properties.waitTimeout());
+        while (true) {
+            Instant now = clock.instant();
+            if (repository.claim(idempotencyKey, requestHash, now, now.minus(properties.staleClaim())) == 1) {
+                created.increment();
+                return create(idempotencyKey, requestHash, request);
+            }
+
+            Optional<TransactionIdempotencyKey> claimed = repository.findById(idempotencyKey);
+            claimed.ifPresent(key -> checkSameRequest(key.getRequestHash(), requestHash));
+            Optional<TransactionResponseDTO> existing = transactionService.findTransactionByIdempotencyKey(idempotencyKey);
+            if (existing.isPresent()) {
+                //A claim purged after the retention leaves no request to compare, the transaction still holds the key
+                replayedFromDatabase.increment();
+                remember(idempotencyKey, requestHash, existing.get());
+                return existing.get();
+            }
+            //Held by a request in progress on another instance, or just released by it
+            if (!now.isBefore(deadline)) {
+                throw new IdempotencyConflictException();
+            }
+            pause();
+        }
+    }
+
+    private TransactionResponseDTO create(String idempotencyKey, String requestHash, TransactionRequestDTO request) {
+        TransactionResponseDTO response;
+        try {
+            response = transactionService.createTransaction(request, idempotencyKey);
+        } catch (RuntimeException ex) {
+            //The key is free for a retry, unless a transaction carrying it was committed before the failure
+            try {
+                repository.release(idempotencyKey);
+            } catch (RuntimeException releaseFailure) {
+                log.warn("Could not release Idempotency-Key, it is taken over after the stale claim: {}",
+                        releaseFailure.getMessage());
+            }
+            throw ex;
+        }
+        remember(idempotencyKey, requestHash, response);
+        return response;
+    }
+
+    private TransactionResponseDTO await(InFlight running, String requestHash) {
+        checkSameRequest(running.requestHash(), requestHash);
+        try {
+            return running.result().get(properties.waitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            throw new IdempotencyConflictException();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException();
+        } catch (ExecutionException ex) {
+            //The same request would fail the same way, the duplicate gets the error of the one it waited for
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(POLL_INTERVAL.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException();
+        }
+    }
+
+    //Blind index of the request, the card number is never kept
+    private String requestHash(TransactionRequestDTO request) {
+        return hashUtils.generateSearchHash(request.transactionAmount().stripTrailingZeros().toPlainString()
+                + '|' + request.transactionType() + '|' + request.cardNumber());
+    }
+
+    private static void checkSameRequest(String expected, String requestHash) {
+        if (!expected.equals(requestHash)) {
+            throw new BusinessException("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    private Completed lookup(String idempotencyKey) {
+        Completed done = completed.get(idempotencyKey);
+        if (done == null) {
+            return null;
+        }
+        if (done.completedAt().plus(properties.ttl()).isBefore(clock.instant())) {
+            completed.remove(idempotencyKey, done);
+            return null;
+        }
+        return done;
+    }
+
+    //The status of a PENDING transaction is set later by the outbox relay, it is read again until final
+    private TransactionResponseDTO replay(String idempotencyKey, Completed done, String requestHash) {
+        checkSameRequest(done.requestHash(), requestHash);
+        if (done.response() != null) {
+            return done.response();
+        }
+        TransactionResponseDTO response = transactionService.getTransactionById(done.transactionId());
+        if (response.status() != TransactionStatus.PENDING) {
+            completed.put(idempotencyKey, new Completed(requestHash, response.id(), response, done.completedAt()));
+        }
+        return response;
+    }
+
+    private void remember(String idempotencyKey, String requestHash, TransactionResponseDTO response) {
+        completed.put(idempotencyKey, new Completed(requestHash, response.id(),
+                response.status() == TransactionStatus.PENDING ? null : response, clock.instant()));
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("transaction.idempotency.requests")
+                .description("Create requests carrying an Idempotency-Key, by how they were answered")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<TransactionResponseDTO> result) {}
+
+    //The response is null while the transaction is PENDING
+    private record Completed(String requestHash, UUID transactionId, TransactionResponseDTO response, Instant completedAt) {}
+}
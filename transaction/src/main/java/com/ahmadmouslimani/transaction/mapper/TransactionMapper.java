@@ -35,7 +35,8 @@ public class TransactionMapper {
                 transaction.getTransactionRejection()!=null?
                         transaction.getTransactionRejection().isFraudulent():false,
                 transaction.getTransactionRejection()!=null?
-                        transaction.getTransactionRejection().getReason():"Transaction Success"
+                        transaction.getTransactionRejection().getReason():
+                        transaction.getStatus()==TransactionStatus.PENDING?"Transaction Pending":"Transaction Success"
 //                rejection != null && rejection.isFraudulent(),
 //                rejection != null ? rejection.getReason() : "Transaction Success"
         );
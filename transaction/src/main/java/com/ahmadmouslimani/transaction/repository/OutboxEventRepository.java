@@ -0,0 +1,33 @@
+package com.ahmadmouslimani.transaction.repository;
+
+import com.ahmadmouslimani.transaction.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+
+    //Claims the due events in one statement: they are leased until leaseUntil, so other relays skip them
+    //without waiting for this transaction, and no row lock is held while the adjustments are made.
+    @Transactional
+    @Query(value = "UPDATE {h-schema}transaction_outbox o SET available_at = :leaseUntil, attempts = o.attempts + 1 " +
+            "WHERE o.id IN (SELECT id FROM {h-schema}transaction_outbox WHERE available_at <= :now " +
+            "ORDER BY available_at LIMIT :limit FOR UPDATE SKIP LOCKED) RETURNING o.*", nativeQuery = true)
+    List<OutboxEvent> claimDue(Instant now, Instant leaseUntil, int limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.availableAt = :availableAt, e.lastError = :lastError WHERE e.id = :id")
+    int reschedule(UUID id, Instant availableAt, String lastError);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.id = :id")
+    int deleteEvent(UUID id);
+}
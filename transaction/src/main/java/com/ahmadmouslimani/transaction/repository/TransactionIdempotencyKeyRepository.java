@@ -0,0 +1,37 @@
+package com.ahmadmouslimani.transaction.repository;
+
+import com.ahmadmouslimani.transaction.entity.TransactionIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface TransactionIdempotencyKeyRepository extends JpaRepository<TransactionIdempotencyKey, String> {
+
+    //Returns 0 when the key is taken or a transaction already carries it. A claim for the same request older than
+    //staleBefore whose transaction was never committed is taken over, its holder is assumed to have died before.
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO {h-schema}transaction_idempotency_key AS k (idempotency_key, request_hash, created_at) " +
+            "SELECT :idempotencyKey, :requestHash, :now WHERE NOT EXISTS " +
+            "(SELECT 1 FROM {h-schema}transaction t WHERE t.idempotency_key = :idempotencyKey) " +
+            "ON CONFLICT (idempotency_key) DO UPDATE SET created_at = :now " +
+            "WHERE k.request_hash = EXCLUDED.request_hash AND k.created_at < :staleBefore",
+            nativeQuery = true)
+    int claim(String idempotencyKey, String requestHash, Instant now, Instant staleBefore);
+
+    //Called when no transaction was created, the transaction rolled back with its key
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TransactionIdempotencyKey k WHERE k.idempotencyKey = :idempotencyKey")
+    int release(String idempotencyKey);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TransactionIdempotencyKey k WHERE k.createdAt < :threshold")
+    int deleteOlderThan(Instant threshold);
+}
@@ -1,10 +1,22 @@
 package com.ahmadmouslimani.transaction.repository;
 
 import com.ahmadmouslimani.transaction.entity.Transaction;
+import com.ahmadmouslimani.transaction.enums.TransactionStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
 import java.util.UUID;
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
+
+    Optional<Transaction> findByIdempotencyKey(String idempotencyKey);
+
+    //Returns 0 when the transaction is no longer PENDING, i.e. an earlier delivery of its outbox event completed it
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :status WHERE t.id = :id " +
+            "AND t.status = com.ahmadmouslimani.transaction.enums.TransactionStatus.PENDING")
+    int completePending(UUID id, TransactionStatus status);
 }
@@ -0,0 +1,20 @@
+package com.ahmadmouslimani.transaction.service;
+
+import com.ahmadmouslimani.transaction.dto.IngestSummaryDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface TransactionIngestService {
+
+    /**
+     * Reads newline-delimited TransactionRequestDTO objects and writes one newline-delimited
+     * TransactionBatchItemDTO per item, in input order, while the input is still being read.
+     * Only a bounded window of items is held in memory at any time.
+     * @param input NDJSON stream of Transaction requests
+     * @param output Stream receiving the NDJSON results
+     * @return Counters for the whole ingest
+     */
+    IngestSummaryDTO ingest(InputStream input, OutputStream output) throws IOException;
+}
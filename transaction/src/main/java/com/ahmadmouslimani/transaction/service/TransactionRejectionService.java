@@ -3,6 +3,10 @@ package com.ahmadmouslimani.transaction.service;
 import com.ahmadmouslimani.transaction.dto.TransactionRequestDTO;
 import com.ahmadmouslimani.transaction.entity.TransactionRejection;
 
+import java.util.List;
+
 public interface TransactionRejectionService {
     TransactionRejection createTransactionRejection(TransactionRejection transactionRejection);
+
+    List<TransactionRejection> createTransactionRejections(List<TransactionRejection> transactionRejections);
 }
@@ -1,12 +1,31 @@
 package com.ahmadmouslimani.transaction.service;
 
+import com.ahmadmouslimani.transaction.dto.TransactionBatchItemDTO;
 import com.ahmadmouslimani.transaction.dto.TransactionRequestDTO;
 import com.ahmadmouslimani.transaction.dto.TransactionResponseDTO;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface TransactionService {
     TransactionResponseDTO createTransaction(TransactionRequestDTO request);
 
+    /**
+     * Creates the transaction with the Idempotency-Key of its request, in the same database transaction.
+     * @param idempotencyKey The key sent by the client, a second transaction with the same key is refused by the database
+     */
+    TransactionResponseDTO createTransaction(TransactionRequestDTO request, String idempotencyKey);
+
+    /**
+     * Processes many transactions in one pass: cards and accounts are resolved in bulk,
+     * balance adjustments are applied in submission order and all rows are inserted with JDBC batching.
+     * @param requests The transactions to process
+     * @return One result per request, in the same order
+     */
+    List<TransactionBatchItemDTO> createTransactions(List<TransactionRequestDTO> requests);
+
     TransactionResponseDTO getTransactionById(UUID id);
+
+    Optional<TransactionResponseDTO> findTransactionByIdempotencyKey(String idempotencyKey);
 }
@@ -1,13 +1,19 @@
 package com.ahmadmouslimani.transaction.service.client;
 
 import com.ahmadmouslimani.transaction.dto.AccountResponseDTO;
+import com.ahmadmouslimani.transaction.dto.BalanceAdjustmentRequestDTO;
+import com.ahmadmouslimani.transaction.dto.BalanceAdjustmentResultDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.UUID;
 
 @FeignClient(name="account", url = "${application.config.account-service-url}")
@@ -15,10 +21,25 @@ public interface AccountFeignClient {
     @GetMapping("/api/account/{id}")
     AccountResponseDTO getAccountById(@PathVariable("id") UUID accountId);
 
+    @PostMapping("/api/account/batch")
+    List<AccountResponseDTO> getAccountsByIds(@RequestBody List<UUID> accountIds);
+
     @PatchMapping("/api/account/{id}/balance")
     AccountResponseDTO adjustBalance(
             @PathVariable("id") UUID id,
             @RequestParam("amount") BigDecimal amount,
             @RequestParam("transactionType") String transactionType
     );
+
+    //Applied at most once per key by the Account service, a retry returns the current account
+    @PatchMapping("/api/account/{id}/balance")
+    AccountResponseDTO adjustBalance(
+            @PathVariable("id") UUID id,
+            @RequestParam("amount") BigDecimal amount,
+            @RequestParam("transactionType") String transactionType,
+            @RequestHeader("Idempotency-Key") UUID idempotencyKey
+    );
+
+    @PatchMapping("/api/account/balance/batch")
+    List<BalanceAdjustmentResultDTO> adjustBalances(@RequestBody List<BalanceAdjustmentRequestDTO> adjustments);
 }
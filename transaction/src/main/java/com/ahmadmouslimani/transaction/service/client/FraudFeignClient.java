@@ -6,9 +6,14 @@ import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.List;
+
 @FeignClient(name = "fraud", url = "${application.config.fraud-service-url}")
 public interface FraudFeignClient {
 
     @PostMapping("/api/fraud/check")
     FraudResponseDTO checkFraud(@RequestBody FraudRequestDTO request);
+
+    @PostMapping("/api/fraud/check/batch")
+    List<FraudResponseDTO> checkFrauds(@RequestBody List<FraudRequestDTO> requests);
 }
\ No newline at end of file
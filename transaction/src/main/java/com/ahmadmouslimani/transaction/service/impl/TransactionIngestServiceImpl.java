@@ -0,0 +1,168 @@
+package com.ahmadmouslimani.transaction.service.impl;
+
+import com.ahmadmouslimani.transaction.config.IngestProperties;
+import com.ahmadmouslimani.transaction.dto.IngestSummaryDTO;
+import com.ahmadmouslimani.transaction.dto.TransactionBatchItemDTO;
+import com.ahmadmouslimani.transaction.dto.TransactionRequestDTO;
+import com.ahmadmouslimani.transaction.enums.TransactionStatus;
+import com.ahmadmouslimani.transaction.exception.ExternalServiceException;
+import com.ahmadmouslimani.transaction.service.TransactionIngestService;
+import com.ahmadmouslimani.transaction.service.TransactionService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionIngestServiceImpl implements TransactionIngestService {
+    private final TransactionService transactionService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final IngestProperties ingestProperties;
+    private final AsyncTaskExecutor ingestExecutor;
+
+    @Override
+    public IngestSummaryDTO ingest(InputStream input, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Deque<Future<TransactionBatchItemDTO>> inFlight = new ArrayDeque<>(ingestProperties.windowSize());
+        Progress progress = new Progress();
+
+        try {
+            int index = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                inFlight.add(submit(index++, line));
+
+                //Write whatever is already done, and stop reading while the window is full.
+                //The unread request body then pushes back on the client through TCP flow control.
+                while (!inFlight.isEmpty() &&
+                        (inFlight.size() >= ingestProperties.windowSize() || inFlight.peek().isDone())) {
+                    write(inFlight.poll(), output, progress);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                write(inFlight.poll(), output, progress);
+            }
+            output.flush();
+        } finally {
+            //Only left over when the client went away or the stream failed
+            inFlight.forEach(future -> future.cancel(true));
+        }
+
+        IngestSummaryDTO summary = progress.summary();
+        log.info("Ingest completed: {} items ({} approved, {} rejected, {} failed) in {} ms, {} items/s",
+                summary.items(), summary.approved(), summary.rejected(), summary.failed(),
+                summary.elapsed().toMillis(), Math.round(summary.itemsPerSecond()));
+        return summary;
+    }
+
+    private Future<TransactionBatchItemDTO> submit(int index, String line) {
+        TransactionRequestDTO request;
+        try {
+            request = objectMapper.readValue(line, TransactionRequestDTO.class);
+        } catch (JsonProcessingException ex) {
+            return CompletableFuture.completedFuture(
+                    TransactionBatchItemDTO.failed(index, "Malformed JSON: " + ex.getOriginalMessage())
+            );
+        }
+
+        Set<ConstraintViolation<TransactionRequestDTO>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            String errorMessage = violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            return CompletableFuture.completedFuture(TransactionBatchItemDTO.failed(index, errorMessage));
+        }
+
+        return ingestExecutor.submit(() -> process(index, request));
+    }
+
+    private TransactionBatchItemDTO process(int index, TransactionRequestDTO request) {
+        try {
+            return TransactionBatchItemDTO.processed(index, transactionService.createTransaction(request));
+        } catch (RuntimeException ex) {
+            //One failing item (unknown card, unavailable service...) must not abort the whole stream
+            log.debug("Ingest item {} failed: {}", index, ex.getMessage());
+            return TransactionBatchItemDTO.failed(index, ex.getMessage());
+        }
+    }
+
+    private void write(Future<TransactionBatchItemDTO> future, OutputStream output, Progress progress) throws IOException {
+        if (!future.isDone()) {
+            //About to block, let the client see the results written so far
+            output.flush();
+        }
+        TransactionBatchItemDTO item = await(future);
+        output.write(objectMapper.writeValueAsBytes(item));
+        output.write('\n');
+        progress.record(item);
+    }
+
+    private TransactionBatchItemDTO await(Future<TransactionBatchItemDTO> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ExternalServiceException("Transaction ingest was interrupted");
+        } catch (ExecutionException ex) {
+            throw new ExternalServiceException(ex.getCause().getMessage());
+        }
+    }
+
+    private class Progress {
+        private final long startedAt = System.nanoTime();
+        private long lastReportedAt = startedAt;
+        private long items;
+        private long approved;
+        private long rejected;
+        private long failed;
+
+        void record(TransactionBatchItemDTO item) {
+            items++;
+            if (item.transaction() == null) {
+                failed++;
+            } else if (item.transaction().status() == TransactionStatus.APPROVED) {
+                approved++;
+            } else {
+                rejected++;
+            }
+
+            if (items % ingestProperties.progressInterval() == 0) {
+                long now = System.nanoTime();
+                long intervalMillis = Math.max(1, Duration.ofNanos(now - lastReportedAt).toMillis());
+                lastReportedAt = now;
+                log.info("Ingest progress: {} items, {} items/s", items,
+                        ingestProperties.progressInterval() * 1000L / intervalMillis);
+            }
+        }
+
+        IngestSummaryDTO summary() {
+            return new IngestSummaryDTO(items, approved, rejected, failed, Duration.ofNanos(System.nanoTime() - startedAt));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.ahmadmouslimani.transaction.service.impl;
+
+import com.ahmadmouslimani.transaction.config.OutboxProperties;
+import com.ahmadmouslimani.transaction.entity.OutboxEvent;
+import com.ahmadmouslimani.transaction.entity.Transaction;
+import com.ahmadmouslimani.transaction.entity.TransactionRejection;
+import com.ahmadmouslimani.transaction.enums.TransactionStatus;
+import com.ahmadmouslimani.transaction.exception.BusinessException;
+import com.ahmadmouslimani.transaction.exception.ResourceNotFoundException;
+import com.ahmadmouslimani.transaction.repository.OutboxEventRepository;
+import com.ahmadmouslimani.transaction.repository.TransactionRepository;
+import com.ahmadmouslimani.transaction.service.TransactionRejectionService;
+import com.ahmadmouslimani.transaction.service.client.AccountFeignClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Applies the balance adjustments of PENDING transactions and gives them their final status.
+ * An approved transaction is committed as PENDING together with its outbox event, then relayed right away on the
+ * outbox executor. Events whose relay failed or never completed are claimed again by the poller once due.
+ * The Account service applies each adjustment at most once per idempotency key, so an event may be relayed
+ * more than once, and only the first completion changes the status of its transaction.
+ */
+@Component
+@Slf4j
+public class TransactionOutboxRelay {
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final OutboxProperties properties;
+    private final OutboxEventRepository outboxRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionRejectionService transactionRejectionService;
+    private final AccountFeignClient accountFeignClient;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor outboxExecutor;
+
+    private final Counter approved;
+    private final Counter rejected;
+    private final Counter retries;
+    private final Timer completionTime;
+
+    public TransactionOutboxRelay(OutboxProperties properties, OutboxEventRepository outboxRepository,
+                                  TransactionRepository transactionRepository, TransactionRejectionService transactionRejectionService,
+                                  AccountFeignClient accountFeignClient, TransactionTemplate transactionTemplate,
+                                  Executor outboxExecutor, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.outboxRepository = outboxRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionRejectionService = transactionRejectionService;
+        this.accountFeignClient = accountFeignClient;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxExecutor = outboxExecutor;
+        this.approved = Counter.builder("transaction.outbox.relayed")
+                .description("PENDING transactions completed by the outbox relay")
+                .tag("status", TransactionStatus.APPROVED.name())
+                .register(meterRegistry);
+        this.rejected = Counter.builder("transaction.outbox.relayed")
+                .description("PENDING transactions completed by the outbox relay")
+                .tag("status", TransactionStatus.REJECTED.name())
+                .register(meterRegistry);
+        this.retries = Counter.builder("transaction.outbox.retries")
+                .description("Balance adjustments that failed and were scheduled again")
+                .register(meterRegistry);
+        this.completionTime = Timer.builder("transaction.outbox.completion")
+                .description("Time from the commit of a PENDING transaction to its final status")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Commits the transaction as PENDING with its outbox event in one short database transaction, then relays the event.
+     * @return The PENDING transaction
+     */
+    public Transaction submit(Transaction transaction) {
+        Instant now = Instant.now();
+        transaction.setStatus(TransactionStatus.PENDING);
+        OutboxEvent event = transactionTemplate.execute(status -> {
+            Transaction pending = transactionRepository.save(transaction);
+            //Leased from the start, the poller only takes it over if the relay below does not complete it in time
+            return outboxRepository.save(new OutboxEvent(pending, now, now.plus(properties.lease())));
+        });
+        outboxExecutor.execute(() -> relay(event));
+        return transaction;
+    }
+
+    @Scheduled(fixedDelayString = "${application.config.outbox.poll-interval:500ms}")
+    public void relayDue() {
+        if (!properties.enabled()) {
+            return;
+        }
+        List<OutboxEvent> due;
+        do {
+            Instant now = Instant.now();
+            try {
+                due = outboxRepository.claimDue(now, now.plus(properties.lease()), properties.batchSize());
+            } catch (RuntimeException ex) {
+                log.warn("Could not claim the due outbox events: {}", ex.getMessage());
+                return;
+            }
+            due.forEach(event -> outboxExecutor.execute(() -> relay(event)));
+        } while (due.size() == properties.batchSize());
+    }
+
+    void relay(OutboxEvent event) {
+        try {
+            // BusinessException from the Account service is re-thrown by the FeignErrorDecoder
+            accountFeignClient.adjustBalance(event.getAccountId(), event.getAmount(), event.getTransactionType(), event.getId());
+        } catch (BusinessException | ResourceNotFoundException ex) {
+            //Insufficient funds or unknown account, nothing was applied and a retry would not change that
+            complete(event, TransactionStatus.REJECTED, ex.getMessage());
+            return;
+        } catch (RuntimeException ex) {
+            retryLater(event, ex);
+            return;
+        }
+        complete(event, TransactionStatus.APPROVED, null);
+    }
+
+    private void complete(OutboxEvent event, TransactionStatus status, String reason) {
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                if (transactionRepository.completePending(event.getId(), status) == 1 && status == TransactionStatus.REJECTED) {
+                    TransactionRejection transactionRejection = new TransactionRejection();
+                    transactionRejection.setTransaction(transactionRepository.getReferenceById(event.getId()));
+                    transactionRejection.setReason(reason);
+                    transactionRejection.setFraudulent(false);
+                    transactionRejectionService.createTransactionRejection(transactionRejection);
+                }
+                outboxRepository.deleteEvent(event.getId());
+            });
+        } catch (RuntimeException ex) {
+            //The event stays leased, it is relayed again when the lease expires
+            log.warn("Could not complete transaction {}, retrying after the lease: {}", event.getId(), ex.getMessage());
+            return;
+        }
+        (status == TransactionStatus.APPROVED ? approved : rejected).increment();
+        completionTime.record(Duration.between(event.getCreatedAt(), Instant.now()));
+    }
+
+    private void retryLater(OutboxEvent event, RuntimeException failure) {
+        Duration delay = backoff(event.getAttempts());
+        log.warn("Balance adjustment of transaction {} failed on attempt {}, retrying in {}: {}",
+                event.getId(), event.getAttempts(), delay, failure.getMessage());
+        retries.increment();
+        try {
+            outboxRepository.reschedule(event.getId(), Instant.now().plus(delay), truncate(failure.getMessage()));
+        } catch (RuntimeException ex) {
+            log.warn("Could not reschedule transaction {}, retrying after the lease: {}", event.getId(), ex.getMessage());
+        }
+    }
+
+    //initialBackoff doubled for each earlier attempt, up to maxBackoff
+    Duration backoff(int attempts) {
+        Duration delay = properties.initialBackoff().multipliedBy(1L << Math.min(Math.max(attempts - 1, 0), 30));
+        return delay.compareTo(properties.maxBackoff()) > 0 ? properties.maxBackoff() : delay;
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -7,6 +7,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -16,4 +18,9 @@ public class TransactionRejectionServiceImpl implements TransactionRejectionServ
     public TransactionRejection createTransactionRejection(TransactionRejection transactionRejection) {
         return transactionRejectionRepository.save(transactionRejection);
     }
+
+    @Override
+    public List<TransactionRejection> createTransactionRejections(List<TransactionRejection> transactionRejections) {
+        return transactionRejectionRepository.saveAll(transactionRejections);
+    }
 }
@@ -1,17 +1,15 @@
 package com.ahmadmouslimani.transaction.service.impl;
 
+import com.ahmadmouslimani.transaction.cache.CardNearCache;
+import com.ahmadmouslimani.transaction.config.OrchestrationProperties;
+import com.ahmadmouslimani.transaction.config.OutboxProperties;
 import com.ahmadmouslimani.transaction.dto.*;
 import com.ahmadmouslimani.transaction.entity.Transaction;
 import com.ahmadmouslimani.transaction.entity.TransactionRejection;
-import com.ahmadmouslimani.transaction.enums.AccountStatus;
-import com.ahmadmouslimani.transaction.enums.CardStatus;
 import com.ahmadmouslimani.transaction.enums.TransactionStatus;
 import com.ahmadmouslimani.transaction.enums.TransactionType;
+import com.ahmadmouslimani.transaction.exception.ExternalServiceException;
 import com.ahmadmouslimani.transaction.exception.ResourceNotFoundException;
-import com.ahmadmouslimani.transaction.exception.account.AccountInsufficientBalanceException;
-import com.ahmadmouslimani.transaction.exception.card.ExpiredCardException;
-import com.ahmadmouslimani.transaction.exception.account.InactiveAccountException;
-import com.ahmadmouslimani.transaction.exception.card.InactiveCardException;
 import com.ahmadmouslimani.transaction.mapper.TransactionMapper;
 import com.ahmadmouslimani.transaction.repository.TransactionRepository;
 import com.ahmadmouslimani.transaction.service.TransactionRejectionService;
@@ -19,13 +17,31 @@ import com.ahmadmouslimani.transaction.service.TransactionService;
 import com.ahmadmouslimani.transaction.service.client.AccountFeignClient;
 import com.ahmadmouslimani.transaction.service.client.CardFeignClient;
 import com.ahmadmouslimani.transaction.service.client.FraudFeignClient;
+import com.ahmadmouslimani.transaction.validation.TransactionValidator;
+import com.ahmadmouslimani.transaction.validation.ValidationResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalDate;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -37,91 +53,276 @@ public class TransactionServiceImpl implements TransactionService {
     private final CardFeignClient cardFeignClient;
     private final FraudFeignClient fraudClient;
     private final TransactionMapper mapper;
-
+    private final OrchestrationProperties orchestrationProperties;
+    private final Executor lookupExecutor;
+    private final CardNearCache cardNearCache;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxProperties outboxProperties;
+    private final TransactionOutboxRelay outboxRelay;
 
     @Override
-    @Transactional
     public TransactionResponseDTO createTransaction(TransactionRequestDTO request) {
-        CardResponseDTO card = cardFeignClient.getCardByCardNumber(request.cardNumber());
-        AccountResponseDTO account = accountFeignClient.getAccountById(card.accountId());
+        return createTransaction(request, null);
+    }
+
+    @Override
+    public TransactionResponseDTO createTransaction(TransactionRequestDTO request, String idempotencyKey) {
+        if (outboxProperties.enabled()) {
+            //No database connection is held during the remote calls, only the final writes open a short transaction
+            return orchestrate(request, idempotencyKey);
+        }
+        return transactionTemplate.execute(status -> orchestrate(request, idempotencyKey));
+    }
+
+    private TransactionResponseDTO orchestrate(TransactionRequestDTO request, String idempotencyKey) {
+        CardResponseDTO card = cardNearCache.getCard(request.cardNumber(), cardFeignClient::getCardByCardNumber);
         Transaction transaction = mapper.mapToEntity(request, card.id(), card.accountId());
+        transaction.setIdempotencyKey(idempotencyKey);
+        if (orchestrationProperties.parallel()) {
+            return createTransactionInParallel(transaction, request, card);
+        }
 
-        try {
-            //Perform Card validation
-            validateCard(card);
-            //Perform Account validation
-            validateAccount(account, request);
-
-            //Perform fraud check
-            FraudRequestDTO fraudRequestDTO = new FraudRequestDTO(
-                    card.id(),
-                    request.transactionAmount()
-            );
-            FraudResponseDTO fraudResponseDTO = fraudClient.checkFraud(fraudRequestDTO);
+        AccountResponseDTO account = accountFeignClient.getAccountById(card.accountId());
 
-            if (fraudResponseDTO.isFraudulent()) {
-                //Save as REJECTED + Fraud Flag
-                return finalizeRejection(transaction, fraudResponseDTO.rejectionReason(), true);
+        //Perform Card validation, then Account validation
+        ValidationResult validation = TransactionValidator.validateCard(card);
+        if (validation.isValid()) {
+            validation = TransactionValidator.validateAccount(account, request);
+        }
+        if (!validation.isValid()) {
+            return finalizeRejection(transaction, validation.reason(), false);
+        }
+
+        //Perform fraud check
+        FraudRequestDTO fraudRequestDTO = new FraudRequestDTO(
+                card.id(),
+                request.transactionAmount(),
+                card.accountId()
+        );
+        FraudResponseDTO fraudResponseDTO = fraudClient.checkFraud(fraudRequestDTO);
+
+        if (fraudResponseDTO.isFraudulent()) {
+            //Save as REJECTED + Fraud Flag
+            return finalizeRejection(transaction, fraudResponseDTO.rejectionReason(), true);
+        }
+
+        return approveTransaction(transaction, card, request);
+    }
+
+    @Override
+    @Transactional
+    public List<TransactionBatchItemDTO> createTransactions(List<TransactionRequestDTO> requests) {
+        //Resolve every distinct Card and Account of the batch with one call each
+        Map<String, CardResponseDTO> cardsByNumber = cardFeignClient.getCardsByCardNumbers(
+                requests.stream().map(TransactionRequestDTO::cardNumber).distinct().toList()
+        ).stream().collect(Collectors.toMap(CardResponseDTO::cardNumber, Function.identity(), (first, second) -> first));
+
+        List<UUID> accountIds = cardsByNumber.values().stream().map(CardResponseDTO::accountId).distinct().toList();
+        Map<UUID, AccountResponseDTO> accountsById = accountIds.isEmpty() ? Map.of() :
+                accountFeignClient.getAccountsByIds(accountIds).stream()
+                        .collect(Collectors.toMap(AccountResponseDTO::id, Function.identity()));
+
+        //Balance of each Account once the items accepted earlier in the batch are applied
+        Map<UUID, BigDecimal> projectedBalances = new HashMap<>();
+        accountsById.values().forEach(account -> projectedBalances.put(account.id(), account.balance()));
+
+        Transaction[] transactions = new Transaction[requests.size()];
+        String[] errorMessages = new String[requests.size()];
+        List<TransactionRejection> rejections = new ArrayList<>();
+        List<Integer> checkedIndexes = new ArrayList<>();
+        List<FraudRequestDTO> fraudRequests = new ArrayList<>();
+        List<Integer> adjustedIndexes = new ArrayList<>();
+        List<BalanceAdjustmentRequestDTO> adjustments = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            TransactionRequestDTO request = requests.get(i);
+            CardResponseDTO card = cardsByNumber.get(request.cardNumber());
+            if (card == null) {
+                errorMessages[i] = "Card not found";
+                continue;
+            }
+            AccountResponseDTO account = accountsById.get(card.accountId());
+            if (account == null) {
+                errorMessages[i] = "Account with Id " + card.accountId() + " not found";
+                continue;
             }
 
-            // BusinessException from Account or Card services is re-thrown by the FeignErrorDecoder
-            accountFeignClient.adjustBalance(
-                    card.accountId(),
-                    request.transactionAmount(),
-                    request.transactionType()
-            );
+            Transaction transaction = mapper.mapToEntity(request, card.id(), card.accountId());
+            transactions[i] = transaction;
+            ValidationResult validation = TransactionValidator.validateCard(card);
+            if (validation.isValid()) {
+                validation = TransactionValidator.validateAccount(
+                        new AccountResponseDTO(account.id(), account.status(), projectedBalances.get(account.id())), request);
+            }
+            if (!validation.isValid()) {
+                rejections.add(buildRejection(transaction, validation.reason(), false));
+                continue;
+            }
+            //Projected before the fraud check, so an item later flagged as fraudulent still counts
+            //against the balance of the items after it
+            projectedBalances.merge(account.id(), signedAmount(request), BigDecimal::add);
+            checkedIndexes.add(i);
+            fraudRequests.add(new FraudRequestDTO(card.id(), request.transactionAmount(), card.accountId()));
+        }
 
-            //Transaction APPROVED
-            transaction.setStatus(TransactionStatus.APPROVED);
-            Transaction createdTransaction = transactionRepository.save(transaction);
-            return mapper.mapToDto(createdTransaction);
+        //Fraud check of the items the balance allows with one call, the Fraud service counts the earlier items of each card
+        List<FraudResponseDTO> fraudResponses = fraudRequests.isEmpty() ? List.of() : fraudClient.checkFrauds(fraudRequests);
+
+        for (int k = 0; k < checkedIndexes.size(); k++) {
+            int i = checkedIndexes.get(k);
+            TransactionRequestDTO request = requests.get(i);
+            Transaction transaction = transactions[i];
+            FraudResponseDTO fraudResponseDTO = fraudResponses.get(k);
+            if (fraudResponseDTO.isFraudulent()) {
+                rejections.add(buildRejection(transaction, fraudResponseDTO.rejectionReason(), true));
+                continue;
+            }
 
-        }catch (InactiveCardException | ExpiredCardException |
-              InactiveAccountException | AccountInsufficientBalanceException ex){
-            return finalizeRejection(transaction, ex.getMessage(), false);
+            adjustedIndexes.add(i);
+            adjustments.add(new BalanceAdjustmentRequestDTO(transaction.getAccountId(), request.transactionAmount(), request.transactionType()));
         }
-    }
 
+        if (!adjustments.isEmpty()) {
+            //Applied by the Account service in the same order, one result per adjustment
+            List<BalanceAdjustmentResultDTO> results = accountFeignClient.adjustBalances(adjustments);
+            for (int k = 0; k < adjustedIndexes.size(); k++) {
+                Transaction transaction = transactions[adjustedIndexes.get(k)];
+                BalanceAdjustmentResultDTO result = results.get(k);
+                if (result.applied()) {
+                    transaction.setStatus(TransactionStatus.APPROVED);
+                } else {
+                    rejections.add(buildRejection(transaction, result.message(), false));
+                }
+            }
+        }
 
-    private void validateCard(CardResponseDTO card) {
-        //Card should be Active
-        if (CardStatus.INACTIVE.name().equals(card.status())) {
-            throw new InactiveCardException();
+        //Inserts are grouped into JDBC batches (hibernate.jdbc.batch_size)
+        transactionRepository.saveAll(Arrays.stream(transactions).filter(Objects::nonNull).toList());
+        if (!rejections.isEmpty()) {
+            transactionRejectionService.createTransactionRejections(rejections);
         }
-        //Card should not be Expired
-        if (card.expiry().isBefore(LocalDate.now())) {
-            throw new ExpiredCardException(card.expiry());
+
+        List<TransactionBatchItemDTO> items = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            items.add(transactions[i] != null ?
+                    TransactionBatchItemDTO.processed(i, mapper.mapToDto(transactions[i])) :
+                    TransactionBatchItemDTO.failed(i, errorMessages[i]));
         }
+        return items;
+    }
+
+    private BigDecimal signedAmount(TransactionRequestDTO request) {
+        return TransactionType.D.name().equals(request.transactionType()) ?
+                request.transactionAmount().negate() : request.transactionAmount();
+    }
+
+    private TransactionRejection buildRejection(Transaction transaction, String reason, boolean isFraud) {
+        TransactionRejection transactionRejection = new TransactionRejection();
+        transactionRejection.setTransaction(transaction);
+        transactionRejection.setReason(reason);
+        transactionRejection.setFraudulent(isFraud);
+        transaction.setTransactionRejection(transactionRejection);
+        return transactionRejection;
     }
 
-    private void validateAccount(AccountResponseDTO account, TransactionRequestDTO request) {
-        //Account should be Active
-        if (AccountStatus.INACTIVE.name().equals(account.status())) {
-            throw new InactiveAccountException();
+    /**
+     * Same flow as the sequential path, but once the card is resolved the Account fetch and the Fraud check
+     * (which only needs the card id and the amount) run concurrently on the lookup executor.
+     * The first rejection wins and cancels the sibling call.
+     */
+    private TransactionResponseDTO createTransactionInParallel(Transaction transaction, TransactionRequestDTO request,
+                                                               CardResponseDTO card) {
+        //Card validation is local, a rejected card does not need the other services
+        ValidationResult cardValidation = TransactionValidator.validateCard(card);
+        if (!cardValidation.isValid()) {
+            return finalizeRejection(transaction, cardValidation.reason(), false);
+        }
+
+        CompletionService<Object> lookups = new ExecutorCompletionService<>(lookupExecutor);
+        Future<Object> accountLookup = lookups.submit(() -> accountFeignClient.getAccountById(card.accountId()));
+        Future<Object> fraudLookup = lookups.submit(() -> fraudClient.checkFraud(
+                new FraudRequestDTO(card.id(), request.transactionAmount(), card.accountId())
+        ));
+        long deadline = System.nanoTime() + orchestrationProperties.callTimeout().toNanos();
+
+        try {
+            for (int pending = 2; pending > 0; pending--) {
+                Future<Object> completed = lookups.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (completed == null) {
+                    String serviceName = accountLookup.isDone() ? "Fraud" : "Account";
+                    throw new ExternalServiceException("Service " + serviceName + ". Request timed out");
+                }
+
+                Object result = awaitLookup(completed);
+                if (result instanceof AccountResponseDTO account) {
+                    ValidationResult validation = TransactionValidator.validateAccount(account, request);
+                    if (!validation.isValid()) {
+                        fraudLookup.cancel(true);
+                        return finalizeRejection(transaction, validation.reason(), false);
+                    }
+                } else if (result instanceof FraudResponseDTO fraudResponseDTO && fraudResponseDTO.isFraudulent()) {
+                    accountLookup.cancel(true);
+                    return finalizeRejection(transaction, fraudResponseDTO.rejectionReason(), true);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ExternalServiceException("Transaction processing was interrupted");
+        } finally {
+            //No-op for completed calls, stops whatever is still running after a timeout or a failure
+            accountLookup.cancel(true);
+            fraudLookup.cancel(true);
         }
 
-        //Check sufficient funds only for Debits (D)
-        boolean isDebit = TransactionType.D.name().equals(request.transactionType());
-        if (isDebit) {
-            boolean hasInsufficientBalance = account.balance().compareTo(request.transactionAmount()) < 0;
-            if (hasInsufficientBalance) {
-                throw new AccountInsufficientBalanceException();
+        return approveTransaction(transaction, card, request);
+    }
+
+    private Object awaitLookup(Future<Object> lookup) throws InterruptedException {
+        try {
+            return lookup.get();
+        } catch (ExecutionException ex) {
+            //Keep the exceptions raised by the FeignErrorDecoder so the GlobalExceptionHandler maps them as usual
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
             }
+            throw new ExternalServiceException(ex.getCause().getMessage());
         }
     }
 
+    private TransactionResponseDTO approveTransaction(Transaction transaction, CardResponseDTO card, TransactionRequestDTO request) {
+        if (outboxProperties.enabled()) {
+            //Committed as PENDING, the outbox relay applies the balance adjustment and sets the final status
+            return mapper.mapToDto(outboxRelay.submit(transaction));
+        }
 
-    private TransactionResponseDTO finalizeRejection(Transaction transaction, String reason, boolean isFraud) {
+        // BusinessException from Account or Card services is re-thrown by the FeignErrorDecoder
+        accountFeignClient.adjustBalance(
+                card.accountId(),
+                request.transactionAmount(),
+                request.transactionType()
+        );
+
+        //Transaction APPROVED
+        transaction.setStatus(TransactionStatus.APPROVED);
         Transaction createdTransaction = transactionRepository.save(transaction);
+        return mapper.mapToDto(createdTransaction);
+    }
 
-        TransactionRejection transactionRejection = new TransactionRejection();
-        transactionRejection.setTransaction(createdTransaction);
-        transactionRejection.setReason(reason);
-        transactionRejection.setFraudulent(isFraud);
-        transactionRejectionService.createTransactionRejection(transactionRejection);
-        createdTransaction.setTransactionRejection(transactionRejection);
+    //Joins the transaction of createTransaction, or opens its own short one in outbox mode.
+    //Both rows are inserted by the flush at commit, the response is built from the entities in memory.
+    private TransactionResponseDTO finalizeRejection(Transaction transaction, String reason, boolean isFraud) {
+        return transactionTemplate.execute(status -> {
+            Transaction createdTransaction = transactionRepository.save(transaction);
+
+            TransactionRejection transactionRejection = new TransactionRejection();
+            transactionRejection.setTransaction(createdTransaction);
+            transactionRejection.setReason(reason);
+            transactionRejection.setFraudulent(isFraud);
+            transactionRejectionService.createTransactionRejection(transactionRejection);
+            createdTransaction.setTransactionRejection(transactionRejection);
 
-        return getTransactionById(transaction.getId());
+            return mapper.mapToDto(createdTransaction);
+        });
     }
 
     @Override
@@ -131,4 +332,9 @@ public class TransactionServiceImpl implements TransactionService {
         );
         return mapper.mapToDto(transaction);
     }
+
+    @Override
+    public Optional<TransactionResponseDTO> findTransactionByIdempotencyKey(String idempotencyKey) {
+        return transactionRepository.findByIdempotencyKey(idempotencyKey).map(mapper::mapToDto);
+    }
 }
@@ -0,0 +1,54 @@
+package com.ahmadmouslimani.transaction.validation;
+
+import com.ahmadmouslimani.transaction.dto.AccountResponseDTO;
+import com.ahmadmouslimani.transaction.dto.CardResponseDTO;
+import com.ahmadmouslimani.transaction.dto.TransactionRequestDTO;
+import com.ahmadmouslimani.transaction.enums.AccountStatus;
+import com.ahmadmouslimani.transaction.enums.CardStatus;
+import com.ahmadmouslimani.transaction.enums.TransactionType;
+
+import java.time.LocalDate;
+
+/**
+ * Business checks of a transaction against its Card and Account, run before the Fraud check and the balance
+ * adjustment. Each check returns the first failed rule, exceptions are left to infrastructure failures.
+ */
+public final class TransactionValidator {
+
+    private TransactionValidator() {
+    }
+
+    public static ValidationResult validateCard(CardResponseDTO card) {
+        //Card should be Active
+        if (CardStatus.INACTIVE.name().equals(card.status())) {
+            return ValidationResult.INACTIVE_CARD;
+        }
+        //Card should not be Expired
+        if (card.expiry().isBefore(LocalDate.now())) {
+            return ValidationResult.expiredCard(card.expiry());
+        }
+        return ValidationResult.VALID;
+    }
+
+    public static ValidationResult validateAccount(AccountResponseDTO account, TransactionRequestDTO request) {
+        ValidationResult status = validateAccountStatus(account);
+        if (!status.isValid()) {
+            return status;
+        }
+
+        //Check sufficient funds only for Debits (D)
+        boolean isDebit = TransactionType.D.name().equals(request.transactionType());
+        if (isDebit && account.balance().compareTo(request.transactionAmount()) < 0) {
+            return ValidationResult.INSUFFICIENT_FUNDS;
+        }
+        return ValidationResult.VALID;
+    }
+
+    public static ValidationResult validateAccountStatus(AccountResponseDTO account) {
+        //Account should be Active
+        if (AccountStatus.INACTIVE.name().equals(account.status())) {
+            return ValidationResult.INACTIVE_ACCOUNT;
+        }
+        return ValidationResult.VALID;
+    }
+}
@@ -0,0 +1,30 @@
+package com.ahmadmouslimani.transaction.validation;
+
+import com.ahmadmouslimani.transaction.enums.RejectionCode;
+
+import java.time.LocalDate;
+
+/**
+ * Outcome of the business checks of a transaction. A rejection is an ordinary result, not an exception,
+ * so rejecting a transaction costs no stack trace. The results without a variable part are shared constants.
+ * @param code The failed check, null when the transaction passed
+ * @param reason The rejection reason stored with the transaction, null when it passed
+ */
+public record ValidationResult(RejectionCode code, String reason) {
+    public static final ValidationResult VALID = new ValidationResult(null, null);
+
+    static final ValidationResult INACTIVE_CARD =
+            new ValidationResult(RejectionCode.INACTIVE_CARD, "Transaction failed. Card is INACTIVE");
+    static final ValidationResult INACTIVE_ACCOUNT =
+            new ValidationResult(RejectionCode.INACTIVE_ACCOUNT, "Transaction failed. Account is INACTIVE");
+    static final ValidationResult INSUFFICIENT_FUNDS =
+            new ValidationResult(RejectionCode.INSUFFICIENT_FUNDS, "Transaction failed. Account has insufficient funds.");
+
+    static ValidationResult expiredCard(LocalDate expiryDate) {
+        return new ValidationResult(RejectionCode.EXPIRED_CARD, "Transaction failed. Card expired on " + expiryDate);
+    }
+
+    public boolean isValid() {
+        return code == null;
+    }
+}
@@ -0,0 +1,198 @@
+package com.ahmadmouslimani.transaction.cache;
+
+import com.ahmadmouslimani.transaction.config.CardCacheProperties;
+import com.ahmadmouslimani.transaction.dto.CardResponseDTO;
+import com.ahmadmouslimani.transaction.encryption.HashUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardNearCacheTest {
+
+    @Mock
+    private Function<String, CardResponseDTO> loader;
+    @Mock
+    private Clock clock;
+
+    private final HashUtils hashUtils = new HashUtils("salt");
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Instant start = Instant.parse("2026-01-01T10:00:00Z");
+    private final String cardNumber = "1234123412341234";
+    private CardNearCache cardNearCache;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(clock.instant()).thenReturn(start);
+        lenient().when(loader.apply(anyString())).thenAnswer(inv -> card(inv.getArgument(0), "ACTIVE"));
+        cardNearCache = new CardNearCache(new CardCacheProperties(true, 2, Duration.ofSeconds(30)), hashUtils, meterRegistry, clock);
+    }
+
+    @Test
+    @DisplayName("Should load the card once and serve the next lookup from the cache")
+    void getCard_HitAfterMiss() {
+        //Act
+        CardResponseDTO first = cardNearCache.getCard(cardNumber, loader);
+        CardResponseDTO second = cardNearCache.getCard(cardNumber, loader);
+
+        //Assert
+        assertEquals(first, second);
+        assertEquals(cardNumber, second.cardNumber());
+        verify(loader, times(1)).apply(cardNumber);
+        assertEquals(1, count("card.cache.requests", "result", "hit"));
+        assertEquals(1, count("card.cache.requests", "result", "miss"));
+        assertEquals(0.5, meterRegistry.get("card.cache.hit.ratio").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should reload the card once its TTL has passed")
+    void getCard_ReloadsExpiredCard() {
+        //Arrange
+        cardNearCache.getCard(cardNumber, loader);
+        when(clock.instant()).thenReturn(start.plusSeconds(31));
+
+        //Act
+        cardNearCache.getCard(cardNumber, loader);
+
+        //Assert
+        verify(loader, times(2)).apply(cardNumber);
+        assertEquals(1, count("card.cache.evictions", "cause", "expired"));
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used card when the cache is full")
+    void getCard_EvictsLeastRecentlyUsed() {
+        //Arrange
+        String other = "1111222233334444";
+        String third = "5555666677778888";
+        cardNearCache.getCard(cardNumber, loader);
+        cardNearCache.getCard(other, loader);
+        cardNearCache.getCard(cardNumber, loader);
+
+        //Act
+        cardNearCache.getCard(third, loader);
+        cardNearCache.getCard(cardNumber, loader);
+        cardNearCache.getCard(other, loader);
+
+        //Assert
+        verify(loader, times(1)).apply(cardNumber);
+        verify(loader, times(2)).apply(other);
+        assertEquals(2, cardNearCache.size());
+        assertEquals(2, count("card.cache.evictions", "cause", "size"));
+    }
+
+    @Test
+    @DisplayName("Should reload the card after its status change was pushed")
+    void invalidate_ReloadsCard() {
+        //Arrange
+        cardNearCache.getCard(cardNumber, loader);
+        when(loader.apply(cardNumber)).thenReturn(card(cardNumber, "INACTIVE"));
+        when(clock.instant()).thenReturn(start.plusMillis(250));
+
+        //Act
+        cardNearCache.invalidate(hashUtils.generateSearchHash(cardNumber), start);
+        CardResponseDTO result = cardNearCache.getCard(cardNumber, loader);
+
+        //Assert
+        assertEquals("INACTIVE", result.status());
+        assertEquals(1, count("card.cache.evictions", "cause", "invalidated"));
+        assertEquals(250, meterRegistry.get("card.cache.invalidation.lag").timer().max(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("Should not cache a card loaded while an invalidation arrived")
+    void getCard_InvalidationDuringLoad_NotCached() {
+        //Arrange
+        when(loader.apply(cardNumber)).thenAnswer(inv -> {
+            cardNearCache.invalidate(hashUtils.generateSearchHash(cardNumber), start);
+            return card(cardNumber, "ACTIVE");
+        });
+
+        //Act
+        cardNearCache.getCard(cardNumber, loader);
+
+        //Assert
+        assertEquals(0, cardNearCache.size());
+    }
+
+    @Test
+    @DisplayName("Should call the loader every time when the cache is disabled")
+    void getCard_Disabled() {
+        //Arrange
+        CardNearCache disabled = new CardNearCache(new CardCacheProperties(false, 2, Duration.ofSeconds(30)),
+                hashUtils, new SimpleMeterRegistry(), clock);
+
+        //Act
+        disabled.getCard(cardNumber, loader);
+        disabled.getCard(cardNumber, loader);
+
+        //Assert
+        verify(loader, times(2)).apply(cardNumber);
+        assertEquals(0, disabled.size());
+    }
+
+    @Test
+    @DisplayName("Should stay within its max size when many cards are looked up concurrently")
+    void getCard_Concurrent_StaysBounded() throws Exception {
+        //Arrange
+        CardNearCache large = new CardNearCache(new CardCacheProperties(true, 500, Duration.ofSeconds(30)),
+                hashUtils, meterRegistry, clock);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Integer>> lookups = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            int offset = thread * 250;
+            lookups.add(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    large.getCard(String.format("4%015d", (offset + i) % 2000), loader);
+                }
+                return 2000;
+            });
+        }
+
+        //Act
+        try {
+            for (Future<Integer> done : executor.invokeAll(lookups)) {
+                done.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //Assert
+        assertTrue(large.size() <= 500, "Size " + large.size());
+        //Two threads missing the same card both load it, the second one replaces the first without an eviction
+        double evicted = count("card.cache.evictions", "cause", "size");
+        assertTrue(evicted > 0 && evicted <= count("card.cache.requests", "result", "miss") - large.size());
+    }
+
+    private double count(String name, String tag, String value) {
+        return meterRegistry.get(name).tag(tag, value).counter().count();
+    }
+
+    private CardResponseDTO card(String number, String status) {
+        return new CardResponseDTO(UUID.nameUUIDFromBytes(number.getBytes()), LocalDate.now().plusYears(1),
+                number, status, UUID.randomUUID());
+    }
+}
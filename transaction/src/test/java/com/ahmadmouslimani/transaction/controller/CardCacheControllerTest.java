@@ -0,0 +1,62 @@
+package com.ahmadmouslimani.transaction.controller;
+
+import com.ahmadmouslimani.transaction.cache.CardNearCache;
+import com.ahmadmouslimani.transaction.dto.CardInvalidationDTO;
+import com.ahmadmouslimani.transaction.exception.GlobalExceptionHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(CardCacheController.class)
+@Import(GlobalExceptionHandler.class)
+class CardCacheControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private CardNearCache cardNearCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("POST /invalidate - Should return 204 and invalidate the cached card")
+    void invalidateCard_Returns204() throws Exception {
+        // Arrange
+        Instant changedAt = Instant.parse("2026-01-01T10:00:00Z");
+        CardInvalidationDTO invalidation = new CardInvalidationDTO("mockedHash", changedAt);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/transaction/cache/card/invalidate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(invalidation)))
+                .andExpect(status().isNoContent());
+        verify(cardNearCache).invalidate("mockedHash", changedAt);
+    }
+
+    @Test
+    @DisplayName("POST /invalidate - Should return 400 when the hash is missing")
+    void invalidateCard_MissingHash_Returns400() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/api/transaction/cache/card/invalidate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"changedAt\":\"2026-01-01T10:00:00Z\"}"))
+                .andExpect(status().isBadRequest());
+        verify(cardNearCache, never()).invalidate(any(), any());
+    }
+}
@@ -1,9 +1,14 @@
 package com.ahmadmouslimani.transaction.controller;
 
+import com.ahmadmouslimani.transaction.dto.IngestSummaryDTO;
+import com.ahmadmouslimani.transaction.dto.TransactionBatchItemDTO;
 import com.ahmadmouslimani.transaction.dto.TransactionRequestDTO;
 import com.ahmadmouslimani.transaction.dto.TransactionResponseDTO;
 import com.ahmadmouslimani.transaction.enums.TransactionStatus;
 import com.ahmadmouslimani.transaction.exception.GlobalExceptionHandler;
+import com.ahmadmouslimani.transaction.exception.IdempotencyConflictException;
+import com.ahmadmouslimani.transaction.idempotency.TransactionIdempotencyStore;
+import com.ahmadmouslimani.transaction.service.TransactionIngestService;
 import com.ahmadmouslimani.transaction.service.TransactionService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
@@ -16,15 +21,23 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.hamcrest.Matchers.containsString;
 import org.springframework.http.MediaType;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(TransactionController.class)
@@ -37,6 +50,12 @@ class TransactionControllerTest {
     @MockitoBean
     private TransactionService transactionService;
 
+    @MockitoBean
+    private TransactionIngestService transactionIngestService;
+
+    @MockitoBean
+    private TransactionIdempotencyStore transactionIdempotencyStore;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -54,7 +73,7 @@ class TransactionControllerTest {
                 false, "Transaction Success"
         );
 
-        when(transactionService.createTransaction(any())).thenReturn(response);
+        when(transactionIdempotencyStore.createTransaction(isNull(), any())).thenReturn(response);
 
         // Act & Assert
         mockMvc.perform(post("/api/transaction/create")
@@ -65,6 +84,31 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.details").value("Transaction Success"));
     }
 
+    @Test
+    @DisplayName("POST /create - Should pass the Idempotency-Key on, and return 409 while its first request is in progress")
+    void createTransaction_IdempotencyKey() throws Exception {
+        //Arrange
+        TransactionRequestDTO request = new TransactionRequestDTO(
+                new BigDecimal("100.00"), "D", "1234123412341234"
+        );
+        when(transactionIdempotencyStore.createTransaction(eq("order-42"), any()))
+                .thenThrow(new IdempotencyConflictException());
+
+        //Act & Assert
+        mockMvc.perform(post("/api/transaction/create")
+                        .header("Idempotency-Key", "order-42")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errorMessage").value(containsString("still in progress")));
+
+        mockMvc.perform(post("/api/transaction/create")
+                        .header("Idempotency-Key", "k".repeat(65))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("POST /create - Should return 400 for invalid Card Number")
     void createTransaction_InvalidCard_Returns400() throws Exception {
@@ -81,4 +125,66 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.errorMessage").value(containsString("Card number must be 16 digits")));
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("POST /batch - Should return 200 with one result per item")
+    void createTransactions_Returns200() throws Exception {
+        //Arrange
+        TransactionRequestDTO request = new TransactionRequestDTO(
+                new BigDecimal("100.00"), "D", "1234123412341234"
+        );
+        TransactionResponseDTO response = new TransactionResponseDTO(
+                UUID.randomUUID(), new BigDecimal("100.00"), Instant.now(),
+                "D", UUID.randomUUID(), UUID.randomUUID(), TransactionStatus.APPROVED,
+                false, "Transaction Success"
+        );
+        when(transactionService.createTransactions(any())).thenReturn(List.of(
+                TransactionBatchItemDTO.processed(0, response),
+                TransactionBatchItemDTO.failed(1, "Card not found")
+        ));
+
+        //Act & Assert
+        mockMvc.perform(post("/api/transaction/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(request, request))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].transaction.status").value("APPROVED"))
+                .andExpect(jsonPath("$[1].errorMessage").value("Card not found"));
+    }
+
+    @Test
+    @DisplayName("POST /batch - Should return 400 for an invalid item")
+    void createTransactions_InvalidItem_Returns400() throws Exception {
+        //Arrange: second Card number too short
+        List<TransactionRequestDTO> requests = List.of(
+                new TransactionRequestDTO(new BigDecimal("100.00"), "D", "1234123412341234"),
+                new TransactionRequestDTO(new BigDecimal("100.00"), "D", "123")
+        );
+
+        //Act & Assert
+        mockMvc.perform(post("/api/transaction/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorMessage").value(containsString("Card number must be 16 digits")));
+    }
+
+    @Test
+    @DisplayName("POST /ingest - Should stream NDJSON results")
+    void ingestTransactions_StreamsNdjson() throws Exception {
+        //Arrange
+        String line = "{\"index\":0,\"transaction\":null,\"errorMessage\":\"Card not found\"}\n";
+        doAnswer(inv -> {
+            OutputStream output = inv.getArgument(1);
+            output.write(line.getBytes(StandardCharsets.UTF_8));
+            return new IngestSummaryDTO(1, 0, 0, 1, Duration.ofMillis(5));
+        }).when(transactionIngestService).ingest(any(), any());
+
+        //Act & Assert
+        mockMvc.perform(post("/api/transaction/ingest")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"transactionAmount\":100.00,\"transactionType\":\"D\",\"cardNumber\":\"1234123412341234\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(line));
+    }
+}
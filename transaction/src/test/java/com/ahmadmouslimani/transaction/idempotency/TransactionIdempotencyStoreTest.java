@@ -0,0 +1,253 @@
+package com.ahmadmouslimani.transaction.idempotency;
+
+import com.ahmadmouslimani.transaction.config.IdempotencyProperties;
+import com.ahmadmouslimani.transaction.dto.TransactionRequestDTO;
+import com.ahmadmouslimani.transaction.dto.TransactionResponseDTO;
+import com.ahmadmouslimani.transaction.encryption.HashUtils;
+import com.ahmadmouslimani.transaction.entity.TransactionIdempotencyKey;
+import com.ahmadmouslimani.transaction.enums.TransactionStatus;
+import com.ahmadmouslimani.transaction.exception.BusinessException;
+import com.ahmadmouslimani.transaction.exception.ExternalServiceException;
+import com.ahmadmouslimani.transaction.exception.IdempotencyConflictException;
+import com.ahmadmouslimani.transaction.repository.TransactionIdempotencyKeyRepository;
+import com.ahmadmouslimani.transaction.service.TransactionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionIdempotencyStoreTest {
+
+    @Mock
+    private TransactionIdempotencyKeyRepository repository;
+    @Mock
+    private TransactionService transactionService;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HashUtils hashUtils = new HashUtils("salt");
+    private final IdempotencyProperties properties = new IdempotencyProperties(true, 2, Duration.ofMinutes(10),
+            Duration.ofHours(24), Duration.ofMillis(300), Duration.ofMinutes(1), Duration.ofHours(1));
+    private final TransactionRequestDTO request = new TransactionRequestDTO(new BigDecimal("100.00"), "D", "1234123412341234");
+    private TransactionIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new TransactionIdempotencyStore(properties, repository, transactionService, hashUtils, meterRegistry,
+                Clock.systemUTC());
+    }
+
+    @Test
+    @DisplayName("Should create the transaction once and answer the retry from memory, without any database call")
+    void createTransaction_RetryAnsweredFromMemory() {
+        //Arrange
+        TransactionResponseDTO response = response();
+        when(repository.claim(eq("key-1"), anyString(), any(), any())).thenReturn(1);
+        when(transactionService.createTransaction(request, "key-1")).thenReturn(response);
+
+        //Act
+        TransactionResponseDTO first = store.createTransaction("key-1", request);
+        TransactionResponseDTO retry = store.createTransaction("key-1",
+                new TransactionRequestDTO(new BigDecimal("100"), "D", "1234123412341234"));
+
+        //Assert
+        assertSame(response, first);
+        assertSame(response, retry, "The same amount with another scale is the same request");
+        verify(transactionService, times(1)).createTransaction(any(), any());
+        verifyNoMoreInteractions(repository);
+        assertEquals(1, count("memory"));
+    }
+
+    @Test
+    @DisplayName("Should run concurrent duplicates once, the others wait for its result")
+    void createTransaction_ConcurrentDuplicatesWait() throws Exception {
+        //Arrange
+        TransactionResponseDTO response = response();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.claim(eq("key-1"), anyString(), any(), any())).thenReturn(1);
+        when(transactionService.createTransaction(request, "key-1")).thenAnswer(inv -> {
+            started.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return response;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        //Act
+        List<Future<TransactionResponseDTO>> results = new ArrayList<>();
+        try {
+            results.add(executor.submit(() -> store.createTransaction("key-1", request)));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> store.createTransaction("key-1", request)));
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            //Assert
+            for (Future<TransactionResponseDTO> result : results) {
+                assertSame(response, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(transactionService, times(1)).createTransaction(any(), any());
+        verify(repository, times(1)).claim(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should return the stored transaction when the key was completed on another instance")
+    void createTransaction_KeyCompletedElsewhere_ReturnsStoredTransaction() {
+        //Arrange
+        TransactionResponseDTO response = response();
+        when(repository.claim(eq("key-1"), anyString(), any(), any())).thenReturn(0);
+        when(repository.findById("key-1")).thenReturn(Optional.of(key(requestHash())));
+        when(transactionService.findTransactionByIdempotencyKey("key-1")).thenReturn(Optional.of(response));
+
+        //Act
+        TransactionResponseDTO result = store.createTransaction("key-1", request);
+
+        //Assert
+        assertSame(response, result);
+        verify(transactionService, never()).createTransaction(any(), any());
+        assertEquals(1, count("database"));
+    }
+
+    @Test
+    @DisplayName("Should return 409 when the key stays in progress on another instance past the wait timeout")
+    void createTransaction_KeyInProgressElsewhere_Conflict() {
+        //Arrange
+        when(repository.claim(eq("key-1"), anyString(), any(), any())).thenReturn(0);
+        when(repository.findById("key-1")).thenReturn(Optional.of(key(requestHash())));
+        when(transactionService.findTransactionByIdempotencyKey("key-1")).thenReturn(Optional.empty());
+
+        //Act & Assert
+        assertThrows(IdempotencyConflictException.class, () -> store.createTransaction("key-1", request));
+        verify(transactionService, never()).createTransaction(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should return the transaction carrying the key once its claim was purged, instead of creating another")
+    void createTransaction_ClaimPurged_ReturnsStoredTransaction() {
+        //Arrange
+        TransactionResponseDTO response = response();
+        when(repository.claim(eq("key-1"), anyString(), any(), any())).thenReturn(0);
+        when(repository.findById("key-1")).thenReturn(Optional.empty());
+        when(transactionService.findTransactionByIdempotencyKey("key-1")).thenReturn(Optional.of(response));
+
+        //Act
+        TransactionResponseDTO result = store.createTransaction("key-1", request);
+
+        //Assert
+        assertSame(response, result);
+        verify(transactionService, never()).createTransaction(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should read a PENDING transaction again on a retry, and answer from memory once its status is final")
+    void createTransaction_PendingTransaction_StatusReadAgain() {
+        //Arrange
+        TransactionResponseDTO pending = response(TransactionStatus.PENDING);
+        TransactionResponseDTO approved = new TransactionResponseDTO(pending.id(), pending.transactionAmount(),
+                pending.transactionDate(), "D", pending.accountId(), pending.cardId(), TransactionStatus.APPROVED,
+                false, "Transaction Success");
+        when(repository.claim(eq("key-1"), anyString(), any(), any())).thenReturn(1);
+        when(transactionService.createTransaction(request, "key-1")).thenReturn(pending);
+        when(transactionService.getTransactionById(pending.id())).thenReturn(pending, approved);
+
+        //Act
+        TransactionResponseDTO first = store.createTransaction("key-1", request);
+        TransactionResponseDTO stillPending = store.createTransaction("key-1", request);
+        TransactionResponseDTO completed = store.createTransaction("key-1", request);
+        TransactionResponseDTO cached = store.createTransaction("key-1", request);
+
+        //Assert
+        assertSame(pending, first);
+        assertSame(pending, stillPending);
+        assertSame(approved, completed, "The final status set by the outbox relay is returned");
+        assertSame(approved, cached);
+        verify(transactionService, times(2)).getTransactionById(pending.id());
+        assertEquals(3, count("memory"));
+    }
+
+    @Test
+    @DisplayName("Should refuse a key reused for a different request")
+    void createTransaction_DifferentRequest_Refused() {
+        //Arrange
+        when(repository.claim(eq("key-1"), anyString(), any(), any())).thenReturn(1);
+        when(transactionService.createTransaction(request, "key-1")).thenReturn(response());
+        store.createTransaction("key-1", request);
+
+        //Act & Assert
+        BusinessException ex = assertThrows(BusinessException.class, () -> store.createTransaction("key-1",
+                new TransactionRequestDTO(new BigDecimal("200.00"), "D", "1234123412341234")));
+        assertEquals("Idempotency-Key was already used for a different request", ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should release the key when the transaction could not be created, so a retry runs again")
+    void createTransaction_Failure_ReleasesKey() {
+        //Arrange
+        TransactionResponseDTO response = response();
+        when(repository.claim(eq("key-1"), anyString(), any(), any())).thenReturn(1);
+        when(transactionService.createTransaction(request, "key-1"))
+                .thenThrow(new ExternalServiceException("Service Card. Unavailable"))
+                .thenReturn(response);
+
+        //Act
+        assertThrows(ExternalServiceException.class, () -> store.createTransaction("key-1", request));
+        TransactionResponseDTO retry = store.createTransaction("key-1", request);
+
+        //Assert
+        verify(repository).release("key-1");
+        assertSame(response, retry);
+        verify(transactionService, times(2)).createTransaction(any(), any());
+    }
+
+    private TransactionResponseDTO response() {
+        return response(TransactionStatus.APPROVED);
+    }
+
+    private TransactionResponseDTO response(TransactionStatus status) {
+        return new TransactionResponseDTO(UUID.randomUUID(), new BigDecimal("100.00"), Instant.now(), "D",
+                UUID.randomUUID(), UUID.randomUUID(), status, false, "Transaction Success");
+    }
+
+    private String requestHash() {
+        return hashUtils.generateSearchHash("100|D|1234123412341234");
+    }
+
+    private TransactionIdempotencyKey key(String requestHash) {
+        TransactionIdempotencyKey key = new TransactionIdempotencyKey();
+        key.setIdempotencyKey("key-1");
+        key.setRequestHash(requestHash);
+        key.setCreatedAt(Instant.now());
+        return key;
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("transaction.idempotency.requests").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,143 @@
+package com.ahmadmouslimani.transaction.service.impl;
+
+import com.ahmadmouslimani.transaction.config.IngestProperties;
+import com.ahmadmouslimani.transaction.dto.IngestSummaryDTO;
+import com.ahmadmouslimani.transaction.dto.TransactionBatchItemDTO;
+import com.ahmadmouslimani.transaction.dto.TransactionResponseDTO;
+import com.ahmadmouslimani.transaction.enums.TransactionStatus;
+import com.ahmadmouslimani.transaction.exception.ResourceNotFoundException;
+import com.ahmadmouslimani.transaction.service.TransactionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionIngestServiceImplTest {
+
+    private static final String VALID_LINE = "{\"transactionAmount\":100.00,\"transactionType\":\"D\",\"cardNumber\":\"1234123412341234\"}";
+
+    @Mock
+    private TransactionService transactionService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private ThreadPoolTaskExecutor ingestExecutor;
+
+    @BeforeEach
+    void setUp() {
+        ingestExecutor = new ThreadPoolTaskExecutor();
+        ingestExecutor.setCorePoolSize(4);
+        ingestExecutor.setMaxPoolSize(4);
+        ingestExecutor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestExecutor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Ingest - Writes one result per line in input order, including invalid lines")
+    void ingest_WritesResultsInOrder() throws Exception {
+        //Arrange
+        when(transactionService.createTransaction(argThat(request -> request != null && "1234123412341234".equals(request.cardNumber()))))
+                .thenReturn(response(TransactionStatus.APPROVED));
+        when(transactionService.createTransaction(argThat(request -> request != null && "9999999999999999".equals(request.cardNumber()))))
+                .thenThrow(new ResourceNotFoundException("Card not found"));
+        String input = String.join("\n",
+                VALID_LINE,
+                "",
+                "{not json",
+                "{\"transactionAmount\":100.00,\"transactionType\":\"D\",\"cardNumber\":\"123\"}",
+                "{\"transactionAmount\":100.00,\"transactionType\":\"D\",\"cardNumber\":\"9999999999999999\"}"
+        );
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        //Act
+        IngestSummaryDTO summary = service(2).ingest(stream(input), output);
+
+        //Assert
+        List<TransactionBatchItemDTO> items = readItems(output);
+        assertEquals(4, items.size());
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(i, items.get(i).index());
+        }
+        assertEquals(TransactionStatus.APPROVED, items.get(0).transaction().status());
+        assertTrue(items.get(1).errorMessage().startsWith("Malformed JSON"));
+        assertEquals("Card number must be 16 digits", items.get(2).errorMessage());
+        assertEquals("Card not found", items.get(3).errorMessage());
+
+        assertEquals(4, summary.items());
+        assertEquals(1, summary.approved());
+        assertEquals(3, summary.failed());
+    }
+
+    @Test
+    @DisplayName("Ingest - Never keeps more than the window size in flight")
+    void ingest_BoundedWindow() throws Exception {
+        //Arrange
+        int windowSize = 3;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(transactionService.createTransaction(any())).thenAnswer(inv -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(ThreadLocalRandom.current().nextInt(1, 5));
+            running.decrementAndGet();
+            return response(TransactionStatus.APPROVED);
+        });
+        String input = String.join("\n", Collections.nCopies(200, VALID_LINE));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        //Act
+        IngestSummaryDTO summary = service(windowSize).ingest(stream(input), output);
+
+        //Assert
+        assertEquals(200, summary.items());
+        assertEquals(200, readItems(output).size());
+        assertTrue(maxRunning.get() <= windowSize, "At most " + windowSize + " items in flight, saw " + maxRunning.get());
+    }
+
+    private TransactionIngestServiceImpl service(int windowSize) {
+        return new TransactionIngestServiceImpl(transactionService, objectMapper,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new IngestProperties(4, windowSize, 50), ingestExecutor);
+    }
+
+    private List<TransactionBatchItemDTO> readItems(ByteArrayOutputStream output) throws Exception {
+        return objectMapper.readerFor(TransactionBatchItemDTO.class)
+                .<TransactionBatchItemDTO>readValues(output.toByteArray())
+                .readAll();
+    }
+
+    private static InputStream stream(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static TransactionResponseDTO response(TransactionStatus status) {
+        return new TransactionResponseDTO(UUID.randomUUID(), new BigDecimal("100.00"), Instant.now(), "D",
+                UUID.randomUUID(), UUID.randomUUID(), status, false, "Transaction Success");
+    }
+}
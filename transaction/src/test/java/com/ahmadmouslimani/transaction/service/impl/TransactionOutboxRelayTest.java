@@ -0,0 +1,185 @@
+package com.ahmadmouslimani.transaction.service.impl;
+
+import com.ahmadmouslimani.transaction.config.OutboxProperties;
+import com.ahmadmouslimani.transaction.entity.OutboxEvent;
+import com.ahmadmouslimani.transaction.entity.Transaction;
+import com.ahmadmouslimani.transaction.enums.TransactionStatus;
+import com.ahmadmouslimani.transaction.exception.BusinessException;
+import com.ahmadmouslimani.transaction.exception.ExternalServiceException;
+import com.ahmadmouslimani.transaction.repository.OutboxEventRepository;
+import com.ahmadmouslimani.transaction.repository.TransactionRepository;
+import com.ahmadmouslimani.transaction.service.TransactionRejectionService;
+import com.ahmadmouslimani.transaction.service.client.AccountFeignClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionOutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private TransactionRejectionService transactionRejectionService;
+    @Mock
+    private AccountFeignClient accountFeignClient;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OutboxProperties properties = new OutboxProperties(true, 4, 2, Duration.ofMillis(500),
+            Duration.ofSeconds(30), Duration.ofSeconds(1), Duration.ofSeconds(10));
+    private final UUID accountId = UUID.randomUUID();
+    private TransactionOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new TransactionOutboxRelay(properties, outboxRepository, transactionRepository, transactionRejectionService,
+                accountFeignClient, new TransactionTemplate(mock(PlatformTransactionManager.class)), Runnable::run, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Submit - Commits the transaction as PENDING with its outbox event, then applies the adjustment with the transaction id as key")
+    void submit_CommitsPendingThenApproves() {
+        //Arrange
+        UUID transactionId = UUID.randomUUID();
+        when(transactionRepository.save(any())).thenAnswer(inv -> {
+            Transaction transaction = inv.getArgument(0);
+            transaction.setId(transactionId);
+            return transaction;
+        });
+        when(outboxRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(transactionRepository.completePending(transactionId, TransactionStatus.APPROVED)).thenReturn(1);
+
+        //Act
+        Transaction result = relay.submit(transaction());
+
+        //Assert
+        assertEquals(TransactionStatus.PENDING, result.getStatus());
+        ArgumentCaptor<OutboxEvent> event = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxRepository).save(event.capture());
+        assertEquals(transactionId, event.getValue().getId());
+        assertTrue(event.getValue().isNew());
+        assertTrue(event.getValue().getAvailableAt().isAfter(Instant.now().plusSeconds(20)), "Leased to the submitting relay");
+
+        verify(accountFeignClient).adjustBalance(accountId, new BigDecimal("100.00"), "D", transactionId);
+        verify(transactionRepository).completePending(transactionId, TransactionStatus.APPROVED);
+        verify(outboxRepository).deleteEvent(transactionId);
+        verify(transactionRejectionService, never()).createTransactionRejection(any());
+        assertEquals(1, meterRegistry.get("transaction.outbox.relayed").tag("status", "APPROVED").counter().count());
+    }
+
+    @Test
+    @DisplayName("Relay - A business rejection from the Account service is final: REJECTED with its reason")
+    void relay_BusinessRejection_RejectsTransaction() {
+        //Arrange
+        OutboxEvent event = event(1);
+        when(accountFeignClient.adjustBalance(any(), any(), any(), any()))
+                .thenThrow(new BusinessException("Insufficient funds or account not found"));
+        when(transactionRepository.completePending(event.getId(), TransactionStatus.REJECTED)).thenReturn(1);
+
+        //Act
+        relay.relay(event);
+
+        //Assert
+        verify(transactionRejectionService).createTransactionRejection(argThat(rejection ->
+                "Insufficient funds or account not found".equals(rejection.getReason()) && !rejection.isFraudulent()));
+        verify(outboxRepository).deleteEvent(event.getId());
+        verify(outboxRepository, never()).reschedule(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Relay - A failed call is retried later with a doubling backoff, the transaction stays PENDING")
+    void relay_Failure_ReschedulesWithBackoff() {
+        //Arrange
+        OutboxEvent event = event(3);
+        when(accountFeignClient.adjustBalance(any(), any(), any(), any()))
+                .thenThrow(new ExternalServiceException("Service Account. Unavailable"));
+
+        //Act
+        Instant before = Instant.now();
+        relay.relay(event);
+
+        //Assert
+        ArgumentCaptor<Instant> availableAt = ArgumentCaptor.forClass(Instant.class);
+        verify(outboxRepository).reschedule(eq(event.getId()), availableAt.capture(), eq("Service Account. Unavailable"));
+        assertFalse(availableAt.getValue().isBefore(before.plusSeconds(4)), "Third attempt waits 1s doubled twice");
+        verify(transactionRepository, never()).completePending(any(), any());
+        verify(outboxRepository, never()).deleteEvent(any());
+        assertEquals(Duration.ofSeconds(10), relay.backoff(20), "Capped at max-backoff");
+    }
+
+    @Test
+    @DisplayName("Relay - A duplicate delivery does not change a completed transaction again")
+    void relay_AlreadyCompleted_OnlyDeletesEvent() {
+        //Arrange
+        OutboxEvent event = event(2);
+        when(accountFeignClient.adjustBalance(any(), any(), any(), any()))
+                .thenThrow(new BusinessException("Insufficient funds or account not found"));
+        when(transactionRepository.completePending(event.getId(), TransactionStatus.REJECTED)).thenReturn(0);
+
+        //Act
+        relay.relay(event);
+
+        //Assert
+        verify(transactionRejectionService, never()).createTransactionRejection(any());
+        verify(outboxRepository).deleteEvent(event.getId());
+    }
+
+    @Test
+    @DisplayName("Poll - Claims due events in batches until fewer than a full batch are due")
+    void relayDue_ClaimsUntilDrained() {
+        //Arrange
+        OutboxEvent first = event(2);
+        OutboxEvent second = event(2);
+        OutboxEvent third = event(2);
+        when(outboxRepository.claimDue(any(), any(), eq(2)))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of(third));
+        when(transactionRepository.completePending(any(), eq(TransactionStatus.APPROVED))).thenReturn(1);
+
+        //Act
+        relay.relayDue();
+
+        //Assert
+        verify(outboxRepository, times(2)).claimDue(any(), any(), eq(2));
+        verify(accountFeignClient, times(3)).adjustBalance(eq(accountId), any(), eq("D"), any());
+        verify(outboxRepository, times(3)).deleteEvent(any());
+    }
+
+    private Transaction transaction() {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionAmount(new BigDecimal("100.00"));
+        transaction.setTransactionType("D");
+        transaction.setAccountId(accountId);
+        transaction.setCardId(UUID.randomUUID());
+        return transaction;
+    }
+
+    private OutboxEvent event(int attempts) {
+        Transaction transaction = transaction();
+        transaction.setId(UUID.randomUUID());
+        Instant now = Instant.now();
+        OutboxEvent event = new OutboxEvent(transaction, now, now);
+        event.setAttempts(attempts);
+        return event;
+    }
+}
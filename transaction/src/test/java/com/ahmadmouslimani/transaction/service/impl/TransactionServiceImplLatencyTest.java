@@ -0,0 +1,228 @@
+package com.ahmadmouslimani.transaction.service.impl;
+
+import com.ahmadmouslimani.transaction.cache.CardNearCache;
+import com.ahmadmouslimani.transaction.config.CardCacheProperties;
+import com.ahmadmouslimani.transaction.config.OrchestrationConfig;
+import com.ahmadmouslimani.transaction.config.OrchestrationProperties;
+import com.ahmadmouslimani.transaction.config.OutboxProperties;
+import com.ahmadmouslimani.transaction.dto.*;
+import com.ahmadmouslimani.transaction.encryption.HashUtils;
+import com.ahmadmouslimani.transaction.entity.Transaction;
+import com.ahmadmouslimani.transaction.enums.TransactionStatus;
+import com.ahmadmouslimani.transaction.exception.ExternalServiceException;
+import com.ahmadmouslimani.transaction.mapper.TransactionMapper;
+import com.ahmadmouslimani.transaction.repository.TransactionRepository;
+import com.ahmadmouslimani.transaction.service.TransactionRejectionService;
+import com.ahmadmouslimani.transaction.service.client.AccountFeignClient;
+import com.ahmadmouslimani.transaction.service.client.CardFeignClient;
+import com.ahmadmouslimani.transaction.service.client.FraudFeignClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Compares sequential and parallel orchestration against stubbed downstream services
+ * that answer after a fixed network latency.
+ */
+@ExtendWith(MockitoExtension.class)
+class TransactionServiceImplLatencyTest {
+
+    private static final long DOWNSTREAM_LATENCY_MS = 60;
+    private static final int MEASURED_RUNS = 5;
+    private static final OutboxProperties OUTBOX_DISABLED = new OutboxProperties(false, 1, 1, Duration.ofMillis(500),
+            Duration.ofSeconds(30), Duration.ofSeconds(1), Duration.ofMinutes(5));
+
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private TransactionRejectionService transactionRejectionService;
+    @Mock
+    private AccountFeignClient accountFeignClient;
+    @Mock
+    private CardFeignClient cardFeignClient;
+    @Mock
+    private FraudFeignClient fraudClient;
+
+    private final TransactionMapper mapper = new TransactionMapper();
+    private final UUID cardId = UUID.randomUUID();
+    private final UUID accountId = UUID.randomUUID();
+    private final TransactionRequestDTO request =
+            new TransactionRequestDTO(new BigDecimal("100.00"), "D", "1234123412341234");
+    private ThreadPoolTaskExecutor lookupExecutor;
+    private final CardNearCache cardNearCache = new CardNearCache(new CardCacheProperties(false, 1, Duration.ofSeconds(1)), new HashUtils("salt"),
+            new SimpleMeterRegistry(), Clock.systemUTC());
+
+    @BeforeEach
+    void setUp() {
+        lookupExecutor = new OrchestrationConfig()
+                .lookupExecutor(new OrchestrationProperties(true, 4, 16, Duration.ofSeconds(2)));
+
+        CardResponseDTO card = new CardResponseDTO(
+                cardId, LocalDate.now().plusYears(1), "1234123412341234", "ACTIVE", accountId
+        );
+        AccountResponseDTO account = new AccountResponseDTO(accountId, "ACTIVE", new BigDecimal("500.00"));
+
+        lenient().when(cardFeignClient.getCardByCardNumber(anyString())).thenAnswer(inv -> delayed(card));
+        lenient().when(accountFeignClient.getAccountById(accountId)).thenAnswer(inv -> delayed(account));
+        lenient().when(fraudClient.checkFraud(any())).thenAnswer(inv -> delayed(new FraudResponseDTO(false, "Approved")));
+        lenient().when(accountFeignClient.adjustBalance(any(), any(), any())).thenAnswer(inv -> delayed(account));
+        lenient().when(transactionRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        lookupExecutor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Parallel orchestration should save one downstream round trip compared to sequential")
+    void parallelOrchestration_IsFasterThanSequential() {
+        TransactionServiceImpl sequential = service(new OrchestrationProperties(false, 4, 16, Duration.ofSeconds(2)));
+        TransactionServiceImpl parallel = service(new OrchestrationProperties(true, 4, 16, Duration.ofSeconds(2)));
+
+        long sequentialMedian = medianLatencyMs(sequential);
+        long parallelMedian = medianLatencyMs(parallel);
+        System.out.printf("createTransaction median latency: sequential=%dms, parallel=%dms (downstream latency %dms)%n",
+                sequentialMedian, parallelMedian, DOWNSTREAM_LATENCY_MS);
+
+        //Sequential pays card + account + fraud + adjustBalance, parallel overlaps account and fraud
+        assertTrue(sequentialMedian >= 4 * DOWNSTREAM_LATENCY_MS);
+        assertTrue(parallelMedian < sequentialMedian - DOWNSTREAM_LATENCY_MS / 2,
+                "Parallel mode should remove roughly one downstream hop");
+    }
+
+    @Test
+    @DisplayName("Parallel orchestration - Fraud rejection cancels the running Account lookup")
+    void parallelOrchestration_FraudRejectionCancelsAccountLookup() throws Exception {
+        CountDownLatch accountStarted = new CountDownLatch(1);
+        AtomicBoolean accountInterrupted = new AtomicBoolean(false);
+        lenient().when(accountFeignClient.getAccountById(accountId)).thenAnswer(inv -> {
+            accountStarted.countDown();
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException ex) {
+                accountInterrupted.set(true);
+            }
+            return null;
+        });
+        lenient().when(fraudClient.checkFraud(any())).thenAnswer(inv -> {
+            accountStarted.await(1, TimeUnit.SECONDS);
+            return new FraudResponseDTO(true, "Frequency limit exceeded");
+        });
+        stubRejectionSave();
+
+        long start = System.nanoTime();
+        TransactionResponseDTO result = service(new OrchestrationProperties(true, 4, 16, Duration.ofSeconds(10)))
+                .createTransaction(request);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(result.isFraudulent());
+        assertTrue(elapsedMs < 2_000, "Should not wait for the slow Account lookup");
+        awaitTrue(accountInterrupted);
+    }
+
+    @Test
+    @DisplayName("Parallel orchestration - Account rejection cancels the running Fraud check")
+    void parallelOrchestration_AccountRejectionCancelsFraudCheck() throws Exception {
+        CountDownLatch fraudStarted = new CountDownLatch(1);
+        AtomicBoolean fraudInterrupted = new AtomicBoolean(false);
+        lenient().when(accountFeignClient.getAccountById(accountId)).thenAnswer(inv -> {
+            fraudStarted.await(1, TimeUnit.SECONDS);
+            return new AccountResponseDTO(accountId, "INACTIVE", new BigDecimal("500.00"));
+        });
+        lenient().when(fraudClient.checkFraud(any())).thenAnswer(inv -> {
+            fraudStarted.countDown();
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException ex) {
+                fraudInterrupted.set(true);
+            }
+            return null;
+        });
+        stubRejectionSave();
+
+        TransactionResponseDTO result = service(new OrchestrationProperties(true, 4, 16, Duration.ofSeconds(10)))
+                .createTransaction(request);
+
+        assertFalse(result.isFraudulent());
+        awaitTrue(fraudInterrupted);
+    }
+
+    @Test
+    @DisplayName("Parallel orchestration - Should throw ExternalServiceException when a lookup exceeds the call timeout")
+    void parallelOrchestration_TimeoutThrowsExternalServiceException() {
+        lenient().when(accountFeignClient.getAccountById(accountId)).thenAnswer(inv -> {
+            Thread.sleep(2_000);
+            return null;
+        });
+
+        TransactionServiceImpl parallel = service(new OrchestrationProperties(true, 4, 16, Duration.ofMillis(200)));
+
+        ExternalServiceException exception =
+                assertThrows(ExternalServiceException.class, () -> parallel.createTransaction(request));
+        assertTrue(exception.getMessage().contains("Account"));
+    }
+
+    private TransactionServiceImpl service(OrchestrationProperties properties) {
+        return new TransactionServiceImpl(transactionRepository, transactionRejectionService, accountFeignClient,
+                cardFeignClient, fraudClient, mapper, properties, lookupExecutor, cardNearCache,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), OUTBOX_DISABLED, mock(TransactionOutboxRelay.class));
+    }
+
+    private long medianLatencyMs(TransactionServiceImpl service) {
+        //Warm up thread pool and mocks
+        assertEquals(TransactionStatus.APPROVED, service.createTransaction(request).status());
+
+        long[] latencies = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            service.createTransaction(request);
+            latencies[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+        Arrays.sort(latencies);
+        return latencies[MEASURED_RUNS / 2];
+    }
+
+    private void stubRejectionSave() {
+        Transaction rejectedTransaction = new Transaction();
+        rejectedTransaction.setId(UUID.randomUUID());
+        lenient().when(transactionRepository.save(any())).thenReturn(rejectedTransaction);
+    }
+
+    private static <T> T delayed(T value) throws InterruptedException {
+        Thread.sleep(DOWNSTREAM_LATENCY_MS);
+        return value;
+    }
+
+    private static void awaitTrue(AtomicBoolean flag) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!flag.get() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(flag.get(), "Sibling call should have been cancelled");
+    }
+}
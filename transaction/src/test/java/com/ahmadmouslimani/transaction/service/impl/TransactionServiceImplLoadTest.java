@@ -0,0 +1,156 @@
+package com.ahmadmouslimani.transaction.service.impl;
+
+import com.ahmadmouslimani.transaction.cache.CardNearCache;
+import com.ahmadmouslimani.transaction.config.CardCacheProperties;
+import com.ahmadmouslimani.transaction.config.OrchestrationProperties;
+import com.ahmadmouslimani.transaction.config.OutboxProperties;
+import com.ahmadmouslimani.transaction.dto.*;
+import com.ahmadmouslimani.transaction.encryption.HashUtils;
+import com.ahmadmouslimani.transaction.enums.TransactionStatus;
+import com.ahmadmouslimani.transaction.mapper.TransactionMapper;
+import com.ahmadmouslimani.transaction.repository.TransactionRepository;
+import com.ahmadmouslimani.transaction.service.TransactionRejectionService;
+import com.ahmadmouslimani.transaction.service.client.AccountFeignClient;
+import com.ahmadmouslimani.transaction.service.client.CardFeignClient;
+import com.ahmadmouslimani.transaction.service.client.FraudFeignClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Fires a burst of concurrent createTransaction calls against downstream stubs that block for a fixed latency,
+ * once on a pool sized like the default Tomcat connector (200 threads) and once with a virtual thread per request,
+ * and reports how many requests were in flight at the same time in each mode.
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+@ExtendWith(MockitoExtension.class)
+class TransactionServiceImplLoadTest {
+
+    private static final int CONCURRENT_REQUESTS = 2_000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final long DOWNSTREAM_LATENCY_MS = 50;
+    private static final OutboxProperties OUTBOX_DISABLED = new OutboxProperties(false, 1, 1, Duration.ofMillis(500),
+            Duration.ofSeconds(30), Duration.ofSeconds(1), Duration.ofMinutes(5));
+
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private TransactionRejectionService transactionRejectionService;
+    @Mock
+    private AccountFeignClient accountFeignClient;
+    @Mock
+    private CardFeignClient cardFeignClient;
+    @Mock
+    private FraudFeignClient fraudClient;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private TransactionServiceImpl transactionService;
+
+    @BeforeEach
+    void setUp() {
+        UUID cardId = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+        CardResponseDTO card = new CardResponseDTO(cardId, LocalDate.now().plusYears(1), "1234123412341234", "ACTIVE", accountId);
+        AccountResponseDTO account = new AccountResponseDTO(accountId, "ACTIVE", new BigDecimal("1000000.00"));
+
+        //A request is in flight from the Card lookup until the Transaction is saved
+        when(cardFeignClient.getCardByCardNumber(anyString())).thenAnswer(inv -> {
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return delayed(card);
+        });
+        when(accountFeignClient.getAccountById(accountId)).thenAnswer(inv -> delayed(account));
+        when(fraudClient.checkFraud(any())).thenAnswer(inv -> delayed(new FraudResponseDTO(false, "Approved")));
+        when(accountFeignClient.adjustBalance(any(), any(), any())).thenAnswer(inv -> delayed(account));
+        when(transactionRepository.save(any())).thenAnswer(inv -> {
+            inFlight.decrementAndGet();
+            return inv.getArgument(0);
+        });
+
+        transactionService = new TransactionServiceImpl(transactionRepository, transactionRejectionService,
+                accountFeignClient, cardFeignClient, fraudClient, new TransactionMapper(),
+                new OrchestrationProperties(false, 1, 1, Duration.ofSeconds(5)), Runnable::run,
+                new CardNearCache(new CardCacheProperties(false, 1, Duration.ofSeconds(1)), new HashUtils("salt"),
+                new SimpleMeterRegistry(), Clock.systemUTC()), new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                OUTBOX_DISABLED, mock(TransactionOutboxRelay.class));
+    }
+
+    @Test
+    @DisplayName("Virtual threads should keep far more createTransaction requests in flight than the platform pool")
+    void virtualThreads_HandleMoreConcurrentRequests() throws Exception {
+        LoadResult platform = run(Executors.newFixedThreadPool(TOMCAT_MAX_THREADS));
+        LoadResult virtual = run((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+
+        System.out.printf("%d concurrent createTransaction requests, downstream latency %dms%n", CONCURRENT_REQUESTS, DOWNSTREAM_LATENCY_MS);
+        System.out.printf("  platform (%d threads): peak in flight=%d, elapsed=%dms, pinned events=%d%n",
+                TOMCAT_MAX_THREADS, platform.peakInFlight(), platform.elapsedMs(), platform.pinnedEvents());
+        System.out.printf("  virtual:               peak in flight=%d, elapsed=%dms, pinned events=%d%n",
+                virtual.peakInFlight(), virtual.elapsedMs(), virtual.pinnedEvents());
+
+        assertTrue(platform.peakInFlight() <= TOMCAT_MAX_THREADS);
+        assertTrue(virtual.peakInFlight() > TOMCAT_MAX_THREADS);
+        assertTrue(virtual.elapsedMs() < platform.elapsedMs());
+    }
+
+    private LoadResult run(ExecutorService executor) throws Exception {
+        inFlight.set(0);
+        peakInFlight.set(0);
+        LongAdder pinnedEvents = new LongAdder();
+        TransactionRequestDTO request = new TransactionRequestDTO(new BigDecimal("1.00"), "D", "1234123412341234");
+
+        try (RecordingStream pinning = new RecordingStream()) {
+            pinning.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(1));
+            pinning.onEvent("jdk.VirtualThreadPinned", event -> pinnedEvents.increment());
+            pinning.startAsync();
+
+            long start = System.nanoTime();
+            List<Future<TransactionResponseDTO>> responses = new ArrayList<>(CONCURRENT_REQUESTS);
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                responses.add(executor.submit(() -> transactionService.createTransaction(request)));
+            }
+            for (Future<TransactionResponseDTO> response : responses) {
+                assertEquals(TransactionStatus.APPROVED, response.get(30, TimeUnit.SECONDS).status());
+            }
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new LoadResult(peakInFlight.get(), elapsedMs, pinnedEvents.sum());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T delayed(T value) throws InterruptedException {
+        Thread.sleep(DOWNSTREAM_LATENCY_MS);
+        return value;
+    }
+
+    private record LoadResult(int peakInFlight, long elapsedMs, long pinnedEvents) {}
+}
@@ -1,6 +1,11 @@
 package com.ahmadmouslimani.transaction.service.impl;
 
+import com.ahmadmouslimani.transaction.cache.CardNearCache;
+import com.ahmadmouslimani.transaction.config.CardCacheProperties;
+import com.ahmadmouslimani.transaction.config.OrchestrationProperties;
+import com.ahmadmouslimani.transaction.config.OutboxProperties;
 import com.ahmadmouslimani.transaction.dto.*;
+import com.ahmadmouslimani.transaction.encryption.HashUtils;
 import com.ahmadmouslimani.transaction.entity.Transaction;
 import com.ahmadmouslimani.transaction.enums.TransactionStatus;
 import com.ahmadmouslimani.transaction.mapper.TransactionMapper;
@@ -9,6 +14,7 @@ import com.ahmadmouslimani.transaction.service.TransactionRejectionService;
 import com.ahmadmouslimani.transaction.service.client.AccountFeignClient;
 import com.ahmadmouslimani.transaction.service.client.CardFeignClient;
 import com.ahmadmouslimani.transaction.service.client.FraudFeignClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -17,11 +23,18 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -43,6 +56,18 @@ class TransactionServiceImplTest {
     private FraudFeignClient fraudClient;
     @Spy
     private TransactionMapper mapper;
+    @Spy
+    private OrchestrationProperties orchestrationProperties =
+            new OrchestrationProperties(false, 1, 1, Duration.ofSeconds(1));
+    @Spy
+    private CardNearCache cardNearCache = new CardNearCache(new CardCacheProperties(false, 1, Duration.ofSeconds(1)), new HashUtils("salt"),
+            new SimpleMeterRegistry(), Clock.systemUTC());
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    @Spy
+    private OutboxProperties outboxProperties = outboxProperties(false);
+    @Mock
+    private TransactionOutboxRelay outboxRelay;
 
     @InjectMocks
     private TransactionServiceImpl transactionService;
@@ -99,6 +124,78 @@ class TransactionServiceImplTest {
         verify(transactionRepository).save(any(Transaction.class));
     }
 
+    @Test
+    @DisplayName("Create Transaction - Outbox mode commits the approved transaction as PENDING with its Idempotency-Key, without calling the Account service")
+    void createTransaction_Outbox_CommitsPending() {
+        //Arrange
+        TransactionServiceImpl outboxService = service(transactionTemplate, outboxProperties(true));
+        when(cardFeignClient.getCardByCardNumber(anyString())).thenReturn(cardResponse);
+        when(accountFeignClient.getAccountById(account_id)).thenReturn(accountResponse);
+        when(fraudClient.checkFraud(any())).thenReturn(new FraudResponseDTO(false, null));
+        when(outboxRelay.submit(any())).thenAnswer(inv -> {
+            Transaction transaction = inv.getArgument(0);
+            transaction.setId(UUID.randomUUID());
+            transaction.setStatus(TransactionStatus.PENDING);
+            return transaction;
+        });
+
+        //Act
+        TransactionResponseDTO result = outboxService.createTransaction(request, "key-1");
+
+        //Assert
+        assertEquals(TransactionStatus.PENDING, result.status());
+        assertEquals("Transaction Pending", result.details());
+        verify(outboxRelay).submit(argThat(transaction -> account_id.equals(transaction.getAccountId())
+                && "key-1".equals(transaction.getIdempotencyKey())));
+        verify(accountFeignClient, never()).adjustBalance(any(), any(), any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Create Transaction - Outbox mode holds no database transaction during the remote calls")
+    void createTransaction_Outbox_NoTransactionDuringRemoteCalls() {
+        //Arrange
+        AtomicInteger openTransactions = new AtomicInteger();
+        List<Integer> openDuringCalls = new ArrayList<>();
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(inv -> {
+            openTransactions.incrementAndGet();
+            return new SimpleTransactionStatus();
+        });
+        doAnswer(inv -> openTransactions.decrementAndGet()).when(transactionManager).commit(any());
+        TransactionTemplate trackingTemplate = new TransactionTemplate(transactionManager);
+
+        when(cardFeignClient.getCardByCardNumber(anyString())).thenAnswer(inv -> {
+            openDuringCalls.add(openTransactions.get());
+            return cardResponse;
+        });
+        when(accountFeignClient.getAccountById(account_id)).thenAnswer(inv -> {
+            openDuringCalls.add(openTransactions.get());
+            return accountResponse;
+        });
+        when(fraudClient.checkFraud(any())).thenAnswer(inv -> {
+            openDuringCalls.add(openTransactions.get());
+            return new FraudResponseDTO(false, null);
+        });
+        when(accountFeignClient.adjustBalance(any(), any(), any())).thenAnswer(inv -> {
+            openDuringCalls.add(openTransactions.get());
+            return accountResponse;
+        });
+        when(transactionRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(outboxRelay.submit(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        //Act
+        service(trackingTemplate, outboxProperties(false)).createTransaction(request);
+        List<Integer> synchronous = List.copyOf(openDuringCalls);
+        openDuringCalls.clear();
+        service(trackingTemplate, outboxProperties(true)).createTransaction(request);
+
+        //Assert
+        assertEquals(List.of(1, 1, 1, 1), synchronous, "Card, Account, Fraud and adjustBalance all run inside the transaction");
+        assertEquals(List.of(0, 0, 0), openDuringCalls, "Card, Account and Fraud run outside any transaction");
+        assertEquals(0, openTransactions.get());
+    }
+
     @Test
     @DisplayName("Create Transaction - Rejected due to Fraud (Exceed Amount Limit)")
     void createTransaction_Fraudulent_ExceededAmountLimit() {
@@ -114,7 +211,6 @@ class TransactionServiceImplTest {
         rejectedTransaction.setStatus(TransactionStatus.REJECTED);
 
         when(transactionRepository.save(any())).thenReturn(rejectedTransaction);
-        when(transactionRepository.findById(any())).thenReturn(Optional.of(rejectedTransaction));
 
         //Act
         TransactionResponseDTO result = transactionService.createTransaction(request);
@@ -141,7 +237,6 @@ class TransactionServiceImplTest {
 
 
         when(transactionRepository.save(any())).thenReturn(rejectedTransaction);
-        when(transactionRepository.findById(any())).thenReturn(Optional.of(rejectedTransaction));
 
         //Act
         TransactionResponseDTO result = transactionService.createTransaction(request);
@@ -152,6 +247,7 @@ class TransactionServiceImplTest {
 
         verify(accountFeignClient, never()).adjustBalance(any(), any(), any());
         verify(transactionRejectionService).createTransactionRejection(any());
+        verify(transactionRepository, never()).findById(any());
     }
 
     @Test
@@ -165,7 +261,6 @@ class TransactionServiceImplTest {
         Transaction rejectedTransaction = new Transaction();
         rejectedTransaction.setId(UUID.randomUUID());
         when(transactionRepository.save(any())).thenReturn(rejectedTransaction);
-        when(transactionRepository.findById(any())).thenReturn(Optional.of(rejectedTransaction));
 
         //Act
         TransactionResponseDTO result = transactionService.createTransaction(request);
@@ -188,7 +283,6 @@ class TransactionServiceImplTest {
         Transaction rejectedTransaction = new Transaction();
         rejectedTransaction.setId(UUID.randomUUID());
         when(transactionRepository.save(any())).thenReturn(rejectedTransaction);
-        when(transactionRepository.findById(any())).thenReturn(Optional.of(rejectedTransaction));
 
         //Act
         TransactionResponseDTO result = transactionService.createTransaction(request);
@@ -209,7 +303,6 @@ class TransactionServiceImplTest {
         Transaction rejectedTransaction = new Transaction();
         rejectedTransaction.setId(UUID.randomUUID());
         when(transactionRepository.save(any())).thenReturn(rejectedTransaction);
-        when(transactionRepository.findById(any())).thenReturn(Optional.of(rejectedTransaction));
 
         //Act
         TransactionResponseDTO result = transactionService.createTransaction(request);
@@ -230,7 +323,6 @@ class TransactionServiceImplTest {
         Transaction rejectedTransaction = new Transaction();
         rejectedTransaction.setId(UUID.randomUUID());
         when(transactionRepository.save(any())).thenReturn(rejectedTransaction);
-        when(transactionRepository.findById(any())).thenReturn(Optional.of(rejectedTransaction));
 
         //Act
         TransactionResponseDTO result = transactionService.createTransaction(highAmountRequest);
@@ -239,4 +331,79 @@ class TransactionServiceImplTest {
         assertTrue(result.details().contains("insufficient"));
         verify(fraudClient, never()).checkFraud(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Create Transactions - Batch resolves Cards and Accounts once and applies items in order")
+    void createTransactions_Batch() {
+        //Arrange: two debits of 300 on a balance of 500, the second one must be rejected
+        TransactionRequestDTO secondDebit = new TransactionRequestDTO(new BigDecimal("300.00"), "D", "1234123412341234");
+        TransactionRequestDTO firstDebit = new TransactionRequestDTO(new BigDecimal("300.00"), "D", "1234123412341234");
+        TransactionRequestDTO unknownCard = new TransactionRequestDTO(new BigDecimal("10.00"), "D", "9999999999999999");
+
+        when(cardFeignClient.getCardsByCardNumbers(List.of("1234123412341234", "9999999999999999")))
+                .thenReturn(List.of(cardResponse));
+        when(accountFeignClient.getAccountsByIds(List.of(account_id))).thenReturn(List.of(accountResponse));
+        when(fraudClient.checkFrauds(anyList())).thenReturn(List.of(new FraudResponseDTO(false, null)));
+        when(accountFeignClient.adjustBalances(anyList()))
+                .thenReturn(List.of(new BalanceAdjustmentResultDTO(account_id, true, null)));
+
+        //Act
+        List<TransactionBatchItemDTO> result =
+                transactionService.createTransactions(List.of(firstDebit, secondDebit, unknownCard));
+
+        //Assert
+        assertEquals(3, result.size());
+        assertEquals(TransactionStatus.APPROVED, result.get(0).transaction().status());
+        assertEquals(TransactionStatus.REJECTED, result.get(1).transaction().status());
+        assertEquals("Transaction failed. Account has insufficient funds.", result.get(1).transaction().details());
+        assertNull(result.get(2).transaction());
+        assertEquals("Card not found", result.get(2).errorMessage());
+
+        verify(accountFeignClient).adjustBalances(List.of(
+                new BalanceAdjustmentRequestDTO(account_id, new BigDecimal("300.00"), "D")
+        ));
+        verify(transactionRepository).saveAll(argThat(transactions -> ((List<Transaction>) transactions).size() == 2));
+        verify(transactionRejectionService).createTransactionRejections(argThat(rejections -> rejections.size() == 1));
+        //The item rejected for insufficient funds is not sent to the fraud check
+        verify(fraudClient).checkFrauds(List.of(new FraudRequestDTO(card_id, new BigDecimal("300.00"), account_id)));
+        verify(fraudClient, never()).checkFraud(any());
+        verify(cardFeignClient, never()).getCardByCardNumber(anyString());
+        verify(accountFeignClient, never()).adjustBalance(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Create Transactions - Batch rejects the items flagged by the batch fraud check")
+    void createTransactions_Batch_Fraudulent() {
+        //Arrange
+        TransactionRequestDTO first = new TransactionRequestDTO(new BigDecimal("100.00"), "D", "1234123412341234");
+        TransactionRequestDTO second = new TransactionRequestDTO(new BigDecimal("100.00"), "D", "1234123412341234");
+        String reason = "Frequency limit exceeded: more than 8 transactions in 1 hour";
+
+        when(cardFeignClient.getCardsByCardNumbers(List.of("1234123412341234"))).thenReturn(List.of(cardResponse));
+        when(accountFeignClient.getAccountsByIds(List.of(account_id))).thenReturn(List.of(accountResponse));
+        when(fraudClient.checkFrauds(anyList()))
+                .thenReturn(List.of(new FraudResponseDTO(false, null), new FraudResponseDTO(true, reason)));
+        when(accountFeignClient.adjustBalances(anyList()))
+                .thenReturn(List.of(new BalanceAdjustmentResultDTO(account_id, true, null)));
+
+        //Act
+        List<TransactionBatchItemDTO> result = transactionService.createTransactions(List.of(first, second));
+
+        //Assert
+        assertEquals(TransactionStatus.APPROVED, result.get(0).transaction().status());
+        assertEquals(TransactionStatus.REJECTED, result.get(1).transaction().status());
+        assertEquals(reason, result.get(1).transaction().details());
+        verify(accountFeignClient).adjustBalances(List.of(
+                new BalanceAdjustmentRequestDTO(account_id, new BigDecimal("100.00"), "D")
+        ));
+    }
+
+    private TransactionServiceImpl service(TransactionTemplate template, OutboxProperties properties) {
+        return new TransactionServiceImpl(transactionRepository, transactionRejectionService, accountFeignClient, cardFeignClient,
+                fraudClient, mapper, orchestrationProperties, Runnable::run, cardNearCache, template, properties, outboxRelay);
+    }
+
+    private static OutboxProperties outboxProperties(boolean enabled) {
+        return new OutboxProperties(enabled, 1, 1, Duration.ofMillis(500), Duration.ofSeconds(30), Duration.ofSeconds(1), Duration.ofMinutes(5));
+    }
+}
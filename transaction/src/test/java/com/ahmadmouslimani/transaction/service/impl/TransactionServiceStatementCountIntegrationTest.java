@@ -0,0 +1,150 @@
+package com.ahmadmouslimani.transaction.service.impl;
+
+import com.ahmadmouslimani.transaction.cache.CardNearCache;
+import com.ahmadmouslimani.transaction.config.CardCacheProperties;
+import com.ahmadmouslimani.transaction.config.OrchestrationProperties;
+import com.ahmadmouslimani.transaction.config.OutboxProperties;
+import com.ahmadmouslimani.transaction.dto.AccountResponseDTO;
+import com.ahmadmouslimani.transaction.dto.CardResponseDTO;
+import com.ahmadmouslimani.transaction.dto.FraudResponseDTO;
+import com.ahmadmouslimani.transaction.dto.TransactionRequestDTO;
+import com.ahmadmouslimani.transaction.dto.TransactionResponseDTO;
+import com.ahmadmouslimani.transaction.encryption.HashUtils;
+import com.ahmadmouslimani.transaction.enums.TransactionStatus;
+import com.ahmadmouslimani.transaction.mapper.TransactionMapper;
+import com.ahmadmouslimani.transaction.repository.OutboxEventRepository;
+import com.ahmadmouslimani.transaction.repository.TransactionRejectionRepository;
+import com.ahmadmouslimani.transaction.repository.TransactionRepository;
+import com.ahmadmouslimani.transaction.service.client.AccountFeignClient;
+import com.ahmadmouslimani.transaction.service.client.CardFeignClient;
+import com.ahmadmouslimani.transaction.service.client.FraudFeignClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counts the SQL statements sent for one transaction, the remote services are mocked.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class TransactionServiceStatementCountIntegrationTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private TransactionRejectionRepository rejectionRepository;
+    @Autowired
+    private OutboxEventRepository outboxRepository;
+
+    private final AccountFeignClient accountFeignClient = mock(AccountFeignClient.class);
+    private final CardFeignClient cardFeignClient = mock(CardFeignClient.class);
+    private final FraudFeignClient fraudClient = mock(FraudFeignClient.class);
+    private final UUID accountId = UUID.randomUUID();
+    private final TransactionRequestDTO request = new TransactionRequestDTO(new BigDecimal("100.00"), "D", "1234123412341234");
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        when(cardFeignClient.getCardByCardNumber(anyString())).thenReturn(new CardResponseDTO(
+                UUID.randomUUID(), LocalDate.now().plusYears(1), "1234123412341234", "ACTIVE", accountId));
+        when(accountFeignClient.getAccountById(accountId)).thenReturn(new AccountResponseDTO(accountId, "ACTIVE", new BigDecimal("500.00")));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    @DisplayName("Approved - One INSERT of the transaction")
+    void approved_OneStatement() {
+        //Arrange
+        when(fraudClient.checkFraud(any())).thenReturn(new FraudResponseDTO(false, null));
+
+        //Act
+        TransactionResponseDTO result = createAndFlush(false);
+
+        //Assert
+        assertEquals(TransactionStatus.APPROVED, result.status());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Approved through the outbox - INSERT of the transaction and its event, then UPDATE of the status and DELETE of the event")
+    void approvedThroughOutbox_FourStatements() {
+        //Arrange
+        when(fraudClient.checkFraud(any())).thenReturn(new FraudResponseDTO(false, null));
+
+        //Act
+        TransactionResponseDTO result = createAndFlush(true);
+
+        //Assert
+        assertEquals(TransactionStatus.PENDING, result.status());
+        assertEquals(4, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Rejected - INSERT of the transaction and of its rejection in one flush, no SELECT")
+    void rejected_TwoStatements() {
+        //Arrange
+        when(fraudClient.checkFraud(any())).thenReturn(new FraudResponseDTO(true, "Transaction amount exceeds $10000.00"));
+
+        //Act
+        TransactionResponseDTO result = createAndFlush(false);
+
+        //Assert
+        assertEquals(TransactionStatus.REJECTED, result.status());
+        assertEquals("Transaction amount exceeds $10000.00", result.details());
+        assertNotNull(result.transactionDate());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getFlushCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    private TransactionResponseDTO createAndFlush(boolean outbox) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        OutboxProperties outboxProperties = new OutboxProperties(outbox, 1, 1, Duration.ofMillis(500),
+                Duration.ofSeconds(30), Duration.ofSeconds(1), Duration.ofMinutes(5));
+        TransactionOutboxRelay outboxRelay = new TransactionOutboxRelay(outboxProperties, outboxRepository, transactionRepository,
+                new TransactionRejectionServiceImpl(rejectionRepository), accountFeignClient, transactionTemplate,
+                Runnable::run, new SimpleMeterRegistry());
+        TransactionServiceImpl transactionService = new TransactionServiceImpl(transactionRepository,
+                new TransactionRejectionServiceImpl(rejectionRepository), accountFeignClient, cardFeignClient, fraudClient,
+                new TransactionMapper(), new OrchestrationProperties(false, 1, 1, Duration.ofSeconds(1)), Runnable::run,
+                new CardNearCache(new CardCacheProperties(false, 1, Duration.ofSeconds(1)), new HashUtils("salt"),
+                        new SimpleMeterRegistry(), Clock.systemUTC()),
+                transactionTemplate, outboxProperties, outboxRelay);
+
+        statistics.clear();
+        TransactionResponseDTO result = transactionService.createTransaction(request);
+        //The test transaction is rolled back, flush to send what the commit would have sent
+        entityManager.flush();
+        return result;
+    }
+}
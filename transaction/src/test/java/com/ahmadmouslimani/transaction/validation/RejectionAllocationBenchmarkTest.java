@@ -0,0 +1,91 @@
+package com.ahmadmouslimani.transaction.validation;
+
+import com.ahmadmouslimani.transaction.dto.AccountResponseDTO;
+import com.ahmadmouslimani.transaction.dto.CardResponseDTO;
+import com.ahmadmouslimani.transaction.dto.TransactionRequestDTO;
+import com.ahmadmouslimani.transaction.exception.TransactionException;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the bytes allocated per rejected transaction by the business checks, against the exception each
+ * rejection used to throw. Allocation is read from the thread counters of the JVM, so the numbers are exact
+ * and do not depend on the speed of the machine.
+ */
+class RejectionAllocationBenchmarkTest {
+
+    private static final int WARMUP_RUNS = 20_000;
+    private static final int MEASURED_RUNS = 200_000;
+
+    private final UUID accountId = UUID.randomUUID();
+    private final CardResponseDTO inactiveCard =
+            new CardResponseDTO(UUID.randomUUID(), LocalDate.now().plusYears(1), "1234123412341234", "INACTIVE", accountId);
+    private final AccountResponseDTO emptyAccount = new AccountResponseDTO(accountId, "ACTIVE", new BigDecimal("0.00"));
+    private final TransactionRequestDTO debit = new TransactionRequestDTO(new BigDecimal("100.00"), "D", "1234123412341234");
+
+    @Test
+    @DisplayName("A rejected card or a debit without funds allocates nothing, a thrown rejection allocates its stack trace")
+    void rejectionPath_AllocationPerRejection() {
+        //Arrange
+        com.sun.management.ThreadMXBean threads = threadBean();
+
+        //Act
+        double typedResult = bytesPerRun(threads, () -> {
+            ValidationResult card = TransactionValidator.validateCard(inactiveCard);
+            ValidationResult account = TransactionValidator.validateAccount(emptyAccount, debit);
+            return card.code().ordinal() + account.code().ordinal();
+        });
+        double thrown = bytesPerRun(threads, () -> {
+            try {
+                throw new RejectedTransactionException("Transaction failed. Card is INACTIVE");
+            } catch (TransactionException ex) {
+                return ex.getMessage().length();
+            }
+        });
+        System.out.printf("Bytes allocated per rejection: typed result %.1f, thrown exception %.1f%n", typedResult, thrown);
+
+        //Assert
+        assertTrue(typedResult < 1, "Rejections are shared constants, got " + typedResult + " bytes per rejection");
+        assertTrue(thrown > 100 * Math.max(typedResult, 1), "An exception captures a stack trace on every rejection");
+    }
+
+    private static double bytesPerRun(com.sun.management.ThreadMXBean threads, IntSupplier rejection) {
+        long threadId = Thread.currentThread().getId();
+        long sink = 0;
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            sink += rejection.getAsInt();
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            sink += rejection.getAsInt();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        assertTrue(sink > 0);
+        return (double) allocated / MEASURED_RUNS;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "Needs the HotSpot thread allocation counters");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+                "Thread allocation counters are disabled");
+        return threads;
+    }
+
+    //Same shape as the rejection exceptions the validation threw before it returned typed results
+    private static class RejectedTransactionException extends TransactionException {
+        RejectedTransactionException(String message) {
+            super(message);
+        }
+    }
+}
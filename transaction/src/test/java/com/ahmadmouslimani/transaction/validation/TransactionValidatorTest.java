@@ -0,0 +1,61 @@
+package com.ahmadmouslimani.transaction.validation;
+
+import com.ahmadmouslimani.transaction.dto.AccountResponseDTO;
+import com.ahmadmouslimani.transaction.dto.CardResponseDTO;
+import com.ahmadmouslimani.transaction.dto.TransactionRequestDTO;
+import com.ahmadmouslimani.transaction.enums.RejectionCode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionValidatorTest {
+
+    private final UUID accountId = UUID.randomUUID();
+    private final TransactionRequestDTO debit = new TransactionRequestDTO(new BigDecimal("100.00"), "D", "1234123412341234");
+
+    @Test
+    @DisplayName("Should reject an inactive card before checking its expiry, and an expired card with its expiry date")
+    void validateCard_Rejections() {
+        //Arrange
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+
+        //Act
+        ValidationResult inactive = TransactionValidator.validateCard(card("INACTIVE", yesterday));
+        ValidationResult expired = TransactionValidator.validateCard(card("ACTIVE", yesterday));
+        ValidationResult valid = TransactionValidator.validateCard(card("ACTIVE", LocalDate.now().plusYears(1)));
+
+        //Assert
+        assertEquals(RejectionCode.INACTIVE_CARD, inactive.code());
+        assertEquals("Transaction failed. Card is INACTIVE", inactive.reason());
+        assertEquals(RejectionCode.EXPIRED_CARD, expired.code());
+        assertEquals("Transaction failed. Card expired on " + yesterday, expired.reason());
+        assertTrue(valid.isValid());
+        assertNull(valid.reason());
+    }
+
+    @Test
+    @DisplayName("Should check the account status first, and the funds of debits only")
+    void validateAccount_Rejections() {
+        //Act & Assert
+        assertEquals(RejectionCode.INACTIVE_ACCOUNT,
+                TransactionValidator.validateAccount(account("INACTIVE", "0.00"), debit).code());
+        assertEquals(RejectionCode.INSUFFICIENT_FUNDS,
+                TransactionValidator.validateAccount(account("ACTIVE", "99.99"), debit).code());
+        assertSame(ValidationResult.VALID, TransactionValidator.validateAccount(account("ACTIVE", "100.00"), debit));
+        assertSame(ValidationResult.VALID, TransactionValidator.validateAccount(account("ACTIVE", "0.00"),
+                new TransactionRequestDTO(new BigDecimal("100.00"), "C", "1234123412341234")));
+    }
+
+    private CardResponseDTO card(String status, LocalDate expiry) {
+        return new CardResponseDTO(UUID.randomUUID(), expiry, "1234123412341234", status, accountId);
+    }
+
+    private AccountResponseDTO account(String status, String balance) {
+        return new AccountResponseDTO(accountId, status, new BigDecimal(balance));
+    }
+}